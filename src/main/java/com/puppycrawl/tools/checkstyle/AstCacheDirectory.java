@@ -0,0 +1,468 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.grammars.CommentListener;
+import com.puppycrawl.tools.checkstyle.grammars.GeneratedJavaLexer;
+import com.puppycrawl.tools.checkstyle.grammars.GeneratedJavaRecognizer;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+/**
+ * Directory of parsed trees of Java files, so that a file is not parsed again
+ * while its content stays the same.
+ *
+ * <p>A tree is stored together with the comments reported by the lexer, in a
+ * file named after the hash of the file content and of the classes of the
+ * parser. Files are written to a temporary file first and renamed, so the
+ * directory can be shared by several threads and processes. A missing,
+ * unreadable or broken file only means that the file is parsed again. A loaded
+ * file is touched, so when the directory exceeds its maximum size at the end
+ * of an audit, the files which were used least recently are removed first.</p>
+ *
+ */
+final class AstCacheDirectory {
+
+    /** Version of the format of files, changed with any change of the format. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Marker at the start of every file. */
+    private static final int MAGIC = 0x43534154;
+
+    /** Extension of the files with trees. */
+    private static final String FILE_EXTENSION = ".ast";
+
+    /** Length of the names of subdirectories, taken from the start of a hash. */
+    private static final int SUBDIRECTORY_NAME_LENGTH = 2;
+
+    /** The maximum size of the files in the directory, in bytes. */
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+
+    /** Classes whose changes change the parsed trees or their format. */
+    private static final Class<?>[] PARSER_CLASSES = {
+        GeneratedJavaLexer.class,
+        GeneratedJavaRecognizer.class,
+        JavaParser.class,
+        DetailAstSerializer.class,
+    };
+
+    /** Fingerprint of the parser, which is a part of the hash of every file. */
+    private static final String PARSER_FINGERPRINT = getParserFingerprint();
+
+    /** The directory. */
+    private final File directory;
+
+    /**
+     * Creates a new instance.
+     * @param directoryName the name of the directory, which is created when
+     *     the first tree is stored.
+     */
+    AstCacheDirectory(String directoryName) {
+        directory = new File(directoryName);
+    }
+
+    /**
+     * Returns the tree of a Java file. The tree is loaded from the directory if
+     * there is a tree of the same content, otherwise the file is parsed and
+     * the tree is stored. Comments of the file are reported to its contents
+     * in both cases.
+     * @param contents the contents of the file.
+     * @return the root of the tree, {@code null} for a file without any tokens.
+     * @throws CheckstyleException if the file is not a valid Java source.
+     */
+    public DetailAST parse(FileContents contents) throws CheckstyleException {
+        final File file = getFile(contents);
+        CachedTree tree = null;
+        if (file.isFile()) {
+            tree = read(file);
+            if (tree != null && !file.setLastModified(System.currentTimeMillis())) {
+                // the file is removed, the tree is stored again
+                tree = null;
+            }
+        }
+        if (tree == null) {
+            final CommentRecorder recorder = new CommentRecorder(contents);
+            final DetailAST root = JavaParser.parse(contents, recorder);
+            write(file, new CachedTree(root, recorder.comments));
+            tree = new CachedTree(root, null);
+        }
+        else {
+            for (Comment comment : tree.comments) {
+                comment.report(contents);
+            }
+        }
+        return tree.root;
+    }
+
+    /**
+     * Removes the trees which were used least recently, if the directory
+     * exceeds its maximum size.
+     */
+    public void finishAudit() {
+        ResultCacheDirectory.removeLeastRecentlyUsed(
+                ResultCacheDirectory.listFiles(directory, FILE_EXTENSION), MAX_SIZE);
+    }
+
+    /**
+     * Returns the file of the tree of the given contents.
+     * @param contents the contents of a Java file.
+     * @return the file of the tree.
+     */
+    private File getFile(FileContents contents) {
+        final String hash = getHash(contents.getText().getFullText().toString());
+        final File subdirectory =
+                new File(directory, hash.substring(0, SUBDIRECTORY_NAME_LENGTH));
+        return new File(subdirectory, hash.substring(SUBDIRECTORY_NAME_LENGTH)
+                + FILE_EXTENSION);
+    }
+
+    /**
+     * Calculates the hash of a file content, which also depends on the parser
+     * and the format, so trees of another grammar or format are never used.
+     * @param content the content of a Java file.
+     * @return the hash in hexadecimal form.
+     */
+    private static String getHash(String content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update((FORMAT_VERSION + ":" + PARSER_FINGERPRINT + ":")
+                    .getBytes(StandardCharsets.UTF_8.name()));
+            digest.update(content.getBytes(StandardCharsets.UTF_8.name()));
+            return BaseEncoding.base16().lowerCase().encode(digest.digest());
+        }
+        catch (final UnsupportedEncodingException ex) {
+            // rethrow as unchecked exception
+            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        }
+        catch (final NoSuchAlgorithmException ex) {
+            // rethrow as unchecked exception
+            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        }
+    }
+
+    /**
+     * Calculates the fingerprint of the parser from the class files of the
+     * parser classes, as the version of Checkstyle is not known outside of
+     * its jar and does not change between builds of a snapshot.
+     * @return the fingerprint in hexadecimal form, or a random value if a class
+     *     file can't be read, so that stored trees are not used.
+     */
+    private static String getParserFingerprint() {
+        String result;
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (Class<?> parserClass : PARSER_CLASSES) {
+                final InputStream input = parserClass.getResourceAsStream(
+                        parserClass.getSimpleName() + ".class");
+                if (input == null) {
+                    throw new IOException("Unable to find class file of " + parserClass);
+                }
+                try {
+                    digest.update(ByteStreams.toByteArray(input));
+                }
+                finally {
+                    closeQuietly(input);
+                }
+            }
+            result = BaseEncoding.base16().lowerCase().encode(digest.digest());
+        }
+        catch (final IOException ignored) {
+            result = UUID.randomUUID().toString();
+        }
+        catch (final NoSuchAlgorithmException ex) {
+            // rethrow as unchecked exception
+            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a tree from a file.
+     * @param file the file to read.
+     * @return the tree, or {@code null} if the file can't be read.
+     */
+    private static CachedTree read(File file) {
+        CachedTree result = null;
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(
+                    Files7.newInputStream(new Path(file))));
+            if (input.readInt() == MAGIC && input.readInt() == FORMAT_VERSION) {
+                final List<Comment> comments = readComments(input, file.length());
+                result = new CachedTree(DetailAstSerializer.read(input, file.length()),
+                        comments);
+            }
+        }
+        catch (IOException ignored) {
+            // the file is removed or broken, the file content is parsed again
+        }
+        // -@cs[IllegalCatch] A broken file must not fail the audit
+        catch (RuntimeException ignored) {
+            // the file is broken, the file content is parsed again
+        }
+        finally {
+            closeQuietly(input);
+        }
+        return result;
+    }
+
+    /**
+     * Writes a tree to a file, via a temporary file in the same directory.
+     * @param file the file to write.
+     * @param tree the tree to write.
+     */
+    private static void write(File file, CachedTree tree) {
+        final File subdirectory = file.getParentFile();
+        File temporaryFile = null;
+        DataOutputStream output = null;
+        try {
+            if (!subdirectory.isDirectory() && !subdirectory.mkdirs()
+                    && !subdirectory.isDirectory()) {
+                throw new IOException("Unable to create directory " + subdirectory);
+            }
+            temporaryFile = File.createTempFile(file.getName(), ".tmp", subdirectory);
+            output = new DataOutputStream(
+                    new BufferedOutputStream(Files7.newOutputStream(new Path(temporaryFile))));
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            writeComments(output, tree.comments);
+            DetailAstSerializer.write(tree.root, output);
+            output.close();
+            output = null;
+            if (temporaryFile.renameTo(file)) {
+                temporaryFile = null;
+            }
+        }
+        catch (IOException ignored) {
+            // the cache is optional, the file is parsed again next time
+        }
+        finally {
+            closeQuietly(output);
+            if (temporaryFile != null && !temporaryFile.delete()) {
+                temporaryFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Reads comments.
+     * @param input the input to read from.
+     * @param maxSize the size of the file, which bounds the number of comments.
+     * @return the comments.
+     * @throws IOException if the input fails.
+     */
+    private static List<Comment> readComments(DataInput input, long maxSize)
+            throws IOException {
+        final int size = input.readInt();
+        if (size < 0 || size > maxSize) {
+            throw new IOException("Invalid number of comments " + size);
+        }
+        final List<Comment> comments = new ArrayList<Comment>();
+        for (int i = 0; i < size; i++) {
+            final boolean block = input.readBoolean();
+            final String type = input.readUTF();
+            final int startLineNo = input.readInt();
+            final int startColNo = input.readInt();
+            int endLineNo = 0;
+            int endColNo = 0;
+            if (block) {
+                endLineNo = input.readInt();
+                endColNo = input.readInt();
+            }
+            comments.add(new Comment(block, type, startLineNo, startColNo, endLineNo, endColNo));
+        }
+        return comments;
+    }
+
+    /**
+     * Writes comments.
+     * @param output the output to write to.
+     * @param comments the comments.
+     * @throws IOException if the output fails.
+     */
+    private static void writeComments(DataOutput output, List<Comment> comments)
+            throws IOException {
+        output.writeInt(comments.size());
+        for (Comment comment : comments) {
+            output.writeBoolean(comment.block);
+            output.writeUTF(comment.type);
+            output.writeInt(comment.startLineNo);
+            output.writeInt(comment.startColNo);
+            if (comment.block) {
+                output.writeInt(comment.endLineNo);
+                output.writeInt(comment.endColNo);
+            }
+        }
+    }
+
+    /**
+     * Closes a stream, ignoring any failure.
+     * @param stream the stream to close, may be {@code null}.
+     */
+    private static void closeQuietly(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            }
+            catch (IOException ignored) {
+                // nothing to do, the stream is not used anymore
+            }
+        }
+    }
+
+    /**
+     * A tree with the comments of its file.
+     */
+    private static final class CachedTree {
+
+        /** The root of the tree, {@code null} for a file without any tokens. */
+        private final DetailAST root;
+
+        /** The comments reported by the lexer. */
+        private final List<Comment> comments;
+
+        /**
+         * Creates a new instance.
+         * @param root the root of the tree.
+         * @param comments the comments reported by the lexer.
+         */
+        CachedTree(DetailAST root, List<Comment> comments) {
+            this.root = root;
+            this.comments = comments;
+        }
+
+    }
+
+    /**
+     * A comment reported by the lexer.
+     */
+    private static final class Comment {
+
+        /** Whether the comment is a block comment. */
+        private final boolean block;
+
+        /** The type of the comment. */
+        private final String type;
+
+        /** The starting line number. */
+        private final int startLineNo;
+
+        /** The starting column number. */
+        private final int startColNo;
+
+        /** The ending line number of a block comment. */
+        private final int endLineNo;
+
+        /** The ending column number of a block comment. */
+        private final int endColNo;
+
+        /**
+         * Creates a new instance.
+         * @param block whether the comment is a block comment.
+         * @param type the type of the comment.
+         * @param startLineNo the starting line number.
+         * @param startColNo the starting column number.
+         * @param endLineNo the ending line number of a block comment.
+         * @param endColNo the ending column number of a block comment.
+         * @noinspection ConstructorWithTooManyParameters
+         */
+        Comment(boolean block, String type, int startLineNo, int startColNo,
+                int endLineNo, int endColNo) {
+            this.block = block;
+            this.type = type;
+            this.startLineNo = startLineNo;
+            this.startColNo = startColNo;
+            this.endLineNo = endLineNo;
+            this.endColNo = endColNo;
+        }
+
+        /**
+         * Reports the comment to a listener.
+         * @param listener the listener.
+         */
+        public void report(CommentListener listener) {
+            if (block) {
+                listener.reportBlockComment(type, startLineNo, startColNo, endLineNo, endColNo);
+            }
+            else {
+                listener.reportSingleLineComment(type, startLineNo, startColNo);
+            }
+        }
+
+    }
+
+    /**
+     * Records comments reported by the lexer and passes them on.
+     */
+    private static final class CommentRecorder implements CommentListener {
+
+        /** The recorded comments. */
+        private final List<Comment> comments = new ArrayList<Comment>();
+
+        /** The listener to pass the comments to. */
+        private final CommentListener listener;
+
+        /**
+         * Creates a new instance.
+         * @param listener the listener to pass the comments to.
+         */
+        CommentRecorder(CommentListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void reportSingleLineComment(String type, int startLineNo, int startColNo) {
+            comments.add(new Comment(false, type, startLineNo, startColNo, 0, 0));
+            listener.reportSingleLineComment(type, startLineNo, startColNo);
+        }
+
+        @Override
+        public void reportBlockComment(String type, int startLineNo, int startColNo,
+                int endLineNo, int endColNo) {
+            comments.add(new Comment(true, type, startLineNo, startColNo, endLineNo, endColNo));
+            listener.reportBlockComment(type, startLineNo, startColNo, endLineNo, endColNo);
+        }
+
+    }
+
+}
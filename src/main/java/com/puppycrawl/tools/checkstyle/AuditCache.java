@@ -0,0 +1,697 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+/**
+ * The caches of the violations of files used by {@link Checker}: the cache
+ * file, which records the violations of unchanged files, and the result cache,
+ * which stores them by the hash of the configuration and of the content of a
+ * file.
+ *
+ */
+final class AuditCache {
+
+    /** The number of threads which read files to hash their contents. */
+    private static final int HASHING_THREADS_NUMBER = 4;
+
+    /** Logger for AuditCache. */
+    private static final Log LOG = LogFactory.getLog(AuditCache.class);
+
+    /** Cache file. **/
+    private PropertyCacheFile cacheFile;
+
+    /** The name of the cache file. **/
+    private String cacheFileName;
+
+    /** Whether the cache file records the violations of each module separately. */
+    private boolean cacheByModule;
+
+    /** Whether the cache file identifies files by the hash of their content. */
+    private boolean cacheByContent;
+
+    /** Whether the cache file is stored in the binary format. */
+    private boolean binaryCacheFile;
+
+    /** Whether the cache file is shared with other processes. */
+    private boolean sharedCacheFile;
+
+    /** The maximum number of files in the cache file, zero if the number is not limited. */
+    private int maxCachedFiles;
+
+    /** Whether the cache file was changed since it was loaded or persisted. */
+    private boolean changed;
+
+    /** Cache of the violations of files, {@code null} if violations are not stored. */
+    private ResultCache resultCache;
+
+    /** The maximum size of the directory of violations, zero if the size is not limited. */
+    private long resultCacheMaxSize;
+
+    /**
+     * The hashes of the configurations of the modules by module keys,
+     * {@code null} if the violations of modules are not recorded separately.
+     */
+    private Map<String, String> moduleHashes;
+
+    /**
+     * The hashes of the contents of the files under processing by absolute
+     * file names, {@code null} if files are identified by their timestamp.
+     */
+    private Map<String, String> contentHashes;
+
+    /**
+     * The hash of the configuration and the external resources, which is a part
+     * of the keys of the result cache, {@code null} if there is no result cache.
+     */
+    private String resultCacheHash;
+
+    /** The base directory of the audit, which file names in the result cache are relative to. */
+    private String basedir;
+
+    /**
+     * Sets the cache file and loads it.
+     * @param fileName the cache file.
+     * @param configuration the configuration of the checker.
+     * @throws IOException if there are some problems with file loading.
+     */
+    public void setCacheFile(String fileName, Configuration configuration) throws IOException {
+        cacheFileName = fileName;
+        loadCacheFile(configuration);
+    }
+
+    /**
+     * Sets whether the cache file records the violations of each module,
+     * and loads the cache file again if it was loaded for the other mode.
+     * @param cacheByModule whether to record the violations of each module.
+     * @param configuration the configuration of the checker.
+     * @throws IOException if there are some problems with file loading.
+     */
+    public void setCacheByModule(boolean cacheByModule, Configuration configuration)
+            throws IOException {
+        if (this.cacheByModule != cacheByModule) {
+            this.cacheByModule = cacheByModule;
+            if (cacheFile != null) {
+                // the cache file was loaded with the hash of another configuration
+                loadCacheFile(configuration);
+            }
+        }
+    }
+
+    /**
+     * Sets whether the cache file is stored in the binary format.
+     * @param binaryCacheFile whether to store the cache file in the binary format.
+     */
+    public void setBinaryCacheFile(boolean binaryCacheFile) {
+        this.binaryCacheFile = binaryCacheFile;
+        if (cacheFile != null) {
+            cacheFile.setBinary(binaryCacheFile);
+        }
+    }
+
+    /**
+     * Sets whether the cache file is shared with other processes, and loads
+     * the cache file again if it was loaded for the other mode.
+     * @param sharedCacheFile whether the cache file is shared with other processes.
+     * @param configuration the configuration of the checker.
+     * @throws IOException if there are some problems with file loading.
+     */
+    public void setSharedCacheFile(boolean sharedCacheFile, Configuration configuration)
+            throws IOException {
+        if (this.sharedCacheFile != sharedCacheFile) {
+            this.sharedCacheFile = sharedCacheFile;
+            if (cacheFile != null) {
+                // the cache file was loaded without the lock
+                loadCacheFile(configuration);
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of files in the cache file.
+     * @param maxCachedFiles the maximum number of files, zero if the number is not limited.
+     */
+    public void setMaxCachedFiles(int maxCachedFiles) {
+        this.maxCachedFiles = maxCachedFiles;
+        if (cacheFile != null) {
+            cacheFile.setMaxFiles(maxCachedFiles);
+        }
+    }
+
+    /**
+     * Sets whether the cache file identifies unchanged files by the hash of
+     * their content instead of their modification time.
+     * @param cacheByContent whether to identify files by their content.
+     */
+    public void setCacheByContent(boolean cacheByContent) {
+        this.cacheByContent = cacheByContent;
+    }
+
+    /**
+     * Sets the directory to store the violations of files in.
+     * @param directoryName the name of the directory.
+     */
+    public void setResultCacheDirectory(String directoryName) {
+        final ResultCacheDirectory directory = new ResultCacheDirectory(directoryName);
+        directory.setMaxSize(resultCacheMaxSize);
+        resultCache = directory;
+    }
+
+    /**
+     * Sets the maximum size of the directory of violations.
+     * @param resultCacheMaxSize the maximum size in bytes, zero if the size is not limited.
+     */
+    public void setResultCacheMaxSize(long resultCacheMaxSize) {
+        this.resultCacheMaxSize = resultCacheMaxSize;
+        if (resultCache instanceof ResultCacheDirectory) {
+            ((ResultCacheDirectory) resultCache).setMaxSize(resultCacheMaxSize);
+        }
+    }
+
+    /**
+     * Loads the cache file. If the violations of modules are recorded
+     * separately, the cache file is only cleared when the properties of
+     * the checker are changed.
+     * @param configuration the configuration of the checker.
+     * @throws IOException if there are some problems with file loading.
+     */
+    private void loadCacheFile(Configuration configuration) throws IOException {
+        Configuration cacheConfiguration = configuration;
+        if (cacheByModule && configuration != null) {
+            try {
+                cacheConfiguration = copyConfiguration(configuration,
+                        Arrays.asList(configuration.getChildren()));
+            }
+            catch (CheckstyleException ex) {
+                throw new IllegalStateException("Unable to copy configuration.", ex);
+            }
+        }
+        cacheFile = new PropertyCacheFile(cacheConfiguration, cacheFileName);
+        cacheFile.setBinary(binaryCacheFile);
+        cacheFile.setShared(sharedCacheFile);
+        cacheFile.setMaxFiles(maxCachedFiles);
+        cacheFile.load();
+        changed = true;
+    }
+
+    /**
+     * Persists the cache file, if any, unless it is not changed since the last time.
+     */
+    public void persist() {
+        if (cacheFile != null && changed) {
+            try {
+                cacheFile.persist();
+            }
+            catch (IOException ex) {
+                throw new IllegalStateException("Unable to persist cache file.", ex);
+            }
+            changed = false;
+        }
+    }
+
+    /**
+     * Clears the cache file.
+     */
+    public void reset() {
+        if (cacheFile != null) {
+            cacheFile.reset();
+            changed = true;
+        }
+    }
+
+    /**
+     * Prepares the caches for an audit: checks the external resources recorded
+     * in the cache file and calculates the hashes of the configuration.
+     * @param configuration the configuration of the checker, may be {@code null}.
+     * @param fileSetChecks the fileset checks of the checker.
+     * @param fileSetCheckConfigurations the configurations of the fileset checks.
+     * @param filterModules the filters of the checker.
+     * @param externalResources the external resources of the modules.
+     * @param auditBasedir the base directory of the audit.
+     * @throws CheckstyleException if a configuration can't be copied.
+     */
+    public void startAudit(Configuration configuration, List<FileSetCheck> fileSetChecks,
+            Map<FileSetCheck, Configuration> fileSetCheckConfigurations,
+            Collection<Object> filterModules, Set<String> externalResources,
+            String auditBasedir) throws CheckstyleException {
+        basedir = auditBasedir;
+        if (cacheFile != null) {
+            changed = true;
+            cacheFile.putExternalResources(externalResources);
+            if (cacheByModule) {
+                moduleHashes = createModuleHashes(configuration, fileSetChecks,
+                        fileSetCheckConfigurations);
+                cacheFile.setModules(moduleHashes.values());
+            }
+        }
+        if (resultCache != null && configuration != null) {
+            resultCacheHash = CacheHasher.getHash((CacheHasher.getConfigurationHash(
+                    configuration) + ':' + CacheHasher.getExternalResourcesHash(
+                    externalResources) + ':' + CacheHasher.getCodeFingerprint(
+                    getModuleClasses(fileSetChecks, filterModules)))
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the classes of Checkstyle and of the modules, whose code
+     * produces the violations stored in the result cache.
+     * @param fileSetChecks the fileset checks of the checker.
+     * @param filterModules the filters of the checker.
+     * @return the classes.
+     */
+    private static Set<Class<?>> getModuleClasses(List<FileSetCheck> fileSetChecks,
+            Collection<Object> filterModules) {
+        final Set<Object> modules = new HashSet<Object>(fileSetChecks);
+        modules.addAll(filterModules);
+        for (final FileSetCheck fsc : fileSetChecks) {
+            if (fsc instanceof TreeWalker) {
+                modules.addAll(((TreeWalker) fsc).getModules());
+            }
+        }
+        final Set<Class<?>> result = new HashSet<Class<?>>();
+        result.add(Checker.class);
+        for (Object module : modules) {
+            result.add(module.getClass());
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the caches identify the files of the audit by the hashes
+     * of their contents, which must be calculated before the files are audited.
+     * @return {@code true} if the contents of the files must be hashed.
+     */
+    public boolean isHashingContents() {
+        return cacheFile != null && cacheByContent || resultCacheHash != null;
+    }
+
+    /**
+     * Calculates the hashes of the contents of the files to audit.
+     * @param files the files to audit.
+     * @throws CheckstyleException if the calculation is interrupted.
+     */
+    public void hashContents(Collection<File> files) throws CheckstyleException {
+        contentHashes = new FileContentHasher(HASHING_THREADS_NUMBER).hash(files);
+    }
+
+    /**
+     * Checks whether there is a cache file, which must be pruned by the
+     * audited files after the audit.
+     * @return {@code true} if there is a cache file.
+     */
+    public boolean hasCacheFile() {
+        return cacheFile != null;
+    }
+
+    /**
+     * Finishes an audit: removes deleted and, if the number of files is
+     * limited, least recently audited files from the cache file, logs the
+     * statistics of the cache and notifies the result cache.
+     * @param auditedFiles the audited files, {@code null} if there is no cache file.
+     */
+    public void finishAudit(List<File> auditedFiles) {
+        if (cacheFile != null) {
+            final int prunedFiles = cacheFile.prune(auditedFiles);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Cache hits: " + cacheFile.getHits()
+                        + ", misses: " + cacheFile.getMisses()
+                        + ", removed files: " + prunedFiles);
+            }
+        }
+        if (resultCacheHash != null) {
+            resultCache.finishAudit();
+        }
+    }
+
+    /**
+     * Forgets the hashes calculated for an audit.
+     */
+    public void clearAudit() {
+        contentHashes = null;
+        moduleHashes = null;
+        resultCacheHash = null;
+    }
+
+    /**
+     * Returns the violations of an unchanged file which were recorded in the
+     * cache file or in the result cache. A changed file is recorded in the
+     * cache file.
+     * @param file the file to examine.
+     * @return the result recorded for the file.
+     */
+    public CachedResult getCachedResult(File file) {
+        CachedResult result = null;
+        final String cacheKey = getCacheKey(file);
+        final String fileName = file.getAbsolutePath();
+        if (cacheKey != null) {
+            if (cacheFile.isInCache(fileName, cacheKey)) {
+                final SortedSet<LocalizedMessage> violations = cacheFile.getViolations(fileName);
+                if (violations != null) {
+                    result = getValidResult(fileName, violations);
+                }
+            }
+            if (result == null) {
+                cacheFile.put(fileName, cacheKey);
+            }
+        }
+        final String resultKey = getResultCacheKey(fileName);
+        if (result == null && resultKey != null) {
+            final SortedSet<LocalizedMessage> violations = resultCache.get(resultKey);
+            if (violations != null) {
+                result = new CachedResult(violations, null);
+                if (cacheKey != null) {
+                    recordViolations(fileName, violations);
+                }
+            }
+        }
+        if (cacheKey != null) {
+            cacheFile.recordAudit(fileName, result != null);
+        }
+        if (result == null) {
+            result = new CachedResult(new TreeSet<LocalizedMessage>(),
+                    Collections.<String>emptySet());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the part of the violations recorded for an unchanged file which
+     * were reported by modules of the current configuration.
+     * @param fileName the name of the file.
+     * @param violations the violations recorded for the file.
+     * @return the result for the file, {@code null} if no recorded violation is valid.
+     */
+    private CachedResult getValidResult(String fileName,
+            SortedSet<LocalizedMessage> violations) {
+        CachedResult result = null;
+        if (moduleHashes == null) {
+            result = new CachedResult(violations, null);
+        }
+        else {
+            final Set<String> recordedHashes = cacheFile.getModules(fileName);
+            if (recordedHashes != null) {
+                final Set<String> skippedModules = new HashSet<String>();
+                for (final Map.Entry<String, String> module : moduleHashes.entrySet()) {
+                    if (recordedHashes.contains(module.getValue())) {
+                        skippedModules.add(module.getKey());
+                    }
+                }
+                if (skippedModules.size() == moduleHashes.size()
+                        && recordedHashes.size() == moduleHashes.size()) {
+                    result = new CachedResult(violations, null);
+                }
+                else if (!skippedModules.isEmpty()) {
+                    final SortedSet<LocalizedMessage> validViolations =
+                            new TreeSet<LocalizedMessage>();
+                    for (final LocalizedMessage violation : violations) {
+                        if (skippedModules.contains(getModuleKey(violation.getSourceName(),
+                                violation.getModuleId()))) {
+                            validViolations.add(violation);
+                        }
+                    }
+                    result = new CachedResult(validViolations, skippedModules);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records the violations of an audited file, which passed the filters,
+     * in the cache file and in the result cache.
+     * @param fileName the audited file.
+     * @param violations the violations of the file.
+     */
+    public void putViolations(String fileName, SortedSet<LocalizedMessage> violations) {
+        if (cacheFile != null && (!violations.isEmpty() || moduleHashes != null)) {
+            recordViolations(fileName, violations);
+        }
+        final String resultKey = getResultCacheKey(fileName);
+        if (resultKey != null) {
+            resultCache.put(resultKey, violations);
+        }
+    }
+
+    /**
+     * Removes a file from the cache file, so it is audited again.
+     * @param fileName the audited file.
+     */
+    public void remove(String fileName) {
+        if (cacheFile != null) {
+            cacheFile.remove(fileName);
+        }
+    }
+
+    /**
+     * Records the violations of a file in the cache file.
+     * @param fileName the audited file
+     * @param violations the violations of the file
+     */
+    private void recordViolations(String fileName, SortedSet<LocalizedMessage> violations) {
+        cacheFile.putViolations(fileName, violations);
+        if (moduleHashes != null) {
+            cacheFile.putModules(fileName);
+        }
+    }
+
+    /**
+     * Returns the value which identifies the state of a file in the cache file.
+     * @param file the file.
+     * @return the hash of the file content or the timestamp of the file,
+     *     {@code null} if the file can't be cached.
+     */
+    private String getCacheKey(File file) {
+        String result = null;
+        if (cacheFile != null) {
+            if (cacheByContent) {
+                result = contentHashes.get(file.getAbsolutePath());
+            }
+            else {
+                result = Long.toString(file.lastModified());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key of the violations of a file in the result cache.
+     * @param fileName the absolute name of the file.
+     * @return the key, {@code null} if the violations of the file are not cached.
+     */
+    private String getResultCacheKey(String fileName) {
+        String result = null;
+        if (resultCacheHash != null) {
+            final String contentHash = contentHashes.get(fileName);
+            if (contentHash != null) {
+                result = CacheHasher.getHash((resultCacheHash + ':' + contentHash + ':'
+                        + CommonUtil.relativizeAndNormalizePath(basedir, fileName))
+                        .getBytes(StandardCharsets.UTF_8)).toLowerCase(Locale.ENGLISH);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the hashes of the configurations of the modules whose
+     * violations are recorded separately: fileset checks and checks of
+     * {@link TreeWalker}. The hash of a module covers the configurations of
+     * the filters and of the parent {@link TreeWalker}, which affect its
+     * violations. Modules with the same key share one hash, as their
+     * violations can't be told apart.
+     * @param configuration the configuration of the checker.
+     * @param fileSetChecks the fileset checks of the checker.
+     * @param fileSetCheckConfigurations the configurations of the fileset checks.
+     * @return the hashes by module keys.
+     * @throws CheckstyleException if a configuration can't be copied.
+     */
+    private static Map<String, String> createModuleHashes(Configuration configuration,
+            List<FileSetCheck> fileSetChecks,
+            Map<FileSetCheck, Configuration> fileSetCheckConfigurations)
+            throws CheckstyleException {
+        final String filtersHash = CacheHasher.getConfigurationHash(copyConfiguration(
+                configuration, fileSetCheckConfigurations.values()));
+        final Map<String, StringBuilder> moduleHashParts =
+                new LinkedHashMap<String, StringBuilder>();
+        for (final FileSetCheck fsc : fileSetChecks) {
+            final Configuration fscConfiguration = fileSetCheckConfigurations.get(fsc);
+            if (fsc instanceof TreeWalker) {
+                final Map<AbstractCheck, Configuration> checkConfigurations =
+                        ((TreeWalker) fsc).getCheckConfigurations();
+                final String treeWalkerHash = CacheHasher.getConfigurationHash(
+                        copyConfiguration(fscConfiguration, checkConfigurations.values()));
+                for (Map.Entry<AbstractCheck, Configuration> entry
+                        : checkConfigurations.entrySet()) {
+                    final AbstractCheck check = entry.getKey();
+                    addModuleHashPart(moduleHashParts,
+                            getModuleKey(check.getClass().getName(), check.getId()),
+                            filtersHash + treeWalkerHash
+                                + CacheHasher.getConfigurationHash(entry.getValue()));
+                }
+            }
+            else if (fsc instanceof AbstractFileSetCheck && fscConfiguration != null) {
+                addModuleHashPart(moduleHashParts,
+                        getModuleKey(fsc.getClass().getName(),
+                                ((AbstractFileSetCheck) fsc).getId()),
+                        filtersHash + CacheHasher.getConfigurationHash(fscConfiguration));
+            }
+        }
+
+        final Map<String, String> result = new HashMap<String, String>();
+        for (Map.Entry<String, StringBuilder> entry : moduleHashParts.entrySet()) {
+            final String moduleHash = entry.getKey() + entry.getValue();
+            result.put(entry.getKey(), CacheHasher.getHash(
+                    moduleHash.getBytes(StandardCharsets.UTF_8)));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a part of the hash of a module.
+     * @param moduleHashParts the parts of hashes by module keys.
+     * @param moduleKey the key of the module.
+     * @param part the part to add.
+     */
+    private static void addModuleHashPart(Map<String, StringBuilder> moduleHashParts,
+            String moduleKey, String part) {
+        StringBuilder parts = moduleHashParts.get(moduleKey);
+        if (parts == null) {
+            parts = new StringBuilder();
+            moduleHashParts.put(moduleKey, parts);
+        }
+        parts.append(' ').append(part);
+    }
+
+    /**
+     * Copies the name, attributes, messages and children of a configuration,
+     * except for the given children.
+     * @param configuration the configuration to copy.
+     * @param excludedChildren the children not to copy.
+     * @return the copy of the configuration.
+     * @throws CheckstyleException if an attribute can't be copied.
+     */
+    private static Configuration copyConfiguration(Configuration configuration,
+            Collection<Configuration> excludedChildren) throws CheckstyleException {
+        final DefaultConfiguration result = new DefaultConfiguration(configuration.getName());
+        for (final String attributeName : configuration.getAttributeNames()) {
+            result.addAttribute(attributeName, configuration.getAttribute(attributeName));
+        }
+        for (final Map.Entry<String, String> message : configuration.getMessages().entrySet()) {
+            result.addMessage(message.getKey(), message.getValue());
+        }
+        final Set<Configuration> excluded = Collections.newSetFromMap(
+                new IdentityHashMap<Configuration, Boolean>());
+        excluded.addAll(excludedChildren);
+        for (final Configuration child : configuration.getChildren()) {
+            if (!excluded.contains(child)) {
+                result.addChild(child);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the key which identifies the module of a violation, built
+     * from the name of the class and the id of the module.
+     * @param sourceName the name of the class of the module.
+     * @param moduleId the id of the module, may be {@code null}.
+     * @return the key of the module.
+     */
+    static String getModuleKey(String sourceName, String moduleId) {
+        final String result;
+        if (moduleId == null) {
+            result = sourceName;
+        }
+        else {
+            result = sourceName + '#' + moduleId;
+        }
+        return result;
+    }
+
+    /**
+     * The violations recorded in the caches for a file.
+     */
+    static final class CachedResult {
+
+        /** The recorded violations which are still valid. */
+        private final SortedSet<LocalizedMessage> violations;
+        /**
+         * The keys of the modules whose violations are recorded, so they are
+         * not executed, {@code null} if the file is not processed at all.
+         */
+        private final Set<String> skippedModules;
+
+        /**
+         * Creates a new instance.
+         * @param violations the recorded violations which are still valid.
+         * @param skippedModules the keys of the modules whose violations are
+         *     recorded, {@code null} if the file is not processed at all.
+         */
+        CachedResult(SortedSet<LocalizedMessage> violations, Set<String> skippedModules) {
+            this.violations = violations;
+            this.skippedModules = skippedModules;
+        }
+
+        /**
+         * Returns the recorded violations which are still valid.
+         * @return the violations.
+         */
+        public SortedSet<LocalizedMessage> getViolations() {
+            return violations;
+        }
+
+        /**
+         * Returns the keys of the modules whose violations are recorded.
+         * @return the keys, {@code null} if the file is not processed at all.
+         */
+        public Set<String> getSkippedModules() {
+            return skippedModules;
+        }
+
+    }
+
+}
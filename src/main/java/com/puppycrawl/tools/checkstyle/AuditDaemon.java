@@ -0,0 +1,778 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+import com.puppycrawl.tools.checkstyle.jre6.util.Objects;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+/**
+ * Daemon which audits files on behalf of clients, so repeated audits don't
+ * pay for the startup of the JVM, the loading of the configuration and the
+ * creation of the modules.
+ *
+ * <p>The daemon listens on a socket of the loopback interface and serves one
+ * request at a time. A request names the configuration, the properties of the
+ * client, the output format and the files to audit, the response carries the
+ * number of errors and the report. The configured root module of a
+ * configuration is kept for further requests, until the content of the
+ * configuration file or of the external resources of its modules changes, or
+ * a property used by the configuration has another value.</p>
+ *
+ * <p>The daemon trusts the processes of the user who started it: it reads any
+ * configuration and file named by a request with the permissions of that user,
+ * so it must not serve other users of the machine. On startup it writes a
+ * random token to a file which only the user may read, where the file system
+ * supports it, in the directory {@code .checkstyle} of the home directory of
+ * the user. A client sends the token with each request, and requests without
+ * the token are rejected. The token file is deleted when the daemon stops.</p>
+ *
+ */
+final class AuditDaemon implements Closeable {
+
+    /** Status of a response if the audit failed with an exception. */
+    public static final int FAILURE_STATUS = -2;
+
+    /** Version of the protocol, changed with any change of requests or responses. */
+    private static final int PROTOCOL_VERSION = 3;
+
+    /** The number of random bytes of a token. */
+    private static final int TOKEN_LENGTH = 32;
+
+    /** Name for 'xml' format. */
+    private static final String XML_FORMAT_NAME = "xml";
+
+    /** Logger for the daemon. */
+    private static final Log LOG = LogFactory.getLog(AuditDaemon.class);
+
+    /** The socket which accepts requests. */
+    private final ServerSocket serverSocket;
+
+    /** The token which clients must send with requests. */
+    private final String token;
+
+    /** The file which the token is written to for clients. */
+    private final File tokenFile;
+
+    /** The configured root modules by the keys of their requests. */
+    private final Map<String, ConfiguredModule> modules = new HashMap<String, ConfiguredModule>();
+
+    /**
+     * Creates a new instance, listening on the loopback interface, and writes
+     * the token for clients to a file of the token directory.
+     * @param port the port to listen on, zero for any free port.
+     * @param tokenDirectory the directory of token files.
+     * @throws IOException if the socket can't be opened or the token can't be written.
+     */
+    AuditDaemon(int port, File tokenDirectory) throws IOException {
+        final byte[] tokenBytes = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(tokenBytes);
+        token = BaseEncoding.base16().lowerCase().encode(tokenBytes);
+        serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+        tokenFile = getTokenFile(tokenDirectory, serverSocket.getLocalPort());
+        boolean written = false;
+        try {
+            writeToken(tokenFile, token);
+            written = true;
+        }
+        finally {
+            if (!written) {
+                serverSocket.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the default directory of token files, {@code .checkstyle} in
+     * the home directory of the user.
+     * @return the directory.
+     */
+    public static File getDefaultTokenDirectory() {
+        return new File(System.getProperty("user.home"), ".checkstyle");
+    }
+
+    /**
+     * Returns the port the daemon listens on.
+     * @return the port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Serves requests until the daemon is closed.
+     * @throws IOException if the socket fails.
+     */
+    public void run() throws IOException {
+        try {
+            while (!serverSocket.isClosed()) {
+                final Socket socket = accept();
+                if (socket != null) {
+                    try {
+                        serve(socket);
+                    }
+                    catch (IOException ex) {
+                        LOG.debug("Request failed", ex);
+                    }
+                    finally {
+                        socket.close();
+                    }
+                }
+            }
+        }
+        finally {
+            for (ConfiguredModule module : modules.values()) {
+                module.rootModule.destroy();
+            }
+            modules.clear();
+        }
+    }
+
+    /**
+     * Stops the daemon and deletes its token file. A running request is
+     * finished first.
+     * @throws IOException if the socket can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        if (tokenFile.exists() && !tokenFile.delete()) {
+            LOG.debug("Unable to delete token file " + tokenFile);
+        }
+    }
+
+    /**
+     * Sends a request to a daemon and copies its report to a stream.
+     * @param port the port the daemon listens on.
+     * @param tokenDirectory the directory of token files of the daemon.
+     * @param request the request.
+     * @param report the stream to copy the report to.
+     * @return the number of errors, or {@link #FAILURE_STATUS} if the audit failed.
+     * @throws IOException if the token can't be read or the daemon can't be reached.
+     */
+    public static int sendRequest(int port, File tokenDirectory, Request request,
+            OutputStream report) throws IOException {
+        final String token = readToken(getTokenFile(tokenDirectory, port));
+        final Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            final DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(PROTOCOL_VERSION);
+            output.writeUTF(token);
+            request.writeTo(output);
+            output.flush();
+
+            final DataInputStream input = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+            final int result = input.readInt();
+            ByteStreams.copy(input, report);
+            report.flush();
+            return result;
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Waits for the next connection.
+     * @return the connection, or {@code null} if the daemon was closed.
+     * @throws IOException if the socket fails.
+     */
+    private Socket accept() throws IOException {
+        Socket result = null;
+        try {
+            result = serverSocket.accept();
+        }
+        catch (SocketException ex) {
+            if (!serverSocket.isClosed()) {
+                throw ex;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Serves the request of a connection. A failure of the audit is reported
+     * to the client, the daemon keeps serving further requests.
+     * @param socket the connection.
+     * @throws IOException if the connection fails.
+     */
+    private void serve(Socket socket) throws IOException {
+        final DataInputStream input = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        int status;
+        if (input.readInt() != PROTOCOL_VERSION) {
+            status = FAILURE_STATUS;
+            createPrintStream(report).println("Unsupported protocol version, "
+                    + "the daemon must be restarted.");
+        }
+        else if (!isValidToken(input.readUTF())) {
+            status = FAILURE_STATUS;
+            createPrintStream(report).println("Invalid token, the client is not "
+                    + "allowed to use the daemon.");
+        }
+        else {
+            final Request request = Request.readFrom(input);
+            try {
+                status = audit(request, report);
+            }
+            // -@cs[IllegalCatch] Any failure of an audit, including errors of
+            // the modules, must be reported to the client instead of ending the daemon.
+            catch (Throwable ex) {
+                status = FAILURE_STATUS;
+                ex.printStackTrace(createPrintStream(report));
+            }
+        }
+
+        final DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        output.writeInt(status);
+        report.writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * Checks whether a client sent the token of the daemon. The comparison
+     * takes the same time for any token of the same length.
+     * @param clientToken the token sent by the client.
+     * @return {@code true} if the token is valid.
+     */
+    private boolean isValidToken(String clientToken) {
+        return MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                clientToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the token file of the daemon listening on a port.
+     * @param tokenDirectory the directory of token files.
+     * @param port the port.
+     * @return the token file.
+     */
+    private static File getTokenFile(File tokenDirectory, int port) {
+        return new File(tokenDirectory, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Writes a token to a new file, which only the owner may read and write,
+     * in a directory which only the owner may use, where the file system
+     * supports such permissions. A file left by a stopped daemon is replaced.
+     * @param file the token file.
+     * @param token the token.
+     * @throws IOException if the file can't be created or written.
+     */
+    private static void writeToken(File file, String token) throws IOException {
+        final File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create token directory " + directory);
+        }
+        setOwnerOnlyPermissions(directory);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Unable to delete old token file " + file);
+        }
+        // a new file is created, so a link planted at its place is not followed
+        if (!file.createNewFile()) {
+            throw new IOException("Token file was created by another process " + file);
+        }
+        setOwnerOnlyPermissions(file);
+        Files7.write(new Path(file), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Takes away the permissions of other users than the owner of a file.
+     * Failures are only logged, as some file systems don't support them.
+     * @param file the file or directory.
+     */
+    private static void setOwnerOnlyPermissions(File file) {
+        final boolean directory = file.isDirectory();
+        if (!(file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true)
+                && file.setExecutable(false, false) && file.setExecutable(directory, true))) {
+            LOG.debug("Unable to restrict permissions of " + file + " to its owner");
+        }
+    }
+
+    /**
+     * Reads the token of a daemon from its token file.
+     * @param file the token file.
+     * @return the token.
+     * @throws IOException if the file can't be read.
+     */
+    private static String readToken(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new IOException("Unable to find token file " + file
+                    + ", the daemon is not running or was started by another user.");
+        }
+        return new String(Files7.readAllBytes(new Path(file)), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Audits the files of a request with the configured root module of its
+     * configuration, which is configured first if the configuration is new
+     * or changed.
+     * @param request the request.
+     * @param report the stream for the report.
+     * @return the number of errors.
+     * @throws CheckstyleException if the configuration can't be loaded or the audit fails.
+     */
+    private int audit(Request request, OutputStream report) throws CheckstyleException {
+        final String key = request.configLocation + '\n' + request.executeIgnoredModules
+                + '\n' + request.threadModeSettings.getCheckerThreadsNumber()
+                + '\n' + request.threadModeSettings.getTreeWalkerThreadsNumber();
+        final String hash = getConfigurationHash(request.configLocation);
+        ConfiguredModule module = modules.remove(key);
+        if (module != null && !module.isUpToDate(hash, request.properties)) {
+            LOG.debug("Configuration changed: " + request.configLocation);
+            module.rootModule.destroy();
+            module = null;
+        }
+        if (module == null) {
+            module = createModule(request, hash);
+        }
+
+        final AuditListener listener;
+        if (XML_FORMAT_NAME.equals(request.format)) {
+            listener = new XMLLogger(report, AutomaticBean.OutputStreamOptions.NONE);
+        }
+        else {
+            listener = new DefaultLogger(report, AutomaticBean.OutputStreamOptions.NONE);
+        }
+        module.listener.setDelegate(listener);
+        boolean succeeded = false;
+        final int result;
+        try {
+            result = module.rootModule.process(request.files);
+            succeeded = true;
+        }
+        finally {
+            module.listener.setDelegate(null);
+            if (!succeeded) {
+                // the state of a failed module is unknown, it is configured again
+                module.rootModule.destroy();
+            }
+        }
+        modules.put(key, module);
+        return result;
+    }
+
+    /**
+     * Loads the configuration of a request and creates its root module.
+     * @param request the request.
+     * @param hash the hash of the configuration file.
+     * @return the configured root module.
+     * @throws CheckstyleException if the configuration can't be loaded.
+     */
+    private static ConfiguredModule createModule(Request request, String hash)
+            throws CheckstyleException {
+        final ConfigurationLoader.IgnoredModulesOptions ignoredModulesOptions;
+        if (request.executeIgnoredModules) {
+            ignoredModulesOptions = ConfigurationLoader.IgnoredModulesOptions.EXECUTE;
+        }
+        else {
+            ignoredModulesOptions = ConfigurationLoader.IgnoredModulesOptions.OMIT;
+        }
+        final RecordingPropertyResolver resolver =
+                new RecordingPropertyResolver(request.properties);
+        final Configuration config = ConfigurationLoader.loadConfiguration(
+                request.configLocation, resolver, ignoredModulesOptions,
+                request.threadModeSettings);
+
+        final ClassLoader moduleClassLoader = Checker.class.getClassLoader();
+        final ModuleFactory factory = new PackageObjectFactory(
+                Checker.class.getPackage().getName(), moduleClassLoader);
+        final RootModule rootModule = (RootModule) factory.createModule(config.getName());
+        final DelegatingListener listener = new DelegatingListener();
+        boolean configured = false;
+        try {
+            rootModule.setModuleClassLoader(moduleClassLoader);
+            rootModule.configure(config);
+            rootModule.addListener(listener);
+            configured = true;
+        }
+        finally {
+            if (!configured) {
+                rootModule.destroy();
+            }
+        }
+        return new ConfiguredModule(rootModule, listener, hash,
+                resolver.getResolvedProperties(), getExternalResourcesHash(rootModule));
+    }
+
+    /**
+     * Calculates the hash of the content of a configuration file.
+     * @param configLocation the location of the configuration file.
+     * @return the hash.
+     * @throws CheckstyleException if the file can't be read.
+     */
+    private static String getConfigurationHash(String configLocation)
+            throws CheckstyleException {
+        try {
+            return CacheHasher.getHash(readLocation(configLocation));
+        }
+        catch (IOException ex) {
+            throw new CheckstyleException("Unable to read configuration "
+                    + configLocation, ex);
+        }
+    }
+
+    /**
+     * Calculates the hash of the contents of the external resources of a
+     * configured root module, like header or suppressions files.
+     * @param rootModule the root module.
+     * @return the hash, empty if the root module doesn't declare its resources.
+     */
+    private static String getExternalResourcesHash(RootModule rootModule) {
+        String result = "";
+        if (rootModule instanceof ExternalResourceHolder) {
+            result = CacheHasher.getExternalResourcesHash(
+                    ((ExternalResourceHolder) rootModule).getExternalResourceLocations());
+        }
+        return result;
+    }
+
+    /**
+     * Reads the content of a file, URL or classpath resource.
+     * @param location the location.
+     * @return the content.
+     * @throws CheckstyleException if the location is not found.
+     * @throws IOException if the content can't be read.
+     */
+    private static byte[] readLocation(String location) throws CheckstyleException, IOException {
+        final InputStream stream = CommonUtil.getUriByFilename(location).toURL().openStream();
+        try {
+            return ByteStreams.toByteArray(stream);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Creates a print stream which writes UTF-8 to a stream.
+     * @param stream the stream.
+     * @return the print stream.
+     */
+    private static PrintStream createPrintStream(OutputStream stream) {
+        try {
+            return new PrintStream(stream, true, StandardCharsets.UTF_8.name());
+        }
+        catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /** An audit request. */
+    static final class Request {
+
+        /** Config file location, as understood by the daemon. */
+        private final String configLocation;
+        /** Properties of the client to expand the configuration with. */
+        private final Properties properties;
+        /** Switch whether to execute ignored modules or not. */
+        private final boolean executeIgnoredModules;
+        /** The thread mode settings of the audit. */
+        private final ThreadModeSettings threadModeSettings;
+        /** Output format. */
+        private final String format;
+        /** List of file to validate. */
+        private final List<File> files;
+
+        /**
+         * Creates a new instance. Relative locations are resolved by the
+         * caller, as the daemon may run in another directory.
+         * @param configLocation the config file location.
+         * @param properties the properties to expand the configuration with.
+         * @param executeIgnoredModules whether to execute ignored modules.
+         * @param threadModeSettings the thread mode settings of the audit.
+         * @param format the output format.
+         * @param files the files to validate.
+         */
+        Request(String configLocation, Properties properties, boolean executeIgnoredModules,
+                ThreadModeSettings threadModeSettings, String format, List<File> files) {
+            this.configLocation = getAbsoluteLocation(configLocation);
+            this.properties = properties;
+            this.executeIgnoredModules = executeIgnoredModules;
+            this.threadModeSettings = threadModeSettings;
+            this.format = format;
+            this.files = files;
+        }
+
+        /**
+         * Returns the absolute path of a location which is an existing file,
+         * other locations are URLs or classpath resources and kept as they are.
+         * @param location the location.
+         * @return the absolute location.
+         */
+        private static String getAbsoluteLocation(String location) {
+            final File file = new File(location);
+            final String result;
+            if (file.isFile()) {
+                result = file.getAbsolutePath();
+            }
+            else {
+                result = location;
+            }
+            return result;
+        }
+
+        /**
+         * Writes the request.
+         * @param output the output to write to.
+         * @throws IOException if the output fails.
+         */
+        private void writeTo(DataOutputStream output) throws IOException {
+            output.writeUTF(configLocation);
+            // values like the class path may exceed the limit of writeUTF
+            final ByteArrayOutputStream propertiesContent = new ByteArrayOutputStream();
+            properties.store(propertiesContent, null);
+            output.writeInt(propertiesContent.size());
+            propertiesContent.writeTo(output);
+            output.writeBoolean(executeIgnoredModules);
+            output.writeInt(threadModeSettings.getCheckerThreadsNumber());
+            output.writeInt(threadModeSettings.getTreeWalkerThreadsNumber());
+            output.writeUTF(format);
+            output.writeInt(files.size());
+            for (File file : files) {
+                output.writeUTF(file.getAbsolutePath());
+            }
+        }
+
+        /**
+         * Reads a request.
+         * @param input the input to read from.
+         * @return the request.
+         * @throws IOException if the input fails or is invalid.
+         */
+        private static Request readFrom(DataInputStream input) throws IOException {
+            final String configLocation = input.readUTF();
+            final int propertiesLength = input.readInt();
+            if (propertiesLength < 0) {
+                throw new IOException("Invalid length of properties " + propertiesLength);
+            }
+            final Properties properties = new Properties();
+            try {
+                properties.load(ByteStreams.limit(input, propertiesLength));
+            }
+            catch (IllegalArgumentException ex) {
+                throw new IOException("Invalid properties", ex);
+            }
+            final boolean executeIgnoredModules = input.readBoolean();
+            final int checkerThreadsNumber = input.readInt();
+            final int treeWalkerThreadsNumber = input.readInt();
+            if (checkerThreadsNumber < 1 || treeWalkerThreadsNumber < 1) {
+                throw new IOException("Invalid number of threads");
+            }
+            final String format = input.readUTF();
+            final int count = input.readInt();
+            if (count < 0) {
+                throw new IOException("Invalid number of files " + count);
+            }
+            // the list grows with the files actually sent, not with the announced count
+            final List<File> files = new ArrayList<File>();
+            for (int i = 0; i < count; i++) {
+                files.add(new File(input.readUTF()));
+            }
+            return new Request(configLocation, properties, executeIgnoredModules,
+                    new ThreadModeSettings(checkerThreadsNumber, treeWalkerThreadsNumber),
+                    format, files);
+        }
+
+    }
+
+    /** A configured root module, kept for further requests. */
+    private static final class ConfiguredModule {
+
+        /** The root module. */
+        private final RootModule rootModule;
+        /** The listener of the root module, which forwards to the listener of a request. */
+        private final DelegatingListener listener;
+        /** The hash of the configuration file the module was configured with. */
+        private final String hash;
+        /** The values of the properties used by the configuration, by their names. */
+        private final Map<String, String> resolvedProperties;
+        /** The hash of the external resources of the module. */
+        private final String resourcesHash;
+
+        /**
+         * Creates a new instance.
+         * @param rootModule the root module.
+         * @param listener the listener of the root module.
+         * @param hash the hash of the configuration file.
+         * @param resolvedProperties the values of the properties used by the configuration.
+         * @param resourcesHash the hash of the external resources of the module.
+         */
+        ConfiguredModule(RootModule rootModule, DelegatingListener listener, String hash,
+                Map<String, String> resolvedProperties, String resourcesHash) {
+            this.rootModule = rootModule;
+            this.listener = listener;
+            this.hash = hash;
+            this.resolvedProperties = resolvedProperties;
+            this.resourcesHash = resourcesHash;
+        }
+
+        /**
+         * Checks whether the module can be used for a request: the content
+         * of the configuration file and of the external resources is
+         * unchanged, and the properties used by the configuration have the
+         * same values.
+         * @param configurationHash the hash of the configuration file of the request.
+         * @param properties the properties of the request.
+         * @return true if the module is up to date.
+         */
+        public boolean isUpToDate(String configurationHash, Properties properties) {
+            boolean result = hash.equals(configurationHash);
+            final Iterator<Map.Entry<String, String>> iterator =
+                    resolvedProperties.entrySet().iterator();
+            while (result && iterator.hasNext()) {
+                final Map.Entry<String, String> property = iterator.next();
+                result = Objects.equals(property.getValue(),
+                        properties.getProperty(property.getKey()));
+            }
+            return result && resourcesHash.equals(getExternalResourcesHash(rootModule));
+        }
+
+    }
+
+    /**
+     * Resolver of the properties of a request, which records the values of
+     * the resolved properties.
+     */
+    private static final class RecordingPropertyResolver implements PropertyResolver {
+
+        /** The properties of the request. */
+        private final Properties properties;
+        /** The values of the resolved properties, by their names. */
+        private final Map<String, String> resolvedProperties = new HashMap<String, String>();
+
+        /**
+         * Creates a new instance.
+         * @param properties the properties of the request.
+         */
+        RecordingPropertyResolver(Properties properties) {
+            this.properties = properties;
+        }
+
+        /**
+         * Returns the values of the resolved properties.
+         * @return the values by the names of the properties.
+         */
+        public Map<String, String> getResolvedProperties() {
+            return resolvedProperties;
+        }
+
+        @Override
+        public String resolve(String name) {
+            final String value = properties.getProperty(name);
+            resolvedProperties.put(name, value);
+            return value;
+        }
+
+    }
+
+    /**
+     * Listener which forwards events to the listener of the current request,
+     * as listeners can't be removed from every root module.
+     */
+    private static final class DelegatingListener implements AuditListener {
+
+        /** The listener of the current request. */
+        private AuditListener delegate;
+
+        /**
+         * Sets the listener of the current request.
+         * @param delegate the listener, {@code null} between requests.
+         */
+        public void setDelegate(AuditListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent event) {
+            delegate.auditStarted(event);
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event) {
+            delegate.auditFinished(event);
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event) {
+            delegate.fileStarted(event);
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event) {
+            delegate.fileFinished(event);
+        }
+
+        @Override
+        public void addError(AuditEvent event) {
+            delegate.addError(event);
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable) {
+            delegate.addException(event, throwable);
+        }
+
+    }
+
+}
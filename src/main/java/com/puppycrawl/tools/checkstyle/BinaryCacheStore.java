@@ -0,0 +1,374 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+/**
+ * Binary, append-only storage of the entries of a cache file.
+ *
+ * <p>The file starts with a header holding the hash of the configuration,
+ * followed by records which put or remove an entry. Only the entries changed
+ * since the file was loaded are appended to the file. The file is compacted,
+ * that is rewritten with one record per entry sorted by key, when it holds
+ * twice as many records as entries, or when all entries are replaced.
+ * A broken record at the end of the file, left by an interrupted append,
+ * is dropped together with the records which follow it.</p>
+ *
+ */
+final class BinaryCacheStore {
+
+    /** Marker at the start of every file. */
+    private static final int MAGIC = 0x43534348;
+
+    /** Version of the format of files, changed with any change of the format. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Type of records which put an entry. */
+    private static final int PUT = 1;
+
+    /** Type of records which remove an entry. */
+    private static final int REMOVE = 2;
+
+    /** The number of records up to which a file is never compacted. */
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+
+    /** The size of the buffer to read files with. */
+    private static final int BUFFER_SIZE = 65536;
+
+    /** The number of bits of a length stored in one byte. */
+    private static final int LENGTH_BITS_PER_BYTE = 7;
+
+    /** The mask of the bits of a length stored in one byte. */
+    private static final int LENGTH_BITS_MASK = 0x7F;
+
+    /** The flag of a byte which is followed by more bytes of a length. */
+    private static final int LENGTH_CONTINUATION_FLAG = 0x80;
+
+    /** The file. */
+    private final File file;
+
+    /** The key of the entry with the hash of the configuration. */
+    private final String configHashKey;
+
+    /** The hash of the configuration in the file, {@code null} if there is no valid file. */
+    private String fileConfigHash;
+
+    /** The length of the valid part of the file, where new records are appended. */
+    private long validLength;
+
+    /** The number of records in the valid part of the file. */
+    private int records;
+
+    /** The length of the file while it is loaded, which limits the length of strings. */
+    private long loadedLength;
+
+    /**
+     * Creates a new instance.
+     * @param fileName the name of the file.
+     * @param configHashKey the key of the entry with the hash of the configuration,
+     *     which is stored in the header of the file.
+     */
+    BinaryCacheStore(String fileName, String configHashKey) {
+        file = new File(fileName);
+        this.configHashKey = configHashKey;
+    }
+
+    /**
+     * Checks whether a file is stored in the binary format.
+     * @param file the file to check.
+     * @return {@code true} if the file starts with the marker of the binary format.
+     * @throws IOException if the file can't be read.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        boolean result = false;
+        final DataInputStream input = new DataInputStream(
+                Files7.newInputStream(new Path(file)));
+        try {
+            result = input.readInt() == MAGIC;
+        }
+        catch (EOFException ignored) {
+            // the file is too short to be binary
+        }
+        finally {
+            input.close();
+        }
+        return result;
+    }
+
+    /**
+     * Loads the entries from the file.
+     * @param entries the entries to fill, including the hash of the configuration.
+     * @throws IOException if the file can't be read.
+     */
+    public void load(Properties entries) throws IOException {
+        fileConfigHash = null;
+        validLength = 0;
+        records = 0;
+        loadedLength = file.length();
+        final InputStream stream = Files7.newInputStream(new Path(file));
+        try {
+            final DataInputStream input =
+                    new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+            if (input.readInt() == MAGIC && input.readInt() == FORMAT_VERSION) {
+                final byte[] configHash = readBytes(input);
+                fileConfigHash = new String(configHash, StandardCharsets.UTF_8.name());
+                entries.setProperty(configHashKey, fileConfigHash);
+                validLength = 2 * Integer.SIZE / Byte.SIZE + getLength(configHash);
+                loadRecords(input, entries);
+            }
+        }
+        catch (EOFException ignored) {
+            // the end of the file is broken, the valid part is kept
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Loads records until the end of the file or the first broken record.
+     * @param input the input to read records from.
+     * @param entries the entries to fill.
+     * @throws IOException if the file can't be read.
+     */
+    private void loadRecords(DataInputStream input, Properties entries) throws IOException {
+        int type = input.read();
+        while (type == PUT || type == REMOVE) {
+            final byte[] key = readBytes(input);
+            long length = 1 + getLength(key);
+            if (type == PUT) {
+                final byte[] value = readBytes(input);
+                entries.setProperty(new String(key, StandardCharsets.UTF_8.name()),
+                        new String(value, StandardCharsets.UTF_8.name()));
+                length += getLength(value);
+            }
+            else {
+                entries.remove(new String(key, StandardCharsets.UTF_8.name()));
+            }
+            validLength += length;
+            records++;
+            type = input.read();
+        }
+    }
+
+    /**
+     * Marks all records of the file as obsolete, so the file is rewritten
+     * with the next {@link #persist(Properties, Map)}.
+     */
+    public void reset() {
+        fileConfigHash = null;
+    }
+
+    /**
+     * Stores the entries to the file, by appending the changed entries or by
+     * rewriting the file.
+     * @param entries all entries, including the hash of the configuration.
+     * @param changes the values of changed entries by keys, {@code null} values
+     *     for removed entries.
+     * @throws IOException if the file can't be written.
+     */
+    public void persist(Properties entries, Map<String, String> changes) throws IOException {
+        final String configHash = entries.getProperty(configHashKey, "");
+        if (configHash.equals(fileConfigHash)
+                && file.length() >= validLength
+                && records + changes.size()
+                    <= Math.max(MIN_COMPACTION_RECORDS, entries.size() * 2)) {
+            if (!changes.isEmpty()) {
+                append(changes);
+            }
+        }
+        else {
+            rewrite(configHash, entries);
+        }
+    }
+
+    /**
+     * Appends records of changed entries to the valid part of the file.
+     * @param changes the values of changed entries by keys, {@code null} values
+     *     for removed entries.
+     * @throws IOException if the file can't be written.
+     */
+    private void append(Map<String, String> changes) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            writeRecord(output, change.getKey(), change.getValue());
+        }
+        output.flush();
+
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(validLength);
+            randomAccessFile.seek(validLength);
+            randomAccessFile.write(bytes.toByteArray());
+        }
+        finally {
+            randomAccessFile.close();
+        }
+        validLength += bytes.size();
+        records += changes.size();
+    }
+
+    /**
+     * Rewrites the file with one record per entry, sorted by key.
+     * @param configHash the hash of the configuration.
+     * @param entries all entries, including the hash of the configuration.
+     * @throws IOException if the file can't be written.
+     */
+    private void rewrite(String configHash, Properties entries) throws IOException {
+        final SortedMap<String, String> sortedEntries = new TreeMap<String, String>();
+        for (String key : entries.stringPropertyNames()) {
+            if (!key.equals(configHashKey)) {
+                sortedEntries.put(key, entries.getProperty(key));
+            }
+        }
+
+        final File directory = file.getAbsoluteFile().getParentFile();
+        File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files7.newOutputStream(new Path(temporaryFile)), BUFFER_SIZE));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                writeBytes(output, configHash);
+                for (Map.Entry<String, String> entry : sortedEntries.entrySet()) {
+                    writeRecord(output, entry.getKey(), entry.getValue());
+                }
+            }
+            finally {
+                output.close();
+            }
+            if (!temporaryFile.renameTo(file)) {
+                // the target can't be replaced on some platforms
+                Files7.delete(new Path(file));
+                if (!temporaryFile.renameTo(file)) {
+                    throw new IOException("Unable to replace cache file " + file);
+                }
+            }
+            temporaryFile = null;
+            fileConfigHash = configHash;
+            validLength = file.length();
+            records = sortedEntries.size();
+        }
+        finally {
+            if (temporaryFile != null && !temporaryFile.delete()) {
+                temporaryFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Writes a record which puts or removes an entry.
+     * @param output the output to write to.
+     * @param key the key of the entry.
+     * @param value the value of the entry, {@code null} if the entry is removed.
+     * @throws IOException if the output fails.
+     */
+    private static void writeRecord(DataOutput output, String key, String value)
+            throws IOException {
+        if (value == null) {
+            output.write(REMOVE);
+            writeBytes(output, key);
+        }
+        else {
+            output.write(PUT);
+            writeBytes(output, key);
+            writeBytes(output, value);
+        }
+    }
+
+    /**
+     * Writes a string as its length followed by its bytes in UTF-8.
+     * The length is written in groups of seven bits, lowest bits first.
+     * @param output the output to write to.
+     * @param text the string to write.
+     * @throws IOException if the output fails.
+     */
+    private static void writeBytes(DataOutput output, String text) throws IOException {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8.name());
+        int length = bytes.length;
+        while (length > LENGTH_BITS_MASK) {
+            output.write(length & LENGTH_BITS_MASK | LENGTH_CONTINUATION_FLAG);
+            length >>>= LENGTH_BITS_PER_BYTE;
+        }
+        output.write(length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads bytes which are preceded by their length.
+     * @param input the input to read from.
+     * @return the bytes.
+     * @throws IOException if the input fails.
+     * @throws EOFException if the input is broken.
+     */
+    private byte[] readBytes(DataInputStream input) throws IOException {
+        long length = 0;
+        int shift = 0;
+        int next = input.readUnsignedByte();
+        while ((next & LENGTH_CONTINUATION_FLAG) != 0 && shift < Integer.SIZE) {
+            length |= (long) (next & LENGTH_BITS_MASK) << shift;
+            shift += LENGTH_BITS_PER_BYTE;
+            next = input.readUnsignedByte();
+        }
+        length |= (long) next << shift;
+        if (shift >= Integer.SIZE || length > loadedLength) {
+            throw new EOFException("Invalid length " + length);
+        }
+        final byte[] result = new byte[(int) length];
+        input.readFully(result);
+        return result;
+    }
+
+    /**
+     * Returns the length of bytes written by {@link #writeBytes(DataOutput, String)}.
+     * @param bytes the bytes.
+     * @return the length of the bytes with their length.
+     */
+    private static long getLength(byte[] bytes) {
+        int lengthBytes = 1;
+        for (int length = bytes.length; length > LENGTH_BITS_MASK;
+                length >>>= LENGTH_BITS_PER_BYTE) {
+            lengthBytes++;
+        }
+        return lengthBytes + bytes.length;
+    }
+
+}
@@ -0,0 +1,111 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock of a cache file which is shared by several processes.
+ *
+ * <p>The lock is held on a separate file next to the cache file, which is
+ * never removed, so the cache file itself can be replaced while it is
+ * locked. As a file lock is held on behalf of the whole JVM, the threads
+ * of one JVM are serialized by a lock in memory before the file is locked.</p>
+ *
+ */
+final class CacheFileLock {
+
+    /** The extension which is added to the name of the cache file to name the lock file. */
+    public static final String LOCK_FILE_EXTENSION = ".lock";
+
+    /** Serializes the threads of this JVM, which can't hold file locks for each other. */
+    private static final Lock LOCAL_LOCK = new ReentrantLock();
+
+    /** The opened lock file. */
+    private final RandomAccessFile lockFile;
+
+    /** The lock of the lock file. */
+    private final FileLock fileLock;
+
+    /**
+     * Creates a new instance.
+     * @param lockFile the opened lock file.
+     * @param fileLock the lock of the lock file.
+     */
+    private CacheFileLock(RandomAccessFile lockFile, FileLock fileLock) {
+        this.lockFile = lockFile;
+        this.fileLock = fileLock;
+    }
+
+    /**
+     * Locks a cache file, waiting until other processes release it.
+     * @param fileName the name of the cache file.
+     * @param shared whether the lock may be shared with other readers.
+     * @return the lock, which must be released by {@link #release()}.
+     * @throws IOException if the lock file can't be created or locked.
+     */
+    public static CacheFileLock acquire(String fileName, boolean shared) throws IOException {
+        LOCAL_LOCK.lock();
+        CacheFileLock result = null;
+        try {
+            final RandomAccessFile lockFile =
+                    new RandomAccessFile(new File(fileName + LOCK_FILE_EXTENSION), "rw");
+            try {
+                result = new CacheFileLock(lockFile,
+                        lockFile.getChannel().lock(0, Long.MAX_VALUE, shared));
+            }
+            finally {
+                if (result == null) {
+                    lockFile.close();
+                }
+            }
+        }
+        finally {
+            if (result == null) {
+                LOCAL_LOCK.unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Releases the lock.
+     * @throws IOException if the lock file can't be closed.
+     */
+    public void release() throws IOException {
+        try {
+            fileLock.release();
+        }
+        finally {
+            try {
+                lockFile.close();
+            }
+            finally {
+                LOCAL_LOCK.unlock();
+            }
+        }
+    }
+
+}
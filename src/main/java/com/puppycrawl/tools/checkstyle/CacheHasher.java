@@ -0,0 +1,353 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+/**
+ * Calculates the hashcodes which are stored in the cache file to detect
+ * changes of the configuration and of external resources.
+ *
+ * <p>Hashcodes are calculated from canonical forms of their sources instead
+ * of Java serialization, so they are stable across versions of classes and
+ * of the JVM.</p>
+ *
+ */
+final class CacheHasher {
+
+    /** The size of the buffer to read files with. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The suffix of the names of class files. */
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    /**
+     * The fingerprints of the code sources by their locations, which are
+     * calculated once, as loaded classes don't change while the JVM runs.
+     */
+    private static final ConcurrentMap<String, String> CODE_SOURCE_FINGERPRINTS =
+            new ConcurrentHashMap<String, String>();
+
+    /** Stop instances being created. **/
+    private CacheHasher() {
+    }
+
+    /**
+     * Calculates the hashcode of a configuration based on the names,
+     * attributes, messages and children of its modules. The hashcode does
+     * not depend on the order of attributes, messages and children, nor on
+     * the classes which implement the configuration.
+     * @param configuration the configuration.
+     * @return the hashcode of the configuration.
+     */
+    static String getConfigurationHash(Configuration configuration) {
+        final MessageDigest digest = createDigest();
+        updateDigest(digest, configuration.getName());
+
+        final String[] attributeNames = configuration.getAttributeNames();
+        Arrays.sort(attributeNames);
+        updateDigest(digest, attributeNames.length);
+        try {
+            for (String attributeName : attributeNames) {
+                updateDigest(digest, attributeName);
+                updateDigest(digest, String.valueOf(configuration.getAttribute(attributeName)));
+            }
+        }
+        catch (final CheckstyleException ex) {
+            // rethrow as unchecked exception
+            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        }
+
+        final SortedMap<String, String> messages =
+                new TreeMap<String, String>(configuration.getMessages());
+        updateDigest(digest, messages.size());
+        for (Map.Entry<String, String> message : messages.entrySet()) {
+            updateDigest(digest, message.getKey());
+            updateDigest(digest, String.valueOf(message.getValue()));
+        }
+
+        final Configuration[] children = configuration.getChildren();
+        final String[] childHashes = new String[children.length];
+        for (int i = 0; i < children.length; i++) {
+            childHashes[i] = getConfigurationHash(children[i]);
+        }
+        Arrays.sort(childHashes);
+        updateDigest(digest, childHashes.length);
+        for (String childHash : childHashes) {
+            updateDigest(digest, childHash);
+        }
+        return BaseEncoding.base16().upperCase().encode(digest.digest());
+    }
+
+    /**
+     * Calculates the hashcode of binary content.
+     * @param content the content.
+     * @return the hashcode of the content.
+     */
+    static String getHash(byte[] content) {
+        final MessageDigest digest = createDigest();
+        digest.update(content);
+        return BaseEncoding.base16().upperCase().encode(digest.digest());
+    }
+
+    /**
+     * Calculates the hashcode of the contents of external resources. A resource
+     * which can't be loaded contributes the hashcode of the exception.
+     * @param locations the locations of the resources.
+     * @return the hashcode of the resources.
+     */
+    static String getExternalResourcesHash(Collection<String> locations) {
+        final MessageDigest digest = createDigest();
+        final SortedSet<String> sortedLocations = new TreeSet<String>(locations);
+        updateDigest(digest, sortedLocations.size());
+        for (String location : sortedLocations) {
+            updateDigest(digest, location);
+            String hash;
+            try {
+                final URI uri = CommonUtil.getUriByFilename(location);
+                final InputStream stream = new BufferedInputStream(uri.toURL().openStream());
+                try {
+                    hash = getHash(ByteStreams.toByteArray(stream));
+                }
+                finally {
+                    stream.close();
+                }
+            }
+            catch (IOException ex) {
+                hash = getExceptionHash(ex);
+            }
+            catch (CheckstyleException ex) {
+                hash = getExceptionHash(ex);
+            }
+            updateDigest(digest, hash);
+        }
+        return BaseEncoding.base16().upperCase().encode(digest.digest());
+    }
+
+    /**
+     * Calculates the hashcode of an exception based on the classes and
+     * messages of the exception and its causes.
+     * @param exception the exception.
+     * @return the hashcode of the exception.
+     */
+    static String getExceptionHash(Exception exception) {
+        final MessageDigest digest = createDigest();
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            updateDigest(digest, cause.getClass().getName());
+            updateDigest(digest, String.valueOf(cause.getMessage()));
+        }
+        return BaseEncoding.base16().upperCase().encode(digest.digest());
+    }
+
+    /**
+     * Calculates the fingerprint of the code of classes from the contents of
+     * their code sources: the jar files or the directories of class files.
+     * Unlike the version of Checkstyle, the fingerprint is known for classes
+     * outside of a jar and differs between builds of the same version.
+     * @param classes the classes.
+     * @return the fingerprint of the code, or a random value if a code source
+     *     can't be read, so that the fingerprint does not match any other one.
+     */
+    static String getCodeFingerprint(Collection<Class<?>> classes) {
+        final SortedSet<String> fingerprints = new TreeSet<String>();
+        for (Class<?> codeClass : classes) {
+            fingerprints.add(getCodeSourceFingerprint(codeClass));
+        }
+        final MessageDigest digest = createDigest();
+        updateDigest(digest, fingerprints.size());
+        for (String fingerprint : fingerprints) {
+            updateDigest(digest, fingerprint);
+        }
+        return BaseEncoding.base16().upperCase().encode(digest.digest());
+    }
+
+    /**
+     * Returns the fingerprint of the code source of a class, which is calculated
+     * on the first request for the location of the code source.
+     * @param codeClass the class.
+     * @return the fingerprint of the code source, or a random value if it
+     *     can't be read.
+     */
+    private static String getCodeSourceFingerprint(Class<?> codeClass) {
+        final CodeSource codeSource = codeClass.getProtectionDomain().getCodeSource();
+        String result = null;
+        if (codeSource != null && codeSource.getLocation() != null) {
+            final URL location = codeSource.getLocation();
+            result = CODE_SOURCE_FINGERPRINTS.get(location.toString());
+            if (result == null) {
+                result = calculateCodeSourceFingerprint(location);
+                CODE_SOURCE_FINGERPRINTS.putIfAbsent(location.toString(), result);
+            }
+        }
+        if (result == null) {
+            result = UUID.randomUUID().toString();
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the fingerprint of a code source from the content of its jar
+     * file or from the names and contents of the class files in its directory.
+     * @param location the location of the code source.
+     * @return the fingerprint of the code source, or a random value if it
+     *     can't be read.
+     */
+    private static String calculateCodeSourceFingerprint(URL location) {
+        String result;
+        try {
+            final File file = new File(location.toURI());
+            final MessageDigest digest = createDigest();
+            if (file.isDirectory()) {
+                updateDigestWithClassFiles(digest, file, "");
+            }
+            else {
+                updateDigestWithFile(digest, file);
+            }
+            result = BaseEncoding.base16().upperCase().encode(digest.digest());
+        }
+        catch (final URISyntaxException ignored) {
+            result = UUID.randomUUID().toString();
+        }
+        catch (final IllegalArgumentException ignored) {
+            // not a file location
+            result = UUID.randomUUID().toString();
+        }
+        catch (final IOException ignored) {
+            result = UUID.randomUUID().toString();
+        }
+        return result;
+    }
+
+    /**
+     * Updates a message digest with the relative names and contents of the
+     * class files in a directory and its subdirectories, in the order of names.
+     * @param digest the message digest.
+     * @param directory the directory.
+     * @param prefix the relative name of the directory with a trailing slash,
+     *     or an empty string for the root directory.
+     * @throws IOException if the directory or a file can't be read.
+     */
+    private static void updateDigestWithClassFiles(MessageDigest digest, File directory,
+            String prefix) throws IOException {
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Unable to list files of " + directory);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            final String name = prefix + file.getName();
+            if (file.isDirectory()) {
+                updateDigestWithClassFiles(digest, file, name + '/');
+            }
+            else if (name.endsWith(CLASS_FILE_SUFFIX)) {
+                updateDigest(digest, name);
+                updateDigestWithFile(digest, file);
+            }
+        }
+    }
+
+    /**
+     * Updates a message digest with the content of a file.
+     * @param digest the message digest.
+     * @param file the file.
+     * @throws IOException if the file can't be read.
+     */
+    private static void updateDigestWithFile(MessageDigest digest, File file)
+            throws IOException {
+        final InputStream stream = Files7.newInputStream(new Path(file));
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int length = stream.read(buffer);
+            while (length != -1) {
+                digest.update(buffer, 0, length);
+                length = stream.read(buffer);
+            }
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Creates the message digest which calculates hashcodes.
+     * @return the message digest.
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (final NoSuchAlgorithmException ex) {
+            // rethrow as unchecked exception
+            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        }
+    }
+
+    /**
+     * Updates a message digest with a string preceded by its length,
+     * so that consecutive strings can't be confused.
+     * @param digest the message digest.
+     * @param text the string.
+     */
+    private static void updateDigest(MessageDigest digest, String text) {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        updateDigest(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    /**
+     * Updates a message digest with a number.
+     * @param digest the message digest.
+     * @param number the number.
+     */
+    private static void updateDigest(MessageDigest digest, int number) {
+        for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            digest.update((byte) (number >>> shift));
+        }
+    }
+
+}
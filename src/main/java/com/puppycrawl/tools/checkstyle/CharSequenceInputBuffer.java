@@ -0,0 +1,95 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import antlr.CharScanner;
+import antlr.InputBuffer;
+
+/**
+ * Lexer input which reads characters directly from a character sequence.
+ *
+ * <p>{@link antlr.CharBuffer} pulls characters one by one from a
+ * {@link java.io.Reader} and copies them into a queue of lookahead characters.
+ * The whole text is already in memory, so this buffer only keeps the position
+ * of the next character and answers lookahead, marks and rewinds with
+ * positions in the text.</p>
+ *
+ */
+final class CharSequenceInputBuffer extends InputBuffer {
+
+    /** The text to read. */
+    private final CharSequence text;
+
+    /** The length of the text. */
+    private final int length;
+
+    /** The position of the next character to consume. */
+    private int position;
+
+    /**
+     * Creates a new instance.
+     * @param text the text to read.
+     */
+    CharSequenceInputBuffer(CharSequence text) {
+        this.text = text;
+        length = text.length();
+    }
+
+    @Override
+    public void fill(int amount) {
+        // all characters are available
+    }
+
+    @Override
+    public void consume() {
+        position++;
+    }
+
+    @Override
+    public char LA(int index) {
+        final int offset = position + index - 1;
+        final char result;
+        if (offset < length) {
+            result = text.charAt(offset);
+        }
+        else {
+            result = CharScanner.EOF_CHAR;
+        }
+        return result;
+    }
+
+    @Override
+    public int mark() {
+        nMarkers++;
+        return position;
+    }
+
+    @Override
+    public void rewind(int mark) {
+        position = mark;
+        nMarkers--;
+    }
+
+    @Override
+    public void reset() {
+        nMarkers = 0;
+    }
+
+}
@@ -21,20 +21,16 @@ package com.puppycrawl.tools.checkstyle;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.TreeSet;
-
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
 import com.puppycrawl.tools.checkstyle.api.AuditListener;
@@ -46,7 +42,6 @@ import com.puppycrawl.tools.checkstyle.api.Configuration;
 import com.puppycrawl.tools.checkstyle.api.Context;
 import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
 import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
-import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.Filter;
 import com.puppycrawl.tools.checkstyle.api.FilterSet;
 import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
@@ -60,14 +55,12 @@ import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 /**
  * This class provides the functionality to check a set of files.
  */
-public class Checker extends AutomaticBean implements MessageDispatcher, RootModule {
+public class Checker extends AutomaticBean
+    implements MessageDispatcher, RootModule, ExternalResourceHolder {
 
     /** Message to use when an exception occurs and should be printed as a violation. */
     public static final String EXCEPTION_MSG = "general.exception";
 
-    /** Logger for Checker. */
-    private final Log log;
-
     /** Maintains error count. */
     private final SeverityLevelCounter counter = new SeverityLevelCounter(
             SeverityLevel.ERROR);
@@ -78,6 +71,10 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
     /** Vector of fileset checks. */
     private final List<FileSetCheck> fileSetChecks = new ArrayList<FileSetCheck>();
 
+    /** Configurations of the fileset checks which were created from child modules. */
+    private final Map<FileSetCheck, Configuration> fileSetCheckConfigurations =
+            new HashMap<FileSetCheck, Configuration>();
+
     /** The audit event before execution file filters. */
     private final BeforeExecutionFileFilterSet beforeExecutionFileFilters =
             new BeforeExecutionFileFilterSet();
@@ -85,6 +82,12 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
     /** The audit event filters. */
     private final FilterSet filters = new FilterSet();
 
+    /** The caches of the violations of files. */
+    private final AuditCache cache = new AuditCache();
+
+    /** Audits the files with the modules of this checker. */
+    private final FileAuditor auditor;
+
     /** Class loader to resolve classes with. **/
     private ClassLoader classLoader = Thread.currentThread()
             .getContextClassLoader();
@@ -106,9 +109,6 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
     /** The context of all child components. */
     private Context childContext;
 
-    /** The file extensions that are accepted. */
-    private String[] fileExtensions = CommonUtil.EMPTY_STRING_ARRAY;
-
     /**
      * The severity level of any violations found by submodules.
      * The value of this property is passed to submodules via
@@ -124,19 +124,15 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
     /** Name of a charset. */
     private String charset = System.getProperty("file.encoding", StandardCharsets.UTF_8.name());
 
-    /** Cache file. **/
-    private PropertyCacheFile cacheFile;
-
-    /** Controls whether exceptions should halt execution or not. */
-    private boolean haltOnException = true;
-
     /**
      * Creates a new {@code Checker} instance.
      * The instance needs to be contextualized and configured.
      */
     public Checker() {
+        auditor = new FileAuditor(this, listeners, fileSetChecks, fileSetCheckConfigurations,
+                beforeExecutionFileFilters, filters, cache);
+        auditor.setCharset(charset);
         addListener(counter);
-        log = LogFactory.getLog(Checker.class);
     }
 
     /**
@@ -145,9 +141,91 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
      * @throws IOException if there are some problems with file loading.
      */
     public void setCacheFile(String fileName) throws IOException {
-        final Configuration configuration = getConfiguration();
-        cacheFile = new PropertyCacheFile(configuration, fileName);
-        cacheFile.load();
+        cache.setCacheFile(fileName, getConfiguration());
+    }
+
+    /**
+     * Sets whether the cache file records for every file which modules
+     * reported the violations, so that after a change of the configuration
+     * unchanged files are only checked by the modules whose configuration
+     * is changed. Otherwise any change of the configuration clears the cache.
+     * @param cacheByModule whether to record the violations of each module.
+     * @throws IOException if there are some problems with file loading.
+     */
+    public void setCacheByModule(boolean cacheByModule) throws IOException {
+        cache.setCacheByModule(cacheByModule, getConfiguration());
+    }
+
+    /**
+     * Sets whether the cache file is stored in a compact binary format, to
+     * which only the changes of a run are appended, instead of a property file
+     * which is rewritten by every run.
+     * @param binaryCacheFile whether to store the cache file in the binary format.
+     */
+    public void setBinaryCacheFile(boolean binaryCacheFile) {
+        cache.setBinaryCacheFile(binaryCacheFile);
+    }
+
+    /**
+     * Sets whether the cache file is shared with other processes, which run
+     * at the same time. A shared cache file is locked while it is read or
+     * written, and the entries stored by other processes are merged with
+     * the results of this process instead of being overwritten.
+     * @param sharedCacheFile whether the cache file is shared with other processes.
+     * @throws IOException if there are some problems with file loading.
+     */
+    public void setSharedCacheFile(boolean sharedCacheFile) throws IOException {
+        cache.setSharedCacheFile(sharedCacheFile, getConfiguration());
+    }
+
+    /**
+     * Sets the maximum number of files in the cache file. If there are more
+     * files at the end of an audit, the files which were audited least
+     * recently are removed from the cache file.
+     * @param maxCachedFiles the maximum number of files, zero if the number is not limited.
+     */
+    public void setMaxCachedFiles(int maxCachedFiles) {
+        cache.setMaxCachedFiles(maxCachedFiles);
+    }
+
+    /**
+     * Sets whether the cache file identifies unchanged files by the hash of
+     * their content instead of their modification time, so that files keep
+     * their cache entries when they are checked out or touched again.
+     * @param cacheByContent whether to identify files by their content.
+     */
+    public void setCacheByContent(boolean cacheByContent) {
+        cache.setCacheByContent(cacheByContent);
+    }
+
+    /**
+     * Sets the directory to store parsed trees of Java files in, so that files
+     * which are not changed are not parsed again.
+     * @param directoryName the name of the directory.
+     */
+    public void setAstCacheDirectory(String directoryName) {
+        auditor.setAstCacheDirectory(new AstCacheDirectory(directoryName));
+    }
+
+    /**
+     * Sets the directory to store the violations of files in, by the hash of
+     * the configuration and of the name and the content of a file. The directory
+     * can be copied to other machines, on which unchanged files are not audited
+     * again. File names are relative to the base directory, if it is set.
+     * @param directoryName the name of the directory.
+     */
+    public void setResultCacheDirectory(String directoryName) {
+        cache.setResultCacheDirectory(directoryName);
+    }
+
+    /**
+     * Sets the maximum size of the directory of violations. If the directory
+     * is larger at the end of an audit, the files which were used least
+     * recently are removed.
+     * @param resultCacheMaxSize the maximum size in bytes, zero if the size is not limited.
+     */
+    public void setResultCacheMaxSize(long resultCacheMaxSize) {
+        cache.setResultCacheMaxSize(resultCacheMaxSize);
     }
 
     /**
@@ -170,16 +248,10 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
     public void destroy() {
         listeners.clear();
         fileSetChecks.clear();
+        fileSetCheckConfigurations.clear();
         beforeExecutionFileFilters.clear();
         filters.clear();
-        if (cacheFile != null) {
-            try {
-                cacheFile.persist();
-            }
-            catch (IOException ex) {
-                throw new IllegalStateException("Unable to persist cache file.", ex);
-            }
-        }
+        cache.persist();
     }
 
     /**
@@ -196,21 +268,31 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
      */
     public void setBasedir(String basedir) {
         this.basedir = basedir;
+        auditor.setBasedir(basedir);
     }
 
+    /**
+     * {@inheritDoc} The cache file is persisted after each audit, so the
+     * cache survives a checker which is reused for several audits.
+     */
     @Override
     public int process(List<File> files) throws CheckstyleException {
-        if (cacheFile != null) {
-            cacheFile.putExternalResources(getExternalResourceLocations());
-        }
+        final Set<Object> filterModules = new HashSet<Object>(filters.getFilters());
+        filterModules.addAll(beforeExecutionFileFilters.getBeforeExecutionFileFilters());
+        cache.startAudit(getConfiguration(), fileSetChecks, fileSetCheckConfigurations,
+                filterModules, auditor.getExternalResourceLocations(), basedir);
+        try {
+            // Prepare to start
+            auditor.fireAuditStarted();
+            for (final FileSetCheck fsc : fileSetChecks) {
+                fsc.beginProcessing(charset);
+            }
 
-        // Prepare to start
-        fireAuditStarted();
-        for (final FileSetCheck fsc : fileSetChecks) {
-            fsc.beginProcessing(charset);
+            auditor.process(files);
+        }
+        finally {
+            cache.clearAudit();
         }
-
-        processFiles(files);
 
         // Finish up
         for (final FileSetCheck fsc : fileSetChecks) {
@@ -223,144 +305,12 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
             fsc.destroy();
         }
 
+        cache.persist();
         final int errorCount = counter.getCount();
-        fireAuditFinished();
+        auditor.fireAuditFinished();
         return errorCount;
     }
 
-    /**
-     * Returns a set of external configuration resource locations which are used by all file set
-     * checks and filters.
-     * @return a set of external configuration resource locations which are used by all file set
-     *         checks and filters.
-     */
-    private Set<String> getExternalResourceLocations() {
-        final Set<String> externalResources = new HashSet<String>();
-        for (FileSetCheck check : fileSetChecks) {
-            if (check instanceof ExternalResourceHolder) {
-                final Set<String> locations =
-                    ((ExternalResourceHolder) check).getExternalResourceLocations();
-                externalResources.addAll(locations);
-            }
-        }
-        for (Filter filter : filters.getFilters()) {
-            if (filter instanceof ExternalResourceHolder) {
-                final Set<String> locations =
-                    ((ExternalResourceHolder) filter).getExternalResourceLocations();
-                externalResources.addAll(locations);
-            }
-        }
-        return externalResources;
-    }
-
-    /** Notify all listeners about the audit start. */
-    private void fireAuditStarted() {
-        final AuditEvent event = new AuditEvent(this);
-        for (final AuditListener listener : listeners) {
-            listener.auditStarted(event);
-        }
-    }
-
-    /** Notify all listeners about the audit end. */
-    private void fireAuditFinished() {
-        final AuditEvent event = new AuditEvent(this);
-        for (final AuditListener listener : listeners) {
-            listener.auditFinished(event);
-        }
-    }
-
-    /**
-     * Processes a list of files with all FileSetChecks.
-     * @param files a list of files to process.
-     * @throws CheckstyleException if error condition within Checkstyle occurs.
-     * @noinspection ProhibitedExceptionThrown
-     */
-    private void processFiles(List<File> files) throws CheckstyleException {
-        for (final File file : files) {
-            try {
-                final String fileName = file.getAbsolutePath();
-                final long timestamp = file.lastModified();
-                if (cacheFile != null && cacheFile.isInCache(fileName, timestamp)
-                        || !CommonUtil.matchesFileExtension(file, fileExtensions)
-                        || !acceptFileStarted(fileName)) {
-                    continue;
-                }
-                if (cacheFile != null) {
-                    cacheFile.put(fileName, timestamp);
-                }
-                fireFileStarted(fileName);
-                final SortedSet<LocalizedMessage> fileMessages = processFile(file);
-                fireErrors(fileName, fileMessages);
-                fireFileFinished(fileName);
-            }
-            // -@cs[IllegalCatch] There is no other way to deliver filename that was under
-            // processing. See https://github.com/checkstyle/checkstyle/issues/2285
-            catch (Exception ex) {
-                // We need to catch all exceptions to put a reason failure (file name) in exception
-                throw new CheckstyleException("Exception was thrown while processing "
-                        + file.getPath(), ex);
-            }
-            catch (Error error) {
-                // We need to catch all errors to put a reason failure (file name) in error
-                throw new Error("Error was thrown while processing " + file.getPath(), error);
-            }
-        }
-    }
-
-    /**
-     * Processes a file with all FileSetChecks.
-     * @param file a file to process.
-     * @return a sorted set of messages to be logged.
-     * @throws Exception if error condition within Checkstyle occurs.
-     * @noinspection ProhibitedExceptionThrown
-     */
-    private SortedSet<LocalizedMessage> processFile(File file) throws Exception {
-        final SortedSet<LocalizedMessage> fileMessages = new TreeSet<LocalizedMessage>();
-        try {
-            final FileText theText = new FileText(file.getAbsoluteFile(), charset);
-            for (final FileSetCheck fsc : fileSetChecks) {
-                fileMessages.addAll(fsc.process(file, theText));
-            }
-        }
-        catch (final IOException ioe) {
-            log.debug("IOException occurred.", ioe);
-            fileMessages.add(new LocalizedMessage(0,
-                    Definitions.CHECKSTYLE_BUNDLE, EXCEPTION_MSG,
-                    new String[] {ioe.getMessage()}, null, getClass(), null));
-        }
-        // -@cs[IllegalCatch] There is no other way to obey haltOnException field
-        catch (Exception ex) {
-            if (haltOnException) {
-                throw ex;
-            }
-
-            log.debug("Exception occurred.", ex);
-
-            final StringWriter sw = new StringWriter();
-            final PrintWriter pw = new PrintWriter(sw, true);
-
-            ex.printStackTrace(pw);
-
-            fileMessages.add(new LocalizedMessage(0,
-                    Definitions.CHECKSTYLE_BUNDLE, EXCEPTION_MSG,
-                    new String[] {sw.getBuffer().toString()},
-                    null, getClass(), null));
-        }
-        return fileMessages;
-    }
-
-    /**
-     * Check if all before execution file filters accept starting the file.
-     *
-     * @param fileName
-     *            the file to be audited
-     * @return {@code true} if the file is accepted.
-     */
-    private boolean acceptFileStarted(String fileName) {
-        final String stripped = CommonUtil.relativizeAndNormalizePath(basedir, fileName);
-        return beforeExecutionFileFilters.accept(stripped);
-    }
-
     /**
      * Notify all listeners about the beginning of a file audit.
      *
@@ -395,8 +345,8 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
                 }
             }
         }
-        if (hasNonFilteredViolations && cacheFile != null) {
-            cacheFile.remove(fileName);
+        if (hasNonFilteredViolations) {
+            cache.remove(fileName);
         }
     }
 
@@ -440,6 +390,12 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
         context.add("severity", severity.getName());
         context.add("basedir", basedir);
         childContext = context;
+
+        final Configuration configuration = getConfiguration();
+        if (configuration instanceof DefaultConfiguration) {
+            auditor.setThreads(((DefaultConfiguration) configuration).getThreadModeSettings()
+                    .getCheckerThreadsNumber(), moduleFactory, context);
+        }
     }
 
     /**
@@ -469,6 +425,7 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
             final FileSetCheck fsc = (FileSetCheck) child;
             fsc.init();
             addFileSetCheck(fsc);
+            fileSetCheckConfigurations.put(fsc, childConf);
         }
         else if (child instanceof BeforeExecutionFileFilter) {
             final BeforeExecutionFileFilter filter = (BeforeExecutionFileFilter) child;
@@ -526,10 +483,8 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
      *     initial '.' character of an extension is automatically added.
      */
     public final void setFileExtensions(String... extensions) {
-        if (extensions == null) {
-            fileExtensions = null;
-        }
-        else {
+        String[] fileExtensions = null;
+        if (extensions != null) {
             fileExtensions = new String[extensions.length];
             for (int i = 0; i < extensions.length; i++) {
                 final String extension = extensions[i];
@@ -541,6 +496,7 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
                 }
             }
         }
+        auditor.setFileExtensions(fileExtensions);
     }
 
     /**
@@ -607,6 +563,7 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
             throw new UnsupportedEncodingException(message);
         }
         this.charset = charset;
+        auditor.setCharset(charset);
     }
 
     /**
@@ -614,16 +571,24 @@ public class Checker extends AutomaticBean implements MessageDispatcher, RootMod
      * @param haltOnException the new value.
      */
     public void setHaltOnException(boolean haltOnException) {
-        this.haltOnException = haltOnException;
+        auditor.setHaltOnException(haltOnException);
+    }
+
+    /**
+     * Returns the locations of the external resources of the fileset checks
+     * and filters, like header or suppressions files.
+     * @return the locations of the external resources.
+     */
+    @Override
+    public Set<String> getExternalResourceLocations() {
+        return auditor.getExternalResourceLocations();
     }
 
     /**
      * Clears the cache.
      */
     public void clearCache() {
-        if (cacheFile != null) {
-            cacheFile.reset();
-        }
+        cache.reset();
     }
 
 }
@@ -0,0 +1,384 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import antlr.CommonHiddenStreamToken;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+/**
+ * Writes a tree of {@link DetailAST} nodes, including hidden comment tokens
+ * of the nodes, in a compact binary form and reads it back.
+ *
+ * <p>The form consists of a table of distinct texts, a table of hidden tokens
+ * and the nodes in the order of pre-order traversal. Numbers are written as
+ * variable-length integers, texts and hidden tokens are referenced by their
+ * index in the tables.</p>
+ *
+ */
+final class DetailAstSerializer {
+
+    /** Flag of a node which has a first child. */
+    private static final int HAS_FIRST_CHILD = 1;
+
+    /** Flag of a node which has a next sibling. */
+    private static final int HAS_NEXT_SIBLING = 2;
+
+    /** Number of payload bits in a byte of a variable-length integer. */
+    private static final int VAR_INT_SHIFT = 7;
+
+    /** Payload bits of a byte of a variable-length integer. */
+    private static final int VAR_INT_PAYLOAD = 0x7F;
+
+    /** Bit of a byte of a variable-length integer which marks more bytes. */
+    private static final int VAR_INT_CONTINUATION = 0x80;
+
+    /** Stop instances being created. **/
+    private DetailAstSerializer() {
+    }
+
+    /**
+     * Writes a tree.
+     * @param root the root of the tree, may be {@code null}.
+     * @param output the output to write to.
+     * @throws IOException if the output fails.
+     */
+    public static void write(DetailAST root, DataOutput output) throws IOException {
+        final List<DetailAST> nodes = new ArrayList<DetailAST>();
+        final Map<CommonHiddenStreamToken, Integer> tokens =
+                new IdentityHashMap<CommonHiddenStreamToken, Integer>();
+        final List<CommonHiddenStreamToken> tokenList = new ArrayList<CommonHiddenStreamToken>();
+        final Map<String, Integer> texts = new HashMap<String, Integer>();
+        final List<String> textList = new ArrayList<String>();
+
+        DetailAST curNode = root;
+        while (curNode != null) {
+            nodes.add(curNode);
+            addText(curNode.getText(), texts, textList);
+            addToken(curNode.getHiddenBefore(), tokens, tokenList);
+            addToken(curNode.getHiddenAfter(), tokens, tokenList);
+
+            DetailAST toVisit = curNode.getFirstChild();
+            while (curNode != null && toVisit == null) {
+                toVisit = curNode.getNextSibling();
+                if (toVisit == null) {
+                    curNode = curNode.getParent();
+                }
+            }
+            curNode = toVisit;
+        }
+        for (int i = 0; i < tokenList.size(); i++) {
+            // tokens of the chains are appended to the list while it is iterated
+            final CommonHiddenStreamToken token = tokenList.get(i);
+            addText(token.getText(), texts, textList);
+            addToken(token.getHiddenBefore(), tokens, tokenList);
+            addToken(token.getHiddenAfter(), tokens, tokenList);
+        }
+
+        writeVarInt(output, textList.size());
+        for (String text : textList) {
+            final byte[] bytes = text.getBytes(StandardCharsets.UTF_8.name());
+            writeVarInt(output, bytes.length);
+            output.write(bytes);
+        }
+
+        writeVarInt(output, tokenList.size());
+        for (CommonHiddenStreamToken token : tokenList) {
+            writeVarInt(output, token.getType());
+            writeVarInt(output, getIndex(token.getText(), texts));
+            writeVarInt(output, token.getLine());
+            writeVarInt(output, token.getColumn());
+            writeVarInt(output, getIndex(token.getHiddenBefore(), tokens));
+            writeVarInt(output, getIndex(token.getHiddenAfter(), tokens));
+        }
+
+        writeVarInt(output, nodes.size());
+        for (DetailAST node : nodes) {
+            int flags = 0;
+            if (node.getFirstChild() != null) {
+                flags |= HAS_FIRST_CHILD;
+            }
+            if (node.getNextSibling() != null) {
+                flags |= HAS_NEXT_SIBLING;
+            }
+            writeVarInt(output, flags);
+            writeVarInt(output, node.getType());
+            writeVarInt(output, getIndex(node.getText(), texts));
+            writeVarInt(output, node.getLineNo());
+            writeVarInt(output, node.getColumnNo());
+            writeVarInt(output, getIndex(node.getHiddenBefore(), tokens));
+            writeVarInt(output, getIndex(node.getHiddenAfter(), tokens));
+        }
+    }
+
+    /**
+     * Reads a tree.
+     * @param input the input to read from.
+     * @param maxSize the size of the input, which bounds the lengths of tables
+     *     and texts, as every element takes at least one byte.
+     * @return the root of the tree, may be {@code null}.
+     * @throws IOException if the input fails or has invalid content.
+     */
+    public static DetailAST read(DataInput input, long maxSize) throws IOException {
+        final String[] texts = new String[readLength(input, maxSize)];
+        for (int i = 0; i < texts.length; i++) {
+            final byte[] bytes = new byte[readLength(input, maxSize)];
+            input.readFully(bytes);
+            texts[i] = new String(bytes, StandardCharsets.UTF_8.name());
+        }
+
+        final HiddenToken[] tokens = readTokens(input, texts, maxSize);
+
+        final int nodesNumber = readLength(input, maxSize);
+        final HiddenToken carrier = new HiddenToken();
+        final Deque<DetailAST> nodesBeforeNextSibling = new ArrayDeque<DetailAST>();
+        DetailAST root = null;
+        DetailAST previous = null;
+        boolean previousHasFirstChild = false;
+        for (int i = 0; i < nodesNumber; i++) {
+            final int flags = readVarInt(input);
+            carrier.setType(readVarInt(input));
+            carrier.setText(getText(texts, readVarInt(input)));
+            final int lineNo = readVarInt(input);
+            final int columnNo = readVarInt(input);
+            carrier.setHiddenTokens(getToken(tokens, readVarInt(input)),
+                    getToken(tokens, readVarInt(input)));
+
+            final DetailAST node = new DetailAST();
+            node.initialize(carrier);
+            node.setLineNo(lineNo);
+            node.setColumnNo(columnNo);
+
+            if (previous == null) {
+                root = node;
+            }
+            else if (previousHasFirstChild) {
+                previous.setFirstChild(node);
+            }
+            else if (nodesBeforeNextSibling.isEmpty()) {
+                throw new IOException("Invalid tree structure");
+            }
+            else {
+                nodesBeforeNextSibling.pop().setNextSibling(node);
+            }
+            if ((flags & HAS_NEXT_SIBLING) != 0) {
+                nodesBeforeNextSibling.push(node);
+            }
+            previous = node;
+            previousHasFirstChild = (flags & HAS_FIRST_CHILD) != 0;
+        }
+        if (previousHasFirstChild || !nodesBeforeNextSibling.isEmpty()) {
+            throw new IOException("Invalid tree structure");
+        }
+        return root;
+    }
+
+    /**
+     * Reads the table of hidden tokens and links the tokens with each other.
+     * @param input the input to read from.
+     * @param texts the table of texts.
+     * @param maxSize the size of the input.
+     * @return the table of hidden tokens.
+     * @throws IOException if the input fails or has invalid content.
+     */
+    private static HiddenToken[] readTokens(DataInput input, String[] texts, long maxSize)
+            throws IOException {
+        final HiddenToken[] tokens = new HiddenToken[readLength(input, maxSize)];
+        final int[] tokenLinks = new int[tokens.length * 2];
+        for (int i = 0; i < tokens.length; i++) {
+            final HiddenToken token = new HiddenToken();
+            token.setType(readVarInt(input));
+            token.setText(getText(texts, readVarInt(input)));
+            token.setLine(readVarInt(input));
+            token.setColumn(readVarInt(input));
+            tokenLinks[i * 2] = readVarInt(input);
+            tokenLinks[i * 2 + 1] = readVarInt(input);
+            tokens[i] = token;
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i].setHiddenTokens(getToken(tokens, tokenLinks[i * 2]),
+                    getToken(tokens, tokenLinks[i * 2 + 1]));
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds a text to the table of texts.
+     * @param text the text, may be {@code null}.
+     * @param texts the indexes of the texts in the table.
+     * @param textList the table of texts.
+     */
+    private static void addText(String text, Map<String, Integer> texts, List<String> textList) {
+        if (text != null && !texts.containsKey(text)) {
+            texts.put(text, textList.size());
+            textList.add(text);
+        }
+    }
+
+    /**
+     * Adds a hidden token to the table of hidden tokens.
+     * @param token the token, may be {@code null}.
+     * @param tokens the indexes of the tokens in the table.
+     * @param tokenList the table of tokens.
+     */
+    private static void addToken(CommonHiddenStreamToken token,
+            Map<CommonHiddenStreamToken, Integer> tokens,
+            List<CommonHiddenStreamToken> tokenList) {
+        if (token != null && !tokens.containsKey(token)) {
+            tokens.put(token, tokenList.size());
+            tokenList.add(token);
+        }
+    }
+
+    /**
+     * Returns the reference to an element of a table, which is its index in
+     * the table plus one, or zero for {@code null}.
+     * @param element the element, may be {@code null}.
+     * @param indexes the indexes of the elements in the table.
+     * @param <T> the type of the elements.
+     * @return the reference to the element.
+     */
+    private static <T> int getIndex(T element, Map<T, Integer> indexes) {
+        int result = 0;
+        if (element != null) {
+            result = indexes.get(element) + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the text by its reference.
+     * @param texts the table of texts.
+     * @param reference the reference to the text.
+     * @return the text, may be {@code null}.
+     * @throws IOException if the reference is invalid.
+     */
+    private static String getText(String[] texts, int reference) throws IOException {
+        String result = null;
+        if (reference != 0) {
+            if (reference < 0 || reference > texts.length) {
+                throw new IOException("Invalid text reference " + reference);
+            }
+            result = texts[reference - 1];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hidden token by its reference.
+     * @param tokens the table of tokens.
+     * @param reference the reference to the token.
+     * @return the token, may be {@code null}.
+     * @throws IOException if the reference is invalid.
+     */
+    private static HiddenToken getToken(HiddenToken[] tokens, int reference)
+            throws IOException {
+        HiddenToken result = null;
+        if (reference != 0) {
+            if (reference < 0 || reference > tokens.length) {
+                throw new IOException("Invalid token reference " + reference);
+            }
+            result = tokens[reference - 1];
+        }
+        return result;
+    }
+
+    /**
+     * Writes a variable-length integer. Negative numbers are zigzag encoded,
+     * so small numbers of any sign take a single byte.
+     * @param output the output to write to.
+     * @param value the number.
+     * @throws IOException if the output fails.
+     */
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        int rest = value << 1 ^ value >> Integer.SIZE - 1;
+        while ((rest & ~VAR_INT_PAYLOAD) != 0) {
+            output.writeByte(rest & VAR_INT_PAYLOAD | VAR_INT_CONTINUATION);
+            rest >>>= VAR_INT_SHIFT;
+        }
+        output.writeByte(rest);
+    }
+
+    /**
+     * Reads a length of a table or a text.
+     * @param input the input to read from.
+     * @param maxSize the size of the input.
+     * @return the length.
+     * @throws IOException if the input fails or the length is negative
+     *     or exceeds the size of the input.
+     */
+    private static int readLength(DataInput input, long maxSize) throws IOException {
+        final int result = readVarInt(input);
+        if (result < 0 || result > maxSize) {
+            throw new IOException("Invalid length " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Reads a variable-length integer.
+     * @param input the input to read from.
+     * @return the number.
+     * @throws IOException if the input fails.
+     */
+    private static int readVarInt(DataInput input) throws IOException {
+        int result = 0;
+        int shift = 0;
+        int value;
+        do {
+            if (shift > Integer.SIZE) {
+                throw new IOException("Invalid variable-length integer");
+            }
+            value = input.readUnsignedByte();
+            result |= (value & VAR_INT_PAYLOAD) << shift;
+            shift += VAR_INT_SHIFT;
+        } while ((value & VAR_INT_CONTINUATION) != 0);
+        return result >>> 1 ^ -(result & 1);
+    }
+
+    /**
+     * Hidden token, which links to other hidden tokens after it is created.
+     */
+    private static final class HiddenToken extends CommonHiddenStreamToken {
+
+        /**
+         * Sets the hidden tokens before and after this one.
+         * @param before the hidden token before, may be {@code null}.
+         * @param after the hidden token after, may be {@code null}.
+         */
+        public void setHiddenTokens(HiddenToken before, HiddenToken after) {
+            setHiddenBefore(before);
+            setHiddenAfter(after);
+        }
+
+    }
+
+}
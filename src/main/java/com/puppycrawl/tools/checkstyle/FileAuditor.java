@@ -0,0 +1,597 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilterSet;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.Context;
+import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+import com.puppycrawl.tools.checkstyle.api.FilterSet;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+
+/**
+ * Audits the files of {@link Checker} with its fileset checks, notifies its
+ * listeners about the violations which pass its filters, and records them in
+ * its caches. Files are audited by the calling thread, or by
+ * {@link ParallelFileAuditor} if the checker has several threads.
+ *
+ */
+final class FileAuditor {
+
+    /** Logger for FileAuditor. */
+    private static final Log LOG = LogFactory.getLog(FileAuditor.class);
+
+    /** The checker, which is the source of audit events. */
+    private final Checker checker;
+
+    /** The listeners of the checker. */
+    private final List<AuditListener> listeners;
+
+    /** The fileset checks of the checker. */
+    private final List<FileSetCheck> fileSetChecks;
+
+    /** Configurations of the fileset checks which were created from child modules. */
+    private final Map<FileSetCheck, Configuration> fileSetCheckConfigurations;
+
+    /** The audit event before execution file filters. */
+    private final BeforeExecutionFileFilterSet beforeExecutionFileFilters;
+
+    /** The audit event filters. */
+    private final FilterSet filters;
+
+    /** The caches of the violations of files. */
+    private final AuditCache cache;
+
+    /** The basedir to strip off in file names. */
+    private String basedir;
+
+    /** Name of a charset. */
+    private String charset;
+
+    /** The file extensions that are accepted. */
+    private String[] fileExtensions = CommonUtil.EMPTY_STRING_ARRAY;
+
+    /** Controls whether exceptions should halt execution or not. */
+    private boolean haltOnException = true;
+
+    /** Directory of parsed trees, {@code null} if trees are not stored. */
+    private AstCacheDirectory astCacheDirectory;
+
+    /** The number of threads which process files. */
+    private int threadsNumber = 1;
+
+    /** The factory for instantiating copies of fileset checks. */
+    private ModuleFactory moduleFactory;
+
+    /** The context of copies of fileset checks. */
+    private Context childContext;
+
+    /**
+     * Creates a new instance, which shares the given modules with the checker.
+     * @param checker the checker.
+     * @param listeners the listeners of the checker.
+     * @param fileSetChecks the fileset checks of the checker.
+     * @param fileSetCheckConfigurations the configurations of the fileset checks.
+     * @param beforeExecutionFileFilters the before execution file filters of the checker.
+     * @param filters the filters of the checker.
+     * @param cache the caches of the checker.
+     */
+    FileAuditor(Checker checker, List<AuditListener> listeners,
+            List<FileSetCheck> fileSetChecks,
+            Map<FileSetCheck, Configuration> fileSetCheckConfigurations,
+            BeforeExecutionFileFilterSet beforeExecutionFileFilters, FilterSet filters,
+            AuditCache cache) {
+        this.checker = checker;
+        this.listeners = listeners;
+        this.fileSetChecks = fileSetChecks;
+        this.fileSetCheckConfigurations = fileSetCheckConfigurations;
+        this.beforeExecutionFileFilters = beforeExecutionFileFilters;
+        this.filters = filters;
+        this.cache = cache;
+    }
+
+    /**
+     * Sets base directory.
+     * @param basedir the base directory to strip off in file names
+     */
+    public void setBasedir(String basedir) {
+        this.basedir = basedir;
+    }
+
+    /**
+     * Sets a named charset.
+     * @param charset the name of a charset
+     */
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Sets the file extensions of the files to audit.
+     * @param fileExtensions the file extensions, starting with '.'.
+     */
+    public void setFileExtensions(String... fileExtensions) {
+        this.fileExtensions = fileExtensions;
+    }
+
+    /**
+     * Sets whether exceptions should halt execution.
+     * @param haltOnException whether exceptions should halt execution.
+     */
+    public void setHaltOnException(boolean haltOnException) {
+        this.haltOnException = haltOnException;
+    }
+
+    /**
+     * Sets the directory to store parsed trees of Java files in.
+     * @param astCacheDirectory the directory, {@code null} if trees are not stored.
+     */
+    public void setAstCacheDirectory(AstCacheDirectory astCacheDirectory) {
+        this.astCacheDirectory = astCacheDirectory;
+    }
+
+    /**
+     * Sets the number of threads which process files, and the factory and the
+     * context to create the copies of the fileset checks for these threads with.
+     * @param number the number of threads.
+     * @param factory the factory for instantiating fileset checks.
+     * @param context the context of fileset checks.
+     */
+    public void setThreads(int number, ModuleFactory factory, Context context) {
+        threadsNumber = number;
+        moduleFactory = factory;
+        childContext = context;
+    }
+
+    /** Notify all listeners about the audit start. */
+    public void fireAuditStarted() {
+        final AuditEvent event = new AuditEvent(checker);
+        for (final AuditListener listener : listeners) {
+            listener.auditStarted(event);
+        }
+    }
+
+    /** Notify all listeners about the audit end. */
+    public void fireAuditFinished() {
+        final AuditEvent event = new AuditEvent(checker);
+        for (final AuditListener listener : listeners) {
+            listener.auditFinished(event);
+        }
+    }
+
+    /**
+     * Returns a set of external configuration resource locations which are used by all file set
+     * checks and filters.
+     * @return a set of external configuration resource locations which are used by all file set
+     *         checks and filters.
+     */
+    public Set<String> getExternalResourceLocations() {
+        final Set<String> externalResources = new HashSet<String>();
+        for (FileSetCheck check : fileSetChecks) {
+            if (check instanceof ExternalResourceHolder) {
+                final Set<String> locations =
+                    ((ExternalResourceHolder) check).getExternalResourceLocations();
+                externalResources.addAll(locations);
+            }
+        }
+        for (Filter filter : filters.getFilters()) {
+            if (filter instanceof ExternalResourceHolder) {
+                final Set<String> locations =
+                    ((ExternalResourceHolder) filter).getExternalResourceLocations();
+                externalResources.addAll(locations);
+            }
+        }
+        return externalResources;
+    }
+
+    /**
+     * Audits a list of files with all FileSetChecks. The caches must be
+     * prepared for the audit.
+     * @param files a list of files to process.
+     * @throws CheckstyleException if error condition within Checkstyle occurs.
+     */
+    public void process(List<File> files) throws CheckstyleException {
+        // lists read from a stream can be iterated only once, so files are
+        // copied to hash them before the audit and collected during the audit
+        // to prune the cache file after it
+        List<File> filesToProcess = files;
+        if (cache.isHashingContents()) {
+            filesToProcess = new ArrayList<File>();
+            final List<File> filesToHash = new ArrayList<File>();
+            for (final File file : files) {
+                filesToProcess.add(file);
+                if (CommonUtil.matchesFileExtension(file, fileExtensions)) {
+                    filesToHash.add(file);
+                }
+            }
+            cache.hashContents(filesToHash);
+        }
+        List<File> processedFiles = null;
+        if (cache.hasCacheFile()) {
+            processedFiles = new ArrayList<File>();
+        }
+        if (threadsNumber > 1) {
+            new ParallelFileAuditor(this, threadsNumber).process(filesToProcess, processedFiles);
+        }
+        else {
+            processFiles(filesToProcess, processedFiles);
+        }
+        cache.finishAudit(processedFiles);
+        if (astCacheDirectory != null) {
+            astCacheDirectory.finishAudit();
+        }
+    }
+
+    /**
+     * Processes a list of files with all FileSetChecks in the calling thread.
+     * @param files a list of files to process.
+     * @param processedFiles the list to add the processed files to, may be {@code null}.
+     * @throws CheckstyleException if error condition within Checkstyle occurs.
+     * @noinspection ProhibitedExceptionThrown
+     */
+    private void processFiles(List<File> files, List<File> processedFiles)
+            throws CheckstyleException {
+        for (final File file : files) {
+            if (processedFiles != null) {
+                processedFiles.add(file);
+            }
+            try {
+                if (acceptFile(file)) {
+                    final String fileName = file.getAbsolutePath();
+                    final AuditCache.CachedResult cachedResult = cache.getCachedResult(file);
+                    if (cachedResult.getSkippedModules() != null) {
+                        fireFileStarted(fileName);
+                        final SortedSet<LocalizedMessage> fileMessages =
+                                new TreeSet<LocalizedMessage>();
+                        final FileText fileText = readFileText(file, fileMessages);
+                        if (fileText != null) {
+                            processFileText(file, fileText, fileSetChecks,
+                                    cachedResult.getSkippedModules(), fileMessages);
+                        }
+                        fireFileErrors(fileName, fileMessages, cachedResult.getViolations());
+                        fireFileFinished(fileName);
+                    }
+                    else if (!cachedResult.getViolations().isEmpty()) {
+                        fireCachedViolations(fileName, cachedResult.getViolations());
+                    }
+                }
+            }
+            // -@cs[IllegalCatch] There is no other way to deliver filename that was under
+            // processing. See https://github.com/checkstyle/checkstyle/issues/2285
+            catch (Exception ex) {
+                throw wrapException(file, ex);
+            }
+            catch (Error error) {
+                throw wrapError(file, error);
+            }
+        }
+    }
+
+    /**
+     * Returns the fileset checks of the checker.
+     * @return the fileset checks.
+     */
+    List<FileSetCheck> getFileSetChecks() {
+        return fileSetChecks;
+    }
+
+    /**
+     * Returns the caches of the checker.
+     * @return the caches.
+     */
+    AuditCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Creates a copy of a fileset check from the configuration it was created
+     * from, for another thread.
+     * @param fileSetCheck the fileset check to copy.
+     * @return the copy, {@code null} if the fileset check was not created
+     *     from a configuration.
+     * @throws CheckstyleException if the copy cannot be created.
+     */
+    FileSetCheck copyFileSetCheck(FileSetCheck fileSetCheck) throws CheckstyleException {
+        FileSetCheck result = null;
+        final Configuration configuration = fileSetCheckConfigurations.get(fileSetCheck);
+        if (configuration != null) {
+            final String name = configuration.getName();
+            try {
+                result = (FileSetCheck) moduleFactory.createModule(name);
+                if (result instanceof AutomaticBean) {
+                    final AutomaticBean bean = (AutomaticBean) result;
+                    bean.contextualize(childContext);
+                    bean.configure(configuration);
+                }
+            }
+            catch (final CheckstyleException ex) {
+                throw new CheckstyleException("cannot initialize module " + name
+                        + " - " + ex.getMessage(), ex);
+            }
+            result.init();
+            result.setMessageDispatcher(checker);
+            result.beginProcessing(charset);
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the file should be audited.
+     * @param file the file to examine.
+     * @return {@code true} if the file is accepted.
+     */
+    boolean acceptFile(File file) {
+        final String fileName = file.getAbsolutePath();
+        final String stripped = CommonUtil.relativizeAndNormalizePath(basedir, fileName);
+        return CommonUtil.matchesFileExtension(file, fileExtensions)
+                && beforeExecutionFileFilters.accept(stripped);
+    }
+
+    /**
+     * Reads the contents of a file.
+     * @param file a file to read.
+     * @param fileMessages a sorted set to add messages about read failures to.
+     * @return the contents of the file or {@code null} if the file could not be read.
+     * @throws Exception if error condition within Checkstyle occurs.
+     */
+    FileText readFileText(File file, SortedSet<LocalizedMessage> fileMessages)
+            throws Exception {
+        FileText result = null;
+        try {
+            result = new FileText(file.getAbsoluteFile(), charset);
+        }
+        catch (final IOException ioe) {
+            LOG.debug("IOException occurred.", ioe);
+            fileMessages.add(new LocalizedMessage(0,
+                    Definitions.CHECKSTYLE_BUNDLE, Checker.EXCEPTION_MSG,
+                    new String[] {ioe.getMessage()}, null, Checker.class, null));
+        }
+        // -@cs[IllegalCatch] There is no other way to obey haltOnException field
+        catch (Exception ex) {
+            handleException(ex, fileMessages);
+        }
+        return result;
+    }
+
+    /**
+     * Processes the contents of a file with the given FileSetChecks.
+     * @param file the file to process.
+     * @param fileText the contents of the file.
+     * @param checks the checks to process the file with.
+     * @param skippedModules the keys of the modules whose results are cached.
+     * @param fileMessages a sorted set to add the messages to be logged to.
+     * @throws Exception if error condition within Checkstyle occurs.
+     */
+    void processFileText(File file, FileText fileText, List<FileSetCheck> checks,
+            Set<String> skippedModules, SortedSet<LocalizedMessage> fileMessages)
+            throws Exception {
+        // checks share the trees of the file, so it is parsed once
+        JavaParseCache.open(fileText, astCacheDirectory);
+        try {
+            for (final FileSetCheck fsc : checks) {
+                if (fsc instanceof TreeWalker) {
+                    ((TreeWalker) fsc).setSkippedModules(skippedModules);
+                }
+                if (!isSkipped(fsc, skippedModules)) {
+                    fileMessages.addAll(fsc.process(file, fileText));
+                }
+            }
+        }
+        // -@cs[IllegalCatch] There is no other way to obey haltOnException field
+        catch (Exception ex) {
+            handleException(ex, fileMessages);
+        }
+        finally {
+            JavaParseCache.close();
+        }
+    }
+
+    /**
+     * Checks whether the results of a fileset check are cached.
+     * @param fileSetCheck the fileset check to examine.
+     * @param skippedModules the keys of the modules whose results are cached.
+     * @return {@code true} if the fileset check must not be executed.
+     */
+    private static boolean isSkipped(FileSetCheck fileSetCheck, Set<String> skippedModules) {
+        return !skippedModules.isEmpty()
+                && fileSetCheck instanceof AbstractFileSetCheck
+                && skippedModules.contains(AuditCache.getModuleKey(
+                        fileSetCheck.getClass().getName(),
+                        ((AbstractFileSetCheck) fileSetCheck).getId()));
+    }
+
+    /**
+     * Rethrows the exception or converts it to a message, depending on the
+     * haltOnException field.
+     * @param exception the exception which occurred.
+     * @param fileMessages a sorted set to add the message to.
+     * @throws Exception the given exception if execution should halt.
+     * @noinspection ProhibitedExceptionThrown
+     */
+    private void handleException(Exception exception, SortedSet<LocalizedMessage> fileMessages)
+            throws Exception {
+        if (haltOnException) {
+            throw exception;
+        }
+
+        LOG.debug("Exception occurred.", exception);
+
+        final StringWriter sw = new StringWriter();
+        final PrintWriter pw = new PrintWriter(sw, true);
+
+        exception.printStackTrace(pw);
+
+        fileMessages.add(new LocalizedMessage(0,
+                Definitions.CHECKSTYLE_BUNDLE, Checker.EXCEPTION_MSG,
+                new String[] {sw.getBuffer().toString()},
+                null, Checker.class, null));
+    }
+
+    /**
+     * Notify all listeners about the beginning of a file audit.
+     * @param fileName the file to be audited
+     */
+    void fireFileStarted(String fileName) {
+        checker.fireFileStarted(fileName);
+    }
+
+    /**
+     * Notify all listeners about the end of a file audit.
+     * @param fileName the audited file
+     */
+    void fireFileFinished(String fileName) {
+        checker.fireFileFinished(fileName);
+    }
+
+    /**
+     * Notifies all listeners about the errors found in a processed file and
+     * records the errors which are not filtered out in the caches, so they
+     * are reported again while the file is unchanged.
+     * @param fileName the audited file
+     * @param errors the audit errors from the file
+     * @param cachedViolations the violations recorded in the cache file for
+     *     the modules which were not executed
+     */
+    void fireFileErrors(String fileName, SortedSet<LocalizedMessage> errors,
+            SortedSet<LocalizedMessage> cachedViolations) {
+        final SortedSet<LocalizedMessage> violations = getAcceptedErrors(fileName, errors);
+        violations.addAll(cachedViolations);
+        fireViolations(fileName, violations);
+        if (hasExceptionMessage(violations)) {
+            // exceptions may be caused by the environment, so they are not recorded
+            cache.remove(fileName);
+        }
+        else {
+            cache.putViolations(fileName, violations);
+        }
+    }
+
+    /**
+     * Returns the errors which are not filtered out.
+     * @param fileName the audited file
+     * @param errors the audit errors from the file
+     * @return the errors which are not filtered out
+     */
+    private SortedSet<LocalizedMessage> getAcceptedErrors(String fileName,
+            SortedSet<LocalizedMessage> errors) {
+        final String stripped = CommonUtil.relativizeAndNormalizePath(basedir, fileName);
+        final SortedSet<LocalizedMessage> result = new TreeSet<LocalizedMessage>();
+        for (final LocalizedMessage element : errors) {
+            final AuditEvent event = new AuditEvent(checker, stripped, element);
+            if (filters.accept(event)) {
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Notifies all listeners about the audit of an unchanged file with the
+     * violations which were recorded in the caches. The violations already
+     * passed the filters, which depend on the configuration only, when they
+     * were recorded.
+     * @param fileName the audited file
+     * @param violations the violations recorded for the file
+     */
+    void fireCachedViolations(String fileName, SortedSet<LocalizedMessage> violations) {
+        fireFileStarted(fileName);
+        fireViolations(fileName, violations);
+        fireFileFinished(fileName);
+    }
+
+    /**
+     * Notifies all listeners about violations which passed the filters.
+     * @param fileName the audited file
+     * @param violations the violations of the file
+     */
+    private void fireViolations(String fileName, SortedSet<LocalizedMessage> violations) {
+        final String stripped = CommonUtil.relativizeAndNormalizePath(basedir, fileName);
+        for (final LocalizedMessage element : violations) {
+            final AuditEvent event = new AuditEvent(checker, stripped, element);
+            for (final AuditListener listener : listeners) {
+                listener.addError(event);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the messages contain a message about an exception.
+     * @param messages the messages to examine
+     * @return {@code true} if one of the messages is about an exception
+     */
+    private static boolean hasExceptionMessage(SortedSet<LocalizedMessage> messages) {
+        boolean result = false;
+        for (final LocalizedMessage message : messages) {
+            if (Checker.EXCEPTION_MSG.equals(message.getKey())) {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Wraps an exception to put the name of the file under processing in it.
+     * @param file the file which was under processing.
+     * @param exception the exception to wrap.
+     * @return the wrapping exception.
+     */
+    static CheckstyleException wrapException(File file, Exception exception) {
+        // We need to catch all exceptions to put a reason failure (file name) in exception
+        return new CheckstyleException("Exception was thrown while processing "
+                + file.getPath(), exception);
+    }
+
+    /**
+     * Wraps an error to put the name of the file under processing in it.
+     * @param file the file which was under processing.
+     * @param error the error to wrap.
+     * @return the wrapping error.
+     */
+    static Error wrapError(File file, Error error) {
+        // We need to catch all errors to put a reason failure (file name) in error
+        return new Error("Error was thrown while processing " + file.getPath(), error);
+    }
+
+}
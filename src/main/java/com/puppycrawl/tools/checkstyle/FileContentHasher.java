@@ -0,0 +1,178 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.io.BaseEncoding;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+/**
+ * Calculates hashes of the contents of files, so that the cache file can
+ * recognize unchanged files whose modification time has changed.
+ *
+ * <p>Files are read by a fixed number of threads, each with a buffer of fixed
+ * size, so the I/O load is bounded regardless of the number and size of
+ * files.</p>
+ *
+ */
+final class FileContentHasher {
+
+    /** The size of the buffer to read files with. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The number of threads which read files. */
+    private final int threadsNumber;
+
+    /**
+     * Creates a new instance.
+     * @param threadsNumber the number of threads which read files.
+     */
+    FileContentHasher(int threadsNumber) {
+        this.threadsNumber = threadsNumber;
+    }
+
+    /**
+     * Calculates the hashes of the contents of files.
+     * @param files the files.
+     * @return the hashes by absolute file names. Files which can't be read
+     *     have no hash.
+     * @throws CheckstyleException if the calculation is interrupted.
+     */
+    public Map<String, String> hash(Collection<File> files) throws CheckstyleException {
+        final Map<String, String> result = new HashMap<String, String>();
+        if (threadsNumber > 1 && files.size() > 1) {
+            final ExecutorService executor = Executors.newFixedThreadPool(
+                    Math.min(threadsNumber, files.size()));
+            try {
+                final List<Future<String>> hashes = new ArrayList<Future<String>>();
+                for (final File file : files) {
+                    hashes.add(executor.submit(new HashTask(file)));
+                }
+                int index = 0;
+                for (final File file : files) {
+                    putHash(result, file, hashes.get(index).get());
+                    index++;
+                }
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CheckstyleException("Interrupted while hashing files", ex);
+            }
+            catch (ExecutionException ex) {
+                throw new IllegalStateException("Unable to calculate hashcode.", ex.getCause());
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+        else {
+            for (final File file : files) {
+                putHash(result, file, getHash(file));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Puts the hash of a file into the map of hashes.
+     * @param hashes the map of hashes by absolute file names.
+     * @param file the file.
+     * @param hash the hash of the file, {@code null} if the file can't be read.
+     */
+    private static void putHash(Map<String, String> hashes, File file, String hash) {
+        if (hash != null) {
+            hashes.put(file.getAbsolutePath(), hash);
+        }
+    }
+
+    /**
+     * Calculates the hash of the content of a file.
+     * @param file the file.
+     * @return the hash, {@code null} if the file can't be read.
+     */
+    private static String getHash(File file) {
+        String result = null;
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            final InputStream stream = Files7.newInputStream(new Path(file));
+            try {
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                int length = stream.read(buffer);
+                while (length != -1) {
+                    digest.update(buffer, 0, length);
+                    length = stream.read(buffer);
+                }
+            }
+            finally {
+                stream.close();
+            }
+            result = BaseEncoding.base16().upperCase().encode(digest.digest());
+        }
+        catch (final NoSuchAlgorithmException ex) {
+            // rethrow as unchecked exception
+            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        }
+        catch (IOException ignored) {
+            // the file is audited and its read error is reported then
+        }
+        return result;
+    }
+
+    /**
+     * Task which calculates the hash of a file.
+     */
+    private static final class HashTask implements Callable<String> {
+
+        /** The file to hash. */
+        private final File file;
+
+        /**
+         * Creates a new task.
+         * @param file the file to hash.
+         */
+        HashTask(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public String call() {
+            return getHash(file);
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+/**
+ * The files whose names are read from a stream, like a file or the standard
+ * input, as a list which is read while it is iterated. The names are
+ * separated by line breaks or by NUL characters and encoded in UTF-8, empty
+ * names are skipped. The files are neither kept in memory nor checked for
+ * existence, so any number of files can be read.
+ *
+ * <p>The list can be iterated only once. Its size and the files at given
+ * indexes are unknown until the list is read, so {@link #size()} and
+ * {@link #get(int)} are not supported. This breaks the contract of
+ * {@link java.util.List}, so the list is only passed where it is known to be
+ * iterated once: {@link Main} checks it with {@link #isEmpty()} and rejects
+ * the options which need a single file or the whole list, and
+ * {@link Checker} iterates it once. Other root modules are given a copy.</p>
+ *
+ * <p>The list must be closed if it is not read to its end.</p>
+ *
+ */
+final class FileListReader extends AbstractList<File> implements Closeable {
+
+    /** The NUL character, which separates names if {@link #nulSeparated} is set. */
+    private static final char NUL = '\0';
+
+    /** The stream of the names. */
+    private final InputStream stream;
+
+    /** Whether the stream is closed after it is read. */
+    private final boolean closeStream;
+
+    /** Whether the names are separated by NUL characters instead of line breaks. */
+    private final boolean nulSeparated;
+
+    /** The reader of the names, {@code null} until the list is read. */
+    private BufferedReader reader;
+
+    /** The file which is read but not returned yet, {@code null} if none. */
+    private File nextFile;
+
+    /** Whether the list is iterated. */
+    private boolean iterated;
+
+    /** Whether the end of the stream is reached. */
+    private boolean finished;
+
+    /**
+     * Creates a new instance.
+     * @param stream the stream of the names.
+     * @param closeStream whether the stream is closed after it is read, the
+     *     standard input should not be closed.
+     * @param nulSeparated whether the names are separated by NUL characters
+     *     instead of line breaks.
+     */
+    FileListReader(InputStream stream, boolean closeStream, boolean nulSeparated) {
+        this.stream = stream;
+        this.closeStream = closeStream;
+        this.nulSeparated = nulSeparated;
+    }
+
+    @Override
+    public File get(int index) {
+        throw new UnsupportedOperationException("get");
+    }
+
+    @Override
+    public int size() {
+        throw new UnsupportedOperationException("size");
+    }
+
+    /**
+     * Stops reading the list and closes the stream, unless it should not be
+     * closed.
+     * @throws IOException if the stream can't be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        finished = true;
+        nextFile = null;
+        if (closeStream) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        if (iterated) {
+            throw new IllegalStateException("The list of files is already iterated");
+        }
+        return !readFile();
+    }
+
+    @Override
+    public synchronized Iterator<File> iterator() {
+        if (iterated) {
+            throw new IllegalStateException("The list of files can be iterated only once");
+        }
+        iterated = true;
+        return new Iterator<File>() {
+            @Override
+            public boolean hasNext() {
+                return readFile();
+            }
+
+            @Override
+            public File next() {
+                return nextFile();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /**
+     * Returns the next file and removes it from the list.
+     * @return the next file.
+     * @throws NoSuchElementException if there are no more files.
+     */
+    private synchronized File nextFile() {
+        if (!readFile()) {
+            throw new NoSuchElementException();
+        }
+        final File result = nextFile;
+        nextFile = null;
+        return result;
+    }
+
+    /**
+     * Reads the next file, unless it is already read.
+     * @return true if there is a next file.
+     * @throws IllegalStateException if the stream can't be read.
+     */
+    private synchronized boolean readFile() {
+        try {
+            if (reader == null) {
+                reader = new BufferedReader(new InputStreamReader(stream,
+                        StandardCharsets.UTF_8));
+            }
+            while (nextFile == null && !finished) {
+                final String name = readName();
+                if (name == null) {
+                    finished = true;
+                    if (closeStream) {
+                        reader.close();
+                    }
+                }
+                else if (!name.isEmpty()) {
+                    nextFile = new File(name);
+                }
+            }
+        }
+        catch (IOException ex) {
+            throw new IllegalStateException("Unable to read the list of files", ex);
+        }
+        return nextFile != null;
+    }
+
+    /**
+     * Reads the next name.
+     * @return the name, or {@code null} at the end of the stream.
+     * @throws IOException if the stream can't be read.
+     */
+    private String readName() throws IOException {
+        final String result;
+        if (nulSeparated) {
+            final StringBuilder name = new StringBuilder();
+            int character = reader.read();
+            while (character != -1 && character != NUL) {
+                name.append((char) character);
+                character = reader.read();
+            }
+            if (character == -1 && name.length() == 0) {
+                result = null;
+            }
+            else {
+                result = name.toString();
+            }
+        }
+        else {
+            result = reader.readLine();
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,268 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * The files in the given files and directories, as a list which is filled
+ * while it is iterated, so the files found first can be processed while the
+ * directories are still walked.
+ *
+ * <p>The directories are listed in parallel ahead of the iteration, but the
+ * files are in the same order as if the directories were walked depth first
+ * by a single thread. Excluded directories are not listed. Methods which need
+ * all files, like {@link #size()}, wait until the walk is finished.</p>
+ *
+ */
+final class FileWalker extends AbstractList<File> {
+
+    /**
+     * The number of threads which list directories. Listing is limited by
+     * the latency of the file system rather than by the CPU.
+     */
+    private static final int THREADS_NUMBER = 4;
+
+    /** The time an idle thread waits for directories to list before it ends, in seconds. */
+    private static final long KEEP_ALIVE_TIME = 1;
+
+    /** The list of directory patterns to exclude from searching. */
+    private final List<Pattern> patternsToExclude;
+
+    /** The threads which list directories. */
+    private final ThreadPoolExecutor executor;
+
+    /** The files found so far. */
+    private final List<File> files = new ArrayList<File>();
+
+    /** The remaining entries of the directories which are walked, innermost first. */
+    private final Deque<Iterator<Node>> walkedDirectories = new ArrayDeque<Iterator<Node>>();
+
+    /**
+     * Creates a new instance and starts to list the directories.
+     * @param roots the files and directories to search.
+     * @param patternsToExclude The list of directory patterns to exclude from searching.
+     */
+    FileWalker(List<File> roots, List<Pattern> patternsToExclude) {
+        this.patternsToExclude = patternsToExclude;
+        executor = new ThreadPoolExecutor(THREADS_NUMBER, THREADS_NUMBER,
+                KEEP_ALIVE_TIME, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "checkstyle-file-walker");
+                        // an abandoned walk must not keep the JVM alive
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        walkedDirectories.push(createNodes(roots).iterator());
+    }
+
+    @Override
+    public synchronized File get(int index) {
+        if (!findFile(index)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + files.size());
+        }
+        return files.get(index);
+    }
+
+    @Override
+    public synchronized int size() {
+        findFile(Integer.MAX_VALUE);
+        return files.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !hasFile(0);
+    }
+
+    @Override
+    public Iterator<File> iterator() {
+        return new Iterator<File>() {
+            /** The index of the next file. */
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return hasFile(index);
+            }
+
+            @Override
+            public File next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final File result = get(index);
+                index++;
+                return result;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /**
+     * Checks whether there is a file at an index, waiting until it is found
+     * or the walk is finished.
+     * @param index the index of the file.
+     * @return true if there is a file at the index.
+     */
+    private synchronized boolean hasFile(int index) {
+        return findFile(index);
+    }
+
+    /**
+     * Walks the directories until the file at an index is found or the walk
+     * is finished.
+     * @param index the index of the file.
+     * @return true if the file is found.
+     */
+    private boolean findFile(int index) {
+        while (files.size() <= index && !walkedDirectories.isEmpty()) {
+            final Iterator<Node> entries = walkedDirectories.peek();
+            if (entries.hasNext()) {
+                final Node node = entries.next();
+                if (node.entries == null) {
+                    files.add(node.file);
+                }
+                else {
+                    walkedDirectories.push(getEntries(node).iterator());
+                }
+            }
+            else {
+                walkedDirectories.pop();
+            }
+        }
+        if (walkedDirectories.isEmpty()) {
+            executor.shutdown();
+        }
+        return files.size() > index;
+    }
+
+    /**
+     * Waits until a directory is listed.
+     * @param directory the node of the directory.
+     * @return the nodes of the entries of the directory.
+     * @throws IllegalStateException if the directory can't be listed or the
+     *     thread is interrupted.
+     */
+    private static List<Node> getEntries(Node directory) {
+        try {
+            return directory.entries.get();
+        }
+        catch (ExecutionException ex) {
+            throw new IllegalStateException("Unable to list " + directory.file, ex.getCause());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while listing " + directory.file, ex);
+        }
+    }
+
+    /**
+     * Creates the nodes of readable files and directories, and starts to list
+     * the directories which are not excluded.
+     * @param candidates the files and directories.
+     * @return the nodes, in the order of the candidates.
+     */
+    private List<Node> createNodes(Iterable<File> candidates) {
+        final List<Node> result = new ArrayList<Node>();
+        for (final File candidate : candidates) {
+            if (candidate.canRead()) {
+                if (candidate.isDirectory()) {
+                    if (!Main.isDirectoryExcluded(candidate.getAbsolutePath(),
+                            patternsToExclude)) {
+                        result.add(new Node(candidate, executor.submit(new Callable<List<Node>>() {
+                            @Override
+                            public List<Node> call() {
+                                return listDirectory(candidate);
+                            }
+                        })));
+                    }
+                }
+                else if (candidate.isFile()) {
+                    result.add(new Node(candidate, null));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lists a directory.
+     * @param directory the directory.
+     * @return the nodes of the entries of the directory.
+     */
+    private List<Node> listDirectory(File directory) {
+        final List<Node> result;
+        final File[] entries = directory.listFiles();
+        // listFiles() can return null, so we need to check it
+        if (entries == null) {
+            result = new ArrayList<Node>();
+        }
+        else {
+            result = createNodes(Arrays.asList(entries));
+        }
+        return result;
+    }
+
+    /** A found file or directory. */
+    private static final class Node {
+
+        /** The file or directory. */
+        private final File file;
+        /** The entries of the directory, {@code null} for a file. */
+        private final Future<List<Node>> entries;
+
+        /**
+         * Creates a new instance.
+         * @param file the file or directory.
+         * @param entries the entries of the directory, {@code null} for a file.
+         */
+        Node(File file, Future<List<Node>> entries) {
+            this.file = file;
+            this.entries = entries;
+        }
+
+    }
+
+}
@@ -0,0 +1,262 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+
+/**
+ * Watches files and directories for added and modified files by polling,
+ * as {@code WatchService} is not available on every supported JRE.
+ *
+ * <p>The watcher keeps the modification time and length of every file and
+ * the entries of every directory. A directory is listed again only when its
+ * modification time changes, which happens when entries are added, removed
+ * or renamed. The content of a file doesn't change the modification time
+ * of its directory, so the files of unchanged directories are still checked,
+ * but without listing the directories.</p>
+ *
+ * <p>A directory which is modified shortly before it is listed may be
+ * modified again within the resolution of its modification time, so such
+ * directories are listed again until their modification is old enough.</p>
+ *
+ */
+final class FileWatcher {
+
+    /** The time within which a directory is listed again after its modification, in ms. */
+    private static final long RACY_INTERVAL = 2000;
+
+    /** The watched files and directories. */
+    private final List<File> roots;
+
+    /** The list of directory patterns to exclude from searching. */
+    private final List<Pattern> patternsToExclude;
+
+    /** The listed directories. */
+    private final Map<File, Directory> directories = new HashMap<File, Directory>();
+
+    /** The modification times and lengths of the found files. */
+    private final Map<File, FileState> files = new HashMap<File, FileState>();
+
+    /**
+     * Creates a new instance.
+     * @param roots the files and directories to watch.
+     * @param patternsToExclude The list of directory patterns to exclude from searching.
+     */
+    FileWatcher(List<File> roots, List<Pattern> patternsToExclude) {
+        this.roots = new ArrayList<File>(roots);
+        this.patternsToExclude = new ArrayList<Pattern>(patternsToExclude);
+    }
+
+    /**
+     * Audits the added and modified files with a root module whenever they
+     * are found, until the thread is interrupted. A failed audit is reported
+     * to the standard error stream and the files are watched further, so they
+     * are audited again when they are modified.
+     * @param rootModule the root module, which reports the violations to its listeners.
+     * @param interval the time between two searches, in ms.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public void watch(RootModule rootModule, long interval) throws InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            Thread.sleep(interval);
+            final List<File> modifiedFiles = scan();
+            if (!modifiedFiles.isEmpty()) {
+                try {
+                    rootModule.process(modifiedFiles);
+                }
+                catch (CheckstyleException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+        throw new InterruptedException();
+    }
+
+    /**
+     * Searches the watched files and directories for added and modified
+     * files. The first search returns all files.
+     * @return the added and modified files, in the order of the roots and
+     *     sorted by name within a directory.
+     */
+    public List<File> scan() {
+        final List<File> result = new ArrayList<File>();
+        final Set<File> foundDirectories = new HashSet<File>();
+        final Set<File> foundFiles = new HashSet<File>();
+        for (File root : roots) {
+            if (root.canRead()) {
+                if (root.isDirectory()) {
+                    scanDirectory(root, result, foundDirectories, foundFiles);
+                }
+                else if (root.isFile()) {
+                    scanFile(root, result, foundFiles);
+                }
+            }
+        }
+        directories.keySet().retainAll(foundDirectories);
+        files.keySet().retainAll(foundFiles);
+        return result;
+    }
+
+    /**
+     * Searches a directory for added and modified files, listing it only if
+     * it changed.
+     * @param directory the directory.
+     * @param modifiedFiles the list to add the added and modified files to.
+     * @param foundDirectories the found directories.
+     * @param foundFiles the found files.
+     */
+    private void scanDirectory(File directory, List<File> modifiedFiles,
+            Set<File> foundDirectories, Set<File> foundFiles) {
+        if (foundDirectories.add(directory)
+                && !Main.isDirectoryExcluded(directory.getAbsolutePath(), patternsToExclude)) {
+            final long lastModified = directory.lastModified();
+            Directory entries = directories.get(directory);
+            if (entries == null || entries.lastModified != lastModified
+                    || lastModified >= entries.listedAt - RACY_INTERVAL) {
+                entries = listDirectory(directory, lastModified);
+                directories.put(directory, entries);
+            }
+            for (File file : entries.files) {
+                scanFile(file, modifiedFiles, foundFiles);
+            }
+            for (File subdirectory : entries.subdirectories) {
+                scanDirectory(subdirectory, modifiedFiles, foundDirectories, foundFiles);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a file is added or modified.
+     * @param file the file.
+     * @param modifiedFiles the list to add the file to if it is added or modified.
+     * @param foundFiles the found files.
+     */
+    private void scanFile(File file, List<File> modifiedFiles, Set<File> foundFiles) {
+        final long lastModified = file.lastModified();
+        // a file which is removed since its directory was listed has no modification time
+        if (lastModified != 0 && foundFiles.add(file)) {
+            final FileState state = new FileState(lastModified, file.length());
+            if (!state.equals(files.get(file))) {
+                files.put(file, state);
+                modifiedFiles.add(file);
+            }
+        }
+    }
+
+    /**
+     * Lists the readable files and subdirectories of a directory.
+     * @param directory the directory.
+     * @param lastModified the modification time of the directory.
+     * @return the entries of the directory.
+     */
+    private static Directory listDirectory(File directory, long lastModified) {
+        final Directory result = new Directory(lastModified, System.currentTimeMillis());
+        final File[] entries = directory.listFiles();
+        // listFiles() can return null, so we need to check it
+        if (entries != null) {
+            Arrays.sort(entries);
+            for (File entry : entries) {
+                if (entry.canRead()) {
+                    if (entry.isDirectory()) {
+                        result.subdirectories.add(entry);
+                    }
+                    else if (entry.isFile()) {
+                        result.files.add(entry);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** The entries of a listed directory. */
+    private static final class Directory {
+
+        /** The modification time of the directory when it was listed. */
+        private final long lastModified;
+        /** The time the directory was listed. */
+        private final long listedAt;
+        /** The files of the directory. */
+        private final List<File> files = new ArrayList<File>();
+        /** The subdirectories of the directory. */
+        private final List<File> subdirectories = new ArrayList<File>();
+
+        /**
+         * Creates a new instance.
+         * @param lastModified the modification time of the directory.
+         * @param listedAt the time the directory is listed.
+         */
+        Directory(long lastModified, long listedAt) {
+            this.lastModified = lastModified;
+            this.listedAt = listedAt;
+        }
+
+    }
+
+    /** The modification time and length of a file. */
+    private static final class FileState {
+
+        /** The modification time of the file. */
+        private final long lastModified;
+        /** The length of the file. */
+        private final long length;
+
+        /**
+         * Creates a new instance.
+         * @param lastModified the modification time of the file.
+         * @param length the length of the file.
+         */
+        FileState(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            final FileState other = (FileState) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lastModified ^ lastModified >>> 32) * 31
+                    + (int) (length ^ length >>> 32);
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.google.common.io.ByteStreams;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+/**
+ * Finds the files and lines of a git repository which changed since the
+ * merge base with a revision, by running the {@code git} command.
+ *
+ * <p>Committed and uncommitted changes of tracked files are included, deleted
+ * files are not. Untracked files are not included.</p>
+ *
+ */
+final class GitChangedFiles {
+
+    /** The name of the git command. */
+    private static final String GIT_COMMAND = "git";
+
+    /** Prevent instances. */
+    private GitChangedFiles() {
+    }
+
+    /**
+     * Returns the files which changed since the merge base of a revision and
+     * {@code HEAD}.
+     * @param directory a directory of the git repository.
+     * @param baseRevision the revision to compare with, for example the
+     *     target branch of a pull request.
+     * @return the canonical changed files, in the order of git.
+     * @throws CheckstyleException if git fails.
+     */
+    public static List<File> getChangedFiles(File directory, String baseRevision)
+            throws CheckstyleException {
+        final File topLevel;
+        try {
+            topLevel = new File(runGit(directory, "rev-parse", "--show-toplevel").trim())
+                    .getCanonicalFile();
+        }
+        catch (IOException ex) {
+            throw new CheckstyleException("Unable to find the git repository of "
+                    + directory, ex);
+        }
+        final String mergeBase = runGit(directory, "merge-base", baseRevision, "HEAD").trim();
+        final String names = runGit(directory, "diff", "--name-only", "-z",
+                "--diff-filter=d", mergeBase, "--");
+
+        final List<File> result = new ArrayList<File>();
+        for (String name : names.split("\0")) {
+            if (!name.isEmpty()) {
+                result.add(new File(topLevel, name));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the diff of the changes since the merge base of a revision and
+     * {@code HEAD}, without context lines.
+     * @param directory a directory of the git repository.
+     * @param baseRevision the revision to compare with.
+     * @return the unified diff.
+     * @throws CheckstyleException if git fails.
+     */
+    public static String getDiff(File directory, String baseRevision)
+            throws CheckstyleException {
+        final String mergeBase = runGit(directory, "merge-base", baseRevision, "HEAD").trim();
+        // the options override configurations of git which change the format
+        return runGit(directory, "diff", "--no-color", "--no-ext-diff", "--no-renames",
+                "--src-prefix=a/", "--dst-prefix=b/", "-U0", "--diff-filter=d", mergeBase, "--");
+    }
+
+    /**
+     * Runs git and returns its output.
+     * @param directory the directory to run git in.
+     * @param arguments the arguments of git.
+     * @return the standard output of git.
+     * @throws CheckstyleException if git can't be run or fails.
+     */
+    private static String runGit(File directory, String... arguments)
+            throws CheckstyleException {
+        final List<String> command = new ArrayList<String>();
+        command.add(GIT_COMMAND);
+        command.addAll(Arrays.asList(arguments));
+        try {
+            final Process process = new ProcessBuilder(command).directory(directory).start();
+            process.getOutputStream().close();
+            // the error output is read by another thread, otherwise git blocks
+            // when it fills the pipe of one stream while the other one is read
+            final FutureTask<byte[]> error = new FutureTask<byte[]>(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return readFully(process.getErrorStream());
+                }
+            });
+            final Thread errorReader = new Thread(error, "checkstyle-git-error-reader");
+            errorReader.setDaemon(true);
+            errorReader.start();
+            final byte[] output = readFully(process.getInputStream());
+            final int exitValue = process.waitFor();
+            if (exitValue != 0) {
+                final String message = new String(error.get(), StandardCharsets.UTF_8).trim();
+                throw new CheckstyleException("Command '" + command + "' failed with exit code "
+                        + exitValue + ": " + message);
+            }
+            return new String(output, StandardCharsets.UTF_8);
+        }
+        catch (IOException ex) {
+            throw new CheckstyleException("Unable to run command '" + command + "'", ex);
+        }
+        catch (ExecutionException ex) {
+            throw new CheckstyleException("Unable to run command '" + command + "'",
+                    ex.getCause());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CheckstyleException("Interrupted while running command '"
+                    + command + "'", ex);
+        }
+    }
+
+    /**
+     * Reads and closes a stream.
+     * @param stream the stream.
+     * @return the content of the stream.
+     * @throws IOException if the stream fails.
+     */
+    private static byte[] readFully(InputStream stream) throws IOException {
+        try {
+            return ByteStreams.toByteArray(stream);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+}
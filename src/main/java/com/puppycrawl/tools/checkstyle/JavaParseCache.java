@@ -0,0 +1,194 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+/**
+ * Shares the result of parsing a file between all modules which process it,
+ * so that a file is parsed once even if a configuration has several
+ * {@link TreeWalker} modules.
+ *
+ * <p>{@link Checker} opens the cache for the current thread while a file is
+ * processed by its file set checks. The cache is keyed on the {@link FileText}
+ * instance: a module which asks for the parse result of another text, or asks
+ * outside of {@link Checker}, parses the text on its own.</p>
+ *
+ * <p>Comment nodes are appended to the parsed tree itself, as most files are
+ * walked by a single {@link TreeWalker}. A tree without comment nodes is
+ * copied from it only if another module asks for that tree afterwards.
+ * Modules must not change either tree.</p>
+ *
+ */
+public final class JavaParseCache {
+
+    /** The cache of the file under processing on the current thread. */
+    private static final ThreadLocal<JavaParseCache> CURRENT_CACHE =
+            new ThreadLocal<JavaParseCache>();
+
+    /** The text of the file. */
+    private final FileText fileText;
+
+    /** The contents of the file, which collects comments during the parse. */
+    private final FileContents contents;
+
+    /** Directory of parsed trees, {@code null} if trees are not stored. */
+    private final AstCacheDirectory astCacheDirectory;
+
+    /**
+     * The root of the tree without comment nodes, {@code null} until parsed.
+     * Same as the tree with comment nodes once they are appended.
+     */
+    private DetailAST ast;
+
+    /** Whether the file is parsed. */
+    private boolean parsed;
+
+    /** The root of the tree with comment nodes, {@code null} until created. */
+    private DetailAST astWithComments;
+
+    /** Whether the tree with comment nodes is created. */
+    private boolean commentNodesAppended;
+
+    /**
+     * Creates a new cache.
+     * @param fileText the text of the file.
+     * @param astCacheDirectory directory of parsed trees, may be {@code null}.
+     */
+    private JavaParseCache(FileText fileText, AstCacheDirectory astCacheDirectory) {
+        this.fileText = fileText;
+        this.astCacheDirectory = astCacheDirectory;
+        contents = new FileContents(fileText);
+    }
+
+    /**
+     * Opens the cache for a file processed on the current thread.
+     * @param fileText the text of the file.
+     * @param astCacheDirectory directory to load the tree from and store it in,
+     *     {@code null} to always parse the file.
+     */
+    static void open(FileText fileText, AstCacheDirectory astCacheDirectory) {
+        CURRENT_CACHE.set(new JavaParseCache(fileText, astCacheDirectory));
+    }
+
+    /**
+     * Closes the cache of the current thread, so parsed trees of the file
+     * can be collected.
+     */
+    static void close() {
+        CURRENT_CACHE.remove();
+    }
+
+    /**
+     * Returns the parse cache for the given text. If the text is the file
+     * under processing on the current thread, the shared cache is returned,
+     * otherwise a cache used only by the caller.
+     * @param fileText the text of the file.
+     * @return the parse cache of the text.
+     */
+    public static JavaParseCache forFileText(FileText fileText) {
+        JavaParseCache result = CURRENT_CACHE.get();
+        if (result == null || result.fileText != fileText) {
+            result = new JavaParseCache(fileText, null);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the contents of the file. Comments of the file are reported to
+     * the contents when the file is parsed.
+     * @return the contents of the file.
+     */
+    public FileContents getContents() {
+        return contents;
+    }
+
+    /**
+     * Returns the root of the tree without comment nodes, parsing the file or
+     * loading its stored tree on the first call. If comment nodes are already
+     * appended to the parsed tree, a copy without them is created.
+     * @return the root of the tree, {@code null} for a file without any tokens.
+     * @throws CheckstyleException if the file is not a valid Java source.
+     */
+    public DetailAST getAst() throws CheckstyleException {
+        if (!parsed) {
+            if (astCacheDirectory == null) {
+                ast = JavaParser.parse(contents);
+            }
+            else {
+                ast = astCacheDirectory.parse(contents);
+            }
+            parsed = true;
+        }
+        else if (commentNodesAppended && ast == astWithComments) {
+            ast = JavaParser.copyWithoutCommentNodes(astWithComments);
+        }
+        return ast;
+    }
+
+    /**
+     * Returns the root of the tree with comment nodes, appending them to the
+     * parsed tree on the first call.
+     * @return the root of the tree, {@code null} for a file without any tokens.
+     * @throws CheckstyleException if the file is not a valid Java source.
+     */
+    public DetailAST getAstWithComments() throws CheckstyleException {
+        return getAstWithComments(null);
+    }
+
+    /**
+     * Returns the root of the tree with comment nodes, appending them to the
+     * parsed tree on the first call. The comment nodes are taken from a
+     * collector if it is given, which must have visited every node of the
+     * tree returned by {@link #getAst()}, so the tree is not traversed again.
+     * @param collector the collector of the hidden comments of the tree
+     *     without comment nodes, or {@code null} to traverse the tree.
+     * @return the root of the tree, {@code null} for a file without any tokens.
+     * @throws CheckstyleException if the file is not a valid Java source.
+     */
+    DetailAST getAstWithComments(JavaParser.HiddenCommentCollector collector)
+            throws CheckstyleException {
+        if (!commentNodesAppended) {
+            final DetailAST root = getAst();
+            if (collector == null) {
+                astWithComments = JavaParser.appendHiddenCommentNodes(root);
+            }
+            else {
+                astWithComments = collector.appendCommentNodes(root);
+            }
+            ast = astWithComments;
+            commentNodesAppended = true;
+        }
+        return astWithComments;
+    }
+
+    /**
+     * Checks whether the comment nodes are appended, so a tree returned by
+     * {@link #getAst()} is a copy, whose hidden comments need not be collected.
+     * @return true if the comment nodes are appended.
+     */
+    boolean isCommentNodesAppended() {
+        return commentNodesAppended;
+    }
+
+}
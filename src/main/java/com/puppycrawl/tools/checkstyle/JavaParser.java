@@ -21,8 +21,8 @@ package com.puppycrawl.tools.checkstyle;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import antlr.CommonHiddenStreamToken;
@@ -35,6 +35,7 @@ import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.grammars.CommentListener;
 import com.puppycrawl.tools.checkstyle.grammars.GeneratedJavaLexer;
 import com.puppycrawl.tools.checkstyle.grammars.GeneratedJavaRecognizer;
 import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
@@ -75,10 +76,21 @@ public final class JavaParser {
      */
     public static DetailAST parse(FileContents contents)
             throws CheckstyleException {
-        final String fullText = contents.getText().getFullText().toString();
-        final Reader reader = new StringReader(fullText);
-        final GeneratedJavaLexer lexer = new GeneratedJavaLexer(reader);
-        lexer.setCommentListener(contents);
+        return parse(contents, contents);
+    }
+
+    /**
+     * Parses a Java source file, reporting its comments to the given listener.
+     * @param contents contains the contents of the file
+     * @param commentListener the listener to report comments to
+     * @return the root of the AST
+     * @throws CheckstyleException if the contents is not a valid Java source
+     */
+    static DetailAST parse(FileContents contents, CommentListener commentListener)
+            throws CheckstyleException {
+        final GeneratedJavaLexer lexer = new GeneratedJavaLexer(
+                new CharSequenceInputBuffer(contents.getText().getFullText()));
+        lexer.setCommentListener(commentListener);
         lexer.setTokenObjectClass("antlr.CommonHiddenStreamToken");
 
         final TokenStreamHiddenTokenFilter filter = new TokenStreamHiddenTokenFilter(lexer);
@@ -147,30 +159,11 @@ public final class JavaParser {
      * @return root of AST with comment nodes
      */
     public static DetailAST appendHiddenCommentNodes(DetailAST root) {
-        DetailAST result = root;
+        final HiddenCommentCollector collector = new HiddenCommentCollector();
         DetailAST curNode = root;
-        DetailAST lastNode = root;
 
         while (curNode != null) {
-            if (isPositionGreater(curNode, lastNode)) {
-                lastNode = curNode;
-            }
-
-            CommonHiddenStreamToken tokenBefore = curNode.getHiddenBefore();
-            DetailAST currentSibling = curNode;
-            while (tokenBefore != null) {
-                final DetailAST newCommentNode =
-                         createCommentAstFromToken(tokenBefore);
-
-                currentSibling.addPreviousSibling(newCommentNode);
-
-                if (currentSibling == result) {
-                    result = newCommentNode;
-                }
-
-                currentSibling = newCommentNode;
-                tokenBefore = tokenBefore.getHiddenBefore();
-            }
+            collector.visit(curNode);
 
             DetailAST toVisit = curNode.getFirstChild();
             while (curNode != null && toVisit == null) {
@@ -181,22 +174,74 @@ public final class JavaParser {
             }
             curNode = toVisit;
         }
-        if (lastNode != null) {
-            CommonHiddenStreamToken tokenAfter = lastNode.getHiddenAfter();
-            DetailAST currentSibling = lastNode;
-            while (tokenAfter != null) {
-                final DetailAST newCommentNode =
-                        createCommentAstFromToken(tokenAfter);
+        return collector.appendCommentNodes(root);
+    }
+
+    /**
+     * Copies AST with comment nodes without the comment nodes, the given AST
+     * keeps its comment nodes.
+     * @param root of AST with comment nodes
+     * @return root of the copy of AST without comment nodes
+     */
+    static DetailAST copyWithoutCommentNodes(DetailAST root) {
+        DetailAST result = null;
+        DetailAST curNode = skipCommentNodes(root);
+        DetailAST copyParent = null;
+        DetailAST previousCopy = null;
+
+        while (curNode != null) {
+            final DetailAST copy = new DetailAST();
+            copy.initialize(curNode);
 
-                currentSibling.addNextSibling(newCommentNode);
+            if (previousCopy != null) {
+                previousCopy.setNextSibling(copy);
+            }
+            else if (copyParent != null) {
+                copyParent.setFirstChild(copy);
+            }
+            else {
+                result = copy;
+            }
 
-                currentSibling = newCommentNode;
-                tokenAfter = tokenAfter.getHiddenAfter();
+            final DetailAST firstChild = skipCommentNodes(curNode.getFirstChild());
+            if (firstChild == null) {
+                previousCopy = copy;
+                DetailAST nextNode = skipCommentNodes(curNode.getNextSibling());
+                while (nextNode == null && curNode != null) {
+                    curNode = curNode.getParent();
+                    previousCopy = copyParent;
+                    if (copyParent != null) {
+                        copyParent = copyParent.getParent();
+                    }
+                    if (curNode != null) {
+                        nextNode = skipCommentNodes(curNode.getNextSibling());
+                    }
+                }
+                curNode = nextNode;
+            }
+            else {
+                copyParent = copy;
+                previousCopy = null;
+                curNode = firstChild;
             }
         }
         return result;
     }
 
+    /**
+     * Skips comment nodes among siblings.
+     * @param node the first sibling to examine, may be {@code null}.
+     * @return the first sibling which is not a comment node, or {@code null}.
+     */
+    private static DetailAST skipCommentNodes(DetailAST node) {
+        DetailAST result = node;
+        while (result != null && (result.getType() == TokenTypes.SINGLE_LINE_COMMENT
+                || result.getType() == TokenTypes.BLOCK_COMMENT_BEGIN)) {
+            result = result.getNextSibling();
+        }
+        return result;
+    }
+
     /**
      * Checks if position of first DetailAST is greater than position of
      * second DetailAST. Position is line number and column number in source file.
@@ -256,4 +301,75 @@ public final class JavaParser {
         return slComment;
     }
 
+    /**
+     * Collects nodes of AST which have hidden comment tokens, so comment nodes
+     * can be appended after a traversal done for another purpose, without
+     * traversing the tree once more. {@link TreeWalker} fills it during the
+     * walk of ordinary checks.
+     * All nodes must be visited in the order of pre-order traversal, and the
+     * tree must not be changed until comment nodes are appended.
+     */
+    static final class HiddenCommentCollector {
+
+        /** Visited nodes which have hidden comment tokens before them. */
+        private final List<DetailAST> nodesWithCommentsBefore = new ArrayList<DetailAST>();
+
+        /** Visited node with the greatest position in source file. */
+        private DetailAST lastNode;
+
+        /**
+         * Collects hidden comment tokens of a node.
+         * @param node the visited node
+         */
+        public void visit(DetailAST node) {
+            if (lastNode == null || isPositionGreater(node, lastNode)) {
+                lastNode = node;
+            }
+            if (node.getHiddenBefore() != null) {
+                nodesWithCommentsBefore.add(node);
+            }
+        }
+
+        /**
+         * Appends comment nodes for hidden comment tokens of visited nodes.
+         * @param root of AST
+         * @return root of AST with comment nodes
+         */
+        public DetailAST appendCommentNodes(DetailAST root) {
+            DetailAST result = root;
+            for (DetailAST node : nodesWithCommentsBefore) {
+                CommonHiddenStreamToken tokenBefore = node.getHiddenBefore();
+                DetailAST currentSibling = node;
+                while (tokenBefore != null) {
+                    final DetailAST newCommentNode =
+                             createCommentAstFromToken(tokenBefore);
+
+                    currentSibling.addPreviousSibling(newCommentNode);
+
+                    if (currentSibling == result) {
+                        result = newCommentNode;
+                    }
+
+                    currentSibling = newCommentNode;
+                    tokenBefore = tokenBefore.getHiddenBefore();
+                }
+            }
+            if (lastNode != null) {
+                CommonHiddenStreamToken tokenAfter = lastNode.getHiddenAfter();
+                DetailAST currentSibling = lastNode;
+                while (tokenAfter != null) {
+                    final DetailAST newCommentNode =
+                            createCommentAstFromToken(tokenAfter);
+
+                    currentSibling.addNextSibling(newCommentNode);
+
+                    currentSibling = newCommentNode;
+                    tokenAfter = tokenAfter.getHiddenAfter();
+                }
+            }
+            return result;
+        }
+
+    }
+
 }
@@ -0,0 +1,156 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * Writes violations in an explicit binary form and reads them back, so that
+ * stored violations never make a reader create objects of arbitrary classes.
+ *
+ * <p>A violation is written with its position, key, severity, module id,
+ * source class name and the message formatted in the current locale. A read
+ * violation has the formatted message as its custom message, so it reports
+ * the same message without the arguments of the original violation.</p>
+ *
+ */
+final class LocalizedMessageSerializer {
+
+    /** Stop instances being created. **/
+    private LocalizedMessageSerializer() {
+    }
+
+    /**
+     * Writes violations.
+     * @param violations the violations.
+     * @param output the output to write to.
+     * @throws IOException if the output fails or a message is too long.
+     */
+    public static void write(Collection<LocalizedMessage> violations, DataOutput output)
+            throws IOException {
+        output.writeInt(violations.size());
+        for (LocalizedMessage violation : violations) {
+            output.writeInt(violation.getLineNo());
+            output.writeInt(violation.getColumnNo());
+            output.writeInt(violation.getColumnCharIndex());
+            output.writeInt(violation.getTokenType());
+            output.writeUTF(violation.getKey());
+            output.writeUTF(violation.getSeverityLevel().getName());
+            final String moduleId = violation.getModuleId();
+            output.writeBoolean(moduleId != null);
+            if (moduleId != null) {
+                output.writeUTF(moduleId);
+            }
+            output.writeUTF(violation.getSourceName());
+            output.writeUTF(violation.getMessage());
+        }
+    }
+
+    /**
+     * Reads violations.
+     * @param input the input to read from.
+     * @param maxSize the size of the input, which bounds the number of violations.
+     * @return the violations.
+     * @throws IOException if the input fails or has invalid content.
+     */
+    public static SortedSet<LocalizedMessage> read(DataInput input, long maxSize)
+            throws IOException {
+        final int size = input.readInt();
+        if (size < 0 || size > maxSize) {
+            throw new IOException("Invalid number of violations " + size);
+        }
+        final SortedSet<LocalizedMessage> result = new TreeSet<LocalizedMessage>();
+        for (int i = 0; i < size; i++) {
+            final int lineNo = input.readInt();
+            final int columnNo = input.readInt();
+            final int columnCharIndex = input.readInt();
+            final int tokenType = input.readInt();
+            final String key = input.readUTF();
+            final SeverityLevel severityLevel = getSeverityLevel(input.readUTF());
+            String moduleId = null;
+            if (input.readBoolean()) {
+                moduleId = input.readUTF();
+            }
+            final Class<?> sourceClass = getSourceClass(input.readUTF());
+            final String message = input.readUTF();
+            result.add(new LocalizedMessage(lineNo, columnNo, columnCharIndex, tokenType,
+                    null, key, null, severityLevel, moduleId, sourceClass,
+                    quote(message)));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the severity level by its name.
+     * @param name the name of the severity level.
+     * @return the severity level.
+     * @throws IOException if the name is invalid.
+     */
+    private static SeverityLevel getSeverityLevel(String name) throws IOException {
+        try {
+            return SeverityLevel.getInstance(name);
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid severity level " + name, ex);
+        }
+    }
+
+    /**
+     * Loads the source class of a violation, without initializing it.
+     * @param name the name of the class.
+     * @return the class.
+     * @throws IOException if the class is not found.
+     */
+    private static Class<?> getSourceClass(String name) throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = LocalizedMessageSerializer.class.getClassLoader();
+        }
+        try {
+            return Class.forName(name, false, classLoader);
+        }
+        catch (ClassNotFoundException ex) {
+            throw new IOException("Unknown source of violation " + name, ex);
+        }
+    }
+
+    /**
+     * Quotes a formatted message, so that it is used as a literal message
+     * pattern without any arguments.
+     * @param message the formatted message.
+     * @return the message pattern.
+     */
+    private static String quote(String message) {
+        String result = message;
+        if (!message.isEmpty()) {
+            result = "'" + message.replace("'", "''") + "'";
+        }
+        return result;
+    }
+
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
@@ -171,6 +172,33 @@ public final class Main {
     private static final String OPTION_GENERATE_XPATH_SUPPRESSION_NAME =
             "generate-xpath-suppression";
 
+    /** Name for the option '--changed-since'. */
+    private static final String OPTION_CHANGED_SINCE_NAME = "changed-since";
+
+    /** Name for the option '--changed-lines'. */
+    private static final String OPTION_CHANGED_LINES_NAME = "changed-lines";
+
+    /** Name for the option '--diff'. */
+    private static final String OPTION_DIFF_NAME = "diff";
+
+    /** Name for the option '--daemon'. */
+    private static final String OPTION_DAEMON_NAME = "daemon";
+
+    /** Name for the option '--start-daemon'. */
+    private static final String OPTION_START_DAEMON_NAME = "start-daemon";
+
+    /** Name for the option '--watch'. */
+    private static final String OPTION_WATCH_NAME = "watch";
+
+    /** Name for the option '--files-from'. */
+    private static final String OPTION_FILES_FROM_NAME = "files-from";
+
+    /** Name for the option '--null'. */
+    private static final String OPTION_NULL_NAME = "null";
+
+    /** The location of a file list which stands for the standard input. */
+    private static final String STDIN_LOCATION = "-";
+
     /** Name for 'xml' format. */
     private static final String XML_FORMAT_NAME = "xml";
 
@@ -200,6 +228,9 @@ public final class Main {
         // provide proper exit code based on results.
         final int exitWithCliViolation = -1;
         int exitStatus = 0;
+        // the list of files read from a file list, closed at the end as it
+        // is not read to its end if the audit fails
+        FileListReader fileListReader = null;
 
         try {
             //parse CLI arguments
@@ -211,9 +242,43 @@ public final class Main {
                         + Main.class.getPackage().getImplementationVersion());
                 exitStatus = 0;
             }
+            else if (commandLine.hasOption(OPTION_START_DAEMON_NAME)) {
+                final String port = commandLine.getOptionValue(OPTION_START_DAEMON_NAME);
+                if (CommonUtil.isInt(port)) {
+                    runDaemon(Integer.parseInt(port));
+                }
+                else {
+                    exitStatus = exitWithCliViolation;
+                    errorCounter = 1;
+                    cliViolations = true;
+                    System.out.println("Invalid daemon port");
+                }
+            }
             else {
-                final List<File> filesToProcess = getFilesToProcess(getExclusions(commandLine),
-                        commandLine.getArgs());
+                final List<File> filesToProcess;
+                if (commandLine.hasOption(OPTION_FILES_FROM_NAME)) {
+                    fileListReader = getListedFilesToProcess(
+                            commandLine.getOptionValue(OPTION_FILES_FROM_NAME),
+                            commandLine.hasOption(OPTION_NULL_NAME));
+                    if (fileListReader == null) {
+                        // reported by validateCli
+                        filesToProcess = Collections.emptyList();
+                    }
+                    else {
+                        filesToProcess = fileListReader;
+                    }
+                }
+                else if (commandLine.hasOption(OPTION_CHANGED_SINCE_NAME)) {
+                    final List<File> changedFiles = GitChangedFiles.getChangedFiles(
+                            new File("").getAbsoluteFile(),
+                            commandLine.getOptionValue(OPTION_CHANGED_SINCE_NAME));
+                    filesToProcess = getChangedFilesToProcess(changedFiles,
+                            getExclusions(commandLine), commandLine.getArgs());
+                }
+                else {
+                    filesToProcess = getFilesToProcess(getExclusions(commandLine),
+                            commandLine.getArgs());
+                }
 
                 // return error if something is wrong in arguments
                 final List<String> messages = validateCli(commandLine, filesToProcess);
@@ -245,6 +310,9 @@ public final class Main {
             ex.printStackTrace();
         }
         finally {
+            if (fileListReader != null) {
+                fileListReader.close();
+            }
             // return exit code base on validation of Checker
             // two ifs exist till https://github.com/hcoles/pitest/issues/377
             if (errorCounter != 0) {
@@ -309,8 +377,15 @@ public final class Main {
     // -@cs[CyclomaticComplexity] Breaking apart will damage encapsulation
     private static List<String> validateCli(CommandLine cmdLine, List<File> filesToProcess) {
         final List<String> result = new ArrayList<String>();
+        final String fileListLocation = cmdLine.getOptionValue(OPTION_FILES_FROM_NAME);
 
-        if (filesToProcess.isEmpty()) {
+        if (fileListLocation != null && !STDIN_LOCATION.equals(fileListLocation)
+                && !new File(fileListLocation).exists()) {
+            result.add(String.format("Could not find file '%s'.", fileListLocation));
+        }
+        // no changed files are fine, as long as files to search them in are given
+        else if (filesToProcess.isEmpty() && (!cmdLine.hasOption(OPTION_CHANGED_SINCE_NAME)
+                || cmdLine.getArgs().length == 0)) {
             result.add("Files to process must be specified, found 0.");
         }
         // ensure there is no conflicting options
@@ -318,7 +393,9 @@ public final class Main {
                 || cmdLine.hasOption(OPTION_J_NAME) || cmdLine.hasOption(OPTION_CAPITAL_J_NAME)) {
             if (cmdLine.hasOption(OPTION_S_NAME) || cmdLine.hasOption(OPTION_C_NAME)
                     || cmdLine.hasOption(OPTION_P_NAME) || cmdLine.hasOption(OPTION_F_NAME)
-                    || cmdLine.hasOption(OPTION_O_NAME)) {
+                    || cmdLine.hasOption(OPTION_O_NAME)
+                    || cmdLine.hasOption(OPTION_CHANGED_SINCE_NAME)
+                    || fileListLocation != null) {
                 result.add("Option '-t' cannot be used with other options.");
             }
             else if (filesToProcess.size() > 1) {
@@ -327,7 +404,9 @@ public final class Main {
         }
         else if (cmdLine.hasOption(OPTION_S_NAME)) {
             if (cmdLine.hasOption(OPTION_C_NAME) || cmdLine.hasOption(OPTION_P_NAME)
-                    || cmdLine.hasOption(OPTION_F_NAME) || cmdLine.hasOption(OPTION_O_NAME)) {
+                    || cmdLine.hasOption(OPTION_F_NAME) || cmdLine.hasOption(OPTION_O_NAME)
+                    || cmdLine.hasOption(OPTION_CHANGED_SINCE_NAME)
+                    || fileListLocation != null) {
                 result.add("Option '-s' cannot be used with other options.");
             }
             else if (filesToProcess.size() > 1) {
@@ -367,6 +446,46 @@ public final class Main {
             verifyThreadsNumberParameter(cmdLine, result, OPTION_CAPITAL_W_NAME,
                 "TreeWalker threads number must be greater than zero",
                 "Invalid TreeWalker threads number");
+            if (cmdLine.hasOption(OPTION_DIFF_NAME)) {
+                final String diffLocation = cmdLine.getOptionValue(OPTION_DIFF_NAME);
+                if (!new File(diffLocation).exists()) {
+                    result.add(String.format("Could not find file '%s'.", diffLocation));
+                }
+            }
+            if (cmdLine.hasOption(OPTION_CHANGED_LINES_NAME)
+                    && !cmdLine.hasOption(OPTION_CHANGED_SINCE_NAME)) {
+                result.add("Option '--changed-lines' requires option '--changed-since'.");
+            }
+            if (cmdLine.hasOption(OPTION_DAEMON_NAME)) {
+                if (!CommonUtil.isInt(cmdLine.getOptionValue(OPTION_DAEMON_NAME))) {
+                    result.add("Invalid daemon port");
+                }
+                if (cmdLine.hasOption(OPTION_DIFF_NAME)
+                        || cmdLine.hasOption(OPTION_CHANGED_LINES_NAME)) {
+                    result.add("Option '--daemon' cannot be used with options '--diff' "
+                            + "and '--changed-lines'.");
+                }
+            }
+            if (cmdLine.hasOption(OPTION_WATCH_NAME)) {
+                final String interval = cmdLine.getOptionValue(OPTION_WATCH_NAME);
+                if (!CommonUtil.isInt(interval) || Integer.parseInt(interval) <= 0) {
+                    result.add("Invalid watch interval");
+                }
+                if (cmdLine.hasOption(OPTION_O_NAME) || cmdLine.hasOption(OPTION_DAEMON_NAME)
+                        || fileListLocation != null) {
+                    result.add("Option '--watch' cannot be used with options '-o', "
+                            + "'--daemon' and '--files-from'.");
+                }
+            }
+            if (fileListLocation != null && (cmdLine.getArgs().length > 0
+                    || cmdLine.hasOption(OPTION_CHANGED_SINCE_NAME)
+                    || cmdLine.hasOption(OPTION_DAEMON_NAME))) {
+                result.add("Option '--files-from' cannot be used with files and options "
+                        + "'--changed-since' and '--daemon'.");
+            }
+            if (cmdLine.hasOption(OPTION_NULL_NAME) && fileListLocation == null) {
+                result.add("Option '--null' requires option '--files-from'.");
+            }
         }
         else {
             result.add("Must specify a config XML file.");
@@ -471,8 +590,19 @@ public final class Main {
                         + Main.class.getPackage().getImplementationVersion());
             }
 
-            // run Checker
-            result = runCheckstyle(config);
+            if (commandLine.hasOption(OPTION_CHANGED_LINES_NAME)) {
+                config.diff = GitChangedFiles.getDiff(new File("").getAbsoluteFile(),
+                        commandLine.getOptionValue(OPTION_CHANGED_SINCE_NAME));
+            }
+            if (commandLine.hasOption(OPTION_DAEMON_NAME)) {
+                // send the audit to a running daemon
+                result = runCheckstyleInDaemon(config,
+                        Integer.parseInt(commandLine.getOptionValue(OPTION_DAEMON_NAME)));
+            }
+            else {
+                // run Checker
+                result = runCheckstyle(config);
+            }
         }
 
         return result;
@@ -507,6 +637,15 @@ public final class Main {
         conf.tabWidth = Integer.parseInt(tabWidth);
         conf.generateXpathSuppressionsFile =
                 cmdLine.hasOption(OPTION_GENERATE_XPATH_SUPPRESSION_NAME);
+        conf.diffLocation = cmdLine.getOptionValue(OPTION_DIFF_NAME);
+        if (cmdLine.hasOption(OPTION_WATCH_NAME)) {
+            conf.watchInterval = Integer.parseInt(cmdLine.getOptionValue(OPTION_WATCH_NAME));
+            conf.watchedFiles = new ArrayList<File>();
+            for (String element : cmdLine.getArgs()) {
+                conf.watchedFiles.add(new File(element));
+            }
+            conf.exclusions = getExclusions(cmdLine);
+        }
         return conf;
     }
 
@@ -523,14 +662,7 @@ public final class Main {
     private static int runCheckstyle(CliOptions cliOptions)
             throws CheckstyleException, IOException {
         // setup the properties
-        final Properties props;
-
-        if (cliOptions.propertiesLocation == null) {
-            props = System.getProperties();
-        }
-        else {
-            props = loadProperties(new File(cliOptions.propertiesLocation));
-        }
+        final Properties props = getProperties(cliOptions);
 
         // create a configuration
         final ThreadModeSettings multiThreadModeSettings =
@@ -548,6 +680,20 @@ public final class Main {
         final Configuration config = ConfigurationLoader.loadConfiguration(
                 cliOptions.configLocation, new PropertiesExpander(props),
                 ignoredModulesOptions, multiThreadModeSettings);
+        if (cliOptions.diffLocation != null || cliOptions.diff != null) {
+            // create filter to report only violations on changed lines
+            final DefaultConfiguration filterConfig =
+                    new DefaultConfiguration("SuppressOutsideDiffFilter");
+            if (cliOptions.diff == null) {
+                filterConfig.addAttribute("file", cliOptions.diffLocation);
+            }
+            else {
+                // the content is a part of the configuration instead of a file,
+                // so the hash of the configuration changes only with the diff
+                filterConfig.addAttribute("diff", cliOptions.diff);
+            }
+            ((DefaultConfiguration) config).addChild(filterConfig);
+        }
 
         // create RootModule object and run it
         final int errorCounter;
@@ -580,8 +726,34 @@ public final class Main {
             rootModule.configure(config);
             rootModule.addListener(listener);
 
+            FileWatcher watcher = null;
+            if (cliOptions.watchInterval > 0) {
+                // find the files before the audit, so modifications during it are found later
+                watcher = new FileWatcher(cliOptions.watchedFiles, cliOptions.exclusions);
+                watcher.scan();
+            }
+
             // run RootModule
-            errorCounter = rootModule.process(cliOptions.files);
+            List<File> files = cliOptions.files;
+            if (files instanceof FileListReader && !(rootModule instanceof Checker)) {
+                // Checker iterates the files once, other root modules may use
+                // the whole list, which is unknown before it is read
+                files = new ArrayList<File>();
+                for (File file : cliOptions.files) {
+                    files.add(file);
+                }
+            }
+            errorCounter = rootModule.process(files);
+
+            if (watcher != null) {
+                // audit modified files with the same modules until interrupted
+                try {
+                    watcher.watch(rootModule, cliOptions.watchInterval);
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
         }
         finally {
             rootModule.destroy();
@@ -590,6 +762,58 @@ public final class Main {
         return errorCounter;
     }
 
+    /**
+     * Sends the audit to a running daemon and prints its report.
+     * @param cliOptions
+     *        pojo object that contains all options
+     * @param port the port the daemon listens on
+     * @return number of violations of ERROR level
+     * @throws IOException
+     *         when the daemon can't be reached or output file could not be found
+     * @throws CheckstyleException
+     *         when properties file could not be loaded or the daemon failed to run the audit
+     */
+    private static int runCheckstyleInDaemon(CliOptions cliOptions, int port)
+            throws IOException, CheckstyleException {
+        final AuditDaemon.Request request = new AuditDaemon.Request(cliOptions.configLocation,
+                getProperties(cliOptions), cliOptions.executeIgnoredModules,
+                new ThreadModeSettings(
+                        cliOptions.checkerThreadsNumber, cliOptions.treeWalkerThreadsNumber),
+                cliOptions.format, cliOptions.files);
+        final OutputStream out = getOutputStream(cliOptions.outputLocation);
+        final int result;
+        try {
+            result = AuditDaemon.sendRequest(port, AuditDaemon.getDefaultTokenDirectory(),
+                    request, out);
+        }
+        finally {
+            if (cliOptions.outputLocation != null) {
+                out.close();
+            }
+        }
+        if (result == AuditDaemon.FAILURE_STATUS) {
+            throw new CheckstyleException("Daemon failed to run the audit, see its report");
+        }
+        return result;
+    }
+
+    /**
+     * Runs a daemon which audits files for clients until the process is stopped.
+     * @param port the port to listen on
+     * @throws IOException
+     *         when the port can't be opened
+     */
+    private static void runDaemon(int port) throws IOException {
+        final AuditDaemon daemon = new AuditDaemon(port, AuditDaemon.getDefaultTokenDirectory());
+        try {
+            System.out.println("Checkstyle daemon listening on port " + daemon.getPort());
+            daemon.run();
+        }
+        finally {
+            daemon.close();
+        }
+    }
+
     /**
      * Returns {@code TreeWalker} module configuration.
      * @param config The configuration object.
@@ -625,6 +849,26 @@ public final class Main {
         return (RootModule) factory.createModule(name);
     }
 
+    /**
+     * Returns the properties to expand the configuration with, the system
+     * properties if no properties file is given.
+     * @param cliOptions
+     *        pojo object that contains all options
+     * @return the properties
+     * @throws CheckstyleException
+     *         when properties file could not be loaded
+     */
+    private static Properties getProperties(CliOptions cliOptions) throws CheckstyleException {
+        final Properties result;
+        if (cliOptions.propertiesLocation == null) {
+            result = System.getProperties();
+        }
+        else {
+            result = loadProperties(new File(cliOptions.propertiesLocation));
+        }
+        return result;
+    }
+
     /**
      * Loads properties from a File.
      * @param file
@@ -729,47 +973,105 @@ public final class Main {
      * @param patternsToExclude The list of directory patterns to exclude from searching.
      * @param filesToProcess
      *        arguments that were not processed yet but shall be
-     * @return list of files to process
+     * @return list of files to process, which is filled while it is iterated
      */
     private static List<File> getFilesToProcess(List<Pattern> patternsToExclude,
             String... filesToProcess) {
-        final List<File> files = new LinkedList<File>();
+        final List<File> roots = new ArrayList<File>();
         for (String element : filesToProcess) {
-            files.addAll(listFiles(new File(element), patternsToExclude));
+            roots.add(new File(element));
         }
 
-        return files;
+        return new FileWalker(roots, patternsToExclude);
+    }
+
+    /**
+     * Determines the files to process from a file list, which is read while
+     * the files are processed.
+     * @param location the location of the file list, {@code -} for the standard input.
+     * @param nulSeparated whether the names are separated by NUL characters
+     *     instead of line breaks.
+     * @return list of files to process, which can be iterated only once and
+     *     must be closed, or {@code null} if the file list doesn't exist
+     * @throws IOException if the file list can't be opened
+     */
+    private static FileListReader getListedFilesToProcess(String location,
+            boolean nulSeparated) throws IOException {
+        FileListReader result = null;
+        if (STDIN_LOCATION.equals(location)) {
+            result = new FileListReader(System.in, false, nulSeparated);
+        }
+        else if (new File(location).exists()) {
+            result = new FileListReader(Files7.newInputStream(Paths.get(location)), true,
+                    nulSeparated);
+        }
+        return result;
     }
 
     /**
-     * Traverses a specified node looking for files to check. Found files are added to a specified
-     * list. Subdirectories are also traversed.
-     * @param node
-     *        the node to process
+     * Determines the changed files to process. A changed file is processed if
+     * it is one of the given files or in one of the given directories and would
+     * be found by {@link FileWalker}, so its name is the same as
+     * if the whole directory was processed.
+     * @param changedFiles the canonical changed files.
      * @param patternsToExclude The list of directory patterns to exclude from searching.
-     * @return found files
+     * @param filesToProcess
+     *        arguments that were not processed yet but shall be
+     * @return list of files to process
+     * @throws CheckstyleException if the canonical path of an argument can't be determined
      */
-    private static List<File> listFiles(File node, List<Pattern> patternsToExclude) {
-        // could be replaced with org.apache.commons.io.FileUtils.list() method
-        // if only we add commons-io library
-        final List<File> result = new LinkedList<File>();
-
-        if (node.canRead()) {
-            if (node.isDirectory()) {
-                if (!isDirectoryExcluded(node.getAbsolutePath(), patternsToExclude)) {
-                    final File[] files = node.listFiles();
-                    // listFiles() can return null, so we need to check it
-                    if (files != null) {
-                        for (File element : files) {
-                            result.addAll(listFiles(element, patternsToExclude));
-                        }
+    private static List<File> getChangedFilesToProcess(List<File> changedFiles,
+            List<Pattern> patternsToExclude, String... filesToProcess)
+            throws CheckstyleException {
+        final List<File> files = new LinkedList<File>();
+        for (String element : filesToProcess) {
+            final File node = new File(element);
+            final String nodePath;
+            try {
+                nodePath = node.getCanonicalPath();
+            }
+            catch (IOException ex) {
+                throw new CheckstyleException("Unable to resolve " + element, ex);
+            }
+            for (File changedFile : changedFiles) {
+                final String path = changedFile.getPath();
+                if (path.equals(nodePath)) {
+                    if (node.isFile()) {
+                        files.add(node);
+                    }
+                }
+                else if (path.startsWith(nodePath + File.separator)) {
+                    final File file = new File(node, path.substring(nodePath.length() + 1));
+                    if (file.isFile() && !isParentDirectoryExcluded(node, file,
+                            patternsToExclude)) {
+                        files.add(file);
                     }
                 }
-            }
-            else if (node.isFile()) {
-                result.add(node);
             }
         }
+
+        return files;
+    }
+
+    /**
+     * Checks if a file is in a directory which is excluded from searching,
+     * up to the given directory.
+     * @param directory the directory the file was found in.
+     * @param file the file in the directory.
+     * @param patternsToExclude The list of directory patterns to exclude from searching.
+     * @return True if a directory of the file matches one of the patterns.
+     */
+    private static boolean isParentDirectoryExcluded(File directory, File file,
+            List<Pattern> patternsToExclude) {
+        boolean result = false;
+        File parent = file;
+        do {
+            parent = parent.getParentFile();
+            if (isDirectoryExcluded(parent.getAbsolutePath(), patternsToExclude)) {
+                result = true;
+                break;
+            }
+        } while (!parent.equals(directory));
         return result;
     }
 
@@ -780,7 +1082,7 @@ public final class Main {
      * @param patternsToExclude The list of directory patterns to exclude from searching.
      * @return True if the directory matches one of the patterns.
      */
-    private static boolean isDirectoryExcluded(String path, List<Pattern> patternsToExclude) {
+    static boolean isDirectoryExcluded(String path, List<Pattern> patternsToExclude) {
         boolean result = false;
 
         for (Pattern pattern : patternsToExclude) {
@@ -845,6 +1147,22 @@ public final class Main {
                 "(experimental) The number of Checker threads (must be greater than zero)");
         options.addOption(OPTION_CAPITAL_W_NAME, OPTION_TREE_WALKER_THREADS_NUMBER_NAME, true,
                 "(experimental) The number of TreeWalker threads (must be greater than zero)");
+        options.addOption(null, OPTION_CHANGED_SINCE_NAME, true,
+                "Audits only files changed since the git revision");
+        options.addOption(null, OPTION_CHANGED_LINES_NAME, false,
+                "Reports only violations on lines changed since the revision");
+        options.addOption(null, OPTION_DIFF_NAME, true,
+                "Reports only violations on lines changed by the diff file");
+        options.addOption(null, OPTION_START_DAEMON_NAME, true,
+                "Starts a daemon which runs audits of clients on the port");
+        options.addOption(null, OPTION_DAEMON_NAME, true,
+                "Sends the audit to the daemon listening on the port");
+        options.addOption(null, OPTION_WATCH_NAME, true,
+                "Audits modified files again, polling every arg ms");
+        options.addOption(null, OPTION_FILES_FROM_NAME, true,
+                "Reads the files to audit from the file, - for stdin");
+        options.addOption(null, OPTION_NULL_NAME, false,
+                "Separates the files of --files-from by NUL characters");
         return options;
     }
 
@@ -873,6 +1191,16 @@ public final class Main {
         private int tabWidth;
         /** Switch whether to generate suppressions file or not. */
         private boolean generateXpathSuppressionsFile;
+        /** Unified diff file location, to report only violations on changed lines. */
+        private String diffLocation;
+        /** Unified diff of the changes since a git revision, to report only changed lines. */
+        private String diff;
+        /** The time between two searches for modified files in ms, 0 to not watch files. */
+        private long watchInterval;
+        /** The files and directories to watch for modified files. */
+        private List<File> watchedFiles;
+        /** The list of directory patterns to exclude from watching. */
+        private List<Pattern> exclusions;
 
     }
 
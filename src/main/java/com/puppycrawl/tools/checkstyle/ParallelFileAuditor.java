@@ -0,0 +1,319 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.FileSetCheck;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * Audits files with a pool of threads. Each thread audits files with its own
+ * copies of the fileset checks, while the checks which must be shared by all
+ * threads are executed by the calling thread only: checks annotated with
+ * {@link GlobalStatefulCheck}, and instances of {@link TreeWalker} which
+ * hold such checks or keep a state for the filters in the calling thread.
+ * Listeners are notified by the calling thread in the order of the files, so
+ * the output is the same as in single thread mode.
+ *
+ */
+final class ParallelFileAuditor {
+
+    /** The auditor of the files in the calling thread. */
+    private final FileAuditor auditor;
+
+    /** The number of threads which process files. */
+    private final int threadsNumber;
+
+    /** The checks which must be executed in the calling thread. */
+    private final List<FileSetCheck> sharedChecks = new ArrayList<FileSetCheck>();
+
+    /**
+     * Creates a new instance.
+     * @param auditor the auditor of the files in the calling thread.
+     * @param threadsNumber the number of threads which process files.
+     */
+    ParallelFileAuditor(FileAuditor auditor, int threadsNumber) {
+        this.auditor = auditor;
+        this.threadsNumber = threadsNumber;
+    }
+
+    /**
+     * Processes a list of files with all FileSetChecks using a pool of threads.
+     * @param files a list of files to process.
+     * @param processedFiles the list to add the processed files to, may be {@code null}.
+     * @throws CheckstyleException if error condition within Checkstyle occurs.
+     */
+    public void process(List<File> files, List<File> processedFiles)
+            throws CheckstyleException {
+        final List<List<FileSetCheck>> workerChecks = createWorkerChecks();
+        final BlockingQueue<List<FileSetCheck>> idleWorkerChecks =
+                new ArrayBlockingQueue<List<FileSetCheck>>(threadsNumber, false, workerChecks);
+        final Queue<FileTask> tasks = new ArrayDeque<FileTask>();
+        final ExecutorService executor = Executors.newFixedThreadPool(threadsNumber);
+        try {
+            for (final File file : files) {
+                if (processedFiles != null) {
+                    processedFiles.add(file);
+                }
+                try {
+                    if (auditor.acceptFile(file)) {
+                        final AuditCache.CachedResult cachedResult =
+                                auditor.getCache().getCachedResult(file);
+                        if (cachedResult.getSkippedModules() != null) {
+                            tasks.add(new FileTask(file, cachedResult, executor.submit(
+                                    new FileProcessor(file, idleWorkerChecks,
+                                            cachedResult.getSkippedModules()))));
+                        }
+                        else if (!cachedResult.getViolations().isEmpty()) {
+                            tasks.add(new FileTask(file, cachedResult, null));
+                        }
+                    }
+                }
+                // -@cs[IllegalCatch] There is no other way to deliver filename that was under
+                // processing. See https://github.com/checkstyle/checkstyle/issues/2285
+                catch (Exception ex) {
+                    throw FileAuditor.wrapException(file, ex);
+                }
+                // limit the number of files whose results are kept in memory
+                if (tasks.size() > threadsNumber * 2) {
+                    finishFileTask(tasks.remove());
+                }
+            }
+            while (!tasks.isEmpty()) {
+                finishFileTask(tasks.remove());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // the first set holds the original checks, they are finished by the checker
+        for (final List<FileSetCheck> checks : workerChecks.subList(1, workerChecks.size())) {
+            for (final FileSetCheck fsc : checks) {
+                // It may also log!!!
+                fsc.finishProcessing();
+                fsc.destroy();
+            }
+        }
+    }
+
+    /**
+     * Creates the sets of fileset checks used by the file processing threads.
+     * The first set contains the original checks, all other sets contain copies
+     * created from the same configurations. Checks which cannot be copied are
+     * added to the shared checks instead.
+     * @return the list of check sets, one per thread.
+     * @throws CheckstyleException if a copy of a check cannot be created.
+     */
+    private List<List<FileSetCheck>> createWorkerChecks() throws CheckstyleException {
+        final List<List<FileSetCheck>> result = new ArrayList<List<FileSetCheck>>();
+        for (int i = 0; i < threadsNumber; i++) {
+            result.add(new ArrayList<FileSetCheck>());
+        }
+        for (final FileSetCheck fsc : auditor.getFileSetChecks()) {
+            FileSetCheck copy = null;
+            if (!isShared(fsc)) {
+                copy = auditor.copyFileSetCheck(fsc);
+            }
+            if (copy == null) {
+                sharedChecks.add(fsc);
+            }
+            else {
+                result.get(0).add(fsc);
+                result.get(1).add(copy);
+                for (int i = 2; i < threadsNumber; i++) {
+                    result.get(i).add(auditor.copyFileSetCheck(fsc));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the fileset check must be executed with the same instance
+     * for all files, in the calling thread.
+     * @param fileSetCheck the fileset check to examine.
+     * @return {@code true} if the fileset check must be shared by all threads.
+     */
+    private static boolean isShared(FileSetCheck fileSetCheck) {
+        return fileSetCheck.getClass().isAnnotationPresent(GlobalStatefulCheck.class)
+                || fileSetCheck instanceof TreeWalker
+                    && ((TreeWalker) fileSetCheck).isSharedByThreads();
+    }
+
+    /**
+     * Waits for the file task to complete, executes shared checks on the file and
+     * notifies listeners about the results.
+     * @param task the file task to finish.
+     * @throws CheckstyleException if error condition within Checkstyle occurs.
+     * @noinspection ProhibitedExceptionThrown
+     */
+    private void finishFileTask(FileTask task) throws CheckstyleException {
+        try {
+            final String fileName = task.file.getAbsolutePath();
+            final AuditCache.CachedResult cachedResult = task.cachedResult;
+            if (task.future == null) {
+                auditor.fireCachedViolations(fileName, cachedResult.getViolations());
+            }
+            else {
+                final FileResult result = task.future.get();
+                auditor.fireFileStarted(fileName);
+                if (result.fileText != null) {
+                    auditor.processFileText(task.file, result.fileText, sharedChecks,
+                            cachedResult.getSkippedModules(), result.messages);
+                }
+                auditor.fireFileErrors(fileName, result.messages, cachedResult.getViolations());
+                auditor.fireFileFinished(fileName);
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw FileAuditor.wrapException(task.file, ex);
+        }
+        catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof Error) {
+                throw FileAuditor.wrapError(task.file, (Error) cause);
+            }
+            throw FileAuditor.wrapException(task.file, (Exception) cause);
+        }
+        // -@cs[IllegalCatch] There is no other way to deliver filename that was under
+        // processing. See https://github.com/checkstyle/checkstyle/issues/2285
+        catch (Exception ex) {
+            throw FileAuditor.wrapException(task.file, ex);
+        }
+        catch (Error error) {
+            throw FileAuditor.wrapError(task.file, error);
+        }
+    }
+
+    /**
+     * A file submitted for processing together with the pending result.
+     */
+    private static final class FileTask {
+
+        /** The file under processing. */
+        private final File file;
+        /** The result recorded in the caches for the file. */
+        private final AuditCache.CachedResult cachedResult;
+        /** The pending result of file processing, {@code null} for an unchanged file. */
+        private final Future<FileResult> future;
+
+        /**
+         * Creates a new instance.
+         * @param file the file under processing.
+         * @param cachedResult the result recorded in the caches.
+         * @param future the pending result of file processing,
+         *     {@code null} for an unchanged file.
+         */
+        FileTask(File file, AuditCache.CachedResult cachedResult, Future<FileResult> future) {
+            this.file = file;
+            this.cachedResult = cachedResult;
+            this.future = future;
+        }
+
+    }
+
+    /**
+     * The result of processing a file in a separate thread.
+     */
+    private static final class FileResult {
+
+        /** The contents of the file, {@code null} if the file could not be read. */
+        private final FileText fileText;
+        /** The messages produced for the file. */
+        private final SortedSet<LocalizedMessage> messages;
+
+        /**
+         * Creates a new instance.
+         * @param fileText the contents of the file.
+         * @param messages the messages produced for the file.
+         */
+        FileResult(FileText fileText, SortedSet<LocalizedMessage> messages) {
+            this.fileText = fileText;
+            this.messages = messages;
+        }
+
+    }
+
+    /**
+     * Processes a single file with a set of fileset checks which is not used by
+     * any other thread at the same time.
+     */
+    private final class FileProcessor implements Callable<FileResult> {
+
+        /** The file to process. */
+        private final File file;
+        /** The sets of fileset checks which are not in use. */
+        private final BlockingQueue<List<FileSetCheck>> idleChecks;
+        /** The keys of the modules whose results are cached. */
+        private final Set<String> skippedModules;
+
+        /**
+         * Creates a new instance.
+         * @param file the file to process.
+         * @param idleChecks the sets of fileset checks which are not in use.
+         * @param skippedModules the keys of the modules whose results are cached.
+         */
+        FileProcessor(File file, BlockingQueue<List<FileSetCheck>> idleChecks,
+                Set<String> skippedModules) {
+            this.file = file;
+            this.idleChecks = idleChecks;
+            this.skippedModules = skippedModules;
+        }
+
+        @Override
+        public FileResult call() throws Exception {
+            final List<FileSetCheck> checks = idleChecks.take();
+            try {
+                final SortedSet<LocalizedMessage> fileMessages =
+                        new TreeSet<LocalizedMessage>();
+                final FileText fileText = auditor.readFileText(file, fileMessages);
+                if (fileText != null) {
+                    auditor.processFileText(file, fileText, checks, skippedModules,
+                            fileMessages);
+                }
+                return new FileResult(fileText, fileMessages);
+            }
+            finally {
+                idleChecks.add(checks);
+            }
+        }
+
+    }
+
+}
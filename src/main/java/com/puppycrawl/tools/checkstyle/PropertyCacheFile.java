@@ -20,19 +20,32 @@
 package com.puppycrawl.tools.checkstyle;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.Serializable;
+import java.net.HttpURLConnection;
 import java.net.URI;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.ByteStreams;
@@ -40,6 +53,8 @@ import com.google.common.io.Closeables;
 import com.google.common.io.Flushables;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
 import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
 import com.puppycrawl.tools.checkstyle.jre6.file.Path;
 import com.puppycrawl.tools.checkstyle.jre6.file.Paths;
@@ -48,10 +63,11 @@ import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 
 /**
  * This class maintains a persistent(on file-system) store of the files
- * that have checked ok(no validation events) and their associated
- * timestamp. It is used to optimize Checkstyle between few launches.
+ * that have been checked, their associated timestamp and the violations
+ * which were reported for them. It is used to optimize Checkstyle between
+ * few launches.
  * It is mostly useful for plugin and extensions of Checkstyle.
- * It uses a property file
+ * It uses a property file or, optionally, a compact binary file
  * for storage.  A hashcode of the Configuration is stored in the
  * cache file to ensure the cache is invalidated when the
  * configuration has changed.
@@ -75,6 +91,62 @@ final class PropertyCacheFile {
      */
     public static final String EXTERNAL_RESOURCE_KEY_PREFIX = "module-resource*?:";
 
+    /**
+     * The property prefix to use for storing the metadata of an external
+     * resource, which is compared to detect changes of the resource without
+     * loading its content. To avoid name clashes with the files that are
+     * checked the prefix is chosen in such a way that it cannot be a valid
+     * file name.
+     */
+    public static final String EXTERNAL_RESOURCE_METADATA_KEY_PREFIX =
+            "module-resource-metadata*?:";
+
+    /**
+     * The property prefix to use for storing the violations of a file.
+     * To avoid name clashes with the files that are checked the prefix
+     * is chosen in such a way that it cannot be a valid file name.
+     */
+    public static final String VIOLATIONS_KEY_PREFIX = "violations*?:";
+
+    /**
+     * The property prefix to use for storing the id of the set of modules
+     * whose violations are recorded for a file. To avoid name clashes with
+     * the files that are checked the prefix is chosen in such a way that it
+     * cannot be a valid file name.
+     */
+    public static final String MODULES_KEY_PREFIX = "modules*?:";
+
+    /**
+     * The property prefix to use for storing the hashes of the modules
+     * of a set by the id of the set. To avoid name clashes with the files
+     * that are checked the prefix is chosen in such a way that it cannot be
+     * a valid file name.
+     */
+    public static final String MODULE_SET_KEY_PREFIX = "module-set*?:";
+
+    /**
+     * The property prefix to use for storing the number of the run which
+     * audited a file last, if the number of files in cache is limited.
+     * To avoid name clashes with the files that are checked the prefix is
+     * chosen in such a way that it cannot be a valid file name.
+     */
+    public static final String AUDITED_KEY_PREFIX = "audited*?:";
+
+    /**
+     * The property key to use for storing the number of the last run,
+     * if the number of files in cache is limited. To avoid name clashes
+     * with the files that are checked the key is chosen in such a way
+     * that it cannot be a valid file name.
+     */
+    public static final String RUN_KEY = "run*?";
+
+    /** The keys and prefixes of keys of entries which don't hold files. */
+    private static final String[] NON_FILE_KEY_PREFIXES = {
+        CONFIG_HASH_KEY, EXTERNAL_RESOURCE_KEY_PREFIX, EXTERNAL_RESOURCE_METADATA_KEY_PREFIX,
+        VIOLATIONS_KEY_PREFIX, MODULES_KEY_PREFIX, MODULE_SET_KEY_PREFIX, AUDITED_KEY_PREFIX,
+        RUN_KEY,
+    };
+
     /** The details on files. **/
     private final Properties details = new Properties();
 
@@ -84,6 +156,42 @@ final class PropertyCacheFile {
     /** File name of cache. **/
     private final String fileName;
 
+    /** Storage of the cache in the binary format. **/
+    private final BinaryCacheStore binaryStore;
+
+    /** The values of entries changed since the cache was loaded, null for removed ones. **/
+    private final Map<String, String> changes = new LinkedHashMap<String, String>();
+
+    /** The sets of hashes of modules by their ids, restored on first use. **/
+    private final Map<String, Set<String>> moduleSets = new HashMap<String, Set<String>>();
+
+    /** Whether the cache is stored in the binary format. **/
+    private boolean binary;
+
+    /** Whether the cache file is shared with other processes. **/
+    private boolean shared;
+
+    /** Whether the cache was reset explicitly since it was loaded or persisted. **/
+    private boolean cleared;
+
+    /** The maximum number of files in cache, zero if the number is not limited. **/
+    private int maxFiles;
+
+    /** The number of the current run, if the number of files in cache is limited. **/
+    private long run;
+
+    /** The number of audited files whose results were found in cache. **/
+    private int hits;
+
+    /** The number of audited files whose results were not found in cache. **/
+    private int misses;
+
+    /** The id of the set of modules of the current configuration, if modules are recorded. **/
+    private String moduleSetId;
+
+    /** The hashes of the modules of the current configuration, separated by spaces. **/
+    private String moduleSet;
+
     /** Generated configuration hash. **/
     private String configHash;
 
@@ -102,6 +210,38 @@ final class PropertyCacheFile {
         }
         this.config = config;
         this.fileName = fileName;
+        binaryStore = new BinaryCacheStore(fileName, CONFIG_HASH_KEY);
+    }
+
+    /**
+     * Sets whether the cache is stored in the binary format, which only
+     * appends the changed entries to the file. The format of an existing
+     * file is detected on load, so a file is converted on persist.
+     * @param binary whether to store the cache in the binary format.
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Sets whether the cache file is shared with other processes. A shared
+     * file is locked while it is read or written, and the entries which were
+     * stored by other processes since the file was loaded are merged with the
+     * entries changed by this process on persist.
+     * @param shared whether the cache file is shared with other processes.
+     */
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Sets the maximum number of files in cache. If there are more files,
+     * the files which were audited least recently are removed from cache by
+     * {@link #prune(Collection)}.
+     * @param maxFiles the maximum number of files, zero if the number is not limited.
+     */
+    public void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
     }
 
     /**
@@ -111,26 +251,78 @@ final class PropertyCacheFile {
     public void load() throws IOException {
         // get the current config so if the file isn't found
         // the first time the hash will be added to output file
-        configHash = getHashCodeBasedOnObjectContent(config);
+        configHash = CacheHasher.getConfigurationHash(config);
         final File file = new File(fileName);
         if (file.exists()) {
-            final InputStream inStream = Files7.newInputStream(new Path(file));
-            try {
-                details.load(inStream);
-                final String cachedConfigHash = details.getProperty(CONFIG_HASH_KEY);
-                if (!configHash.equals(cachedConfigHash)) {
-                    // Detected configuration change - clear cache
-                    reset();
+            if (shared) {
+                final CacheFileLock lock = CacheFileLock.acquire(fileName, true);
+                try {
+                    loadFile(file, details);
+                }
+                finally {
+                    lock.release();
                 }
             }
-            finally {
-                inStream.close();
+            else {
+                loadFile(file, details);
+            }
+            final String cachedConfigHash = details.getProperty(CONFIG_HASH_KEY);
+            if (!configHash.equals(cachedConfigHash)) {
+                // Detected configuration change - clear cache
+                clear();
             }
         }
         else {
             // put the hash in the file if the file is going to be created
-            reset();
+            clear();
+        }
+        cleared = false;
+        final String lastRun = details.getProperty(RUN_KEY);
+        run = 1;
+        if (lastRun != null) {
+            try {
+                run = Long.parseLong(lastRun) + 1;
+            }
+            catch (final NumberFormatException ignored) {
+                // the runs of audited files can't be compared with a corrupt run
+                clear();
+            }
         }
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Loads cached values from a file in any format.
+     * @param file the cache file
+     * @param entries the entries to fill
+     * @throws IOException when there is a problems with file read
+     */
+    private void loadFile(File file, Properties entries) throws IOException {
+        if (BinaryCacheStore.isBinary(file)) {
+            binaryStore.load(entries);
+        }
+        else {
+            loadProperties(file, entries);
+        }
+    }
+
+    /**
+     * Loads cached values from a property file.
+     * @param file the property file
+     * @param entries the entries to fill
+     * @throws IOException when there is a problems with file read
+     */
+    private void loadProperties(File file, Properties entries) throws IOException {
+        final InputStream inStream = Files7.newInputStream(new Path(file));
+        try {
+            entries.load(inStream);
+        }
+        finally {
+            inStream.close();
+        }
+        // the binary file is replaced when the format is changed
+        binaryStore.reset();
     }
 
     /**
@@ -143,6 +335,101 @@ final class PropertyCacheFile {
         if (directory != null) {
             Files7.createDirectories(directory);
         }
+        if (shared) {
+            final CacheFileLock lock = CacheFileLock.acquire(fileName, false);
+            try {
+                mergeFile();
+                persistFile(path);
+            }
+            finally {
+                lock.release();
+            }
+        }
+        else {
+            persistFile(path);
+        }
+    }
+
+    /**
+     * Stores the cache to the file in the configured format.
+     * @param path the path of the cache file
+     * @throws IOException  when there is a problems with file save
+     */
+    private void persistFile(Path path) throws IOException {
+        if (moduleSetId != null) {
+            removeUnusedModuleSets();
+        }
+        if (binary) {
+            binaryStore.persist(details, changes);
+        }
+        else {
+            persistProperties(path);
+            binaryStore.reset();
+        }
+        changes.clear();
+        cleared = false;
+    }
+
+    /**
+     * Merges the entries which were stored in the cache file by other
+     * processes with the entries changed by this process. Nothing is merged
+     * if the cache was cleared explicitly, or if the file was stored for
+     * another configuration or other external resources, then the file
+     * is replaced.
+     * @throws IOException when there is a problems with file read
+     */
+    private void mergeFile() throws IOException {
+        final File file = new File(fileName);
+        final Properties stored = new Properties();
+        if (!cleared && file.exists()) {
+            loadFile(file, stored);
+        }
+        if (isMergeable(stored)) {
+            for (Map.Entry<String, String> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    stored.remove(change.getKey());
+                }
+                else {
+                    stored.setProperty(change.getKey(), change.getValue());
+                }
+            }
+            details.clear();
+            details.putAll(stored);
+        }
+        else {
+            binaryStore.reset();
+        }
+    }
+
+    /**
+     * Checks whether entries stored by another process are valid for the
+     * configuration and the external resources of this process.
+     * @param stored the entries stored by another process.
+     * @return true if the entries were stored for the same configuration
+     *     and the same external resources.
+     */
+    private boolean isMergeable(Properties stored) {
+        boolean result = configHash.equals(stored.getProperty(CONFIG_HASH_KEY));
+        if (result) {
+            final Set<String> keys = new HashSet<String>(stored.stringPropertyNames());
+            keys.addAll(details.stringPropertyNames());
+            for (String key : keys) {
+                if (key.startsWith(EXTERNAL_RESOURCE_KEY_PREFIX)
+                        && !Objects.equals(stored.getProperty(key), details.getProperty(key))) {
+                    result = false;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores the cache to a property file.
+     * @param path the path of the property file
+     * @throws IOException  when there is a problems with file save
+     */
+    private void persistProperties(Path path) throws IOException {
         OutputStream out = null;
         try {
             out = Files7.newOutputStream(path);
@@ -155,10 +442,25 @@ final class PropertyCacheFile {
 
     /**
      * Resets the cache to be empty except for the configuration hash.
+     * The entries stored by other processes in a shared cache file are
+     * not merged on the next persist.
      */
     public void reset() {
+        clear();
+        cleared = true;
+    }
+
+    /**
+     * Clears the cache to be empty except for the configuration hash.
+     */
+    private void clear() {
         details.clear();
         details.setProperty(CONFIG_HASH_KEY, configHash);
+        if (moduleSetId != null) {
+            details.setProperty(MODULE_SET_KEY_PREFIX + moduleSetId, moduleSet);
+        }
+        changes.clear();
+        binaryStore.reset();
     }
 
     /**
@@ -180,8 +482,18 @@ final class PropertyCacheFile {
      * @return whether the specified file has already been checked ok
      */
     public boolean isInCache(String uncheckedFileName, long timestamp) {
+        return isInCache(uncheckedFileName, Long.toString(timestamp));
+    }
+
+    /**
+     * Checks that file is in cache.
+     * @param uncheckedFileName the file to check
+     * @param contentHash the hash of the content of the file to check
+     * @return whether the specified file has already been checked ok
+     */
+    public boolean isInCache(String uncheckedFileName, String contentHash) {
         final String lastChecked = details.getProperty(uncheckedFileName);
-        return Objects.equals(lastChecked, Long.toString(timestamp));
+        return Objects.equals(lastChecked, contentHash);
     }
 
     /**
@@ -190,7 +502,152 @@ final class PropertyCacheFile {
      * @param timestamp the timestamp of the file
      */
     public void put(String checkedFileName, long timestamp) {
-        details.setProperty(checkedFileName, Long.toString(timestamp));
+        put(checkedFileName, Long.toString(timestamp));
+    }
+
+    /**
+     * Records that a file checked ok.
+     * @param checkedFileName name of the file that checked ok
+     * @param contentHash the hash of the content of the file
+     */
+    public void put(String checkedFileName, String contentHash) {
+        setDetail(checkedFileName, contentHash);
+        removeDetail(VIOLATIONS_KEY_PREFIX + checkedFileName);
+        removeDetail(MODULES_KEY_PREFIX + checkedFileName);
+    }
+
+    /**
+     * Records the violations which were reported for a checked file.
+     * If a violation can't be stored, the file is removed from the cache.
+     * @param checkedFileName name of the checked file
+     * @param violations the violations of the file
+     */
+    public void putViolations(String checkedFileName, SortedSet<LocalizedMessage> violations) {
+        if (violations.isEmpty()) {
+            removeDetail(VIOLATIONS_KEY_PREFIX + checkedFileName);
+        }
+        else {
+            putNonEmptyViolations(checkedFileName, violations);
+        }
+    }
+
+    /**
+     * Records the violations which were reported for a checked file.
+     * @param checkedFileName name of the checked file
+     * @param violations the violations of the file, not empty
+     */
+    private void putNonEmptyViolations(String checkedFileName,
+            SortedSet<LocalizedMessage> violations) {
+        try {
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(outputStream);
+            LocalizedMessageSerializer.write(violations, output);
+            output.flush();
+            setDetail(VIOLATIONS_KEY_PREFIX + checkedFileName,
+                    BaseEncoding.base64().encode(outputStream.toByteArray()));
+        }
+        catch (IOException ignored) {
+            // a message is too long to be stored,
+            // the file is checked again next time
+            remove(checkedFileName);
+        }
+    }
+
+    /**
+     * Retrieves the violations which were recorded for a file in cache.
+     * If the violations can't be restored, the file is removed from the cache.
+     * @param checkedFileName name of the checked file
+     * @return the violations of the file, empty if the file checked ok,
+     *     {@code null} if the violations can't be restored
+     */
+    public SortedSet<LocalizedMessage> getViolations(String checkedFileName) {
+        final String encoded = details.getProperty(VIOLATIONS_KEY_PREFIX + checkedFileName);
+        SortedSet<LocalizedMessage> result = null;
+        if (encoded == null) {
+            result = Collections.unmodifiableSortedSet(new TreeSet<LocalizedMessage>());
+        }
+        else {
+            try {
+                result = deserialize(encoded);
+            }
+            catch (IOException ignored) {
+                // violations were stored by an incompatible version
+                remove(checkedFileName);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the hashes of the modules of the current configuration, which are
+     * recorded for files by {@link #putModules(String)}.
+     * @param moduleHashes the hashes of the modules
+     */
+    public void setModules(Collection<String> moduleHashes) {
+        final SortedSet<String> sortedHashes = new TreeSet<String>(moduleHashes);
+        final StringBuilder joinedHashes = new StringBuilder(1024);
+        for (String hash : sortedHashes) {
+            if (joinedHashes.length() > 0) {
+                joinedHashes.append(' ');
+            }
+            joinedHashes.append(hash);
+        }
+        moduleSet = joinedHashes.toString();
+        moduleSetId = CacheHasher.getHash(moduleSet.getBytes(StandardCharsets.UTF_8));
+        moduleSets.put(moduleSetId, sortedHashes);
+        if (details.getProperty(MODULE_SET_KEY_PREFIX + moduleSetId) == null) {
+            setDetail(MODULE_SET_KEY_PREFIX + moduleSetId, moduleSet);
+        }
+    }
+
+    /**
+     * Records that the violations of a checked file were reported by the
+     * modules of the current configuration.
+     * @param checkedFileName name of the checked file
+     */
+    public void putModules(String checkedFileName) {
+        setDetail(MODULES_KEY_PREFIX + checkedFileName, moduleSetId);
+    }
+
+    /**
+     * Retrieves the hashes of the modules which reported the violations
+     * recorded for a file.
+     * @param checkedFileName name of the checked file
+     * @return the hashes of the modules, {@code null} if they are not recorded
+     */
+    public Set<String> getModules(String checkedFileName) {
+        Set<String> result = null;
+        final String setId = details.getProperty(MODULES_KEY_PREFIX + checkedFileName);
+        if (setId != null) {
+            result = moduleSets.get(setId);
+            final String hashes = details.getProperty(MODULE_SET_KEY_PREFIX + setId);
+            if (result == null && hashes != null) {
+                result = new HashSet<String>(Arrays.asList(hashes.split(" ")));
+                moduleSets.put(setId, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the sets of modules which are not recorded for any file.
+     */
+    private void removeUnusedModuleSets() {
+        final Set<String> usedKeys = new HashSet<String>();
+        final Set<String> setKeys = new HashSet<String>();
+        for (String key : details.stringPropertyNames()) {
+            if (key.startsWith(MODULES_KEY_PREFIX)) {
+                usedKeys.add(MODULE_SET_KEY_PREFIX + details.getProperty(key));
+            }
+            else if (key.startsWith(MODULE_SET_KEY_PREFIX)) {
+                setKeys.add(key);
+            }
+        }
+        usedKeys.add(MODULE_SET_KEY_PREFIX + moduleSetId);
+        setKeys.removeAll(usedKeys);
+        for (String key : setKeys) {
+            removeDetail(key);
+        }
     }
 
     /**
@@ -207,52 +664,211 @@ final class PropertyCacheFile {
      * @param checkedFileName The name of the file to remove.
      */
     public void remove(String checkedFileName) {
-        details.remove(checkedFileName);
+        removeDetail(checkedFileName);
+        removeDetail(VIOLATIONS_KEY_PREFIX + checkedFileName);
+        removeDetail(MODULES_KEY_PREFIX + checkedFileName);
+        removeDetail(AUDITED_KEY_PREFIX + checkedFileName);
     }
 
     /**
-     * Calculates the hashcode for the serializable object based on its content.
-     * @param object serializable object.
-     * @return the hashcode for serializable object.
+     * Records that a file was audited, for the statistics of the cache and,
+     * if the number of files in cache is limited, to remove the files which
+     * were audited least recently first.
+     * @param auditedFileName name of the audited file
+     * @param hit whether the result of the file was found in cache
      */
-    private static String getHashCodeBasedOnObjectContent(Serializable object) {
-        try {
-            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            // in-memory serialization of Configuration
-            serialize(object, outputStream);
-            // Instead of hexEncoding outputStream.toByteArray() directly we
-            // use a message digest here to keep the length of the
-            // hashcode reasonable
+    public void recordAudit(String auditedFileName, boolean hit) {
+        if (hit) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        if (maxFiles > 0 && details.getProperty(auditedFileName) != null) {
+            final String runNumber = Long.toString(run);
+            if (!runNumber.equals(details.getProperty(AUDITED_KEY_PREFIX + auditedFileName))) {
+                setDetail(AUDITED_KEY_PREFIX + auditedFileName, runNumber);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of audited files whose results were found in cache
+     * since the cache was loaded.
+     * @return the number of hits.
+     */
+    public int getHits() {
+        return hits;
+    }
 
-            final MessageDigest digest = MessageDigest.getInstance("SHA-1");
-            digest.update(outputStream.toByteArray());
+    /**
+     * Returns the number of audited files whose results were not found in
+     * cache since the cache was loaded.
+     * @return the number of misses.
+     */
+    public int getMisses() {
+        return misses;
+    }
 
-            return BaseEncoding.base16().upperCase().encode(digest.digest());
+    /**
+     * Removes the files which don't exist anymore under the directory which
+     * contains all audited files from the cache. If the number of files in
+     * cache is limited, the files which were audited least recently are
+     * removed until the limit is met.
+     * @param auditedFiles the audited files
+     * @return the number of removed files
+     */
+    public int prune(Collection<File> auditedFiles) {
+        final String root = getCommonDirectory(auditedFiles);
+        final List<String> fileNames = new ArrayList<String>();
+        int result = 0;
+        for (String key : details.stringPropertyNames()) {
+            if (isFileKey(key)) {
+                if (root != null && key.startsWith(root) && !new File(key).exists()) {
+                    remove(key);
+                    result++;
+                }
+                else {
+                    fileNames.add(key);
+                }
+            }
+        }
+        if (maxFiles > 0) {
+            if (fileNames.size() > maxFiles) {
+                result += removeLeastRecentlyAudited(fileNames, fileNames.size() - maxFiles);
+            }
+            setDetail(RUN_KEY, Long.toString(run));
         }
-        catch (final IOException ex) {
-            // rethrow as unchecked exception
-            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        return result;
+    }
+
+    /**
+     * Removes the files which were audited least recently from the cache.
+     * Files which were never recorded as audited are removed first.
+     * @param fileNames the names of the files in cache
+     * @param count the number of files to remove
+     * @return the number of removed files
+     */
+    private int removeLeastRecentlyAudited(List<String> fileNames, int count) {
+        final SortedMap<Long, List<String>> fileNamesByRun = new TreeMap<Long, List<String>>();
+        for (String fileName : fileNames) {
+            final String auditedRun = details.getProperty(AUDITED_KEY_PREFIX + fileName);
+            Long runNumber = 0L;
+            if (auditedRun != null) {
+                runNumber = Long.valueOf(auditedRun);
+            }
+            List<String> runFileNames = fileNamesByRun.get(runNumber);
+            if (runFileNames == null) {
+                runFileNames = new ArrayList<String>();
+                fileNamesByRun.put(runNumber, runFileNames);
+            }
+            runFileNames.add(fileName);
         }
-        catch (final NoSuchAlgorithmException ex) {
-            // rethrow as unchecked exception
-            throw new IllegalStateException("Unable to calculate hashcode.", ex);
+        int removed = 0;
+        for (List<String> runFileNames : fileNamesByRun.values()) {
+            for (String fileName : runFileNames) {
+                if (removed == count) {
+                    break;
+                }
+                remove(fileName);
+                removed++;
+            }
         }
+        return removed;
     }
 
     /**
-     * Serializes object to output stream.
-     * @param object object to be serialized
-     * @param outputStream serialization stream
-     * @throws IOException if an error occurs
+     * Checks whether the key of an entry is the name of a file.
+     * @param key the key of the entry
+     * @return true if the key is the name of a file
      */
-    private static void serialize(Serializable object,
-                                  OutputStream outputStream) throws IOException {
-        final ObjectOutputStream oos = new ObjectOutputStream(outputStream);
+    private static boolean isFileKey(String key) {
+        boolean result = true;
+        for (String prefix : NON_FILE_KEY_PREFIXES) {
+            if (key.startsWith(prefix)) {
+                result = false;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the path of the deepest directory which contains all files,
+     * ending with a separator.
+     * @param files the files
+     * @return the path of the directory, {@code null} if there are no files
+     */
+    private static String getCommonDirectory(Collection<File> files) {
+        File result = null;
+        boolean first = true;
+        for (File file : files) {
+            final File absoluteFile = file.getAbsoluteFile();
+            if (first) {
+                result = absoluteFile.getParentFile();
+                first = false;
+            }
+            else {
+                final String path = absoluteFile.getPath();
+                while (result != null && !path.startsWith(getDirectoryPath(result))) {
+                    result = result.getParentFile();
+                }
+            }
+        }
+        String path = null;
+        if (result != null) {
+            path = getDirectoryPath(result);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the path of a directory ending with a separator.
+     * @param directory the directory
+     * @return the path of the directory
+     */
+    private static String getDirectoryPath(File directory) {
+        String path = directory.getPath();
+        if (!path.endsWith(File.separator)) {
+            path += File.separator;
+        }
+        return path;
+    }
+
+    /**
+     * Sets the value of an entry and records the change.
+     * @param key the key of the entry
+     * @param value the value of the entry
+     */
+    private void setDetail(String key, String value) {
+        details.setProperty(key, value);
+        changes.put(key, value);
+    }
+
+    /**
+     * Removes an entry and records the change.
+     * @param key the key of the entry
+     */
+    private void removeDetail(String key) {
+        if (details.remove(key) != null) {
+            changes.put(key, null);
+        }
+    }
+
+    /**
+     * Restores violations which were serialized and encoded to a string.
+     * @param encoded the encoded violations
+     * @return the violations
+     * @throws IOException if the violations can't be restored
+     */
+    private static SortedSet<LocalizedMessage> deserialize(String encoded) throws IOException {
         try {
-            oos.writeObject(object);
+            final byte[] bytes = BaseEncoding.base64().decode(encoded);
+            return LocalizedMessageSerializer.read(
+                    new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
         }
-        finally {
-            flushAndCloseOutStream(oos);
+        catch (IllegalArgumentException ex) {
+            throw new IOException("Invalid encoding of violations", ex);
         }
     }
 
@@ -264,57 +880,215 @@ final class PropertyCacheFile {
     public void putExternalResources(Set<String> locations) {
         final Set<ExternalResource> resources = loadExternalResources(locations);
         if (areExternalResourcesChanged(resources)) {
-            reset();
+            clear();
         }
         fillCacheWithExternalResources(resources);
     }
 
     /**
      * Loads a set of {@link ExternalResource} based on their locations.
+     * The content of a resource is only loaded if the metadata of the
+     * resource changed since its hash sum was stored in cache.
      * @param resourceLocations locations of external configuration resources.
      * @return a set of {@link ExternalResource}.
      */
-    private static Set<ExternalResource> loadExternalResources(Set<String> resourceLocations) {
+    private Set<ExternalResource> loadExternalResources(Set<String> resourceLocations) {
         final Set<ExternalResource> resources = new HashSet<ExternalResource>();
         for (String location : resourceLocations) {
-            String contentHashSum = null;
+            ExternalResource resource;
             try {
-                final byte[] content = loadExternalResource(location);
-                contentHashSum = getHashCodeBasedOnObjectContent(content);
+                final URI uri = CommonUtil.getUriByFilename(location);
+                if ("file".equals(uri.getScheme())) {
+                    resource = loadLocalResource(location, uri);
+                }
+                else {
+                    resource = loadRemoteResource(location, uri);
+                }
             }
             catch (CheckstyleException ex) {
                 // if exception happened (configuration resource was not found, connection is not
                 // available, resource is broken, etc), we need to calculate hash sum based on
                 // exception object content in order to check whether problem is resolved later
                 // and/or the configuration is changed.
-                contentHashSum = getHashCodeBasedOnObjectContent(ex);
-            }
-            finally {
-                resources.add(new ExternalResource(EXTERNAL_RESOURCE_KEY_PREFIX + location,
-                        contentHashSum));
+                resource = new ExternalResource(EXTERNAL_RESOURCE_KEY_PREFIX + location,
+                        CacheHasher.getExceptionHash(ex), null);
             }
+            resources.add(resource);
         }
         return resources;
     }
 
     /**
-     * Loads the content of external resource.
+     * Loads an external resource from the file system. The hash sum stored
+     * in cache is reused if the size and modification time of the file
+     * did not change.
      * @param location external resource location.
-     * @return array of bytes which represents the content of external resource in binary form.
+     * @param uri the uri of the resource.
+     * @return the external resource.
      * @throws CheckstyleException if error while loading occurs.
      */
-    private static byte[] loadExternalResource(String location) throws CheckstyleException {
-        final byte[] content;
-        final URI uri = CommonUtil.getUriByFilename(location);
+    private ExternalResource loadLocalResource(String location, URI uri)
+            throws CheckstyleException {
+        final String key = EXTERNAL_RESOURCE_KEY_PREFIX + location;
+        final String cachedHashSum = details.getProperty(key);
+        final String metadata = getFileMetadata(uri);
+        final String contentHashSum;
+        if (cachedHashSum != null && metadata != null && metadata.equals(
+                details.getProperty(EXTERNAL_RESOURCE_METADATA_KEY_PREFIX + location))) {
+            contentHashSum = cachedHashSum;
+        }
+        else {
+            try {
+                contentHashSum = CacheHasher.getHash(
+                        loadExternalResource(uri.toURL().openStream()));
+            }
+            catch (IOException ex) {
+                throw new CheckstyleException(
+                        "Unable to load external resource file " + location, ex);
+            }
+        }
+        return new ExternalResource(key, contentHashSum, metadata);
+    }
 
+    /**
+     * Loads an external resource by its URL. If the metadata of the resource
+     * is stored in cache, the server is asked to send the content only if it
+     * was modified, otherwise the stored hash sum is reused.
+     * @param location external resource location.
+     * @param uri the uri of the resource.
+     * @return the external resource.
+     * @throws CheckstyleException if error while loading occurs.
+     */
+    private ExternalResource loadRemoteResource(String location, URI uri)
+            throws CheckstyleException {
+        final String key = EXTERNAL_RESOURCE_KEY_PREFIX + location;
+        final String cachedHashSum = details.getProperty(key);
+        final String cachedMetadata =
+                details.getProperty(EXTERNAL_RESOURCE_METADATA_KEY_PREFIX + location);
+        final ExternalResource resource;
         try {
-            content = ByteStreams.toByteArray(new BufferedInputStream(uri.toURL().openStream()));
+            final URLConnection connection = uri.toURL().openConnection();
+            if (cachedHashSum != null && isNotModified(connection, cachedMetadata)) {
+                resource = new ExternalResource(key, cachedHashSum, cachedMetadata);
+            }
+            else {
+                final String contentHashSum = CacheHasher.getHash(
+                        loadExternalResource(connection.getInputStream()));
+                resource = new ExternalResource(key, contentHashSum,
+                        getConnectionMetadata(connection));
+            }
         }
         catch (IOException ex) {
             throw new CheckstyleException("Unable to load external resource file " + location, ex);
         }
+        return resource;
+    }
 
-        return content;
+    /**
+     * Loads the content of external resource.
+     * @param stream the stream of the content of external resource.
+     * @return array of bytes which represents the content of external resource in binary form.
+     * @throws IOException if error while loading occurs.
+     */
+    private static byte[] loadExternalResource(InputStream stream) throws IOException {
+        final InputStream inputStream = new BufferedInputStream(stream);
+        try {
+            return ByteStreams.toByteArray(inputStream);
+        }
+        finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Returns the metadata of a local external resource, which consists of
+     * its size and modification time.
+     * @param uri the uri of the resource.
+     * @return the metadata of the resource, {@code null} if the resource does not exist.
+     */
+    private static String getFileMetadata(URI uri) {
+        String metadata = null;
+        try {
+            final File file = new File(uri);
+            if (file.isFile()) {
+                metadata = file.length() + ":" + file.lastModified();
+            }
+        }
+        catch (IllegalArgumentException ignored) {
+            // the uri has a host or a query, the content is loaded every time
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the metadata of a remote external resource, which consists of
+     * the entity tag and the modification time reported by the server.
+     * @param connection the connection to the resource.
+     * @return the metadata of the resource, {@code null} if the server reported none.
+     */
+    private static String getConnectionMetadata(URLConnection connection) {
+        final String entityTag = connection.getHeaderField("ETag");
+        final long lastModified = connection.getLastModified();
+        String metadata = null;
+        if (entityTag != null) {
+            metadata = lastModified + ":" + entityTag;
+        }
+        else if (lastModified != 0) {
+            metadata = lastModified + ":";
+        }
+        return metadata;
+    }
+
+    /**
+     * Asks the server whether a remote external resource was modified since
+     * the metadata was stored in cache.
+     * @param connection the connection to the resource, not yet connected.
+     * @param cachedMetadata the metadata stored in cache, may be {@code null}.
+     * @return true if the server reported that the resource was not modified,
+     *     false if it was modified or the metadata is corrupt.
+     * @throws IOException if the server can't be reached.
+     */
+    private static boolean isNotModified(URLConnection connection, String cachedMetadata)
+            throws IOException {
+        boolean result = false;
+        final long lastModified = getCachedLastModified(cachedMetadata);
+        if (lastModified >= 0 && connection instanceof HttpURLConnection) {
+            final String entityTag =
+                    cachedMetadata.substring(cachedMetadata.indexOf(':') + 1);
+            if (lastModified != 0) {
+                connection.setIfModifiedSince(lastModified);
+            }
+            if (!entityTag.isEmpty()) {
+                connection.setRequestProperty("If-None-Match", entityTag);
+            }
+            result = ((HttpURLConnection) connection).getResponseCode()
+                    == HttpURLConnection.HTTP_NOT_MODIFIED;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the modification time from the metadata of a remote external
+     * resource stored in cache.
+     * @param cachedMetadata the metadata stored in cache, may be {@code null}.
+     * @return the modification time, zero if it is unknown, or -1 if
+     *     there is no metadata or it is corrupt.
+     */
+    private static long getCachedLastModified(String cachedMetadata) {
+        long result = -1;
+        if (cachedMetadata != null) {
+            final int separator = cachedMetadata.indexOf(':');
+            if (separator > 0) {
+                try {
+                    result = Math.max(-1,
+                            Long.parseLong(cachedMetadata.substring(0, separator)));
+                }
+                catch (final NumberFormatException ignored) {
+                    // the resource is treated as modified
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -349,7 +1123,15 @@ final class PropertyCacheFile {
     private void fillCacheWithExternalResources(Set<ExternalResource> externalResources) {
         for (ExternalResource resource : externalResources) {
             if (!isResourceLocationInCache(resource.location)) {
-                details.setProperty(resource.location, resource.contentHashSum);
+                setDetail(resource.location, resource.contentHashSum);
+            }
+            final String metadataKey = EXTERNAL_RESOURCE_METADATA_KEY_PREFIX
+                    + resource.location.substring(EXTERNAL_RESOURCE_KEY_PREFIX.length());
+            if (resource.metadata == null) {
+                removeDetail(metadataKey);
+            }
+            else if (!resource.metadata.equals(details.getProperty(metadataKey))) {
+                setDetail(metadataKey, resource.metadata);
             }
         }
     }
@@ -373,15 +1155,19 @@ final class PropertyCacheFile {
         private final String location;
         /** Hash sum which is calculated based on resource content. */
         private final String contentHashSum;
+        /** Metadata which tells whether the resource content changed, may be null. */
+        private final String metadata;
 
         /**
          * Creates an instance.
          * @param location resource location.
          * @param contentHashSum content hash sum.
+         * @param metadata resource metadata.
          */
-        ExternalResource(String location, String contentHashSum) {
+        ExternalResource(String location, String contentHashSum, String metadata) {
             this.location = location;
             this.contentHashSum = contentHashSum;
+            this.metadata = metadata;
         }
 
     }
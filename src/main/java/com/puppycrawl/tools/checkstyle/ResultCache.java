@@ -0,0 +1,57 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.util.SortedSet;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+
+/**
+ * Storage of the violations of audited files, addressed by keys which are
+ * calculated from the configuration, the name and the content of a file.
+ * As a key changes with anything which affects the violations, stored
+ * violations never become invalid and may be shared between machines.
+ *
+ * <p>A cache is optional, so a failure to load or to store violations
+ * only means that a file is audited again.</p>
+ *
+ */
+interface ResultCache {
+
+    /**
+     * Loads the violations of a file.
+     * @param key the key of the file.
+     * @return the violations of the file, {@code null} if they are not stored.
+     */
+    SortedSet<LocalizedMessage> get(String key);
+
+    /**
+     * Stores the violations of a file.
+     * @param key the key of the file.
+     * @param violations the violations of the file.
+     */
+    void put(String key, SortedSet<LocalizedMessage> violations);
+
+    /**
+     * Notifies the cache that an audit is finished.
+     */
+    void finishAudit();
+
+}
@@ -0,0 +1,258 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+/**
+ * Directory of the violations of audited files, which can be restored on
+ * another machine, for example by a build server from an artifact store.
+ *
+ * <p>The violations of a file are stored in a file named after the key of the
+ * file. Files are written to a temporary file first and renamed, so the
+ * directory can be shared by several threads and processes. A loaded file is
+ * touched, so when the directory exceeds its maximum size at the end of an
+ * audit, the files which were used least recently are removed first.</p>
+ *
+ */
+final class ResultCacheDirectory implements ResultCache {
+
+    /** Version of the format of files, changed with any change of the format. */
+    private static final int FORMAT_VERSION = 2;
+
+    /** Marker at the start of every file. */
+    private static final int MAGIC = 0x43535253;
+
+    /** Extension of the files with violations. */
+    private static final String FILE_EXTENSION = ".res";
+
+    /** Length of the names of subdirectories, taken from the start of a key. */
+    private static final int SUBDIRECTORY_NAME_LENGTH = 2;
+
+    /** The directory. */
+    private final File directory;
+
+    /** The maximum size of the files in the directory, zero if the size is not limited. */
+    private long maxSize;
+
+    /**
+     * Creates a new instance.
+     * @param directoryName the name of the directory, which is created when
+     *     the first violations are stored.
+     */
+    ResultCacheDirectory(String directoryName) {
+        directory = new File(directoryName);
+    }
+
+    /**
+     * Sets the maximum size of the files in the directory.
+     * @param maxSize the maximum size in bytes, zero if the size is not limited.
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public SortedSet<LocalizedMessage> get(String key) {
+        final File file = getFile(key);
+        SortedSet<LocalizedMessage> result = null;
+        if (file.isFile()) {
+            result = read(file);
+            if (result != null && !file.setLastModified(System.currentTimeMillis())) {
+                // the file is removed, the violations are stored again
+                result = null;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void put(String key, SortedSet<LocalizedMessage> violations) {
+        write(getFile(key), violations);
+    }
+
+    @Override
+    public void finishAudit() {
+        if (maxSize > 0) {
+            removeLeastRecentlyUsed(listFiles(directory, FILE_EXTENSION), maxSize);
+        }
+    }
+
+    /**
+     * Removes the files which were modified least recently, until the total
+     * size of the files does not exceed the maximum size.
+     * @param candidates the files to remove from.
+     * @param maxSize the maximum size in bytes.
+     */
+    static void removeLeastRecentlyUsed(List<File> candidates, long maxSize) {
+        final SortedMap<Long, List<File>> filesByTime = new TreeMap<Long, List<File>>();
+        long size = 0;
+        for (File file : candidates) {
+            final Long lastModified = file.lastModified();
+            List<File> files = filesByTime.get(lastModified);
+            if (files == null) {
+                files = new ArrayList<File>();
+                filesByTime.put(lastModified, files);
+            }
+            files.add(file);
+            size += file.length();
+        }
+        for (List<File> files : filesByTime.values()) {
+            for (File file : files) {
+                if (size <= maxSize) {
+                    break;
+                }
+                final long length = file.length();
+                if (file.delete()) {
+                    size -= length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the file of the violations with the given key.
+     * @param key the key of the violations.
+     * @return the file of the violations.
+     */
+    private File getFile(String key) {
+        final File subdirectory =
+                new File(directory, key.substring(0, SUBDIRECTORY_NAME_LENGTH));
+        return new File(subdirectory, key.substring(SUBDIRECTORY_NAME_LENGTH)
+                + FILE_EXTENSION);
+    }
+
+    /**
+     * Lists the files in the subdirectories of a cache directory.
+     * @param directory the cache directory.
+     * @param extension the extension of the files.
+     * @return the files.
+     */
+    static List<File> listFiles(File directory, String extension) {
+        final List<File> result = new ArrayList<File>();
+        final File[] subdirectories = directory.listFiles();
+        if (subdirectories != null) {
+            for (File subdirectory : subdirectories) {
+                final File[] files = subdirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.getName().endsWith(extension)) {
+                            result.add(file);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads violations from a file.
+     * @param file the file to read.
+     * @return the violations, or {@code null} if the file can't be read.
+     */
+    private static SortedSet<LocalizedMessage> read(File file) {
+        SortedSet<LocalizedMessage> result = null;
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(
+                    Files7.newInputStream(new Path(file))));
+            if (input.readInt() == MAGIC && input.readInt() == FORMAT_VERSION) {
+                result = LocalizedMessageSerializer.read(input, file.length());
+            }
+        }
+        catch (IOException ignored) {
+            // the file is removed or broken, the file is audited again
+        }
+        finally {
+            closeQuietly(input);
+        }
+        return result;
+    }
+
+    /**
+     * Writes violations to a file, via a temporary file in the same directory.
+     * @param file the file to write.
+     * @param violations the violations to write.
+     */
+    private static void write(File file, SortedSet<LocalizedMessage> violations) {
+        final File subdirectory = file.getParentFile();
+        File temporaryFile = null;
+        DataOutputStream output = null;
+        try {
+            if (!subdirectory.isDirectory() && !subdirectory.mkdirs()
+                    && !subdirectory.isDirectory()) {
+                throw new IOException("Unable to create directory " + subdirectory);
+            }
+            temporaryFile = File.createTempFile(file.getName(), ".tmp", subdirectory);
+            output = new DataOutputStream(
+                    new BufferedOutputStream(Files7.newOutputStream(new Path(temporaryFile))));
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            LocalizedMessageSerializer.write(violations, output);
+            output.close();
+            output = null;
+            if (temporaryFile.renameTo(file)) {
+                temporaryFile = null;
+            }
+        }
+        catch (IOException ignored) {
+            // the cache is optional, or a message is too long to be stored,
+            // the file is audited again next time
+        }
+        finally {
+            closeQuietly(output);
+            if (temporaryFile != null && !temporaryFile.delete()) {
+                temporaryFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Closes a stream, ignoring any failure.
+     * @param stream the stream to close, may be {@code null}.
+     */
+    private static void closeQuietly(Closeable stream) {
+        if (stream != null) {
+            try {
+                stream.close();
+            }
+            catch (IOException ignored) {
+                // nothing to do, the stream is not used anymore
+            }
+        }
+    }
+
+}
@@ -30,14 +30,24 @@ public class ThreadModeSettings implements Serializable {
     /** A checker module name. */
     public static final String CHECKER_MODULE_NAME = Checker.class.getSimpleName();
 
-    /** A multi thread checker module name. */
+    /**
+     * A multi thread checker module name.
+     * @deprecated the same module implements both thread modes, use
+     *     {@link #CHECKER_MODULE_NAME}.
+     */
+    @Deprecated
     public static final String MULTI_THREAD_CHECKER_MODULE_NAME =
             Checker.class.getSimpleName();
 
     /** A three walker module name. */
     public static final String TREE_WALKER_MODULE_NAME = TreeWalker.class.getSimpleName();
 
-    /** A multi thread three walker module name. */
+    /**
+     * A multi thread three walker module name.
+     * @deprecated the same module implements both thread modes, use
+     *     {@link #TREE_WALKER_MODULE_NAME}.
+     */
+    @Deprecated
     public static final String MULTI_THREAD_TREE_WALKER_MODULE_NAME =
             TreeWalker.class.getSimpleName();
 
@@ -80,21 +90,12 @@ public class ThreadModeSettings implements Serializable {
 
     /**
      * Resolves the module name according to the thread settings.
+     * The same modules implement both single and multi thread modes, they
+     * read the settings from their configuration, so the name is unchanged.
      * @param name The original module name.
      * @return resolved module name.
      */
     public final String resolveName(String name) {
-        if (checkerThreadsNumber > 1) {
-            if (CHECKER_MODULE_NAME.equals(name)) {
-                throw new IllegalArgumentException(
-                        "Multi thread mode for Checker module is not implemented");
-            }
-            if (TREE_WALKER_MODULE_NAME.equals(name)) {
-                throw new IllegalArgumentException(
-                        "Multi thread mode for TreeWalker module is not implemented");
-            }
-        }
-
         return name;
     }
 
@@ -20,15 +20,26 @@
 package com.puppycrawl.tools.checkstyle;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
 import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
@@ -41,6 +52,8 @@ import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
 import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.checks.SuppressWarningsHolder;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
 
@@ -54,13 +67,31 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
     /** Default distance between tab stops. */
     private static final int DEFAULT_TAB_WIDTH = 8;
 
-    /** Maps from token name to ordinary checks. */
-    private final Map<String, Set<AbstractCheck>> tokenToOrdinaryChecks =
-        new HashMap<String, Set<AbstractCheck>>();
+    /** Number of rows in the tables of checks indexed by token id. */
+    private static final int TOKEN_TABLE_SIZE = getMaxTokenId() + 1;
 
-    /** Maps from token name to comment checks. */
-    private final Map<String, Set<AbstractCheck>> tokenToCommentChecks =
-            new HashMap<String, Set<AbstractCheck>>();
+    /**
+     * Maximum number of token types checks may be subscribed to, so the walk
+     * skips branches without these token types. With more token types nearly
+     * every branch has to be walked anyway.
+     */
+    private static final int MAX_PRUNING_TOKENS_NUMBER =
+            TokenUtil.getTokenTypesTotalNumber() / 4;
+
+    /** Empty row of a table of checks, shared by all tokens without checks. */
+    private static final AbstractCheck[] NO_CHECKS = new AbstractCheck[0];
+
+    /** Ordinary checks indexed by token id. */
+    private final AbstractCheck[][] tokenToOrdinaryChecks = createTokenTable();
+
+    /** Comment checks indexed by token id. */
+    private final AbstractCheck[][] tokenToCommentChecks = createTokenTable();
+
+    /** Token types ordinary checks are subscribed to. */
+    private final BitSet ordinaryCheckTokens = new BitSet();
+
+    /** Token types comment checks are subscribed to. */
+    private final BitSet commentCheckTokens = new BitSet();
 
     /** Registered ordinary checks, that don't use comment nodes. */
     private final Set<AbstractCheck> ordinaryChecks = new HashSet<AbstractCheck>();
@@ -86,6 +117,34 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
     /** A factory for creating submodules (i.e. the Checks) */
     private ModuleFactory moduleFactory;
 
+    /** The number of threads the checks are executed in. */
+    private int threadsNumber = 1;
+
+    /** Groups of ordinary checks, each group is executed in its own thread. */
+    private List<CheckGroup> ordinaryCheckGroups;
+
+    /** Groups of comment checks, each group is executed in its own thread. */
+    private List<CheckGroup> commentCheckGroups;
+
+    /** Executes groups of checks, created on first use. */
+    private ExecutorService executor;
+
+    /** Configurations of the registered checks. */
+    private final Map<AbstractCheck, Configuration> checkConfigurations =
+            new LinkedHashMap<AbstractCheck, Configuration>();
+
+    /** Keys of the modules whose results are cached, so they are not executed. */
+    private Set<String> skippedModules = Collections.emptySet();
+
+    /** Keys of the skipped modules the subsets of checks were created for. */
+    private Set<String> subsetSkippedModules;
+
+    /** The ordinary checks which are not skipped, created on first use. */
+    private CheckGroup ordinaryCheckSubset;
+
+    /** The comment checks which are not skipped, created on first use. */
+    private CheckGroup commentCheckSubset;
+
     /**
      * Creates a new {@code TreeWalker} instance.
      */
@@ -138,6 +197,12 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
         checkContext.add("tabWidth", String.valueOf(tabWidth));
 
         childContext = checkContext;
+
+        final Configuration configuration = getConfiguration();
+        if (configuration instanceof DefaultConfiguration) {
+            threadsNumber = ((DefaultConfiguration) configuration).getThreadModeSettings()
+                    .getTreeWalkerThreadsNumber();
+        }
     }
 
     /**
@@ -158,6 +223,7 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
             final AbstractCheck check = (AbstractCheck) module;
             check.init();
             registerCheck(check);
+            checkConfigurations.put(check, childConf);
         }
         else if (module instanceof TreeWalkerFilter) {
             final TreeWalkerFilter filter = (TreeWalkerFilter) module;
@@ -176,14 +242,19 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
         // check if already checked and passed the file
         if (CommonUtil.matchesFileExtension(file, getFileExtensions())
                 && (!ordinaryChecks.isEmpty() || !commentChecks.isEmpty())) {
-            final FileContents contents = new FileContents(fileText);
-            final DetailAST rootAST = JavaParser.parse(contents);
+            final JavaParseCache parseCache = JavaParseCache.forFileText(fileText);
+            final FileContents contents = parseCache.getContents();
+            final DetailAST rootAST = parseCache.getAst();
+            JavaParser.HiddenCommentCollector commentCollector = null;
             if (!ordinaryChecks.isEmpty()) {
-                walk(rootAST, contents, AstState.ORDINARY);
+                if (!parseCache.isCommentNodesAppended()) {
+                    commentCollector = createCommentCollector();
+                }
+                walk(rootAST, contents, AstState.ORDINARY, commentCollector);
             }
             if (!commentChecks.isEmpty()) {
-                final DetailAST astWithComments = JavaParser.appendHiddenCommentNodes(rootAST);
-                walk(astWithComments, contents, AstState.WITH_COMMENTS);
+                walk(parseCache.getAstWithComments(commentCollector), contents,
+                        AstState.WITH_COMMENTS, null);
             }
             if (filters.isEmpty()) {
                 addMessages(messages);
@@ -197,6 +268,23 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
         }
     }
 
+    /**
+     * Creates a collector of hidden comments, which is filled by the walk of
+     * ordinary checks, so comment nodes are appended to AST without one more
+     * traversal of the whole tree. Ordinary checks are done with the tree before
+     * comment nodes are appended, so they see it without comment nodes.
+     * @return the collector, or {@code null} if there are no comment checks or
+     *     the walk of ordinary checks doesn't visit every node in one thread.
+     */
+    private JavaParser.HiddenCommentCollector createCommentCollector() {
+        JavaParser.HiddenCommentCollector result = null;
+        if (!commentChecks.isEmpty() && skippedModules.isEmpty() && threadsNumber == 1
+                && getPruningTokens(ordinaryCheckTokens) == null) {
+            result = new JavaParser.HiddenCommentCollector();
+        }
+        return result;
+    }
+
     /**
      * Returns filtered set of {@link LocalizedMessage}.
      * @param fileName path to the file
@@ -242,7 +330,7 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
             for (String token : checkTokens) {
                 final int tokenId = TokenUtil.getTokenId(token);
                 if (Arrays.binarySearch(acceptableTokens, tokenId) >= 0) {
-                    registerCheck(token, check);
+                    registerCheck(tokenId, check);
                 }
                 else {
                     final String message = String.format(Locale.ROOT, "Token \"%s\" was "
@@ -270,42 +358,20 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
      * @throws CheckstyleException if Check is misconfigured
      */
     private void registerCheck(int tokenId, AbstractCheck check) throws CheckstyleException {
-        registerCheck(TokenUtil.getTokenName(tokenId), check);
-    }
-
-    /**
-     * Register a check for a specified token name.
-     * @param token the name of the token
-     * @param check the check to register
-     * @throws CheckstyleException if Check is misconfigured
-     */
-    private void registerCheck(String token, AbstractCheck check) throws CheckstyleException {
         if (check.isCommentNodesRequired()) {
-            Set<AbstractCheck> checks = tokenToCommentChecks.get(token);
-
-            if (checks == null) {
-                checks = new HashSet<AbstractCheck>();
-                tokenToCommentChecks.put(token, checks);
-            }
-
-            checks.add(check);
+            addCheck(tokenToCommentChecks, tokenId, check);
+            commentCheckTokens.set(tokenId);
         }
-        else if (TokenUtil.isCommentType(token)) {
+        else if (TokenUtil.isCommentType(tokenId)) {
             final String message = String.format(Locale.ROOT, "Check '%s' waits for comment type "
                     + "token ('%s') and should override 'isCommentNodesRequired()' "
-                    + "method to return 'true'", check.getClass().getName(), token);
+                    + "method to return 'true'", check.getClass().getName(),
+                    TokenUtil.getTokenName(tokenId));
             throw new CheckstyleException(message);
         }
         else {
-
-            Set<AbstractCheck> checks = tokenToOrdinaryChecks.get(token);
-
-            if (checks == null) {
-                checks = new HashSet<AbstractCheck>();
-                tokenToOrdinaryChecks.put(token, checks);
-            }
-
-            checks.add(check);
+            addCheck(tokenToOrdinaryChecks, tokenId, check);
+            ordinaryCheckTokens.set(tokenId);
         }
     }
 
@@ -329,80 +395,316 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
         }
     }
 
+    /**
+     * Returns the greatest id of the tokens from {@link TokenTypes}.
+     * @return the greatest token id.
+     */
+    private static int getMaxTokenId() {
+        int result = 0;
+        for (int tokenId : TokenUtil.getAllTokenIds()) {
+            result = Math.max(result, tokenId);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a table of checks indexed by token id, every row of which is empty.
+     * @return the table of checks.
+     */
+    private static AbstractCheck[][] createTokenTable() {
+        final AbstractCheck[][] table = new AbstractCheck[TOKEN_TABLE_SIZE][];
+        Arrays.fill(table, NO_CHECKS);
+        return table;
+    }
+
+    /**
+     * Adds a check to the row of a token, unless the check is already there.
+     * Rows are registered once and have the exact size, so they can be
+     * iterated on every node without any lookup.
+     * @param table the table of checks indexed by token id.
+     * @param tokenId the id of the token.
+     * @param check the check to add.
+     */
+    private static void addCheck(AbstractCheck[][] table, int tokenId, AbstractCheck check) {
+        final AbstractCheck[] row = table[tokenId];
+        boolean registered = false;
+        for (AbstractCheck registeredCheck : row) {
+            if (registeredCheck == check) {
+                registered = true;
+                break;
+            }
+        }
+        if (!registered) {
+            final AbstractCheck[] newRow = Arrays.copyOf(row, row.length + 1);
+            newRow[row.length] = check;
+            table[tokenId] = newRow;
+        }
+    }
+
     /**
      * Initiates the walk of an AST.
      * @param ast the root AST
      * @param contents the contents of the file the AST was generated from.
      * @param astState state of AST.
+     * @param commentCollector the collector of hidden comments to fill during
+     *     the walk, or {@code null}. It is filled only by a walk of all nodes
+     *     in the calling thread, see {@link #createCommentCollector()}.
+     * @throws CheckstyleException if a check executed in a separate thread fails.
+     */
+    private void walk(DetailAST ast, FileContents contents, AstState astState,
+            JavaParser.HiddenCommentCollector commentCollector) throws CheckstyleException {
+        if (!skippedModules.isEmpty()) {
+            final CheckGroup subset = getCheckSubset(astState);
+            walk(ast, contents, subset.checks, subset.tokenToChecks,
+                    getPruningTokens(subset.tokens), messages, null);
+        }
+        else if (threadsNumber > 1) {
+            walkInParallel(ast, contents, getCheckGroups(astState));
+        }
+        else if (astState == AstState.WITH_COMMENTS) {
+            walk(ast, contents, commentChecks, tokenToCommentChecks,
+                    getPruningTokens(commentCheckTokens), messages, null);
+        }
+        else {
+            walk(ast, contents, ordinaryChecks, tokenToOrdinaryChecks,
+                    getPruningTokens(ordinaryCheckTokens), messages, commentCollector);
+        }
+    }
+
+    /**
+     * Walks an AST with the given checks.
+     * @param ast the root AST
+     * @param contents the contents of the file the AST was generated from.
+     * @param checks the checks to notify.
+     * @param tokenToChecks the checks to notify for each token.
+     * @param pruningTokens the token types to skip branches without,
+     *     or {@code null} to walk the whole tree.
+     * @param result the set to add messages of the checks to.
+     * @param commentCollector the collector of hidden comments to fill, or
+     *     {@code null}; it must be {@code null} if branches are skipped.
      */
-    private void walk(DetailAST ast, FileContents contents,
-            AstState astState) {
-        notifyBegin(ast, contents, astState);
+    private static void walk(DetailAST ast, FileContents contents,
+            Collection<AbstractCheck> checks, AbstractCheck[][] tokenToChecks,
+            BitSet pruningTokens, SortedSet<LocalizedMessage> result,
+            JavaParser.HiddenCommentCollector commentCollector) {
+        notifyBegin(ast, contents, checks);
 
         // empty files are not flagged by javac, will yield ast == null
         if (ast != null) {
-            processIter(ast, astState);
+            processIter(ast, tokenToChecks, pruningTokens, commentCollector);
         }
-        notifyEnd(ast, astState);
+        notifyEnd(ast, checks, result);
     }
 
     /**
-     * Notify checks that we are about to begin walking a tree.
-     * @param rootAST the root of the tree.
+     * Walks an AST with each group of checks in a separate thread and merges
+     * the messages of all groups. The first group is executed by the calling
+     * thread, as it holds the checks which keep a state in that thread.
+     * @param ast the root AST
      * @param contents the contents of the file the AST was generated from.
-     * @param astState state of AST.
+     * @param groups the groups of checks.
+     * @throws CheckstyleException if a check fails with a checked exception.
+     * @noinspection ProhibitedExceptionThrown
      */
-    private void notifyBegin(DetailAST rootAST, FileContents contents,
-            AstState astState) {
-        final Set<AbstractCheck> checks;
+    private void walkInParallel(final DetailAST ast, final FileContents contents,
+            List<CheckGroup> groups) throws CheckstyleException {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threadsNumber - 1);
+        }
+        // fill lazy caches of the tree before it is shared between threads
+        for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+            node.branchContains(TokenTypes.EOF);
+        }
 
+        final List<Future<SortedSet<LocalizedMessage>>> results =
+                new ArrayList<Future<SortedSet<LocalizedMessage>>>();
+        FutureTask<SortedSet<LocalizedMessage>> callingThreadTask = null;
+        for (final CheckGroup group : groups) {
+            final Callable<SortedSet<LocalizedMessage>> groupWalk =
+                    new Callable<SortedSet<LocalizedMessage>>() {
+                        @Override
+                        public SortedSet<LocalizedMessage> call() {
+                            final SortedSet<LocalizedMessage> groupMessages =
+                                    new TreeSet<LocalizedMessage>();
+                            walk(ast, contents, group.checks, group.tokenToChecks,
+                                    group.tokens, groupMessages, null);
+                            return groupMessages;
+                        }
+                    };
+            if (callingThreadTask == null) {
+                callingThreadTask = new FutureTask<SortedSet<LocalizedMessage>>(groupWalk);
+                results.add(callingThreadTask);
+            }
+            else {
+                results.add(executor.submit(groupWalk));
+            }
+        }
+        if (callingThreadTask != null) {
+            callingThreadTask.run();
+        }
+
+        // wait for all groups, so no check is still running when the next file starts
+        Throwable failure = null;
+        for (Future<SortedSet<LocalizedMessage>> result : results) {
+            try {
+                messages.addAll(result.get());
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                failure = ex;
+            }
+            catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause();
+                }
+            }
+        }
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new CheckstyleException("Exception was thrown while walking the tree",
+                    failure);
+        }
+    }
+
+    /**
+     * Returns the groups of checks which are executed in separate threads,
+     * splitting the registered checks on first use.
+     * @param astState state of AST.
+     * @return the groups of checks.
+     */
+    private List<CheckGroup> getCheckGroups(AstState astState) {
+        final List<CheckGroup> result;
         if (astState == AstState.WITH_COMMENTS) {
-            checks = commentChecks;
+            if (commentCheckGroups == null) {
+                commentCheckGroups = createCheckGroups(commentChecks, tokenToCommentChecks);
+            }
+            result = commentCheckGroups;
         }
         else {
-            checks = ordinaryChecks;
+            if (ordinaryCheckGroups == null) {
+                ordinaryCheckGroups = createCheckGroups(ordinaryChecks, tokenToOrdinaryChecks);
+            }
+            result = ordinaryCheckGroups;
         }
+        return result;
+    }
 
+    /**
+     * Splits checks into groups of nearly equal size, one group per thread.
+     * Checks which keep a state in the thread which executes them are put
+     * into the first group, which is executed by the calling thread.
+     * @param checks the checks to split.
+     * @param tokenToChecks the checks to notify for each token.
+     * @return the groups of checks.
+     */
+    private List<CheckGroup> createCheckGroups(Set<AbstractCheck> checks,
+            AbstractCheck[][] tokenToChecks) {
+        final int groupsNumber = Math.min(threadsNumber, checks.size());
+        final List<CheckGroup> groups = new ArrayList<CheckGroup>(groupsNumber);
+        final Map<AbstractCheck, CheckGroup> checkToGroup =
+                new HashMap<AbstractCheck, CheckGroup>();
+        for (int i = 0; i < groupsNumber; i++) {
+            groups.add(new CheckGroup());
+        }
+        int index = 0;
         for (AbstractCheck check : checks) {
-            check.setFileContents(contents);
-            check.clearMessages();
-            check.beginTree(rootAST);
+            final CheckGroup group;
+            if (isThreadLocalStateful(check)) {
+                group = groups.get(0);
+            }
+            else {
+                group = groups.get(index % groupsNumber);
+                index++;
+            }
+            group.checks.add(check);
+            checkToGroup.put(check, group);
         }
+        for (int tokenId = 0; tokenId < tokenToChecks.length; tokenId++) {
+            for (AbstractCheck check : tokenToChecks[tokenId]) {
+                final CheckGroup group = checkToGroup.get(check);
+                addCheck(group.tokenToChecks, tokenId, check);
+                group.tokens.set(tokenId);
+            }
+        }
+        return groups;
     }
 
     /**
-     * Notify checks that we have finished walking a tree.
-     * @param rootAST the root of the tree.
+     * Returns the checks which are not skipped, selecting them when the
+     * skipped modules are changed. Checks which hold a state for filters,
+     * like {@link SuppressWarningsHolder}, are never skipped.
      * @param astState state of AST.
+     * @return the checks which are not skipped.
      */
-    private void notifyEnd(DetailAST rootAST, AstState astState) {
-        final Set<AbstractCheck> checks;
-
+    private CheckGroup getCheckSubset(AstState astState) {
+        if (!skippedModules.equals(subsetSkippedModules)) {
+            final Set<AbstractCheck> ordinarySubset = new HashSet<AbstractCheck>(ordinaryChecks);
+            final Set<AbstractCheck> commentSubset = new HashSet<AbstractCheck>(commentChecks);
+            for (AbstractCheck check : checkConfigurations.keySet()) {
+                if (!(check instanceof SuppressWarningsHolder)
+                        && skippedModules.contains(AuditCache.getModuleKey(
+                                check.getClass().getName(), check.getId()))) {
+                    ordinarySubset.remove(check);
+                    commentSubset.remove(check);
+                }
+            }
+            ordinaryCheckSubset = new CheckGroup(ordinarySubset, tokenToOrdinaryChecks);
+            commentCheckSubset = new CheckGroup(commentSubset, tokenToCommentChecks);
+            subsetSkippedModules = skippedModules;
+        }
+        final CheckGroup result;
         if (astState == AstState.WITH_COMMENTS) {
-            checks = commentChecks;
+            result = commentCheckSubset;
         }
         else {
-            checks = ordinaryChecks;
+            result = ordinaryCheckSubset;
+        }
+        return result;
+    }
+
+    /**
+     * Notify checks that we are about to begin walking a tree.
+     * @param rootAST the root of the tree.
+     * @param contents the contents of the file the AST was generated from.
+     * @param checks the checks to notify.
+     */
+    private static void notifyBegin(DetailAST rootAST, FileContents contents,
+            Collection<AbstractCheck> checks) {
+        for (AbstractCheck check : checks) {
+            check.setFileContents(contents);
+            check.clearMessages();
+            check.beginTree(rootAST);
         }
+    }
 
+    /**
+     * Notify checks that we have finished walking a tree.
+     * @param rootAST the root of the tree.
+     * @param checks the checks to notify.
+     * @param result the set to add messages of the checks to.
+     */
+    private static void notifyEnd(DetailAST rootAST, Collection<AbstractCheck> checks,
+            SortedSet<LocalizedMessage> result) {
         for (AbstractCheck check : checks) {
             check.finishTree(rootAST);
-            messages.addAll(check.getMessages());
+            result.addAll(check.getMessages());
         }
     }
 
     /**
      * Notify checks that visiting a node.
      * @param ast the node to notify for.
-     * @param astState state of AST.
+     * @param tokenToChecks the checks to notify for each token.
      */
-    private void notifyVisit(DetailAST ast, AstState astState) {
-        final Collection<AbstractCheck> visitors = getListOfChecks(ast, astState);
-
-        if (visitors != null) {
-            for (AbstractCheck check : visitors) {
-                check.visitToken(ast);
-            }
+    private static void notifyVisit(DetailAST ast, AbstractCheck[][] tokenToChecks) {
+        for (AbstractCheck check : tokenToChecks[ast.getType()]) {
+            check.visitToken(ast);
         }
     }
 
@@ -410,46 +712,80 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
      * Notify checks that leaving a node.
      * @param ast
      *        the node to notify for
-     * @param astState state of AST.
+     * @param tokenToChecks the checks to notify for each token.
      */
-    private void notifyLeave(DetailAST ast, AstState astState) {
-        final Collection<AbstractCheck> visitors = getListOfChecks(ast, astState);
+    private static void notifyLeave(DetailAST ast, AbstractCheck[][] tokenToChecks) {
+        for (AbstractCheck check : tokenToChecks[ast.getType()]) {
+            check.leaveToken(ast);
+        }
+    }
 
-        if (visitors != null) {
-            for (AbstractCheck check : visitors) {
-                check.leaveToken(ast);
+    /**
+     * Checks whether this instance must be shared by all threads which audit
+     * files: whether any of the registered checks or filters is annotated with
+     * {@link GlobalStatefulCheck}, or any of the registered checks keeps a
+     * state for the filters of {@link Checker} in the thread which executes it.
+     * @return {@code true} if this instance must be shared by all threads.
+     */
+    boolean isSharedByThreads() {
+        boolean result = false;
+        for (Object module : getModules()) {
+            if (module.getClass().isAnnotationPresent(GlobalStatefulCheck.class)
+                    || isThreadLocalStateful(module)) {
+                result = true;
+                break;
             }
         }
+        return result;
     }
 
     /**
-     * Method returns list of checks.
-     *
-     * @param ast
-     *            the node to notify for
-     * @param astState
-     *            state of AST.
-     * @return list of visitors
+     * Checks whether a module keeps a state for filters in the thread which
+     * executes it, like {@link SuppressWarningsHolder}, whose suppressions are
+     * read by {@code SuppressWarningsFilter}. Such module must be executed by
+     * the thread which filters the violations.
+     * @param module the module to examine.
+     * @return {@code true} if the module keeps a thread-local state.
      */
-    private Collection<AbstractCheck> getListOfChecks(DetailAST ast, AstState astState) {
-        Collection<AbstractCheck> visitors = null;
-        final String tokenType = TokenUtil.getTokenName(ast.getType());
+    private static boolean isThreadLocalStateful(Object module) {
+        return module instanceof SuppressWarningsHolder;
+    }
 
-        if (astState == AstState.WITH_COMMENTS) {
-            if (tokenToCommentChecks.containsKey(tokenType)) {
-                visitors = tokenToCommentChecks.get(tokenType);
-            }
-        }
-        else {
-            if (tokenToOrdinaryChecks.containsKey(tokenType)) {
-                visitors = tokenToOrdinaryChecks.get(tokenType);
-            }
-        }
-        return visitors;
+    /**
+     * Returns the registered checks and filters.
+     * @return the checks and filters.
+     */
+    Set<Object> getModules() {
+        final Set<Object> modules = new HashSet<Object>(ordinaryChecks);
+        modules.addAll(commentChecks);
+        modules.addAll(filters);
+        return modules;
+    }
+
+    /**
+     * Returns the configurations of the registered checks.
+     * @return the configurations by checks, in the order of registration.
+     */
+    Map<AbstractCheck, Configuration> getCheckConfigurations() {
+        return Collections.unmodifiableMap(checkConfigurations);
+    }
+
+    /**
+     * Sets the modules whose results are cached for the next processed file,
+     * so the checks of these modules are not executed.
+     * @param moduleKeys the keys of the modules built by
+     *     {@link AuditCache#getModuleKey(String, String)}.
+     */
+    void setSkippedModules(Set<String> moduleKeys) {
+        skippedModules = moduleKeys;
     }
 
     @Override
     public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
         for (AbstractCheck check : ordinaryChecks) {
             check.destroy();
         }
@@ -513,17 +849,27 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
     /**
      * Processes a node calling interested checks at each node.
      * Uses iterative algorithm.
+     * Branches without nodes of the pruning token types are skipped. No check
+     * is subscribed to any node of such branch, so checks get the same visit and
+     * leave calls as with the walk of the whole tree.
      * @param root the root of tree for process
-     * @param astState state of AST.
+     * @param tokenToChecks the checks to notify for each token.
+     * @param pruningTokens the token types to skip branches without,
+     *     or {@code null} to walk the whole tree.
+     * @param commentCollector the collector of hidden comments to fill, or {@code null}.
      */
-    private void processIter(DetailAST root, AstState astState) {
-        DetailAST curNode = root;
+    private static void processIter(DetailAST root, AbstractCheck[][] tokenToChecks,
+            BitSet pruningTokens, JavaParser.HiddenCommentCollector commentCollector) {
+        DetailAST curNode = skipBranches(root, pruningTokens);
         while (curNode != null) {
-            notifyVisit(curNode, astState);
-            DetailAST toVisit = curNode.getFirstChild();
+            if (commentCollector != null) {
+                commentCollector.visit(curNode);
+            }
+            notifyVisit(curNode, tokenToChecks);
+            DetailAST toVisit = skipBranches(curNode.getFirstChild(), pruningTokens);
             while (curNode != null && toVisit == null) {
-                notifyLeave(curNode, astState);
-                toVisit = curNode.getNextSibling();
+                notifyLeave(curNode, tokenToChecks);
+                toVisit = skipBranches(curNode.getNextSibling(), pruningTokens);
                 if (toVisit == null) {
                     curNode = curNode.getParent();
                 }
@@ -532,6 +878,40 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
         }
     }
 
+    /**
+     * Returns the first node among the given node and its next siblings, which
+     * branch contains a node of the pruning token types.
+     * @param node the node to start from, may be {@code null}.
+     * @param pruningTokens the token types to skip branches without,
+     *     or {@code null} to skip nothing.
+     * @return the first node to walk, or {@code null} if there is no such node.
+     */
+    private static DetailAST skipBranches(DetailAST node, BitSet pruningTokens) {
+        DetailAST result = node;
+        if (pruningTokens != null) {
+            while (result != null && !result.branchContainsAny(pruningTokens)) {
+                result = result.getNextSibling();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the token types to skip branches without in a sequential walk.
+     * Token types of branches are collected once per file, so it pays off only
+     * if checks are subscribed to a small part of token types and most of
+     * the tree can be skipped.
+     * @param subscribedTokens the token types checks are subscribed to.
+     * @return the token types to skip branches without, or {@code null}.
+     */
+    private static BitSet getPruningTokens(BitSet subscribedTokens) {
+        BitSet result = null;
+        if (subscribedTokens.cardinality() <= MAX_PRUNING_TOKENS_NUMBER) {
+            result = subscribedTokens;
+        }
+        return result;
+    }
+
     /**
      * State of AST.
      * Indicates whether tree contains certain nodes.
@@ -550,4 +930,45 @@ public final class TreeWalker extends AbstractFileSetCheck implements ExternalRe
 
     }
 
+    /**
+     * A group of checks which is executed in its own thread.
+     */
+    private static final class CheckGroup {
+
+        /** The checks of the group. */
+        private final Set<AbstractCheck> checks = new HashSet<AbstractCheck>();
+
+        /** The checks of the group indexed by token id. */
+        private final AbstractCheck[][] tokenToChecks = createTokenTable();
+
+        /** Token types the checks of the group are subscribed to. */
+        private final BitSet tokens = new BitSet();
+
+        /**
+         * Creates an empty group.
+         */
+        CheckGroup() {
+            // checks are added by the creator
+        }
+
+        /**
+         * Creates a group of the given checks.
+         * @param checks the checks of the group.
+         * @param tokenToChecks the checks to notify for each token, which
+         *     include the checks of the group.
+         */
+        CheckGroup(Set<AbstractCheck> checks, AbstractCheck[][] tokenToChecks) {
+            this.checks.addAll(checks);
+            for (int tokenId = 0; tokenId < tokenToChecks.length; tokenId++) {
+                for (AbstractCheck check : tokenToChecks[tokenId]) {
+                    if (checks.contains(check)) {
+                        addCheck(this.tokenToChecks, tokenId, check);
+                        tokens.set(tokenId);
+                    }
+                }
+            }
+        }
+
+    }
+
 }
@@ -167,13 +167,15 @@ public final class DetailAST extends CommonASTWithHiddenTokens {
     public int getChildCount() {
         // lazy init
         if (childCount == NOT_INITIALIZED) {
-            childCount = 0;
+            // count in a local variable, so concurrent readers never see a partial value
+            int count = 0;
             AST child = getFirstChild();
 
             while (child != null) {
-                childCount += 1;
+                count += 1;
                 child = child.getNextSibling();
             }
+            childCount = count;
         }
         return childCount;
     }
@@ -344,17 +346,19 @@ public final class DetailAST extends CommonASTWithHiddenTokens {
     private BitSet getBranchTokenTypes() {
         // lazy init
         if (branchTokenTypes == null) {
-            branchTokenTypes = new BitSet();
-            branchTokenTypes.set(getType());
+            // fill a local set first, so concurrent readers never see a partial set
+            final BitSet tokenTypes = new BitSet();
+            tokenTypes.set(getType());
 
             // add union of all children
             DetailAST child = getFirstChild();
             while (child != null) {
                 final BitSet childTypes = child.getBranchTokenTypes();
-                branchTokenTypes.or(childTypes);
+                tokenTypes.or(childTypes);
 
                 child = child.getNextSibling();
             }
+            branchTokenTypes = tokenTypes;
         }
         return branchTokenTypes;
     }
@@ -370,6 +374,17 @@ public final class DetailAST extends CommonASTWithHiddenTokens {
         return getBranchTokenTypes().get(type);
     }
 
+    /**
+     * Checks if this branch of the parse tree contains a token
+     * of any of the provided types.
+     * @param types a set of TokenTypes
+     * @return true if and only if this branch (including this node)
+     *     contains a token of any type from {@code types}.
+     */
+    public boolean branchContainsAny(BitSet types) {
+        return getBranchTokenTypes().intersects(types);
+    }
+
     /**
      * Returns the previous sibling or null if no such sibling exists.
      * @return the previous sibling or null if no such sibling exists.
@@ -19,24 +19,18 @@
 
 package com.puppycrawl.tools.checkstyle.api;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.UnsupportedCharsetException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
 import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
 import com.puppycrawl.tools.checkstyle.jre6.file.Path;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
@@ -52,19 +46,13 @@ import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 public final class FileText {
 
     /**
-     * The number of characters to read in one go.
+     * The expected average length of a line, to size the array of line breaks.
      */
-    private static final int READ_BUFFER_SIZE = 1024;
+    private static final int ESTIMATED_LINE_LENGTH = 32;
 
-    /**
-     * Regular expression pattern matching all line terminators.
-     */
-    private static final Pattern LINE_TERMINATOR = Pattern.compile("\\n|\\r\\n?");
-
-    // For now, we always keep both full text and lines array.
-    // In the long run, however, the one passed at initialization might be
-    // enough, while the other could be lazily created when requested.
-    // This would save memory but cost CPU cycles.
+    // The full text is the only copy of the file content, lines are
+    // located by their offsets and created when they are first requested.
+    // Copies of a file text share the full text, the offsets and the lines.
 
     /**
      * The name of the file.
@@ -85,13 +73,15 @@ public final class FileText {
 
     /**
      * The lines of the file, without terminators.
+     * An element is {@code null} until the line is requested.
      */
     private final String[] lines;
 
     /**
-     * The first position of each line within the full text.
+     * The first position of each line within the full text,
+     * followed by the length of the full text.
      */
-    private int[] lineBreaks;
+    private final int[] lineBreaks;
 
     /**
      * Creates a new file text representation.
@@ -123,25 +113,8 @@ public final class FileText {
         }
 
         fullText = readFile(file, decoder);
-
-        // Use the BufferedReader to break down the lines as this
-        // is about 30% faster than using the
-        // LINE_TERMINATOR.split(fullText, -1) method
-        final BufferedReader reader = new BufferedReader(new StringReader(fullText));
-        try {
-            final ArrayList<String> textLines = new ArrayList<String>();
-            while (true) {
-                final String line = reader.readLine();
-                if (line == null) {
-                    break;
-                }
-                textLines.add(line);
-            }
-            lines = textLines.toArray(CommonUtil.EMPTY_STRING_ARRAY);
-        }
-        finally {
-            reader.close();
-        }
+        lineBreaks = findLineBreaks(fullText);
+        lines = new String[lineBreaks.length - 1];
     }
 
     /**
@@ -152,13 +125,8 @@ public final class FileText {
         file = fileText.file;
         charset = fileText.charset;
         fullText = fileText.fullText;
-        lines = fileText.lines.clone();
-        if (fileText.lineBreaks == null) {
-            lineBreaks = null;
-        }
-        else {
-            lineBreaks = fileText.lineBreaks.clone();
-        }
+        lines = fileText.lines;
+        lineBreaks = fileText.lineBreaks;
     }
 
     /**
@@ -174,8 +142,12 @@ public final class FileText {
      */
     public FileText(File file, List<String> lines) {
         final StringBuilder buf = new StringBuilder(1024);
+        lineBreaks = new int[lines.size() + 1];
+        int lineNo = 0;
         for (final String line : lines) {
             buf.append(line).append('\n');
+            lineNo++;
+            lineBreaks[lineNo] = buf.length();
         }
 
         this.file = file;
@@ -186,6 +158,8 @@ public final class FileText {
 
     /**
      * Reads file using specific decoder and returns all its content as a String.
+     * The whole file is read into a buffer sized from the file size and
+     * decoded in one pass.
      * @param inputFile File to read
      * @param decoder Charset decoder
      * @return File's text
@@ -196,23 +170,21 @@ public final class FileText {
         if (!inputFile.exists()) {
             throw new FileNotFoundException(inputFile.getPath() + " (No such file or directory)");
         }
-        final StringBuilder buf = new StringBuilder(1024);
-        final InputStream stream = Files7.newInputStream(new Path(inputFile));
-        final Reader reader = new InputStreamReader(stream, decoder);
-        try {
-            final char[] chars = new char[READ_BUFFER_SIZE];
-            while (true) {
-                final int len = reader.read(chars);
-                if (len == -1) {
-                    break;
-                }
-                buf.append(chars, 0, len);
-            }
+        final ByteBuffer bytes = Files7.readAllBytesToBuffer(new Path(inputFile));
+        final Charset charset = decoder.charset();
+        final String result;
+        if (StandardCharsets.UTF_8.equals(charset)
+                || StandardCharsets.US_ASCII.equals(charset)) {
+            // String decodes these charsets from an array straight into
+            // the characters of the text, copying runs of ASCII bytes, and
+            // replaces malformed input the same way as the decoder does
+            result = new String(bytes.array(), bytes.arrayOffset() + bytes.position(),
+                    bytes.remaining(), charset);
         }
-        finally {
-            reader.close();
+        else {
+            result = decoder.decode(bytes).toString();
         }
-        return buf.toString();
+        return result;
     }
 
     /**
@@ -247,29 +219,39 @@ public final class FileText {
      * @return an array of all lines of the text
      */
     public String[] toLinesArray() {
+        for (int lineNo = 0; lineNo < lines.length; lineNo++) {
+            get(lineNo);
+        }
         return lines.clone();
     }
 
     /**
-     * Find positions of line breaks in the full text.
-     * @return an array giving the first positions of each line.
+     * Find positions of line breaks in the full text. Lines are terminated
+     * in the same way as by {@link java.io.BufferedReader#readLine()}.
+     * @param text the full text.
+     * @return an array giving the first positions of each line, followed by
+     *     the length of the text.
      */
-    private int[] findLineBreaks() {
-        if (lineBreaks == null) {
-            final int[] lineBreakPositions = new int[size() + 1];
-            lineBreakPositions[0] = 0;
-            int lineNo = 1;
-            final Matcher matcher = LINE_TERMINATOR.matcher(fullText);
-            while (matcher.find()) {
-                lineBreakPositions[lineNo] = matcher.end();
-                lineNo++;
+    private static int[] findLineBreaks(CharSequence text) {
+        final int length = text.length();
+        int[] lineBreakPositions = new int[length / ESTIMATED_LINE_LENGTH + 2];
+        int lineNo = 0;
+        int pos = 0;
+        while (pos < length) {
+            final char ch = text.charAt(pos);
+            pos++;
+            if (ch == '\r' && pos < length && text.charAt(pos) == '\n') {
+                pos++;
             }
-            if (lineNo < lineBreakPositions.length) {
-                lineBreakPositions[lineNo] = fullText.length();
+            if (ch == '\n' || ch == '\r' || pos == length) {
+                lineNo++;
+                if (lineNo == lineBreakPositions.length) {
+                    lineBreakPositions = Arrays.copyOf(lineBreakPositions, lineNo * 2);
+                }
+                lineBreakPositions[lineNo] = pos;
             }
-            lineBreaks = lineBreakPositions;
         }
-        return lineBreaks;
+        return Arrays.copyOf(lineBreakPositions, lineNo + 1);
     }
 
     /**
@@ -278,14 +260,13 @@ public final class FileText {
      * @return the line and column numbers of this character
      */
     public LineColumn lineColumn(int pos) {
-        final int[] lineBreakPositions = findLineBreaks();
-        int lineNo = Arrays.binarySearch(lineBreakPositions, pos);
+        int lineNo = Arrays.binarySearch(lineBreaks, pos);
         if (lineNo < 0) {
             // we have: lineNo = -(insertion point) - 1
             // we want: lineNo =  (insertion point) - 1
             lineNo = -lineNo - 2;
         }
-        final int startOfLine = lineBreakPositions[lineNo];
+        final int startOfLine = lineBreaks[lineNo];
         final int columnNo = pos - startOfLine;
         // now we have lineNo and columnNo, both starting at zero.
         return new LineColumn(lineNo + 1, columnNo);
@@ -298,7 +279,22 @@ public final class FileText {
      * @return the line with the given number
      */
     public String get(final int lineNo) {
-        return lines[lineNo];
+        String line = lines[lineNo];
+        if (line == null) {
+            final int start = lineBreaks[lineNo];
+            int end = lineBreaks[lineNo + 1];
+            if (end > start && fullText.charAt(end - 1) == '\n') {
+                end--;
+            }
+            if (end > start && fullText.charAt(end - 1) == '\r') {
+                end--;
+            }
+            line = fullText.substring(start, end);
+            // lines are immutable, so a line created by several threads at
+            // once is stored several times with the same content
+            lines[lineNo] = line;
+        }
+        return line;
     }
 
     /**
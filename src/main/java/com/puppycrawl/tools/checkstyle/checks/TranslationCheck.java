@@ -40,6 +40,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.puppycrawl.tools.checkstyle.Definitions;
+import com.puppycrawl.tools.checkstyle.GlobalStatefulCheck;
 import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
 import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
@@ -97,6 +98,7 @@ import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
  * <br>
  *
  */
+@GlobalStatefulCheck
 public class TranslationCheck extends AbstractFileSetCheck {
 
     /**
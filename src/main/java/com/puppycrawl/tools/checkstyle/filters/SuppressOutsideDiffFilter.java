@@ -0,0 +1,358 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle.filters;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.ExternalResourceHolder;
+import com.puppycrawl.tools.checkstyle.api.Filter;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Paths;
+import com.puppycrawl.tools.checkstyle.utils.FilterUtil;
+
+/**
+ * <p>
+ * This filter rejects audit events for Check errors which are not on lines
+ * added or changed by a unified diff, like the diff of a pull request.
+ * Errors in files which are not changed by the diff are rejected, errors of a
+ * changed file without a line are accepted.
+ * </p>
+ */
+public class SuppressOutsideDiffFilter extends AutomaticBean
+        implements Filter, ExternalResourceHolder {
+
+    /** Pattern of the header of a hunk, capturing the line counts and the new start line. */
+    private static final Pattern HUNK_HEADER = Pattern.compile(
+            "^@@ -\\d+(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@");
+
+    /** The header line of the new file of a file diff. */
+    private static final String NEW_FILE_HEADER = "+++ ";
+
+    /** The prefix of the paths of new files in diffs of git. */
+    private static final String NEW_FILE_PREFIX = "b/";
+
+    /** The path of the new file of a deleted file. */
+    private static final String DEV_NULL = "/dev/null";
+
+    /** Filename of the diff file. */
+    private String file;
+    /** The content of the unified diff, which is used instead of the diff file. */
+    private String diff;
+    /** Tells whether the diff file existence is optional. */
+    private boolean optional;
+    /** The changed lines of the changed files by the names of the files, {@code null} if none. */
+    private Map<String, List<ChangedLines>> changedFiles;
+
+    /**
+     * Sets name of the diff file.
+     * @param fileName name of the unified diff file.
+     */
+    public void setFile(String fileName) {
+        file = fileName;
+    }
+
+    /**
+     * Sets the content of the unified diff, which is used instead of the
+     * diff file. The hash of the configuration, which invalidates the cache,
+     * depends on the content then, not on the location of a file.
+     * @param diff the content of the unified diff.
+     */
+    public void setDiff(String diff) {
+        this.diff = diff;
+    }
+
+    /**
+     * Sets whether diff file existence is optional.
+     * @param optional tells if diff file existence is optional.
+     */
+    public void setOptional(boolean optional) {
+        this.optional = optional;
+    }
+
+    @Override
+    public boolean accept(AuditEvent event) {
+        boolean result = true;
+        if (changedFiles != null && event.getLocalizedMessage() != null
+                && event.getFileName() != null) {
+            final ChangedLines lines = getChangedLines(event.getFileName());
+            result = lines != null && (event.getLine() == 0 || lines.contains(event.getLine()));
+        }
+        return result;
+    }
+
+    @Override
+    protected void finishLocalSetup() throws CheckstyleException {
+        if (diff != null || file != null && (!optional || FilterUtil.isFileExists(file))) {
+            try {
+                final BufferedReader reader;
+                if (diff == null) {
+                    reader = Files7.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+                }
+                else {
+                    reader = new BufferedReader(new StringReader(diff));
+                }
+                try {
+                    changedFiles = parseDiff(reader);
+                }
+                finally {
+                    reader.close();
+                }
+            }
+            catch (IOException ex) {
+                throw new CheckstyleException("Unable to read diff file " + file, ex);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getExternalResourceLocations() {
+        final Set<String> result;
+        if (file == null || diff != null) {
+            result = Collections.emptySet();
+        }
+        else {
+            result = Collections.singleton(file);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the changed lines of an audited file, whose name ends with the
+     * path of a changed file in the diff.
+     * @param fileName the name of the audited file.
+     * @return the changed lines, or {@code null} if the file is not changed.
+     */
+    private ChangedLines getChangedLines(String fileName) {
+        final String path = fileName.replace('\\', '/');
+        ChangedLines result = null;
+        final List<ChangedLines> candidates = changedFiles.get(getName(path));
+        if (candidates != null) {
+            for (ChangedLines candidate : candidates) {
+                if (path.equals(candidate.path) || path.endsWith('/' + candidate.path)) {
+                    result = candidate;
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses a unified diff into the changed lines of the new files.
+     * @param reader the reader of the diff.
+     * @return the changed lines of the changed files by the names of the files.
+     * @throws IOException if the diff can't be read.
+     * @throws CheckstyleException if a hunk header is invalid.
+     */
+    private static Map<String, List<ChangedLines>> parseDiff(BufferedReader reader)
+            throws IOException, CheckstyleException {
+        final Map<String, List<Integer>> linesByPath = new HashMap<String, List<Integer>>();
+        List<Integer> lines = null;
+        int oldRemaining = 0;
+        int newRemaining = 0;
+        int newLine = 0;
+        String line = reader.readLine();
+        while (line != null) {
+            if (oldRemaining > 0 || newRemaining > 0) {
+                // a line of the body of a hunk
+                if (line.startsWith("+")) {
+                    if (lines != null) {
+                        lines.add(newLine);
+                    }
+                    newLine++;
+                    newRemaining--;
+                }
+                else if (line.startsWith("-")) {
+                    oldRemaining--;
+                }
+                else if (!line.startsWith("\\")) {
+                    newLine++;
+                    newRemaining--;
+                    oldRemaining--;
+                }
+            }
+            else if (line.startsWith(NEW_FILE_HEADER)) {
+                lines = getLines(linesByPath, getNewFilePath(line));
+            }
+            else if (line.startsWith("@@")) {
+                final Matcher matcher = HUNK_HEADER.matcher(line);
+                if (!matcher.find()) {
+                    throw new CheckstyleException("Invalid hunk header: " + line);
+                }
+                oldRemaining = getCount(matcher.group(1));
+                newLine = Integer.parseInt(matcher.group(2));
+                newRemaining = getCount(matcher.group(3));
+            }
+            line = reader.readLine();
+        }
+
+        final Map<String, List<ChangedLines>> result = new HashMap<String, List<ChangedLines>>();
+        for (Map.Entry<String, List<Integer>> entry : linesByPath.entrySet()) {
+            final String path = entry.getKey();
+            final String name = getName(path);
+            List<ChangedLines> changedLines = result.get(name);
+            if (changedLines == null) {
+                changedLines = new ArrayList<ChangedLines>();
+                result.put(name, changedLines);
+            }
+            changedLines.add(new ChangedLines(path, entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the changed lines of a path, which are created if needed.
+     * @param linesByPath the changed lines by the paths.
+     * @param path the path of the new file, {@code null} if the file is deleted.
+     * @return the changed lines, or {@code null} if the file is deleted.
+     */
+    private static List<Integer> getLines(Map<String, List<Integer>> linesByPath, String path) {
+        List<Integer> result = null;
+        if (path != null) {
+            result = linesByPath.get(path);
+            if (result == null) {
+                result = new ArrayList<Integer>();
+                linesByPath.put(path, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Extracts the path of the new file from its header line.
+     * @param line the header line.
+     * @return the path, or {@code null} if the file is deleted.
+     */
+    private static String getNewFilePath(String line) {
+        String result = line.substring(NEW_FILE_HEADER.length());
+        final int timestampStart = result.indexOf('\t');
+        if (timestampStart >= 0) {
+            result = result.substring(0, timestampStart);
+        }
+        if (DEV_NULL.equals(result)) {
+            result = null;
+        }
+        else if (result.startsWith(NEW_FILE_PREFIX)) {
+            result = result.substring(NEW_FILE_PREFIX.length());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the line count of a hunk header.
+     * @param count the count, {@code null} if it is omitted.
+     * @return the line count.
+     */
+    private static int getCount(String count) {
+        final int result;
+        if (count == null) {
+            result = 1;
+        }
+        else {
+            result = Integer.parseInt(count);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the name of the file of a path.
+     * @param path the path, separated by slashes.
+     * @return the name of the file.
+     */
+    private static String getName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /** The changed lines of a file, as sorted ranges of lines. */
+    private static final class ChangedLines {
+
+        /** The path of the file in the diff. */
+        private final String path;
+        /** The first lines of the ranges, in ascending order. */
+        private final int[] starts;
+        /** The last lines of the ranges. */
+        private final int[] ends;
+
+        /**
+         * Creates a new instance.
+         * @param path the path of the file in the diff.
+         * @param lines the changed lines, in any order.
+         */
+        ChangedLines(String path, List<Integer> lines) {
+            this.path = path;
+            final int[] sortedLines = new int[lines.size()];
+            for (int i = 0; i < sortedLines.length; i++) {
+                sortedLines[i] = lines.get(i);
+            }
+            Arrays.sort(sortedLines);
+
+            final int[] rangeStarts = new int[sortedLines.length];
+            final int[] rangeEnds = new int[sortedLines.length];
+            int count = 0;
+            for (int line : sortedLines) {
+                if (count > 0 && line <= rangeEnds[count - 1] + 1) {
+                    rangeEnds[count - 1] = Math.max(rangeEnds[count - 1], line);
+                }
+                else {
+                    rangeStarts[count] = line;
+                    rangeEnds[count] = line;
+                    count++;
+                }
+            }
+            starts = Arrays.copyOf(rangeStarts, count);
+            ends = Arrays.copyOf(rangeEnds, count);
+        }
+
+        /**
+         * Checks whether a line is changed.
+         * @param line the line.
+         * @return true if the line is changed.
+         */
+        public boolean contains(int line) {
+            final int index = Arrays.binarySearch(starts, line);
+            final boolean result;
+            if (index >= 0) {
+                result = true;
+            }
+            else {
+                final int rangeIndex = -index - 2;
+                result = rangeIndex >= 0 && line <= ends[rangeIndex];
+            }
+            return result;
+        }
+
+    }
+
+}
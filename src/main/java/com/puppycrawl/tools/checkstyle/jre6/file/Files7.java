@@ -33,6 +33,8 @@ import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 
@@ -88,6 +90,31 @@ public final class Files7 {
         }
     }
 
+    /**
+     * Reads all bytes of a file into a heap buffer which is sized from the file
+     * size. Files are not mapped into memory, as a mapping stays until the buffer
+     * is collected and keeps the file locked on some platforms.
+     * @param path the file to read.
+     * @return the buffer with the content of the file, backed by an array and
+     *     ready to be read.
+     * @throws IOException if the file can't be read.
+     */
+    public static ByteBuffer readAllBytesToBuffer(Path path) throws IOException {
+        final FileInputStream stream = new FileInputStream(path.toFile());
+        try {
+            final FileChannel channel = stream.getChannel();
+            final ByteBuffer result = ByteBuffer.allocate((int) channel.size());
+            while (result.hasRemaining() && channel.read(result) != -1) {
+                // reads until the buffer is full or the file ends
+            }
+            result.flip();
+            return result;
+        }
+        finally {
+            stream.close();
+        }
+    }
+
     public static void write(Path path, byte[] bytes) throws IOException {
         final FileOutputStream stream = new FileOutputStream(path.toFile());
         try {
@@ -0,0 +1,160 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+public class AstCacheDirectoryTest extends AbstractPathTestSupport {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/puppycrawl/tools/checkstyle/javaparser";
+    }
+
+    @Test
+    public void testTreeIsStoredAndLoaded() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final AstCacheDirectory cacheDirectory = new AstCacheDirectory(directory.getPath());
+        final FileContents parsedContents = getFileContents();
+        final DetailAST parsed = cacheDirectory.parse(parsedContents);
+
+        final List<File> files = listFiles(directory);
+        assertEquals("Tree should be stored", 1, files.size());
+        assertTrue("Invalid file name", files.get(0).getName().endsWith(".ast"));
+
+        final FileContents loadedContents = getFileContents();
+        final DetailAST loaded = cacheDirectory.parse(loadedContents);
+
+        assertEquals("Stored tree should be used", 1, listFiles(directory).size());
+        assertEquals("Loaded tree should be the same",
+                JavaParser.appendHiddenCommentNodes(parsed).toStringTree(),
+                JavaParser.appendHiddenCommentNodes(loaded).toStringTree());
+        assertEquals("Single line comments should be reported",
+                parsedContents.getSingleLineComments().keySet(),
+                loadedContents.getSingleLineComments().keySet());
+        assertEquals("Block comments should be reported",
+                parsedContents.getBlockComments().keySet(),
+                loadedContents.getBlockComments().keySet());
+        assertTrue("Comments should be reported",
+                !loadedContents.getSingleLineComments().isEmpty());
+    }
+
+    @Test
+    public void testBrokenFileIsParsedAgain() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final AstCacheDirectory cacheDirectory = new AstCacheDirectory(directory.getPath());
+        final DetailAST parsed = cacheDirectory.parse(getFileContents());
+        final File file = listFiles(directory).get(0);
+        Files.write("broken".getBytes(StandardCharsets.UTF_8.name()), file);
+
+        final FileContents contents = getFileContents();
+        final DetailAST reparsed = cacheDirectory.parse(contents);
+
+        assertEquals("Tree should be parsed again", parsed.toStringTree(),
+                reparsed.toStringTree());
+        assertEquals("Comments should be reported", 1,
+                contents.getSingleLineComments().size());
+        assertTrue("Broken file should be replaced", file.length() > "broken".length());
+    }
+
+    @Test
+    public void testLoadedFileIsTouched() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final AstCacheDirectory cacheDirectory = new AstCacheDirectory(directory.getPath());
+        cacheDirectory.parse(getFileContents());
+        final File file = listFiles(directory).get(0);
+        assertTrue("Invalid modification time", file.setLastModified(0));
+
+        cacheDirectory.parse(getFileContents());
+        cacheDirectory.finishAudit();
+
+        assertTrue("Loaded file should be touched", file.lastModified() > 0);
+        assertEquals("Files within the maximum size should be kept",
+                Collections.singletonList(file), listFiles(directory));
+    }
+
+    @Test
+    public void testUnwritableDirectory() throws Exception {
+        final File notDirectory = temporaryFolder.newFile();
+        final AstCacheDirectory cacheDirectory =
+                new AstCacheDirectory(notDirectory.getPath());
+
+        assertNotNull("Tree should be parsed", cacheDirectory.parse(getFileContents()));
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        final File directory = temporaryFolder.newFolder();
+        final AstCacheDirectory cacheDirectory = new AstCacheDirectory(directory.getPath());
+        final FileText fileText = new FileText(
+                new File(getPath("InputJavaParserHiddenComments.java")),
+                Collections.<String>emptyList());
+
+        assertNull("Empty file should not have tree",
+                cacheDirectory.parse(new FileContents(fileText)));
+        assertNull("Empty file should not have stored tree",
+                cacheDirectory.parse(new FileContents(fileText)));
+    }
+
+    private FileContents getFileContents() throws IOException {
+        return new FileContents(new FileText(
+                new File(getPath("InputJavaParserHiddenComments.java")),
+                StandardCharsets.UTF_8.name()));
+    }
+
+    private static List<File> listFiles(File directory) {
+        final List<File> result = new ArrayList<File>();
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    result.addAll(listFiles(file));
+                }
+                else {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,264 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+public class AuditDaemonTest {
+
+    private static final String CONFIG_HEADER = "<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE module PUBLIC \"-//Checkstyle//DTD Checkstyle Configuration 1.3//EN\""
+            + " \"https://checkstyle.org/dtds/configuration_1_3.dtd\">\n";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File tokenDirectory;
+
+    private AuditDaemon daemon;
+
+    private Thread thread;
+
+    @Before
+    public void setUp() throws IOException {
+        tokenDirectory = new File(temporaryFolder.getRoot(), "tokens");
+        daemon = new AuditDaemon(0, tokenDirectory);
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.run();
+                }
+                catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        daemon.close();
+        thread.join();
+    }
+
+    @Test
+    public void testAudit() throws Exception {
+        final File config = writeConfig("<module name=\"FileLength\">"
+                + "<property name=\"max\" value=\"1\"/></module>");
+        final File file = writeFile("class Test {\n}\n");
+
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final int errors = sendRequest(config, file, "plain", report);
+
+        assertEquals("Invalid number of errors", 1, errors);
+        final String output = new String(report.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue("Report should contain the violation: " + output,
+                output.contains(file.getAbsolutePath() + ":1: ")
+                        && output.contains("[FileLength]"));
+    }
+
+    @Test
+    public void testXmlFormat() throws Exception {
+        final File config = writeConfig("");
+        final File file = writeFile("class Test {\n}\n");
+
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final int errors = sendRequest(config, file, "xml", report);
+
+        assertEquals("Invalid number of errors", 0, errors);
+        final String output = new String(report.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue("Report should contain the file: " + output,
+                output.startsWith("<?xml") && output.contains(
+                        "<file name=\"" + file.getAbsolutePath() + "\">"));
+    }
+
+    @Test
+    public void testConfigurationIsReloadedWhenChanged() throws Exception {
+        final File config = writeConfig("");
+        final File file = writeFile("class Test {\n}\n");
+
+        assertEquals("Invalid number of errors", 0,
+                sendRequest(config, file, "plain", new ByteArrayOutputStream()));
+        assertEquals("Invalid number of errors with the same configuration", 0,
+                sendRequest(config, file, "plain", new ByteArrayOutputStream()));
+
+        Files7.write(new Path(config), (CONFIG_HEADER + "<module name=\"Checker\">"
+                + "<module name=\"FileLength\"><property name=\"max\" value=\"1\"/></module>"
+                + "</module>").getBytes(StandardCharsets.UTF_8));
+        assertEquals("Invalid number of errors with the changed configuration", 1,
+                sendRequest(config, file, "plain", new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testConfigurationIsReloadedWhenPropertyChanged() throws Exception {
+        final File config = writeConfig("<module name=\"FileLength\">"
+                + "<property name=\"max\" value=\"${fileLength.max}\"/></module>");
+        final File file = writeFile("class Test {\n}\n");
+        final Properties properties = new Properties();
+        properties.setProperty("fileLength.max", "1");
+
+        assertEquals("Invalid number of errors", 1, sendRequest(config, properties, file,
+                "plain", new ByteArrayOutputStream()));
+        properties.setProperty("unused", "value");
+        assertEquals("Invalid number of errors with an unused property", 1,
+                sendRequest(config, properties, file, "plain", new ByteArrayOutputStream()));
+        properties.setProperty("fileLength.max", "10");
+        assertEquals("Invalid number of errors with the changed property", 0,
+                sendRequest(config, properties, file, "plain", new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testConfigurationIsReloadedWhenExternalResourceChanged() throws Exception {
+        final File suppressions = temporaryFolder.newFile("suppressions.xml");
+        writeSuppressions(suppressions, "");
+        final File config = writeConfig("<module name=\"FileLength\">"
+                + "<property name=\"max\" value=\"1\"/></module>"
+                + "<module name=\"SuppressionFilter\"><property name=\"file\" value=\""
+                + suppressions.getAbsolutePath() + "\"/></module>");
+        final File file = writeFile("class Test {\n}\n");
+
+        assertEquals("Invalid number of errors", 1,
+                sendRequest(config, file, "plain", new ByteArrayOutputStream()));
+        writeSuppressions(suppressions, "<suppress checks=\"FileLength\" files=\".*\"/>");
+        assertEquals("Invalid number of errors with the changed suppressions", 0,
+                sendRequest(config, file, "plain", new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void testMissingConfiguration() throws Exception {
+        final File file = writeFile("class Test {\n}\n");
+
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final int errors = sendRequest(new File(temporaryFolder.getRoot(), "missing.xml"),
+                file, "plain", report);
+
+        assertEquals("Invalid status", AuditDaemon.FAILURE_STATUS, errors);
+        final String output = new String(report.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue("Report should contain the exception: " + output,
+                output.contains("CheckstyleException"));
+    }
+
+    @Test
+    public void testInvalidToken() throws Exception {
+        final File config = writeConfig("");
+        final File file = writeFile("class Test {\n}\n");
+        final File tokenFile = getTokenFile();
+        assertTrue("Token file should be written", tokenFile.isFile());
+        Files7.write(new Path(tokenFile), "invalid".getBytes(StandardCharsets.UTF_8));
+
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final int errors = sendRequest(config, file, "plain", report);
+
+        assertEquals("Invalid status", AuditDaemon.FAILURE_STATUS, errors);
+        final String output = new String(report.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue("Report should reject the token: " + output,
+                output.startsWith("Invalid token"));
+    }
+
+    @Test
+    public void testMissingToken() throws Exception {
+        final File config = writeConfig("");
+        final File file = writeFile("class Test {\n}\n");
+        final File tokenFile = getTokenFile();
+        assertTrue("Token file should be deleted", tokenFile.delete());
+
+        try {
+            sendRequest(config, file, "plain", new ByteArrayOutputStream());
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertTrue("Invalid error message: " + ex.getMessage(),
+                    ex.getMessage().startsWith("Unable to find token file " + tokenFile));
+        }
+    }
+
+    @Test
+    public void testTokenFileIsDeletedOnClose() throws Exception {
+        final File tokenFile = getTokenFile();
+        assertTrue("Token file should be written", tokenFile.isFile());
+
+        daemon.close();
+        thread.join();
+
+        assertFalse("Token file should be deleted", tokenFile.exists());
+    }
+
+    private File getTokenFile() {
+        return new File(tokenDirectory, "daemon-" + daemon.getPort() + ".token");
+    }
+
+    private int sendRequest(File config, File file, String format,
+            ByteArrayOutputStream report) throws IOException {
+        return sendRequest(config, new Properties(), file, format, report);
+    }
+
+    private int sendRequest(File config, Properties properties, File file, String format,
+            ByteArrayOutputStream report) throws IOException {
+        final AuditDaemon.Request request = new AuditDaemon.Request(config.getPath(),
+                properties, false, ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE, format,
+                Collections.singletonList(file));
+        return AuditDaemon.sendRequest(daemon.getPort(), tokenDirectory, request, report);
+    }
+
+    private static void writeSuppressions(File suppressions, String content)
+            throws IOException {
+        Files7.write(new Path(suppressions), ("<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE suppressions PUBLIC"
+                + " \"-//Checkstyle//DTD SuppressionFilter Configuration 1.2//EN\""
+                + " \"https://checkstyle.org/dtds/suppressions_1_2.dtd\">\n"
+                + "<suppressions>" + content + "</suppressions>")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private File writeConfig(String modules) throws IOException {
+        final File config = temporaryFolder.newFile("config.xml");
+        Files7.write(new Path(config), (CONFIG_HEADER + "<module name=\"Checker\">" + modules
+                + "</module>").getBytes(StandardCharsets.UTF_8));
+        return config;
+    }
+
+    private File writeFile(String content) throws IOException {
+        final File file = temporaryFolder.newFile("Test.java");
+        Files7.write(new Path(file), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
@@ -0,0 +1,225 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+
+public class BinaryCacheStoreTest {
+
+    private static final String HASH_KEY = "hash";
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRewriteAndLoad() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        final StringBuilder longValue = new StringBuilder(20000);
+        for (int i = 0; i < 2000; i++) {
+            longValue.append("value").append(i % 10).append((char) 0xE4).append((char) 0x20AC);
+        }
+        final Properties entries = createEntries("HASH", "b", "2", "a", "1",
+                "long", longValue.toString(), "", "");
+
+        store.persist(entries, new LinkedHashMap<String, String>());
+
+        assertTrue("File should be binary", BinaryCacheStore.isBinary(file));
+        assertEquals("Entries should be restored", entries, load(file));
+    }
+
+    @Test
+    public void testChangesAreAppended() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        final Properties entries = createEntries("HASH", "a", "1", "b", "2");
+        store.persist(entries, new LinkedHashMap<String, String>());
+        final byte[] rewritten = Files.toByteArray(file);
+
+        final Map<String, String> changes = new LinkedHashMap<String, String>();
+        entries.setProperty("c", "3");
+        changes.put("c", "3");
+        entries.remove("a");
+        changes.put("a", null);
+        store.persist(entries, changes);
+
+        final byte[] appended = Files.toByteArray(file);
+        assertTrue("Changes should be appended", appended.length > rewritten.length);
+        assertEquals("Existing records should not change", Arrays.toString(rewritten),
+                Arrays.toString(Arrays.copyOf(appended, rewritten.length)));
+        assertEquals("Entries should be restored", entries, load(file));
+    }
+
+    @Test
+    public void testBrokenEndIsDropped() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        final Properties entries = createEntries("HASH", "a", "1");
+        store.persist(entries, new LinkedHashMap<String, String>());
+        final long validLength = file.length();
+        appendBytes(file, new byte[] {1, 5, 'a'});
+
+        final BinaryCacheStore loadedStore = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        final Properties loadedEntries = new Properties();
+        loadedStore.load(loadedEntries);
+        assertEquals("Valid entries should be restored", entries, loadedEntries);
+
+        final Map<String, String> changes = new LinkedHashMap<String, String>();
+        loadedEntries.setProperty("b", "2");
+        changes.put("b", "2");
+        loadedStore.persist(loadedEntries, changes);
+        assertEquals("Broken end should be replaced", loadedEntries, load(file));
+        assertTrue("Changes should be appended to valid part", file.length() > validLength);
+    }
+
+    @Test
+    public void testInvalidLengthIsDropped() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        final Properties entries = createEntries("HASH", "a", "1");
+        store.persist(entries, new LinkedHashMap<String, String>());
+        final long validLength = file.length();
+
+        appendBytes(file, new byte[] {1, 127, 0, 0, 0});
+        assertEquals("Too long string should be dropped", entries, load(file));
+
+        truncate(file, validLength);
+        appendBytes(file, new byte[] {1, -1, -1, -1, -1, -1, 0});
+        assertEquals("Too long length should be dropped", entries, load(file));
+
+        truncate(file, validLength);
+        appendBytes(file, new byte[] {1, -1, -1});
+
+        assertEquals("Valid entries should be restored", entries, load(file));
+    }
+
+    @Test
+    public void testFileIsCompacted() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        final Properties entries = createEntries("HASH", "a", "1");
+        store.persist(entries, new LinkedHashMap<String, String>());
+        final long compactedLength = file.length();
+        long recordLength = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            final Map<String, String> changes = new LinkedHashMap<String, String>();
+            entries.setProperty("a", Integer.toString(i % 10));
+            changes.put("a", entries.getProperty("a"));
+            store.persist(entries, changes);
+            if (i == 0) {
+                recordLength = file.length() - compactedLength;
+            }
+        }
+
+        assertTrue("File should be compacted",
+                file.length() < compactedLength + recordLength * 1100);
+        assertEquals("Entries should be restored", entries, load(file));
+    }
+
+    @Test
+    public void testResetRewritesFile() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        store.persist(createEntries("HASH", "a", "1"), new LinkedHashMap<String, String>());
+
+        store.reset();
+        final Properties entries = createEntries("OTHER", "b", "2");
+        store.persist(entries, new LinkedHashMap<String, String>());
+
+        assertEquals("Entries should be replaced", entries, load(file));
+    }
+
+    @Test
+    public void testChangedConfigurationHashRewritesFile() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "cache");
+        final BinaryCacheStore store = new BinaryCacheStore(file.getPath(), HASH_KEY);
+        store.persist(createEntries("HASH", "a", "1"), new LinkedHashMap<String, String>());
+
+        final Properties entries = createEntries("OTHER", "a", "1");
+        store.persist(entries, new LinkedHashMap<String, String>());
+
+        assertEquals("Configuration hash should be replaced", entries, load(file));
+    }
+
+    @Test
+    public void testNotBinaryFile() throws Exception {
+        final File file = temporaryFolder.newFile();
+        assertFalse("Empty file should not be binary", BinaryCacheStore.isBinary(file));
+        Files.write("configuration*?=HASH".getBytes("UTF-8"), file);
+        assertFalse("Property file should not be binary", BinaryCacheStore.isBinary(file));
+
+        final Properties entries = new Properties();
+        new BinaryCacheStore(file.getPath(), HASH_KEY).load(entries);
+        assertTrue("Property file should not have entries", entries.isEmpty());
+    }
+
+    private static Properties createEntries(String hash, String... keysAndValues) {
+        final Properties result = new Properties();
+        result.setProperty(HASH_KEY, hash);
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    private static Properties load(File file) throws Exception {
+        final Properties result = new Properties();
+        new BinaryCacheStore(file.getPath(), HASH_KEY).load(result);
+        return result;
+    }
+
+    private static void truncate(File file, long length) throws Exception {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(length);
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void appendBytes(File file, byte[] bytes) throws Exception {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(randomAccessFile.length());
+            randomAccessFile.write(bytes);
+        }
+        finally {
+            randomAccessFile.close();
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+public class CacheHasherTest {
+
+    @Test
+    public void testConfigurationHashIsCanonical() {
+        final DefaultConfiguration config = new DefaultConfiguration("myName");
+        config.addAttribute("first", "1");
+        config.addAttribute("second", "2");
+        config.addMessage("key", "message");
+        config.addChild(new DefaultConfiguration("firstChild"));
+        config.addChild(new DefaultConfiguration("secondChild"));
+
+        final DefaultConfiguration reorderedConfig = new DefaultConfiguration("myName",
+                new ThreadModeSettings(2, 2));
+        reorderedConfig.addChild(new DefaultConfiguration("secondChild"));
+        reorderedConfig.addChild(new DefaultConfiguration("firstChild"));
+        reorderedConfig.addMessage("key", "message");
+        reorderedConfig.addAttribute("second", "2");
+        reorderedConfig.addAttribute("first", "1");
+        assertEquals("Order should not change hash",
+                CacheHasher.getConfigurationHash(config),
+                CacheHasher.getConfigurationHash(reorderedConfig));
+
+        final DefaultConfiguration changedConfig = new DefaultConfiguration("myName");
+        changedConfig.addAttribute("first", "12");
+        changedConfig.addAttribute("econd", "2");
+        changedConfig.addMessage("key", "message");
+        changedConfig.addChild(new DefaultConfiguration("firstChild"));
+        changedConfig.addChild(new DefaultConfiguration("secondChild"));
+        assertNotEquals("Changed attributes should change hash",
+                CacheHasher.getConfigurationHash(config),
+                CacheHasher.getConfigurationHash(changedConfig));
+
+        final DefaultConfiguration changedMessageConfig = new DefaultConfiguration("myName");
+        changedMessageConfig.addAttribute("first", "1");
+        changedMessageConfig.addAttribute("second", "2");
+        changedMessageConfig.addMessage("key", "other message");
+        changedMessageConfig.addChild(new DefaultConfiguration("firstChild"));
+        changedMessageConfig.addChild(new DefaultConfiguration("secondChild"));
+        assertNotEquals("Changed messages should change hash",
+                CacheHasher.getConfigurationHash(config),
+                CacheHasher.getConfigurationHash(changedMessageConfig));
+    }
+
+    @Test
+    public void testExceptionHash() {
+        assertEquals("Same exceptions should have same hash",
+                CacheHasher.getExceptionHash(new CheckstyleException("message")),
+                CacheHasher.getExceptionHash(new CheckstyleException("message")));
+        assertNotEquals("Different causes should have different hashes",
+                CacheHasher.getExceptionHash(new CheckstyleException("message")),
+                CacheHasher.getExceptionHash(new CheckstyleException("message",
+                        new IllegalStateException("cause"))));
+    }
+
+}
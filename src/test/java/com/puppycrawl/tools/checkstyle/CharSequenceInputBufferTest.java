@@ -0,0 +1,110 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import antlr.CharBuffer;
+import antlr.CharScanner;
+import antlr.InputBuffer;
+import antlr.Token;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.grammars.GeneratedJavaLexer;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+public class CharSequenceInputBufferTest extends AbstractPathTestSupport {
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/puppycrawl/tools/checkstyle/javaparser";
+    }
+
+    @Test
+    public void testLookAheadAndConsume() {
+        final CharSequenceInputBuffer buffer = new CharSequenceInputBuffer("ab");
+
+        assertEquals("Invalid first character", 'a', buffer.LA(1));
+        assertEquals("Invalid second character", 'b', buffer.LA(2));
+        assertEquals("Invalid character after end", CharScanner.EOF_CHAR, buffer.LA(3));
+        buffer.consume();
+        assertEquals("Invalid character after consume", 'b', buffer.LA(1));
+        buffer.consume();
+        assertEquals("Invalid character at end", CharScanner.EOF_CHAR, buffer.LA(1));
+    }
+
+    @Test
+    public void testMarkAndRewind() {
+        final CharSequenceInputBuffer buffer = new CharSequenceInputBuffer("abc");
+        buffer.consume();
+
+        final int mark = buffer.mark();
+        assertTrue("Buffer should be marked", buffer.isMarked());
+        buffer.consume();
+        assertEquals("Invalid character after mark", 'c', buffer.LA(1));
+        buffer.rewind(mark);
+
+        assertFalse("Buffer should not be marked", buffer.isMarked());
+        assertEquals("Invalid character after rewind", 'b', buffer.LA(1));
+
+        buffer.mark();
+        buffer.mark();
+        buffer.commit();
+        assertTrue("Buffer should be marked", buffer.isMarked());
+        buffer.reset();
+        assertFalse("Buffer should not be marked after reset", buffer.isMarked());
+        assertEquals("Reset should not move position", 'b', buffer.LA(1));
+    }
+
+    @Test
+    public void testSameTokensAsReader() throws Exception {
+        final FileText fileText = new FileText(
+                new File(getPath("InputJavaParserHiddenComments.java")),
+                StandardCharsets.UTF_8.name());
+        final String text = fileText.getFullText().toString();
+
+        assertEquals("Tokens should be the same as read from reader",
+                getTokens(new CharBuffer(new StringReader(text)), new FileContents(fileText)),
+                getTokens(new CharSequenceInputBuffer(text), new FileContents(fileText)));
+    }
+
+    private static String getTokens(InputBuffer buffer, FileContents contents)
+            throws Exception {
+        final GeneratedJavaLexer lexer = new GeneratedJavaLexer(buffer);
+        lexer.setCommentListener(contents);
+        lexer.setTokenObjectClass("antlr.CommonHiddenStreamToken");
+        final StringBuilder result = new StringBuilder(1024);
+        Token token = lexer.nextToken();
+        while (token.getType() != Token.EOF_TYPE) {
+            result.append(token.getType()).append(' ').append(token.getText()).append(' ')
+                .append(token.getLine()).append(':').append(token.getColumn()).append('\n');
+            token = lexer.nextToken();
+        }
+        return result.toString();
+    }
+
+}
@@ -51,6 +51,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
@@ -62,6 +63,7 @@ import org.junit.rules.TemporaryFolder;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.reflect.Whitebox;
 
+import com.google.common.io.Files;
 import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
 import com.puppycrawl.tools.checkstyle.api.AbstractFileSetCheck;
 import com.puppycrawl.tools.checkstyle.api.AuditEvent;
@@ -78,8 +80,13 @@ import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
 import com.puppycrawl.tools.checkstyle.api.MessageDispatcher;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 import com.puppycrawl.tools.checkstyle.checks.NewlineAtEndOfFileCheck;
+import com.puppycrawl.tools.checkstyle.checks.SuppressWarningsHolder;
+import com.puppycrawl.tools.checkstyle.checks.TodoCommentCheck;
 import com.puppycrawl.tools.checkstyle.checks.TranslationCheck;
 import com.puppycrawl.tools.checkstyle.checks.coding.HiddenFieldCheck;
+import com.puppycrawl.tools.checkstyle.checks.coding.MagicNumberCheck;
+import com.puppycrawl.tools.checkstyle.checks.sizes.FileLengthCheck;
+import com.puppycrawl.tools.checkstyle.filters.SuppressWarningsFilter;
 import com.puppycrawl.tools.checkstyle.filters.SuppressionFilter;
 import com.puppycrawl.tools.checkstyle.internal.testmodules.DebugAuditAdapter;
 import com.puppycrawl.tools.checkstyle.internal.testmodules.DebugFilter;
@@ -89,6 +96,7 @@ import com.puppycrawl.tools.checkstyle.internal.utils.CloseAndFlushTestByteArray
 import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
 import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
 import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+import com.puppycrawl.tools.checkstyle.jre6.lang.System7;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 
 public class CheckerTest extends AbstractModuleTestSupport {
@@ -97,19 +105,24 @@ public class CheckerTest extends AbstractModuleTestSupport {
     public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     private static Method getFireAuditFinished() throws NoSuchMethodException {
-        final Class<Checker> checkerClass = Checker.class;
-        final Method fireAuditFinished = checkerClass.getDeclaredMethod("fireAuditFinished");
+        final Class<FileAuditor> auditorClass = FileAuditor.class;
+        final Method fireAuditFinished = auditorClass.getDeclaredMethod("fireAuditFinished");
         fireAuditFinished.setAccessible(true);
         return fireAuditFinished;
     }
 
     private static Method getFireAuditStartedMethod() throws NoSuchMethodException {
-        final Class<Checker> checkerClass = Checker.class;
-        final Method fireAuditStarted = checkerClass.getDeclaredMethod("fireAuditStarted");
+        final Class<FileAuditor> auditorClass = FileAuditor.class;
+        final Method fireAuditStarted = auditorClass.getDeclaredMethod("fireAuditStarted");
         fireAuditStarted.setAccessible(true);
         return fireAuditStarted;
     }
 
+    private static PropertyCacheFile getCacheFile(Checker checker) {
+        final AuditCache cache = Whitebox.getInternalState(checker, "cache");
+        return Whitebox.getInternalState(cache, "cacheFile");
+    }
+
     @Override
     protected String getPackageLocation() {
         return "com/puppycrawl/tools/checkstyle/checker";
@@ -149,11 +162,11 @@ public class CheckerTest extends AbstractModuleTestSupport {
         checker.addListener(auditAdapter);
 
         // Let's try fire some events
-        getFireAuditStartedMethod().invoke(checker);
+        getFireAuditStartedMethod().invoke(Whitebox.getInternalState(checker, "auditor"));
         assertTrue("Checker.fireAuditStarted() doesn't call listener", auditAdapter.wasCalled());
 
         auditAdapter.resetListener();
-        getFireAuditFinished().invoke(checker);
+        getFireAuditFinished().invoke(Whitebox.getInternalState(checker, "auditor"));
         assertTrue("Checker.fireAuditFinished() doesn't call listener", auditAdapter.wasCalled());
 
         auditAdapter.resetListener();
@@ -182,13 +195,13 @@ public class CheckerTest extends AbstractModuleTestSupport {
         checker.removeListener(auditAdapter);
 
         // Let's try fire some events
-        getFireAuditStartedMethod().invoke(checker);
+        getFireAuditStartedMethod().invoke(Whitebox.getInternalState(checker, "auditor"));
         assertTrue("Checker.fireAuditStarted() doesn't call listener", aa2.wasCalled());
         assertFalse("Checker.fireAuditStarted() does call removed listener",
                 auditAdapter.wasCalled());
 
         aa2.resetListener();
-        getFireAuditFinished().invoke(checker);
+        getFireAuditFinished().invoke(Whitebox.getInternalState(checker, "auditor"));
         assertTrue("Checker.fireAuditFinished() doesn't call listener", aa2.wasCalled());
         assertFalse("Checker.fireAuditFinished() does call removed listener",
                 auditAdapter.wasCalled());
@@ -299,7 +312,7 @@ public class CheckerTest extends AbstractModuleTestSupport {
 
         // comparing to 1 as there is only one legal file in input
         final int numLegalFiles = 1;
-        final PropertyCacheFile cache = Whitebox.getInternalState(checker, "cacheFile");
+        final PropertyCacheFile cache = getCacheFile(checker);
         assertEquals("There were more legal files than expected",
                 numLegalFiles, counter);
         assertEquals("Audit was started on larger amount of files than expected",
@@ -531,6 +544,27 @@ public class CheckerTest extends AbstractModuleTestSupport {
                 cacheAfterFirstRun, cacheAfterSecondRun);
     }
 
+    @Test
+    public void testCacheIsPersistedAfterEachAudit() throws Exception {
+        final Checker checker = new Checker();
+        final PackageObjectFactory factory = new PackageObjectFactory(
+            new HashSet<String>(), Thread.currentThread().getContextClassLoader());
+        checker.setModuleFactory(factory);
+        checker.configure(createModuleConfig(TranslationCheck.class));
+        final File cacheFile = temporaryFolder.newFile();
+        checker.setCacheFile(cacheFile.getPath());
+        checker.setupChild(createModuleConfig(TranslationCheck.class));
+        final File tmpFile = temporaryFolder.newFile("file.java");
+
+        checker.process(Collections.singletonList(tmpFile));
+
+        // the checker is not destroyed, as in watch mode which is ended by the user
+        final Properties cache = new Properties();
+        cache.load(Files7.newBufferedReader(new Path(cacheFile)));
+        assertEquals("Cache should contain the configuration and the processed file",
+                2, cache.size());
+    }
+
     @Test
     public void testWithCacheWithNoViolation() throws Exception {
         final Checker checker = new Checker();
@@ -559,7 +593,7 @@ public class CheckerTest extends AbstractModuleTestSupport {
         assertEquals("Cache has unexpected size",
                 expectedNumberOfObjectsInCache, cache.size());
 
-        final String expectedConfigHash = "B8535A811CA90BE8B7A14D40BCA62B4FC2447B46";
+        final String expectedConfigHash = "55A72E0E1CF89F4DA9E0D3EA71873942242B4AE4";
         assertEquals("Cache has unexpected hash",
                 expectedConfigHash, cache.getProperty(PropertyCacheFile.CONFIG_HASH_KEY));
 
@@ -627,7 +661,7 @@ public class CheckerTest extends AbstractModuleTestSupport {
         checker.process(Collections.singletonList(new File("dummy.java")));
         checker.clearCache();
         // invoke destroy to persist cache
-        final PropertyCacheFile cache = Whitebox.getInternalState(checker, "cacheFile");
+        final PropertyCacheFile cache = getCacheFile(checker);
         cache.persist();
 
         final Properties cacheAfterClear = new Properties();
@@ -641,7 +675,8 @@ public class CheckerTest extends AbstractModuleTestSupport {
     public void setFileExtension() {
         final Checker checker = new Checker();
         checker.setFileExtensions(".test1", "test2");
-        final String[] actual = Whitebox.getInternalState(checker, "fileExtensions");
+        final FileAuditor auditor = Whitebox.getInternalState(checker, "auditor");
+        final String[] actual = Whitebox.getInternalState(auditor, "fileExtensions");
         assertArrayEquals("Extensions are not expected",
                 new String[] {".test1", ".test2"}, actual);
     }
@@ -653,7 +688,7 @@ public class CheckerTest extends AbstractModuleTestSupport {
         final Checker checker = new Checker();
         checker.clearCache();
         assertNull("If cache file is not set the cache should default to null",
-            Whitebox.getInternalState(checker, "cacheFile"));
+            getCacheFile(checker));
     }
 
     @Test
@@ -664,11 +699,11 @@ public class CheckerTest extends AbstractModuleTestSupport {
         // we catch errors in 'processFiles' method. Most such errors are abnormal conditions,
         // that is why we use PowerMockito to reproduce them.
         final File mock = PowerMockito.mock(File.class);
-        // Assume that I/O error is happened when we try to invoke 'lastModified()' method.
+        // Assume that I/O error is happened when we try to invoke 'getAbsolutePath()' method.
         final String errorMessage = "Java Virtual Machine is broken"
             + " or has run out of resources necessary for it to continue operating.";
         final Error expectedError = new IOError(new InternalError(errorMessage));
-        when(mock.lastModified()).thenThrow(expectedError);
+        when(mock.getAbsolutePath()).thenThrow(expectedError);
         final Checker checker = new Checker();
         final List<File> filesToProcess = new ArrayList<File>();
         filesToProcess.add(mock);
@@ -767,7 +802,7 @@ public class CheckerTest extends AbstractModuleTestSupport {
         final Properties cacheAfterFirstRun = new Properties();
         cacheAfterFirstRun.load(Files7.newBufferedReader(new Path(cacheFile)));
 
-        final int expectedNumberOfObjectsInCacheAfterFirstRun = 4;
+        final int expectedNumberOfObjectsInCacheAfterFirstRun = 5;
         assertEquals("Number of items in cache differs from expected",
                 expectedNumberOfObjectsInCacheAfterFirstRun, cacheAfterFirstRun.size());
 
@@ -799,7 +834,7 @@ public class CheckerTest extends AbstractModuleTestSupport {
         );
         assertNotNull("Cache has null as a resource key",
                 cacheAfterFirstRun.getProperty(firstExternalResourceKey));
-        final int expectedNumberOfObjectsInCacheAfterSecondRun = 4;
+        final int expectedNumberOfObjectsInCacheAfterSecondRun = 5;
         assertEquals("Number of items in cache differs from expected",
                 expectedNumberOfObjectsInCacheAfterSecondRun, cacheAfterSecondRun.size());
         assertNull("Cache has not null as a resource key",
@@ -858,6 +893,374 @@ public class CheckerTest extends AbstractModuleTestSupport {
         }
     }
 
+    @Test
+    public void testCacheByContent() throws Exception {
+        final DefaultConfiguration checkerConfig = createRootConfig(null);
+        final File cacheFile = temporaryFolder.newFile();
+        checkerConfig.addAttribute("cacheFile", cacheFile.getPath());
+        checkerConfig.addAttribute("cacheByContent", "true");
+        final File file = temporaryFolder.newFile("file.java");
+        Files.write("class File {}".getBytes(StandardCharsets.UTF_8.name()), file);
+        assertTrue("Modification time should be set", file.setLastModified(1000000));
+        final List<File> files = Collections.singletonList(file);
+
+        final DummyFileSet firstFileSet = processWithCache(checkerConfig, files);
+        final Properties cache = new Properties();
+        cache.load(Files7.newBufferedReader(new Path(cacheFile)));
+
+        assertEquals("File should be processed first time",
+                Arrays.asList("beginProcessing", "processFiltered", "finishProcessing",
+                        "destroy"),
+                firstFileSet.getMethodCalls());
+        assertEquals("Cache should contain hash of file content",
+                new FileContentHasher(1).hash(files).get(file.getAbsolutePath()),
+                cache.getProperty(file.getAbsolutePath()));
+
+        assertTrue("Modification time should be set", file.setLastModified(2000000));
+        final DummyFileSet secondFileSet = processWithCache(checkerConfig, files);
+
+        assertEquals("Touched file should not be processed again",
+                Arrays.asList("beginProcessing", "finishProcessing", "destroy"),
+                secondFileSet.getMethodCalls());
+    }
+
+    @Test
+    public void testResultCacheDirectory() throws Exception {
+        final DefaultConfiguration checkerConfig = createRootConfig(null);
+        final File resultCacheDirectory = temporaryFolder.newFolder();
+        checkerConfig.addAttribute("resultCacheDirectory", resultCacheDirectory.getPath());
+        final File file = temporaryFolder.newFile("file.java");
+        Files.write("class File {}".getBytes(StandardCharsets.UTF_8.name()), file);
+        final List<File> files = Collections.singletonList(file);
+
+        final DummyFileSet firstFileSet = processWithCache(checkerConfig, files);
+        assertEquals("File should be processed first time",
+                Arrays.asList("beginProcessing", "processFiltered", "finishProcessing",
+                        "destroy"),
+                firstFileSet.getMethodCalls());
+        assertEquals("Result should be stored", 1, resultCacheDirectory.list().length);
+
+        assertTrue("Modification time should be set", file.setLastModified(2000000));
+        final DummyFileSet secondFileSet = processWithCache(checkerConfig, files);
+        assertEquals("Unchanged file should not be processed again",
+                Arrays.asList("beginProcessing", "finishProcessing", "destroy"),
+                secondFileSet.getMethodCalls());
+
+        Files.write("class Changed {}".getBytes(StandardCharsets.UTF_8.name()), file);
+        final DummyFileSet thirdFileSet = processWithCache(checkerConfig, files);
+        assertEquals("Changed file should be processed",
+                Arrays.asList("beginProcessing", "processFiltered", "finishProcessing",
+                        "destroy"),
+                thirdFileSet.getMethodCalls());
+    }
+
+    @Test
+    public void testResultCacheDirectoryWithAnotherBuild() throws Exception {
+        final DefaultConfiguration checkerConfig = createRootConfig(null);
+        final File resultCacheDirectory = temporaryFolder.newFolder();
+        checkerConfig.addAttribute("resultCacheDirectory", resultCacheDirectory.getPath());
+        final File file = temporaryFolder.newFile("file.java");
+        Files.write("class File {}".getBytes(StandardCharsets.UTF_8.name()), file);
+        final List<File> files = Collections.singletonList(file);
+        processWithCache(checkerConfig, files);
+
+        final Map<String, String> fingerprints =
+                Whitebox.getInternalState(CacheHasher.class, "CODE_SOURCE_FINGERPRINTS");
+        final String location =
+                Checker.class.getProtectionDomain().getCodeSource().getLocation().toString();
+        final String fingerprint = fingerprints.get(location);
+        assertNotNull("Fingerprint of Checkstyle code should be calculated", fingerprint);
+        fingerprints.put(location, "another build");
+        try {
+            final DummyFileSet fileSet = processWithCache(checkerConfig, files);
+            assertEquals("File should be processed by another build",
+                    Arrays.asList("beginProcessing", "processFiltered", "finishProcessing",
+                            "destroy"),
+                    fileSet.getMethodCalls());
+        }
+        finally {
+            fingerprints.put(location, fingerprint);
+        }
+
+        final DummyFileSet fileSet = processWithCache(checkerConfig, files);
+        assertEquals("File should not be processed by the same build again",
+                Arrays.asList("beginProcessing", "finishProcessing", "destroy"),
+                fileSet.getMethodCalls());
+    }
+
+    @Test
+    public void testCacheWithFilesReadOnce() throws Exception {
+        final File file = temporaryFolder.newFile("file.java");
+        Files.write("class File {}".getBytes(StandardCharsets.UTF_8.name()), file);
+        final byte[] fileList = (file.getPath() + "\n").getBytes(StandardCharsets.UTF_8.name());
+
+        for (String cacheByContent : new String[] {"false", "true"}) {
+            final DefaultConfiguration checkerConfig = createRootConfig(null);
+            final File cacheFile = temporaryFolder.newFile();
+            checkerConfig.addAttribute("cacheFile", cacheFile.getPath());
+            checkerConfig.addAttribute("cacheByContent", cacheByContent);
+
+            final DummyFileSet fileSet = processWithCache(checkerConfig,
+                    new FileListReader(new ByteArrayInputStream(fileList), true, false));
+            final Properties cache = new Properties();
+            cache.load(Files7.newBufferedReader(new Path(cacheFile)));
+
+            assertEquals("File should be processed",
+                    Arrays.asList("beginProcessing", "processFiltered", "finishProcessing",
+                            "destroy"),
+                    fileSet.getMethodCalls());
+            assertNotNull("Cache should contain file",
+                    cache.getProperty(file.getAbsolutePath()));
+        }
+    }
+
+    private static DummyFileSet processWithCache(Configuration checkerConfig, List<File> files)
+            throws Exception {
+        final DummyFileSet fileSet = new DummyFileSet();
+        final Checker checker = new Checker();
+        checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+        checker.configure(checkerConfig);
+        checker.addFileSetCheck(fileSet);
+        checker.process(files);
+        // invoke destroy to persist cache
+        checker.destroy();
+        return fileSet;
+    }
+
+    @Test
+    public void testCacheReplaysViolations() throws Exception {
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createModuleConfig(TodoCommentCheck.class));
+        final DefaultConfiguration checkerConfig = createRootConfig(treeWalkerConfig);
+        final File cacheFile = temporaryFolder.newFile();
+        checkerConfig.addAttribute("cacheFile", cacheFile.getPath());
+
+        final File file = temporaryFolder.newFile("file.java");
+        writeWithTimestamp(file, "class File { // TODO: fix\n}\n");
+        final String[] expected = {
+            "1: " + getCheckMessage(TodoCommentCheck.class, TodoCommentCheck.MSG_KEY, "TODO:"),
+        };
+        verify(checkerConfig, file.getPath(), expected);
+
+        final Properties cache = new Properties();
+        cache.load(Files7.newBufferedReader(new Path(cacheFile)));
+        assertNotNull("File with violations should be in cache",
+                cache.getProperty(file.getAbsolutePath()));
+        assertNotNull("Violations should be in cache", cache.getProperty(
+                PropertyCacheFile.VIOLATIONS_KEY_PREFIX + file.getAbsolutePath()));
+
+        // the file looks unchanged, so it is not processed and its violations are replayed
+        writeWithTimestamp(file, "class File {\n}\n");
+        verify(checkerConfig, file.getPath(), expected);
+    }
+
+    @Test
+    public void testBinaryCacheFile() throws Exception {
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createModuleConfig(TodoCommentCheck.class));
+        final DefaultConfiguration checkerConfig = createRootConfig(treeWalkerConfig);
+        final File cacheFile = temporaryFolder.newFile();
+        checkerConfig.addAttribute("cacheFile", cacheFile.getPath());
+        checkerConfig.addAttribute("binaryCacheFile", "true");
+
+        final File file = temporaryFolder.newFile("file.java");
+        writeWithTimestamp(file, "class File { // TODO: fix\n}\n");
+        final String[] expected = {
+            "1: " + getCheckMessage(TodoCommentCheck.class, TodoCommentCheck.MSG_KEY, "TODO:"),
+        };
+        verify(checkerConfig, file.getPath(), expected);
+        assertTrue("Cache file should be binary", BinaryCacheStore.isBinary(cacheFile));
+
+        writeWithTimestamp(file, "class File {\n}\n");
+        verify(checkerConfig, file.getPath(), expected);
+    }
+
+    @Test
+    public void testCacheByModule() throws Exception {
+        final File cacheFile = temporaryFolder.newFile();
+        final File file = temporaryFolder.newFile("file.java");
+        writeWithTimestamp(file, "class File { // TODO: fix\n}\n");
+        final String[] expected = {
+            "1: " + getCheckMessage(FileLengthCheck.class, FileLengthCheck.MSG_KEY, 2, 1),
+            "1: " + getCheckMessage(TodoCommentCheck.class, TodoCommentCheck.MSG_KEY, "TODO:"),
+        };
+        verify(createCacheByModuleConfig(cacheFile, "1", "TODO:"), file.getPath(), expected);
+
+        final Properties cache = new Properties();
+        cache.load(Files7.newBufferedReader(new Path(cacheFile)));
+        assertNotNull("Modules should be in cache", cache.getProperty(
+                PropertyCacheFile.MODULES_KEY_PREFIX + file.getAbsolutePath()));
+
+        // the file looks unchanged, so only the changed module is executed
+        writeWithTimestamp(file, "class File {\n}\n");
+        final String[] expectedTodo = {
+            "1: " + getCheckMessage(TodoCommentCheck.class, TodoCommentCheck.MSG_KEY, "TODO:"),
+        };
+        verify(createCacheByModuleConfig(cacheFile, "5", "TODO:"), file.getPath(),
+                expectedTodo);
+        verify(createCacheByModuleConfig(cacheFile, "5", "TODO:"), file.getPath(),
+                expectedTodo);
+
+        verify(createCacheByModuleConfig(cacheFile, "5", "FIXME:"), file.getPath());
+    }
+
+    @Test
+    public void testCacheByModuleWithSuppressWarnings() throws Exception {
+        final File cacheFile = temporaryFolder.newFile();
+        final File file = temporaryFolder.newFile("file.java");
+        writeWithTimestamp(file, "@SuppressWarnings(\"magicnumber\")\n"
+                + "class File { int a = 5; }\n");
+
+        verify(createSuppressWarningsConfig(cacheFile, "0"), file.getPath());
+        // the changed check is executed with the holder of suppressions,
+        // which holds the suppressions of another file before
+        final File otherFile = temporaryFolder.newFile("other.java");
+        writeWithTimestamp(otherFile, "class Other { }\n");
+        verify(createChecker(createSuppressWarningsConfig(cacheFile, "0, 1")),
+                new File[] {otherFile, file}, file.getPath());
+    }
+
+    @Test
+    public void testSuppressWarningsInMultiThreadMode() throws Exception {
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 6; i++) {
+            final File file = temporaryFolder.newFile("File" + i + ".java");
+            if (i % 2 == 0) {
+                writeWithTimestamp(file, "@SuppressWarnings(\"magicnumber\")\n"
+                        + "class File { int a = 5; }\n");
+            }
+            else {
+                writeWithTimestamp(file, "class File { int a = 5; }\n");
+            }
+            files.add(file);
+        }
+
+        final Checker singleThreadChecker = createChecker(
+                createSuppressWarningsConfig(ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE));
+        final int singleThreadErrors = singleThreadChecker.process(files);
+        singleThreadChecker.destroy();
+        final String singleThreadOutput = getStream().toString(StandardCharsets.UTF_8.name());
+        getStream().reset();
+
+        final Checker multiThreadChecker = createChecker(
+                createSuppressWarningsConfig(new ThreadModeSettings(2, 1)));
+        final int multiThreadErrors = multiThreadChecker.process(files);
+        multiThreadChecker.destroy();
+        final String multiThreadOutput = getStream().toString(StandardCharsets.UTF_8.name());
+
+        assertEquals("Invalid number of errors", 3, singleThreadErrors);
+        assertEquals("Invalid number of errors", singleThreadErrors, multiThreadErrors);
+        assertEquals("Output of multi thread mode differs from single thread mode",
+                singleThreadOutput, multiThreadOutput);
+    }
+
+    private static DefaultConfiguration createSuppressWarningsConfig(
+            ThreadModeSettings threadModeSettings) {
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createModuleConfig(SuppressWarningsHolder.class));
+        treeWalkerConfig.addChild(createModuleConfig(MagicNumberCheck.class));
+        final DefaultConfiguration checkerConfig =
+                new DefaultConfiguration("root", threadModeSettings);
+        checkerConfig.addChild(treeWalkerConfig);
+        checkerConfig.addChild(createModuleConfig(SuppressWarningsFilter.class));
+        return checkerConfig;
+    }
+
+    private static DefaultConfiguration createSuppressWarningsConfig(File cacheFile,
+            String ignoreNumbers) {
+        final DefaultConfiguration magicNumberConfig = createModuleConfig(MagicNumberCheck.class);
+        magicNumberConfig.addAttribute("ignoreNumbers", ignoreNumbers);
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createModuleConfig(SuppressWarningsHolder.class));
+        treeWalkerConfig.addChild(magicNumberConfig);
+        final DefaultConfiguration checkerConfig = createRootConfig(treeWalkerConfig);
+        checkerConfig.addChild(createModuleConfig(SuppressWarningsFilter.class));
+        checkerConfig.addAttribute("cacheFile", cacheFile.getPath());
+        checkerConfig.addAttribute("cacheByModule", "true");
+        return checkerConfig;
+    }
+
+    private static DefaultConfiguration createCacheByModuleConfig(File cacheFile,
+            String maxFileLength, String todoFormat) {
+        final DefaultConfiguration todoConfig = createModuleConfig(TodoCommentCheck.class);
+        todoConfig.addAttribute("format", todoFormat);
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(todoConfig);
+        final DefaultConfiguration fileLengthConfig = createModuleConfig(FileLengthCheck.class);
+        fileLengthConfig.addAttribute("max", maxFileLength);
+        final DefaultConfiguration checkerConfig = createRootConfig(treeWalkerConfig);
+        checkerConfig.addChild(fileLengthConfig);
+        checkerConfig.addAttribute("cacheFile", cacheFile.getPath());
+        checkerConfig.addAttribute("cacheByModule", "true");
+        return checkerConfig;
+    }
+
+    @Test
+    public void testCacheReplaysViolationsInMultiThreadMode() throws Exception {
+        final DefaultConfiguration checkerConfig = createThreadModeConfig(
+                new ThreadModeSettings(2, 1));
+        checkerConfig.addAttribute("cacheFile", temporaryFolder.newFile().getPath());
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 6; i++) {
+            final File file = temporaryFolder.newFile("File" + i + ".java");
+            if (i % 2 == 0) {
+                writeWithTimestamp(file, "class File {\n}\n");
+            }
+            else {
+                writeWithTimestamp(file, "class File {\n}");
+            }
+            files.add(file);
+        }
+
+        final Checker firstChecker = createChecker(checkerConfig);
+        final int firstErrors = firstChecker.process(files);
+        firstChecker.destroy();
+        final String firstOutput = getStream().toString(StandardCharsets.UTF_8.name());
+        getStream().reset();
+
+        for (File file : files) {
+            writeWithTimestamp(file, "class File {}");
+        }
+        final Checker secondChecker = createChecker(checkerConfig);
+        final int secondErrors = secondChecker.process(files);
+        secondChecker.destroy();
+        final String secondOutput = getStream().toString(StandardCharsets.UTF_8.name());
+
+        assertEquals("Invalid number of errors", 9, firstErrors);
+        assertEquals("Invalid number of replayed errors", firstErrors, secondErrors);
+        assertEquals("Replayed output differs", firstOutput, secondOutput);
+    }
+
+    private static void writeWithTimestamp(File file, String content) throws IOException {
+        Files.write(content.getBytes(StandardCharsets.UTF_8.name()), file);
+        assertTrue("Modification time should be set", file.setLastModified(1000000));
+    }
+
+    @Test
+    public void testAstCacheDirectory() throws Exception {
+        final DefaultConfiguration checkConfig = createModuleConfig(TodoCommentCheck.class);
+        checkConfig.addAttribute("format", "comment");
+
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(checkConfig);
+
+        final DefaultConfiguration checkerConfig = createRootConfig(treeWalkerConfig);
+        final File astCacheDirectory = temporaryFolder.newFolder();
+        checkerConfig.addAttribute("astCacheDirectory", astCacheDirectory.getPath());
+
+        final String filePath = getPath("InputChecker.java");
+        final String[] expected = {
+            "2: " + getCheckMessage(TodoCommentCheck.class, TodoCommentCheck.MSG_KEY, "comment"),
+        };
+
+        verify(checkerConfig, filePath, expected);
+        assertEquals("Tree should be stored", 1, astCacheDirectory.list().length);
+
+        // one more time to load the stored tree
+        verify(checkerConfig, filePath, expected);
+        assertEquals("Stored tree should be used", 1, astCacheDirectory.list().length);
+    }
+
     @Test
     public void testHaltOnException() throws Exception {
         final DefaultConfiguration checkConfig =
@@ -1103,6 +1506,76 @@ public class CheckerTest extends AbstractModuleTestSupport {
         checker.destroy();
     }
 
+    @Test
+    public void testMultiThreadModeProducesSameOutputAsSingleThreadMode() throws Exception {
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 20; i++) {
+            final File file = temporaryFolder.newFile("file" + i + ".java");
+            final StringBuilder content = new StringBuilder("class C" + i + " {}");
+            if (i % 3 == 0) {
+                content.append(System7.lineSeparator());
+            }
+            Files7.write(new Path(file),
+                    content.toString().getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+
+        final Checker singleThreadChecker =
+                createChecker(createThreadModeConfig(ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE));
+        final int singleThreadErrors = singleThreadChecker.process(files);
+        singleThreadChecker.destroy();
+        final String singleThreadOutput = getStream().toString(StandardCharsets.UTF_8.name());
+        getStream().reset();
+
+        GlobalStatefulFileSetCheck.THREADS.clear();
+        final Checker multiThreadChecker =
+                createChecker(createThreadModeConfig(new ThreadModeSettings(4, 1)));
+        final int multiThreadErrors = multiThreadChecker.process(files);
+        multiThreadChecker.destroy();
+        final String multiThreadOutput = getStream().toString(StandardCharsets.UTF_8.name());
+
+        assertEquals("Invalid number of errors", singleThreadErrors, multiThreadErrors);
+        assertEquals("Output of multi thread mode differs from single thread mode",
+                singleThreadOutput, multiThreadOutput);
+        assertEquals("Global stateful check must be executed in the calling thread",
+                Collections.singleton(Thread.currentThread()),
+                new HashSet<Thread>(GlobalStatefulFileSetCheck.THREADS));
+        assertEquals("Global stateful check must process every file",
+                files.size(), GlobalStatefulFileSetCheck.THREADS.size());
+    }
+
+    @Test
+    public void testMultiThreadModeWithException() throws Exception {
+        final DefaultConfiguration checkerConfig =
+                new DefaultConfiguration("root", new ThreadModeSettings(2, 1));
+        checkerConfig.addChild(createModuleConfig(ExceptionFileSetCheck.class));
+        final Checker checker = createChecker(checkerConfig);
+        final File file = temporaryFolder.newFile("file.java");
+
+        try {
+            checker.process(Collections.singletonList(file));
+            fail("Exception is expected");
+        }
+        catch (CheckstyleException ex) {
+            assertEquals("Invalid exception message",
+                    "Exception was thrown while processing " + file.getPath(), ex.getMessage());
+            assertEquals("Invalid exception cause message",
+                    "test", ex.getCause().getMessage());
+        }
+    }
+
+    private static DefaultConfiguration createThreadModeConfig(
+            ThreadModeSettings threadModeSettings) {
+        final DefaultConfiguration checkerConfig =
+                new DefaultConfiguration("root", threadModeSettings);
+        checkerConfig.addChild(createModuleConfig(NewlineAtEndOfFileCheck.class));
+        checkerConfig.addChild(createModuleConfig(GlobalStatefulFileSetCheck.class));
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createModuleConfig(HiddenFieldCheck.class));
+        checkerConfig.addChild(treeWalkerConfig);
+        return checkerConfig;
+    }
+
     private static class DummyFilter implements Filter {
 
         @Override
@@ -1129,6 +1602,31 @@ public class CheckerTest extends AbstractModuleTestSupport {
 
     }
 
+    @GlobalStatefulCheck
+    private static class GlobalStatefulFileSetCheck extends AbstractFileSetCheck {
+
+        private static final List<Thread> THREADS =
+                Collections.synchronizedList(new ArrayList<Thread>());
+
+        @Override
+        protected void processFiltered(File file, FileText fileText) {
+            THREADS.add(Thread.currentThread());
+            if (fileText.size() > 0) {
+                log(1, "test");
+            }
+        }
+
+    }
+
+    private static class ExceptionFileSetCheck extends AbstractFileSetCheck {
+
+        @Override
+        protected void processFiltered(File file, FileText fileText) {
+            throw new IllegalStateException("test");
+        }
+
+    }
+
     private static class DummyFilterSet extends FilterSet implements ExternalResourceHolder {
 
         @Override
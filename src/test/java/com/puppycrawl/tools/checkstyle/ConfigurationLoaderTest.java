@@ -115,16 +115,16 @@ public class ConfigurationLoaderTest extends AbstractPathTestSupport {
         final ThreadModeSettings multiThreadModeSettings =
             new ThreadModeSettings(4, 2);
 
-        try {
-            ConfigurationLoader.loadConfiguration(
+        final DefaultConfiguration config =
+            (DefaultConfiguration) ConfigurationLoader.loadConfiguration(
                 configPath, propertiesExpander, multiThreadModeSettings);
-            fail("An exception is expected");
-        }
-        catch (IllegalArgumentException ex) {
-            assertEquals("Invalid exception message",
-                "Multi thread mode for Checker module is not implemented",
-                ex.getMessage());
-        }
+
+        final Properties attributes = new Properties();
+        attributes.setProperty("tabWidth", "4");
+        attributes.setProperty("basedir", "basedir");
+        verifyConfigNode(config, "Checker", 3, attributes);
+        assertEquals("Invalid thread mode settings",
+            multiThreadModeSettings, config.getThreadModeSettings());
     }
 
     @Test
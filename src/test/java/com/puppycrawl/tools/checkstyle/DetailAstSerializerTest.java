@@ -0,0 +1,190 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.internal.utils.TestUtil;
+
+public class DetailAstSerializerTest extends AbstractPathTestSupport {
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/puppycrawl/tools/checkstyle/javaparser";
+    }
+
+    @Test
+    public void testIsProperUtilsClass() throws Exception {
+        assertTrue("Constructor is not private", TestUtil.isUtilsClassHasPrivateConstructor(
+            DetailAstSerializer.class, false));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final DetailAST root = JavaParser.parseFile(
+                new File(getPath("InputJavaParserHiddenComments.java")),
+                JavaParser.Options.WITHOUT_COMMENTS);
+
+        final DetailAST copy = read(write(root));
+
+        assertEquals("Tree should be restored", toText(root), toText(copy));
+        assertEquals("Hidden comments should be restored",
+                toText(JavaParser.appendHiddenCommentNodes(root)),
+                toText(JavaParser.appendHiddenCommentNodes(copy)));
+    }
+
+    @Test
+    public void testRoundTripOfTreeWithComments() throws Exception {
+        final DetailAST root = JavaParser.parseFile(
+                new File(getPath("InputJavaParserHiddenComments.java")),
+                JavaParser.Options.WITH_COMMENTS);
+
+        assertEquals("Tree with comments should be restored",
+                toText(root), toText(read(write(root))));
+    }
+
+    @Test
+    public void testEmptyTree() throws Exception {
+        assertNull("Empty tree should be restored", read(write(null)));
+    }
+
+    @Test
+    public void testTruncatedInput() throws Exception {
+        final DetailAST root = JavaParser.parseFile(
+                new File(getPath("InputJavaParserHiddenComments.java")),
+                JavaParser.Options.WITHOUT_COMMENTS);
+        final byte[] bytes = write(root);
+
+        try {
+            read(Arrays.copyOf(bytes, bytes.length - 1));
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertTrue("Truncated input should fail", ex.getMessage() == null
+                    || ex.getMessage().startsWith("Invalid"));
+        }
+    }
+
+    @Test
+    public void testInvalidReference() throws Exception {
+        // zigzag encoded: no texts, no tokens, one node which refers to a missing text
+        final byte[] bytes = {0, 0, 2, 0, 0, 2, 0, 0, 0, 0};
+
+        try {
+            read(bytes);
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message",
+                    "Invalid text reference 1", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidStructure() throws Exception {
+        // zigzag encoded: no texts, no tokens, one node which has a missing first child
+        final byte[] bytes = {0, 0, 2, 2, 0, 0, 0, 0, 0, 0};
+
+        try {
+            read(bytes);
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message", "Invalid tree structure", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidLength() throws Exception {
+        // the number of texts is -1 in zigzag encoding
+        final byte[] bytes = {1};
+
+        try {
+            read(bytes);
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message", "Invalid length -1", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testLengthExceedsInput() throws Exception {
+        // the number of texts is 100 in zigzag encoding, more than the input has bytes
+        final byte[] bytes = {(byte) 0xC8, 1};
+
+        try {
+            read(bytes);
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message", "Invalid length 100", ex.getMessage());
+        }
+    }
+
+    private static byte[] write(DetailAST root) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        DetailAstSerializer.write(root, output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static DetailAST read(byte[] bytes) throws IOException {
+        return DetailAstSerializer.read(new DataInputStream(new ByteArrayInputStream(bytes)),
+                bytes.length);
+    }
+
+    private static String toText(DetailAST root) {
+        final StringBuilder result = new StringBuilder(1024);
+        appendText(root, 0, result);
+        return result.toString();
+    }
+
+    private static void appendText(DetailAST ast, int depth, StringBuilder result) {
+        for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+            for (DetailAST child = node.getFirstChild(); child != null;
+                    child = child.getNextSibling()) {
+                assertSame("Invalid parent", node, child.getParent());
+            }
+            result.append(depth).append(' ').append(node.getType()).append(' ')
+                .append(node.getText()).append(' ').append(node.getLineNo()).append(':')
+                .append(node.getColumnNo()).append(' ').append(node.getChildCount())
+                .append('\n');
+            appendText(node.getFirstChild(), depth + 1, result);
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+public class FileContentHasherTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSameContentHasSameHash() throws Exception {
+        final File first = createFile("class Input {}");
+        final File second = createFile("class Input {}");
+
+        final Map<String, String> hashes =
+                new FileContentHasher(1).hash(Arrays.asList(first, second));
+
+        assertEquals("Invalid number of hashes", 2, hashes.size());
+        assertEquals("Same content should have same hash",
+                hashes.get(first.getAbsolutePath()), hashes.get(second.getAbsolutePath()));
+        assertEquals("Invalid hash", "DA39A3EE5E6B4B0D3255BFEF95601890AFD80709",
+                new FileContentHasher(1).hash(Arrays.asList(createFile("")))
+                    .values().iterator().next());
+    }
+
+    @Test
+    public void testChangedContentHasDifferentHash() throws Exception {
+        final File file = createFile("class Input {}");
+        final List<File> files = Arrays.asList(file);
+        final String hash = new FileContentHasher(1).hash(files).get(file.getAbsolutePath());
+        Files.write("class Input { }".getBytes(StandardCharsets.UTF_8.name()), file);
+
+        assertNotEquals("Changed content should have different hash",
+                hash, new FileContentHasher(1).hash(files).get(file.getAbsolutePath()));
+    }
+
+    @Test
+    public void testMissingFileHasNoHash() throws Exception {
+        final File missing = new File(temporaryFolder.getRoot(), "Missing.java");
+
+        final Map<String, String> hashes =
+                new FileContentHasher(2).hash(Arrays.asList(missing, createFile("")));
+
+        assertEquals("Invalid number of hashes", 1, hashes.size());
+        assertFalse("Missing file should not have hash",
+                hashes.containsKey(missing.getAbsolutePath()));
+    }
+
+    @Test
+    public void testParallelHashesAreSameAsSequential() throws Exception {
+        final List<File> files = new ArrayList<File>();
+        for (int i = 0; i < 10; i++) {
+            files.add(createFile("class Input" + i + " {}"));
+        }
+
+        final Map<String, String> hashes = new FileContentHasher(4).hash(files);
+
+        assertEquals("Parallel hashes should be same as sequential",
+                new FileContentHasher(1).hash(files), hashes);
+        assertTrue("All files should have hashes", hashes.size() == files.size());
+    }
+
+    private File createFile(String content) throws Exception {
+        final File file = temporaryFolder.newFile();
+        Files.write(content.getBytes(StandardCharsets.UTF_8.name()), file);
+        return file;
+    }
+
+}
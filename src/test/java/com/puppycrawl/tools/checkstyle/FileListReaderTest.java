@@ -0,0 +1,198 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+public class FileListReaderTest {
+
+    @Test
+    public void testLineSeparated() {
+        final FileListReader reader = createReader("a/A.java\n\nb/B.java\r\nC.java", false);
+
+        assertEquals("Invalid files", Arrays.asList(new File("a/A.java"),
+                new File("b/B.java"), new File("C.java")), readFiles(reader));
+    }
+
+    @Test
+    public void testNulSeparated() {
+        final FileListReader reader = createReader("a/A\n.java\0\0b/B.java\0", true);
+
+        assertEquals("Invalid files", Arrays.asList(new File("a/A\n.java"),
+                new File("b/B.java")), readFiles(reader));
+    }
+
+    @Test
+    public void testIsEmpty() {
+        final FileListReader reader = createReader("\nA.java\n", false);
+
+        assertFalse("List should not be empty", reader.isEmpty());
+        assertEquals("File read by isEmpty should be kept",
+                Arrays.asList(new File("A.java")), readFiles(reader));
+        assertTrue("Empty list should be empty", createReader("\n\n", false).isEmpty());
+    }
+
+    @Test
+    public void testIteratedOnce() {
+        final FileListReader reader = createReader("A.java", false);
+        final Iterator<File> iterator = reader.iterator();
+
+        assertEquals("Invalid file", new File("A.java"), iterator.next());
+        assertFalse("Iterator should have no more files", iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Exception is expected");
+        }
+        catch (NoSuchElementException ex) {
+            assertEquals("Invalid exception message", null, ex.getMessage());
+        }
+        try {
+            iterator.remove();
+            fail("Exception is expected");
+        }
+        catch (UnsupportedOperationException ex) {
+            assertEquals("Invalid exception message", "remove", ex.getMessage());
+        }
+        try {
+            reader.iterator();
+            fail("Exception is expected");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("Invalid exception message",
+                    "The list of files can be iterated only once", ex.getMessage());
+        }
+        try {
+            reader.isEmpty();
+            fail("Exception is expected");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("Invalid exception message",
+                    "The list of files is already iterated", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnsupportedMethods() {
+        final FileListReader reader = createReader("A.java", false);
+        try {
+            reader.size();
+            fail("Exception is expected");
+        }
+        catch (UnsupportedOperationException ex) {
+            assertEquals("Invalid exception message", "size", ex.getMessage());
+        }
+        try {
+            reader.get(0);
+            fail("Exception is expected");
+        }
+        catch (UnsupportedOperationException ex) {
+            assertEquals("Invalid exception message", "get", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testStreamClosed() {
+        final boolean[] closed = new boolean[2];
+        for (int i = 0; i < closed.length; i++) {
+            final int index = i;
+            final InputStream stream = new ByteArrayInputStream(new byte[0]) {
+                @Override
+                public void close() {
+                    closed[index] = true;
+                }
+            };
+            readFiles(new FileListReader(stream, i == 0, false));
+        }
+
+        assertTrue("Stream should be closed", closed[0]);
+        assertFalse("Stream should not be closed", closed[1]);
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        final boolean[] closed = new boolean[1];
+        final InputStream stream = new ByteArrayInputStream(
+                "A.java\nB.java".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        final FileListReader reader = new FileListReader(stream, true, false);
+        assertFalse("List should not be empty", reader.isEmpty());
+
+        reader.close();
+
+        assertTrue("Stream should be closed", closed[0]);
+        assertEquals("Closed list should have no more files",
+                new ArrayList<File>(), readFiles(reader));
+    }
+
+    @Test
+    public void testReadError() {
+        final InputStream stream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("error");
+            }
+        };
+        final FileListReader reader = new FileListReader(stream, true, false);
+        try {
+            reader.isEmpty();
+            fail("Exception is expected");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("Invalid exception message", "Unable to read the list of files",
+                    ex.getMessage());
+            assertEquals("Invalid exception cause", "error", ex.getCause().getMessage());
+        }
+    }
+
+    private static List<File> readFiles(FileListReader reader) {
+        final List<File> result = new ArrayList<File>();
+        for (File file : reader) {
+            result.add(file);
+        }
+        return result;
+    }
+
+    private static FileListReader createReader(String content, boolean nulSeparated) {
+        return new FileListReader(new ByteArrayInputStream(
+                content.getBytes(StandardCharsets.UTF_8)), true, nulSeparated);
+    }
+
+}
@@ -0,0 +1,189 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileWalkerTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWalk() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        for (int i = 0; i < 5; i++) {
+            createFile(root, "a" + i + "/b/C" + i + ".java");
+            createFile(root, "a" + i + "/D" + i + ".java");
+            createFile(root, "E" + i + ".java");
+        }
+        final File file = createFile(root, "a0/F.java");
+        final List<File> expected = new ArrayList<File>();
+        addFiles(root, expected);
+        expected.add(file);
+
+        final List<File> iterated = new ArrayList<File>();
+        for (File found : new FileWalker(Arrays.asList(root, file),
+                Collections.<Pattern>emptyList())) {
+            iterated.add(found);
+        }
+        assertEquals("Files should be in the order of a single threaded walk",
+                expected, iterated);
+
+        final FileWalker walker = new FileWalker(Arrays.asList(root, file),
+                Collections.<Pattern>emptyList());
+        assertEquals("Invalid file", expected.get(3), walker.get(3));
+        assertEquals("Invalid size", expected.size(), walker.size());
+        assertEquals("Invalid files", expected, walker);
+    }
+
+    @Test
+    public void testExclusions() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File file = createFile(root, "A.java");
+        createFile(root, "excluded/B.java");
+        final List<Pattern> exclusions = Collections.singletonList(Pattern.compile(
+                "^" + Pattern.quote(new File(root, "excluded").getAbsolutePath()) + "$"));
+
+        assertEquals("Excluded directories should not be walked",
+                Collections.singletonList(file),
+                new FileWalker(Collections.singletonList(root), exclusions));
+        assertTrue("Excluded roots should not be walked", new FileWalker(
+                Collections.singletonList(new File(root, "excluded")), exclusions).isEmpty());
+    }
+
+    @Test
+    public void testNotFile() {
+        final File fileMock = mock(File.class);
+        when(fileMock.canRead()).thenReturn(true);
+        when(fileMock.isDirectory()).thenReturn(false);
+        when(fileMock.isFile()).thenReturn(false);
+
+        final FileWalker walker = new FileWalker(Collections.singletonList(fileMock), null);
+        assertEquals("Invalid result size", 0, walker.size());
+    }
+
+    @Test
+    public void testDirectoryWithNull() {
+        final File fileMock = mock(File.class);
+        when(fileMock.canRead()).thenReturn(true);
+        when(fileMock.isDirectory()).thenReturn(true);
+        when(fileMock.listFiles()).thenReturn(null);
+
+        final FileWalker walker = new FileWalker(Collections.singletonList(fileMock),
+                Collections.<Pattern>emptyList());
+        assertEquals("Invalid result size", 0, walker.size());
+    }
+
+    @Test
+    public void testDirectoryWithException() {
+        final File fileMock = mock(File.class);
+        when(fileMock.canRead()).thenReturn(true);
+        when(fileMock.isDirectory()).thenReturn(true);
+        when(fileMock.listFiles()).thenThrow(new SecurityException("denied"));
+        when(fileMock.toString()).thenReturn("mock");
+
+        final FileWalker walker = new FileWalker(Collections.singletonList(fileMock),
+                Collections.<Pattern>emptyList());
+        try {
+            walker.isEmpty();
+            fail("Exception is expected");
+        }
+        catch (IllegalStateException ex) {
+            assertEquals("Invalid exception message", "Unable to list mock", ex.getMessage());
+            assertEquals("Invalid exception cause", "denied", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testEnd() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File file = createFile(root, "A.java");
+        final FileWalker walker = new FileWalker(Collections.singletonList(root),
+                Collections.<Pattern>emptyList());
+        final Iterator<File> iterator = walker.iterator();
+
+        assertTrue("Iterator should have a file", iterator.hasNext());
+        assertEquals("Invalid file", file, iterator.next());
+        try {
+            iterator.remove();
+            fail("Exception is expected");
+        }
+        catch (UnsupportedOperationException ex) {
+            assertEquals("Invalid exception message", "remove", ex.getMessage());
+        }
+        assertFalse("Iterator should have no more files", iterator.hasNext());
+        try {
+            iterator.next();
+            fail("Exception is expected");
+        }
+        catch (NoSuchElementException ex) {
+            assertEquals("Invalid exception message", null, ex.getMessage());
+        }
+        try {
+            walker.get(1);
+            fail("Exception is expected");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            assertEquals("Invalid exception message", "Index: 1, Size: 1", ex.getMessage());
+        }
+    }
+
+    private static void addFiles(File node, List<File> files) {
+        if (node.isDirectory()) {
+            for (File child : node.listFiles()) {
+                addFiles(child, files);
+            }
+        }
+        else {
+            files.add(node);
+        }
+    }
+
+    private static File createFile(File root, String name) throws IOException {
+        final File file = new File(root, name);
+        final File directory = file.getParentFile();
+        if (!directory.isDirectory()) {
+            assertTrue("Directory should be created", directory.mkdirs());
+        }
+        assertTrue("File should be created", file.createNewFile());
+        return file;
+    }
+
+}
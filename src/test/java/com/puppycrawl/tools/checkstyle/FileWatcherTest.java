@@ -0,0 +1,184 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentMatchers;
+
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.RootModule;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+public class FileWatcherTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testScan() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File first = writeFile(root, "A.java", "class A {}");
+        final File second = writeFile(root, "sub/B.java", "class B {}");
+        final File third = writeFile(root, "C.java", "class C {}");
+        final FileWatcher watcher = new FileWatcher(Collections.singletonList(root),
+                Collections.<Pattern>emptyList());
+
+        assertEquals("First scan should return all files",
+                Arrays.asList(first, third, second), watcher.scan());
+        assertEquals("Scan without modifications should return no files",
+                Collections.emptyList(), watcher.scan());
+
+        writeFile(root, "C.java", "class C { }");
+        final File added = writeFile(root, "sub/sub/D.java", "class D {}");
+        assertEquals("Scan should return modified and added files",
+                Arrays.asList(third, added), watcher.scan());
+        assertEquals("Scan without modifications should return no files",
+                Collections.emptyList(), watcher.scan());
+    }
+
+    @Test
+    public void testRemovedFiles() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File file = writeFile(root, "sub/A.java", "class A {}");
+        final FileWatcher watcher = new FileWatcher(Collections.singletonList(root),
+                Collections.<Pattern>emptyList());
+        watcher.scan();
+
+        assertTrue("File should be deleted", file.delete());
+        assertEquals("Scan should not return removed files",
+                Collections.emptyList(), watcher.scan());
+
+        writeFile(root, "sub/A.java", "class A {}");
+        assertEquals("Scan should return files which are added again",
+                Collections.singletonList(file), watcher.scan());
+    }
+
+    @Test
+    public void testFilesAndExclusions() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File file = writeFile(root, "A.java", "class A {}");
+        writeFile(root, "excluded/B.java", "class B {}");
+        final File missing = new File(root, "Missing.java");
+        final List<Pattern> exclusions = Collections.singletonList(
+                Pattern.compile("^" + Pattern.quote(new File(root, "excluded").getAbsolutePath())
+                        + "$"));
+        final FileWatcher watcher = new FileWatcher(Arrays.asList(root, file, missing),
+                exclusions);
+
+        assertEquals("Scan should return files once and skip excluded directories",
+                Collections.singletonList(file), watcher.scan());
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File file = writeFile(root, "A.java", "class A {}");
+        final FileWatcher watcher = new FileWatcher(Collections.singletonList(root),
+                Collections.<Pattern>emptyList());
+        watcher.scan();
+        final RootModule rootModule = mock(RootModule.class);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watcher.watch(rootModule, 10);
+                }
+                catch (InterruptedException ignored) {
+                    // expected at the end of the test
+                }
+                catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        thread.start();
+        try {
+            writeFile(root, "A.java", "class A { }");
+            verify(rootModule, timeout(5000)).process(Collections.singletonList(file));
+        }
+        finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testWatchContinuesAfterFailedAudit() throws Exception {
+        final File root = temporaryFolder.newFolder("root");
+        final File file = writeFile(root, "A.java", "class A {}");
+        final FileWatcher watcher = new FileWatcher(Collections.singletonList(root),
+                Collections.<Pattern>emptyList());
+        watcher.scan();
+        final RootModule rootModule = mock(RootModule.class);
+        when(rootModule.process(ArgumentMatchers.<File>anyList()))
+                .thenThrow(new CheckstyleException("audit failed")).thenReturn(0);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watcher.watch(rootModule, 10);
+                }
+                catch (InterruptedException ignored) {
+                    // expected at the end of the test
+                }
+            }
+        });
+        thread.start();
+        try {
+            writeFile(root, "A.java", "class A { }");
+            verify(rootModule, timeout(5000)).process(Collections.singletonList(file));
+            writeFile(root, "A.java", "class A {  }");
+            verify(rootModule, timeout(5000).times(2)).process(Collections.singletonList(file));
+        }
+        finally {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    private static File writeFile(File root, String name, String content) throws IOException {
+        final File file = new File(root, name);
+        final File directory = file.getParentFile();
+        if (!directory.isDirectory()) {
+            assertTrue("Directory should be created", directory.mkdirs());
+        }
+        Files7.write(new Path(file), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+}
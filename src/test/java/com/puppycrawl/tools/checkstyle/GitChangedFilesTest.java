@@ -0,0 +1,141 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.ByteStreams;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+public class GitChangedFilesTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testChangedFiles() throws Exception {
+        final File repository = temporaryFolder.newFolder("repository").getCanonicalFile();
+        git(repository, "init", "-q");
+        writeFile(repository, "Modified.java");
+        writeFile(repository, "Unchanged.java");
+        writeFile(repository, "Deleted.java");
+        git(repository, "add", ".");
+        commit(repository, "base");
+        git(repository, "tag", "base");
+
+        writeFile(repository, "Modified.java");
+        writeFile(repository, "sub/Added.java");
+        git(repository, "add", ".");
+        commit(repository, "change");
+        writeFile(repository, "Uncommitted.java");
+        git(repository, "add", "Uncommitted.java");
+        assertTrue("File should be deleted", new File(repository, "Deleted.java").delete());
+
+        final List<File> files = GitChangedFiles.getChangedFiles(
+                new File(repository, "sub"), "base");
+        assertEquals("Invalid changed files", Arrays.asList(
+                new File(repository, "Modified.java"),
+                new File(repository, "Uncommitted.java"),
+                new File(repository, "sub/Added.java")), files);
+    }
+
+    @Test
+    public void testDiffIgnoresFormatConfiguration() throws Exception {
+        final File repository = temporaryFolder.newFolder("repository").getCanonicalFile();
+        git(repository, "init", "-q");
+        git(repository, "config", "diff.noprefix", "true");
+        git(repository, "config", "diff.mnemonicPrefix", "true");
+        git(repository, "config", "diff.renames", "true");
+        git(repository, "config", "color.diff", "always");
+        writeFile(repository, "Renamed.java");
+        git(repository, "add", ".");
+        commit(repository, "base");
+        git(repository, "tag", "base");
+
+        writeFile(repository, "Modified.java");
+        git(repository, "mv", "Renamed.java", "New.java");
+        git(repository, "add", ".");
+        commit(repository, "change");
+
+        final String diff = GitChangedFiles.getDiff(repository, "base");
+        assertTrue("Diff should use the prefix of git: " + diff,
+                diff.contains("+++ b/Modified.java\n") && diff.contains("+++ b/New.java\n"));
+        assertTrue("Diff should not contain colors: " + diff, diff.indexOf('\033') < 0);
+    }
+
+    @Test
+    public void testUnknownRevision() throws Exception {
+        final File repository = temporaryFolder.newFolder("repository");
+        git(repository, "init", "-q");
+        writeFile(repository, "Test.java");
+        git(repository, "add", ".");
+        commit(repository, "base");
+
+        try {
+            GitChangedFiles.getChangedFiles(repository, "unknown");
+            fail("Exception is expected");
+        }
+        catch (CheckstyleException ex) {
+            assertTrue("Invalid exception message: " + ex.getMessage(),
+                    ex.getMessage().startsWith("Command '[git, merge-base, unknown, HEAD]' "
+                            + "failed with exit code "));
+        }
+    }
+
+    private static void commit(File repository, String message) throws Exception {
+        git(repository, "-c", "user.name=Test", "-c", "user.email=test@example.com",
+                "commit", "-q", "-m", message);
+    }
+
+    private static void git(File directory, String... arguments) throws Exception {
+        final String[] command = new String[arguments.length + 1];
+        command[0] = "git";
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+        final Process process = new ProcessBuilder(command).directory(directory)
+                .redirectErrorStream(true).start();
+        ByteStreams.toByteArray(process.getInputStream());
+        assertEquals("Command failed: " + Arrays.toString(command), 0, process.waitFor());
+    }
+
+    private static void writeFile(File repository, String name) throws IOException {
+        final File file = new File(repository, name);
+        final File directory = file.getParentFile();
+        if (!directory.isDirectory()) {
+            assertTrue("Directory should be created", directory.mkdirs());
+        }
+        Files7.write(new Path(file), (name + System.nanoTime())
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+}
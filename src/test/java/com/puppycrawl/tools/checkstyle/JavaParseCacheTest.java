@@ -0,0 +1,170 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+
+public class JavaParseCacheTest extends AbstractPathTestSupport {
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/puppycrawl/tools/checkstyle/javaparser";
+    }
+
+    @After
+    public void tearDown() {
+        JavaParseCache.close();
+    }
+
+    @Test
+    public void testNotSharedOutsideOfProcessing() throws Exception {
+        final FileText fileText = getFileText();
+
+        final JavaParseCache cache = JavaParseCache.forFileText(fileText);
+
+        assertNotSame("Cache should not be shared", cache,
+                JavaParseCache.forFileText(fileText));
+        assertEquals("Contents should have the file text",
+                fileText.getFullText().toString(),
+                cache.getContents().getText().getFullText().toString());
+    }
+
+    @Test
+    public void testSharedForSameFileText() throws Exception {
+        final FileText fileText = getFileText();
+        JavaParseCache.open(fileText, null);
+
+        final JavaParseCache cache = JavaParseCache.forFileText(fileText);
+
+        assertSame("Cache should be shared", cache, JavaParseCache.forFileText(fileText));
+        assertNotSame("Cache should not be shared for another text", cache,
+                JavaParseCache.forFileText(new FileText(fileText)));
+
+        JavaParseCache.close();
+        assertNotSame("Cache should not be shared after close", cache,
+                JavaParseCache.forFileText(fileText));
+    }
+
+    @Test
+    public void testTreesAreParsedOnce() throws Exception {
+        final JavaParseCache cache = JavaParseCache.forFileText(getFileText());
+
+        final DetailAST ast = cache.getAst();
+
+        assertSame("Tree should be parsed once", ast, cache.getAst());
+        assertFalse("Tree should not have comments", hasComments(ast));
+
+        final DetailAST astWithComments = cache.getAstWithComments();
+
+        assertSame("Tree with comments should be created once", astWithComments,
+                cache.getAstWithComments());
+        assertTrue("Tree should have comments", hasComments(astWithComments));
+        assertEquals("Comments should be reported to contents",
+                1, cache.getContents().getSingleLineComments().size());
+    }
+
+    @Test
+    public void testTreeWithoutCommentsIsCopiedOnDemand() throws Exception {
+        final JavaParseCache cache = JavaParseCache.forFileText(getFileText());
+        final DetailAST astWithComments = cache.getAstWithComments();
+
+        final DetailAST ast = cache.getAst();
+
+        assertNotSame("Trees should differ", ast, astWithComments);
+        assertSame("Tree should be copied once", ast, cache.getAst());
+        assertFalse("Tree should not have comments", hasComments(ast));
+        assertTrue("Tree should keep comments", hasComments(astWithComments));
+        assertEquals("Copy should have the same tree as the parsed tree",
+                JavaParser.parseFileText(getFileText(), JavaParser.Options.WITHOUT_COMMENTS)
+                        .toStringTree(),
+                ast.toStringTree());
+    }
+
+    @Test
+    public void testCommentNodesAreAppendedFromCollector() throws Exception {
+        final JavaParseCache cache = JavaParseCache.forFileText(getFileText());
+        final DetailAST ast = cache.getAst();
+        final JavaParser.HiddenCommentCollector collector =
+                new JavaParser.HiddenCommentCollector();
+        visitInPreOrder(ast, collector);
+
+        assertFalse("Comment nodes should not be appended yet",
+                cache.isCommentNodesAppended());
+        final DetailAST astWithComments = cache.getAstWithComments(collector);
+
+        assertTrue("Comment nodes should be appended", cache.isCommentNodesAppended());
+        assertSame("Tree with comments should be created once", astWithComments,
+                cache.getAstWithComments());
+        assertEquals("Collected comments should give the same tree as a traversal",
+                JavaParser.parseFileText(getFileText(), JavaParser.Options.WITH_COMMENTS)
+                        .toStringTree(),
+                astWithComments.toStringTree());
+    }
+
+    @Test
+    public void testEmptyFile() throws Exception {
+        final File file = new File(getPath("InputJavaParserHiddenComments.java"));
+        final JavaParseCache cache = JavaParseCache.forFileText(
+                new FileText(file, Collections.<String>emptyList()));
+
+        assertNull("Empty file should not have tree", cache.getAst());
+        assertNull("Empty file should not have tree", cache.getAstWithComments());
+    }
+
+    private FileText getFileText() throws Exception {
+        return new FileText(new File(getPath("InputJavaParserHiddenComments.java")),
+                StandardCharsets.UTF_8.name());
+    }
+
+    private static void visitInPreOrder(DetailAST ast,
+            JavaParser.HiddenCommentCollector collector) {
+        for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+            collector.visit(node);
+            visitInPreOrder(node.getFirstChild(), collector);
+        }
+    }
+
+    private static boolean hasComments(DetailAST ast) {
+        boolean result = false;
+        for (DetailAST node = ast; node != null && !result; node = node.getNextSibling()) {
+            result = node.getType() == TokenTypes.SINGLE_LINE_COMMENT
+                    || node.getType() == TokenTypes.BLOCK_COMMENT_BEGIN
+                    || hasComments(node.getFirstChild());
+        }
+        return result;
+    }
+
+}
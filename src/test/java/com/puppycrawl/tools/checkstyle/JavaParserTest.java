@@ -21,6 +21,8 @@ package com.puppycrawl.tools.checkstyle;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -97,6 +99,47 @@ public class JavaParserTest extends AbstractModuleTestSupport {
             commentContent.getText().startsWith(" inline comment"));
     }
 
+    @Test
+    public void testCopyWithoutCommentNodes() throws Exception {
+        final File file = new File(getPath("InputJavaParserHiddenComments.java"));
+        final DetailAST root = JavaParser.parseFile(file, JavaParser.Options.WITH_COMMENTS);
+        final String treeWithComments = toText(root);
+
+        final DetailAST copy = JavaParser.copyWithoutCommentNodes(root);
+
+        assertEquals("Copy should have the same tree as the tree without comments",
+                toText(JavaParser.parseFile(file, JavaParser.Options.WITHOUT_COMMENTS)),
+                toText(copy));
+        assertEquals("Copied tree should keep comments",
+                treeWithComments, toText(root));
+    }
+
+    @Test
+    public void testCopyWithoutCommentNodesOfEmptyTree() {
+        assertNull("Copy of empty tree should be empty",
+                JavaParser.copyWithoutCommentNodes(null));
+    }
+
+    private static String toText(DetailAST root) {
+        final StringBuilder result = new StringBuilder(1024);
+        appendText(root, 0, result);
+        return result.toString();
+    }
+
+    private static void appendText(DetailAST ast, int depth, StringBuilder result) {
+        for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+            for (DetailAST child = node.getFirstChild(); child != null;
+                    child = child.getNextSibling()) {
+                assertSame("Invalid parent", node, child.getParent());
+            }
+            result.append(depth).append(' ').append(node.getType()).append(' ')
+                .append(node.getText()).append(' ').append(node.getLineNo()).append(':')
+                .append(node.getColumnNo()).append(' ').append(node.getChildCount())
+                .append('\n');
+            appendText(node.getFirstChild(), depth + 1, result);
+        }
+    }
+
     /**
      * Could not find proper test case to test pitest mutations functionally.
      * Should be rewritten during grammar update.
@@ -0,0 +1,142 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.internal.utils.TestUtil;
+
+public class LocalizedMessageSerializerTest {
+
+    @Test
+    public void testIsProperUtilsClass() throws Exception {
+        assertTrue("Constructor is not private", TestUtil.isUtilsClassHasPrivateConstructor(
+            LocalizedMessageSerializer.class, false));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final SortedSet<LocalizedMessage> violations = new TreeSet<LocalizedMessage>();
+        violations.add(new LocalizedMessage(2, 3, 4, 5, "bundle", "key",
+                new Object[] {"argument", 1000}, SeverityLevel.WARNING, "id",
+                LocalizedMessageSerializerTest.class, "{0} ''{1}'' '{'"));
+        violations.add(new LocalizedMessage(1, "bundle", "key", null, null,
+                LocalizedMessageSerializerTest.class, ""));
+
+        final SortedSet<LocalizedMessage> restored = read(write(violations));
+
+        assertEquals("Invalid number of violations", 2, restored.size());
+        final LocalizedMessage first = restored.first();
+        assertEquals("Invalid message", "", first.getMessage());
+        assertEquals("Invalid module id", null, first.getModuleId());
+        final LocalizedMessage last = restored.last();
+        assertEquals("Invalid line", 2, last.getLineNo());
+        assertEquals("Invalid column", 3, last.getColumnNo());
+        assertEquals("Invalid column char index", 4, last.getColumnCharIndex());
+        assertEquals("Invalid token type", 5, last.getTokenType());
+        assertEquals("Invalid key", "key", last.getKey());
+        assertEquals("Invalid severity", SeverityLevel.WARNING, last.getSeverityLevel());
+        assertEquals("Invalid module id", "id", last.getModuleId());
+        assertEquals("Invalid source", LocalizedMessageSerializerTest.class.getName(),
+                last.getSourceName());
+        assertEquals("Invalid message", "argument '1,000' {", last.getMessage());
+    }
+
+    @Test
+    public void testInvalidNumberOfViolations() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(-1);
+        output.flush();
+
+        try {
+            read(bytes.toByteArray());
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message",
+                    "Invalid number of violations -1", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnknownSource() throws Exception {
+        final byte[] bytes = write(Collections.singleton(new LocalizedMessage(1, "bundle",
+                "key", null, null, LocalizedMessageSerializerTest.class, "message")));
+        final String name = LocalizedMessageSerializerTest.class.getName();
+        final String unknownName = name.replace("Test", "Tset");
+
+        try {
+            read(new String(bytes, "ISO-8859-1").replace(name, unknownName)
+                    .getBytes("ISO-8859-1"));
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message",
+                    "Unknown source of violation " + unknownName, ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidSeverity() throws Exception {
+        final byte[] bytes = write(Collections.singleton(new LocalizedMessage(1, "bundle",
+                "key", null, null, LocalizedMessageSerializerTest.class, "message")));
+
+        try {
+            read(new String(bytes, "ISO-8859-1").replace("error", "ERR0R")
+                    .getBytes("ISO-8859-1"));
+            fail("Exception is expected");
+        }
+        catch (IOException ex) {
+            assertEquals("Invalid exception message",
+                    "Invalid severity level ERR0R", ex.getMessage());
+        }
+    }
+
+    private static byte[] write(Collection<LocalizedMessage> violations) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        LocalizedMessageSerializer.write(violations, output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static SortedSet<LocalizedMessage> read(byte[] bytes) throws IOException {
+        return LocalizedMessageSerializer.read(
+                new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+    }
+
+}
@@ -25,9 +25,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
-import static org.powermock.api.mockito.PowerMockito.mock;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
-import static org.powermock.api.mockito.PowerMockito.when;
 
 import java.io.File;
 import java.io.IOException;
@@ -74,16 +72,28 @@ public class MainTest {
         + " -C,--checker-threads-number <arg>       (experimental) The number of Checker threads "
         + "(must be%n"
         + "                                         greater than zero)%n"
+        + "    --changed-lines                      Reports only violations on lines changed"
+        + " since the revision%n"
+        + "    --changed-since <arg>                Audits only files changed since the git"
+        + " revision%n"
         + " -d,--debug                              Print all debug logging of CheckStyle utility%n"
+        + "    --daemon <arg>                       Sends the audit to the daemon listening on the"
+        + " port%n"
+        + "    --diff <arg>                         Reports only violations on lines changed by"
+        + " the diff file%n"
         + " -e,--exclude <arg>                      Directory path to exclude from CheckStyle%n"
         + " -executeIgnoredModules                  Allows ignored modules to be run.%n"
         + " -f <arg>                                Sets the output format. (plain|xml). Defaults"
         + " to plain%n"
+        + "    --files-from <arg>                   Reads the files to audit from the file, - for"
+        + " stdin%n"
         + " -gxs,--generate-xpath-suppression       Generates to output a suppression.xml to use to"
         + " suppress%n"
         + "                                         all violations from user's config%n"
         + " -j,--javadocTree                        Print Parse tree of the Javadoc comment%n"
         + " -J,--treeWithJavadoc                    Print full Abstract Syntax Tree of the file%n"
+        + "    --null                               Separates the files of --files-from by NUL"
+        + " characters%n"
         + " -o <arg>                                Sets the output file. Defaults to stdout%n"
         + " -p <arg>                                Loads the properties file%n"
         + " -s <arg>                                Print xpath suppressions at the file's line "
@@ -93,6 +103,8 @@ public class MainTest {
         + "                                         by a : ) in the file that the suppression "
         + "should be%n"
         + "                                         generated for%n"
+        + "    --start-daemon <arg>                 Starts a daemon which runs audits of clients on"
+        + " the port%n"
         + " -t,--tree                               Print Abstract Syntax Tree(AST) of the file%n"
         + " -T,--treeWithComments                   Print Abstract Syntax Tree(AST) of the file"
         + " including%n"
@@ -104,6 +116,8 @@ public class MainTest {
         + " -W,--tree-walker-threads-number <arg>   (experimental) The number of TreeWalker threads"
         + " (must be%n"
         + "                                         greater than zero)%n"
+        + "    --watch <arg>                        Audits modified files again, polling every arg"
+        + " ms%n"
         + " -x,--exclude-regexp <arg>               Regular expression of directory to exclude from"
         + " CheckStyle%n");
 
@@ -626,37 +640,6 @@ public class MainTest {
                 getPath(""));
     }
 
-    @Test
-    @SuppressWarnings("unchecked")
-    public void testListFilesNotFile() throws Exception {
-        final Method method = Main.class.getDeclaredMethod("listFiles", File.class, List.class);
-        method.setAccessible(true);
-
-        final File fileMock = mock(File.class);
-        when(fileMock.canRead()).thenReturn(true);
-        when(fileMock.isDirectory()).thenReturn(false);
-        when(fileMock.isFile()).thenReturn(false);
-
-        final List<File> result = (List<File>) method.invoke(null, fileMock, null);
-        assertEquals("Invalid result size", 0, result.size());
-    }
-
-    @Test
-    @SuppressWarnings("unchecked")
-    public void testListFilesDirectoryWithNull() throws Exception {
-        final Method method = Main.class.getDeclaredMethod("listFiles", File.class, List.class);
-        method.setAccessible(true);
-
-        final File fileMock = mock(File.class);
-        when(fileMock.canRead()).thenReturn(true);
-        when(fileMock.isDirectory()).thenReturn(true);
-        when(fileMock.listFiles()).thenReturn(null);
-
-        final List<File> result = (List<File>) method.invoke(null, fileMock,
-                new ArrayList<Pattern>());
-        assertEquals("Invalid result size", 0, result.size());
-    }
-
     @Test
     public void testFileReferenceDuringException() throws Exception {
         exit.expectSystemExitWithStatus(-2);
@@ -1266,19 +1249,6 @@ public class MainTest {
         Main.main("-c", "/google_checks.xml", getFilePath(""), "-x", ".");
     }
 
-    @Test
-    @SuppressWarnings("unchecked")
-    public void testExcludeDirectoryNotMatch() throws Exception {
-        final Method method = Main.class.getDeclaredMethod("listFiles", File.class, List.class);
-        method.setAccessible(true);
-        final List<Pattern> list = new ArrayList<Pattern>();
-        list.add(Pattern.compile("BAD_PATH"));
-
-        final List<File> result = (List<File>) method.invoke(null, new File(getFilePath("")),
-                list);
-        assertNotEquals("Invalid result size", 0, result.size());
-    }
-
     @Test
     public void testCustomRootModule() throws Exception {
         TestRootModuleChecker.reset();
@@ -1480,16 +1450,33 @@ public class MainTest {
     public void testModuleNameInMultiThreadMode() throws Exception {
         TestRootModuleChecker.reset();
 
-        try {
-            Main.main("-C", "4", "-W", "4", "-c", getPath("InputMainConfig-multi-thread-mode.xml"),
-                getPath("InputMain.java"));
-            fail("An exception is expected");
-        }
-        catch (IllegalArgumentException ex) {
-            assertEquals("Invalid error message",
-                    "Multi thread mode for Checker module is not implemented",
-                ex.getMessage());
-        }
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "", systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+                assertTrue("Invalid checker state", TestRootModuleChecker.isProcessed());
+                final DefaultConfiguration config =
+                        (DefaultConfiguration) TestRootModuleChecker.getConfig();
+                final ThreadModeSettings multiThreadModeSettings =
+                    config.getThreadModeSettings();
+                assertEquals("Invalid checker thread number",
+                        4, multiThreadModeSettings.getCheckerThreadsNumber());
+                assertEquals("Invalid checker thread number",
+                        4, multiThreadModeSettings.getTreeWalkerThreadsNumber());
+                final Configuration checkerConfiguration = config
+                    .getChildren()[0];
+                assertEquals("Invalid checker name",
+                        ThreadModeSettings.CHECKER_MODULE_NAME,
+                        checkerConfiguration.getName());
+                final Configuration treeWalkerConfig = checkerConfiguration.getChildren()[0];
+                assertEquals("Invalid checker childs name",
+                        ThreadModeSettings.TREE_WALKER_MODULE_NAME,
+                        treeWalkerConfig.getName());
+            }
+        });
+        Main.main("-C", "4", "-W", "4", "-c", getPath("InputMainConfig-multi-thread-mode.xml"),
+            getPath("InputMain.java"));
     }
 
     /**
@@ -1510,4 +1497,240 @@ public class MainTest {
         assertEquals("Unexpected system error log", "", systemErr.getLog());
     }
 
+    @Test
+    public void testDaemon() throws Exception {
+        final String userHome = System.getProperty("user.home");
+        System.setProperty("user.home", temporaryFolder.getRoot().getPath());
+        final AuditDaemon daemon = new AuditDaemon(0, AuditDaemon.getDefaultTokenDirectory());
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.run();
+                }
+                catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        thread.start();
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", auditStartMessage.getMessage() + EOL
+                        + auditFinishMessage.getMessage() + EOL,
+                        systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        try {
+            Main.main("-c", getPath("InputMainConfig-classname.xml"),
+                    "--daemon", String.valueOf(daemon.getPort()),
+                    getPath("InputMain.java"));
+        }
+        finally {
+            daemon.close();
+            thread.join();
+            System.setProperty("user.home", userHome);
+        }
+    }
+
+    @Test
+    public void testInvalidDaemonPort() throws Exception {
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "Invalid daemon port"
+                    + System7.lineSeparator(), systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("--daemon", "invalid", "-c", "/google_checks.xml", getPath("InputMain.java"));
+    }
+
+    @Test
+    public void testInvalidWatchInterval() throws Exception {
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "Invalid watch interval"
+                    + System7.lineSeparator(), systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("--watch", "0", "-c", "/google_checks.xml", getPath("InputMain.java"));
+    }
+
+    @Test
+    public void testWatchWithOutputFile() throws Exception {
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "Option '--watch' cannot be used with "
+                    + "options '-o', '--daemon' and '--files-from'." + System7.lineSeparator(),
+                    systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("--watch", "1000", "-o", temporaryFolder.getRoot() + "/output.xml",
+                "-c", "/google_checks.xml", getPath("InputMain.java"));
+    }
+
+    @Test
+    public void testWatchWithFilesFrom() throws Exception {
+        final File fileList = temporaryFolder.newFile("files.txt");
+        Files7.write(Paths.get(fileList.getPath()), getPath("InputMain.java")
+                .getBytes(StandardCharsets.UTF_8));
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "Option '--watch' cannot be used with "
+                    + "options '-o', '--daemon' and '--files-from'." + System7.lineSeparator(),
+                    systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("--watch", "1000", "-c", "/google_checks.xml",
+                "--files-from", fileList.getPath());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testChangedFilesToProcess() throws Exception {
+        final Method method = Main.class.getDeclaredMethod("getChangedFilesToProcess",
+                List.class, List.class, String[].class);
+        method.setAccessible(true);
+
+        final List<File> changedFiles = new ArrayList<File>();
+        changedFiles.add(new File(getFilePath("InputMain.java")));
+        changedFiles.add(new File(getFilePath("InputMainComplexityOverflow.java")));
+        changedFiles.add(new File(getFilePath("InputMainConfig-empty.xml")));
+        changedFiles.add(new File(new File(getPath("")).getCanonicalFile(), "Deleted.java"));
+        final List<Pattern> exclusions = new ArrayList<Pattern>();
+
+        final List<File> result = (List<File>) method.invoke(null, changedFiles, exclusions,
+                new String[] {getPath(""), getPath("InputMainComplexityOverflow.java")});
+        final List<File> expected = new ArrayList<File>();
+        expected.add(new File(getPath(""), "InputMain.java"));
+        expected.add(new File(getPath(""), "InputMainComplexityOverflow.java"));
+        expected.add(new File(getPath(""), "InputMainConfig-empty.xml"));
+        expected.add(new File(getPath("InputMainComplexityOverflow.java")));
+        assertEquals("Invalid changed files", expected, result);
+
+        exclusions.add(Pattern.compile("main$"));
+        final List<File> excludedResult = (List<File>) method.invoke(null, changedFiles,
+                exclusions, new String[] {getPath("")});
+        assertEquals("Changed files in excluded directory should be skipped",
+                0, excludedResult.size());
+    }
+
+    @Test
+    public void testDiff() throws Exception {
+        exit.expectSystemExitWithStatus(1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() throws IOException {
+                final LocalizedMessage invalidPatternMessageMainInner = new LocalizedMessage(0,
+                        "com.puppycrawl.tools.checkstyle.checks.naming.messages",
+                        "name.invalidPattern", new String[] {"InputMainInner", "^[a-z0-9]*$"},
+                        null, getClass(), null);
+                final String expectedPath = getFilePath("InputMain.java");
+                assertEquals("Unexpected output log", auditStartMessage.getMessage() + EOL
+                        + "[ERROR] " + expectedPath + ":5:7: "
+                        + invalidPatternMessageMainInner.getMessage() + " [TypeName]" + EOL
+                        + auditFinishMessage.getMessage() + EOL
+                        + errorCounterOneMessage.getMessage() + EOL, systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("-c", getPath("InputMainConfig-classname2-error.xml"),
+                "--diff", getPath("InputMainChanges.diff"),
+                getPath("InputMain.java"));
+    }
+
+    @Test
+    public void testFilesFrom() throws Exception {
+        final File fileList = temporaryFolder.newFile("files.txt");
+        Files7.write(Paths.get(fileList.getPath()), (getPath("InputMain.java") + "\0")
+                .getBytes(StandardCharsets.UTF_8));
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", auditStartMessage.getMessage() + EOL
+                        + auditFinishMessage.getMessage() + EOL,
+                        systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("-c", getPath("InputMainConfig-classname.xml"),
+                "--files-from", fileList.getPath(), "--null");
+    }
+
+    @Test
+    public void testFilesFromNonExistentFile() throws Exception {
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "Could not find file 'NonExistingFile'."
+                        + System7.lineSeparator(), systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("-c", "/google_checks.xml", "--files-from", "NonExistingFile");
+    }
+
+    @Test
+    public void testFilesFromWithFiles() throws Exception {
+        final File fileList = temporaryFolder.newFile("files.txt");
+        Files7.write(Paths.get(fileList.getPath()), getPath("InputMain.java")
+                .getBytes(StandardCharsets.UTF_8));
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log", "Option '--files-from' cannot be used"
+                        + " with files and options '--changed-since' and '--daemon'."
+                        + System7.lineSeparator(), systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("-c", "/google_checks.xml", "--files-from", fileList.getPath(),
+                getPath("InputMain.java"));
+    }
+
+    @Test
+    public void testNullWithoutFilesFrom() throws Exception {
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log",
+                        "Option '--null' requires option '--files-from'."
+                        + System7.lineSeparator(), systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("-c", "/google_checks.xml", "--null", getPath("InputMain.java"));
+    }
+
+    @Test
+    public void testChangedLinesWithoutChangedSince() throws Exception {
+        exit.expectSystemExitWithStatus(-1);
+        exit.checkAssertionAfterwards(new Assertion() {
+            @Override
+            public void checkAssertion() {
+                assertEquals("Unexpected output log",
+                        "Option '--changed-lines' requires option '--changed-since'."
+                        + System7.lineSeparator(), systemOut.getLog());
+                assertEquals("Unexpected system error log", "", systemErr.getLog());
+            }
+        });
+        Main.main("-c", "/google_checks.xml", "--changed-lines", getPath("InputMain.java"));
+    }
+
 }
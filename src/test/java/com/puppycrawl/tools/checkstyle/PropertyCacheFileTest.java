@@ -27,7 +27,10 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.doNothing;
 import static org.powermock.api.mockito.PowerMockito.mockStatic;
 import static org.powermock.api.mockito.PowerMockito.verifyStatic;
@@ -40,15 +43,21 @@ import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
 import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -57,6 +66,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentMatchers;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.powermock.reflect.Whitebox;
 
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.ByteStreams;
@@ -64,13 +74,16 @@ import com.google.common.io.Closeables;
 import com.google.common.io.Flushables;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
 import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
 import com.puppycrawl.tools.checkstyle.jre6.file.Path;
 import com.puppycrawl.tools.checkstyle.jre6.file.Paths;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({ PropertyCacheFile.class, ByteStreams.class,
+@PrepareForTest({ PropertyCacheFile.class, CacheHasher.class, ByteStreams.class,
         CommonUtil.class, Closeables.class, Flushables.class})
 public class PropertyCacheFileTest extends AbstractPathTestSupport {
 
@@ -118,34 +131,194 @@ public class PropertyCacheFileTest extends AbstractPathTestSupport {
     }
 
     @Test
-    public void testResetIfFileDoesNotExist() throws IOException {
+    public void testViolationsInCache() throws IOException {
         final Configuration config = new DefaultConfiguration("myName");
-        final PropertyCacheFile cache = new PropertyCacheFile(config, "fileDoesNotExist.txt");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final PropertyCacheFile cache = new PropertyCacheFile(config, filePath);
+        cache.load();
+        cache.put("myFile", 1);
+        final SortedSet<LocalizedMessage> violations = new TreeSet<LocalizedMessage>();
+        violations.add(new LocalizedMessage(2, 3, "bundle", "key",
+                new Object[] {"argument", 1}, SeverityLevel.WARNING, "id",
+                PropertyCacheFileTest.class, null));
+        violations.add(new LocalizedMessage(1, "bundle", "key", null, null,
+                PropertyCacheFileTest.class, "custom"));
+        violations.add(new LocalizedMessage(3, "bundle", "key", new Object[] {"{1}"}, null,
+                PropertyCacheFileTest.class, "it''s {0}"));
+
+        assertTrue("File without violations should have no violations",
+                cache.getViolations("myFile").isEmpty());
+        cache.putViolations("myFile", violations);
+        cache.persist();
+
+        final PropertyCacheFile loadedCache = new PropertyCacheFile(config, filePath);
+        loadedCache.load();
+        assertEquals("Violations should be restored in order",
+                toText(violations), toText(loadedCache.getViolations("myFile")));
+
+        loadedCache.put("myFile", 2);
+        assertTrue("Violations should be removed when file changes",
+                loadedCache.getViolations("myFile").isEmpty());
+    }
+
+    @Test
+    public void testViolationsWhichCannotBeStored() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final PropertyCacheFile cache = new PropertyCacheFile(config,
+                temporaryFolder.newFile().getPath());
+        cache.put("myFile", 1);
+        final SortedSet<LocalizedMessage> violations = new TreeSet<LocalizedMessage>();
+        final char[] message = new char[70000];
+        Arrays.fill(message, 'x');
+        violations.add(new LocalizedMessage(1, "bundle", "key", null,
+                null, PropertyCacheFileTest.class, new String(message)));
+
+        cache.putViolations("myFile", violations);
 
+        assertNull("File should be removed from cache", cache.get("myFile"));
+        assertNull("Violations should not be stored",
+                cache.get(PropertyCacheFile.VIOLATIONS_KEY_PREFIX + "myFile"));
+    }
+
+    @Test
+    public void testViolationsWhichCannotBeRestored() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final PropertyCacheFile cache = new PropertyCacheFile(config, filePath);
         cache.load();
+        cache.persist();
+        final Properties properties = new Properties();
+        properties.load(Files7.newBufferedReader(new Path(new File(filePath))));
+        properties.setProperty("brokenEncoding", "1");
+        properties.setProperty(PropertyCacheFile.VIOLATIONS_KEY_PREFIX + "brokenEncoding", "!");
+        properties.setProperty("brokenContent", "1");
+        properties.setProperty(PropertyCacheFile.VIOLATIONS_KEY_PREFIX + "brokenContent",
+                BaseEncoding.base64().encode(new byte[] {1, 2, 3}));
+        properties.setProperty("wrongType", "1");
+        properties.setProperty(PropertyCacheFile.VIOLATIONS_KEY_PREFIX + "wrongType",
+                BaseEncoding.base64().encode(serialize("text")));
+        final OutputStream output = Files7.newOutputStream(new Path(new File(filePath)));
+        try {
+            properties.store(output, null);
+        }
+        finally {
+            output.close();
+        }
 
-        assertNotNull("Config hash key should not be null",
-                cache.get(PropertyCacheFile.CONFIG_HASH_KEY));
+        final PropertyCacheFile brokenCache = new PropertyCacheFile(config, filePath);
+        brokenCache.load();
+
+        for (String name : new String[] {"brokenEncoding", "brokenContent", "wrongType"}) {
+            assertNull("Violations should not be restored", brokenCache.getViolations(name));
+            assertNull("File should be removed from cache", brokenCache.get(name));
+        }
+    }
+
+    private static List<String> toText(Collection<LocalizedMessage> violations) {
+        final List<String> result = new ArrayList<String>();
+        for (LocalizedMessage violation : violations) {
+            result.add(violation.getLineNo() + ":" + violation.getColumnNo() + ":"
+                    + violation.getColumnCharIndex() + ":" + violation.getTokenType() + ":"
+                    + violation.getSeverityLevel() + ":" + violation.getModuleId() + ":"
+                    + violation.getKey() + ":" + violation.getSourceName() + ":"
+                    + violation.getMessage());
+        }
+        return result;
+    }
+
+    private static byte[] serialize(Serializable object) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(object);
+        output.close();
+        return bytes.toByteArray();
     }
 
     @Test
-    public void testCloseAndFlushOutputStreamAfterCreatingHashCode() throws IOException {
-        mockStatic(Closeables.class);
-        doNothing().when(Closeables.class);
-        Closeables.close(any(ObjectOutputStream.class), ArgumentMatchers.eq(false));
-        mockStatic(Flushables.class);
-        doNothing().when(Flushables.class);
-        Flushables.flush(any(ObjectOutputStream.class), ArgumentMatchers.eq(false));
+    public void testModules() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final File file = temporaryFolder.newFile();
+        final PropertyCacheFile cache = new PropertyCacheFile(config, file.getPath());
+        cache.load();
+        cache.setModules(Arrays.asList("b", "a"));
+        cache.put("myFile", 1);
+        cache.putModules("myFile");
+        cache.put("myOtherFile", 1);
+        cache.putModules("myOtherFile");
+        cache.setModules(Collections.singletonList("c"));
+        cache.putModules("myOtherFile");
+        cache.persist();
+
+        final PropertyCacheFile loadedCache = new PropertyCacheFile(config, file.getPath());
+        loadedCache.load();
+        assertEquals("Modules should be restored", new HashSet<String>(Arrays.asList("a", "b")),
+                loadedCache.getModules("myFile"));
+        assertEquals("Changed modules should be restored", Collections.singleton("c"),
+                loadedCache.getModules("myOtherFile"));
+
+        loadedCache.setModules(Collections.singletonList("d"));
+        loadedCache.put("myFile", 2);
+        loadedCache.remove("myOtherFile");
+        assertNull("Modules of changed file should be removed",
+                loadedCache.getModules("myFile"));
+        loadedCache.persist();
+
+        final Properties properties = new Properties();
+        properties.load(Files7.newBufferedReader(new Path(file)));
+        int moduleSets = 0;
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(PropertyCacheFile.MODULE_SET_KEY_PREFIX)) {
+                moduleSets++;
+            }
+        }
+        assertEquals("Unused module sets should be removed", 1, moduleSets);
+    }
 
+    @Test
+    public void testBinaryFormat() throws IOException {
         final Configuration config = new DefaultConfiguration("myName");
-        final PropertyCacheFile cache = new PropertyCacheFile(config, "fileDoesNotExist.txt");
+        final File file = temporaryFolder.newFile();
+        final PropertyCacheFile cache = new PropertyCacheFile(config, file.getPath());
         cache.load();
+        cache.put("myFile", 1);
+        cache.put("myRemovedFile", 1);
+        cache.persist();
 
-        verifyStatic(Closeables.class, times(1));
-        Closeables.close(any(ObjectOutputStream.class), ArgumentMatchers.eq(false));
+        final PropertyCacheFile binaryCache = new PropertyCacheFile(config, file.getPath());
+        binaryCache.setBinary(true);
+        binaryCache.load();
+        assertTrue("Property file should be loaded", binaryCache.isInCache("myFile", 1));
+        binaryCache.persist();
+        final long convertedLength = file.length();
+        binaryCache.put("myOtherFile", 2);
+        binaryCache.remove("myRemovedFile");
+        binaryCache.persist();
+        assertTrue("Changes should be appended", file.length() > convertedLength);
+
+        final PropertyCacheFile loadedCache = new PropertyCacheFile(config, file.getPath());
+        loadedCache.load();
+        assertTrue("Binary file should be loaded", loadedCache.isInCache("myFile", 1));
+        assertTrue("Appended entry should be loaded", loadedCache.isInCache("myOtherFile", 2));
+        assertNull("Removed entry should not be loaded", loadedCache.get("myRemovedFile"));
+        assertNotNull("Config hash key should be loaded",
+                loadedCache.get(PropertyCacheFile.CONFIG_HASH_KEY));
+
+        loadedCache.persist();
+        final Properties properties = new Properties();
+        properties.load(Files7.newBufferedReader(new Path(file)));
+        assertEquals("Binary file should be converted to property file",
+                "1", properties.getProperty("myFile"));
+    }
 
-        verifyStatic(Flushables.class, times(1));
-        Flushables.flush(any(ObjectOutputStream.class), ArgumentMatchers.eq(false));
+    @Test
+    public void testResetIfFileDoesNotExist() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final PropertyCacheFile cache = new PropertyCacheFile(config, "fileDoesNotExist.txt");
+
+        cache.load();
+
+        assertNotNull("Config hash key should not be null",
+                cache.get(PropertyCacheFile.CONFIG_HASH_KEY));
     }
 
     @Test
@@ -225,10 +398,7 @@ public class PropertyCacheFileTest extends AbstractPathTestSupport {
         final URI uri = CommonUtil.getUriByFilename(pathToResource);
         final byte[] input =
                 ByteStreams.toByteArray(new BufferedInputStream(uri.toURL().openStream()));
-        final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        final ObjectOutputStream oos = new ObjectOutputStream(out);
-        oos.writeObject(input);
-        digest.update(out.toByteArray());
+        digest.update(input);
         final String expected = BaseEncoding.base16().upperCase().encode(digest.digest());
 
         assertEquals("Hashes are not equal", expected,
@@ -271,6 +441,218 @@ public class PropertyCacheFileTest extends AbstractPathTestSupport {
                 cache.isInCache(resource, 1));
     }
 
+    @Test
+    public void testUnchangedExternalResourceIsNotLoaded() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final File resource = temporaryFolder.newFile();
+        Files7.write(new Path(resource), "content".getBytes(StandardCharsets.UTF_8));
+        final Set<String> resources = new HashSet<String>();
+        resources.add(resource.getPath());
+        final String key = PropertyCacheFile.EXTERNAL_RESOURCE_KEY_PREFIX + resource.getPath();
+
+        final PropertyCacheFile cache = new PropertyCacheFile(config, filePath);
+        cache.load();
+        cache.putExternalResources(resources);
+        cache.put("myFile", 1);
+        cache.persist();
+        final String hash = cache.get(key);
+        assertNotNull("Resource metadata should be stored", cache.get(
+                PropertyCacheFile.EXTERNAL_RESOURCE_METADATA_KEY_PREFIX + resource.getPath()));
+
+        mockStatic(ByteStreams.class);
+        when(ByteStreams.toByteArray(any(BufferedInputStream.class)))
+                .thenThrow(IOException.class);
+
+        final PropertyCacheFile cacheAfterRestart = new PropertyCacheFile(config, filePath);
+        cacheAfterRestart.load();
+        cacheAfterRestart.putExternalResources(resources);
+        assertEquals("Hash of unchanged resource should be reused",
+                hash, cacheAfterRestart.get(key));
+        assertTrue("File should stay in cache", cacheAfterRestart.isInCache("myFile", 1));
+
+        assertTrue("Modification time should be changed",
+                resource.setLastModified(resource.lastModified() - 10000));
+        cacheAfterRestart.putExternalResources(resources);
+        assertNotEquals("Changed resource should be loaded", hash, cacheAfterRestart.get(key));
+        assertFalse("Should return false in file is not in cache",
+                cacheAfterRestart.isInCache("myFile", 1));
+    }
+
+    @Test
+    public void testCorruptMetadataOfRemoteResource() throws Exception {
+        for (String metadata : new String[] {"corrupt", "corrupt:tag", ":tag", "-5:"}) {
+            final HttpURLConnection connection = mock(HttpURLConnection.class);
+            final boolean notModified = Whitebox.invokeMethod(PropertyCacheFile.class,
+                    "isNotModified", connection, metadata);
+
+            assertFalse("Resource with corrupt metadata should be modified: " + metadata,
+                    notModified);
+            verify(connection, never()).getResponseCode();
+        }
+    }
+
+    @Test
+    public void testSharedCacheFileMergesEntries() throws IOException {
+        verifySharedCacheFileMergesEntries(false);
+        verifySharedCacheFileMergesEntries(true);
+    }
+
+    private void verifySharedCacheFileMergesEntries(boolean binary) throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final PropertyCacheFile firstCache = new PropertyCacheFile(config, filePath);
+        firstCache.setShared(true);
+        firstCache.setBinary(binary);
+        final PropertyCacheFile secondCache = new PropertyCacheFile(config, filePath);
+        secondCache.setShared(true);
+        secondCache.setBinary(binary);
+
+        firstCache.load();
+        secondCache.load();
+        firstCache.put("firstFile", 1);
+        secondCache.put("secondFile", 2);
+        firstCache.persist();
+        secondCache.persist();
+
+        final PropertyCacheFile mergedCache = new PropertyCacheFile(config, filePath);
+        mergedCache.load();
+        assertTrue("Entry of first process should be kept",
+                mergedCache.isInCache("firstFile", 1));
+        assertTrue("Entry of second process should be kept",
+                mergedCache.isInCache("secondFile", 2));
+        assertTrue("Merged entries should be visible to second process",
+                secondCache.isInCache("firstFile", 1));
+        assertTrue("Lock file should be created",
+                new File(filePath + CacheFileLock.LOCK_FILE_EXTENSION).exists());
+    }
+
+    @Test
+    public void testSharedCacheFileIsReplacedAfterReset() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final PropertyCacheFile firstCache = new PropertyCacheFile(config, filePath);
+        firstCache.setShared(true);
+        final PropertyCacheFile secondCache = new PropertyCacheFile(config, filePath);
+        secondCache.setShared(true);
+
+        firstCache.load();
+        secondCache.load();
+        firstCache.put("firstFile", 1);
+        firstCache.persist();
+        secondCache.reset();
+        secondCache.put("secondFile", 2);
+        secondCache.persist();
+
+        final PropertyCacheFile replacedCache = new PropertyCacheFile(config, filePath);
+        replacedCache.load();
+        assertFalse("Entry of first process should be removed",
+                replacedCache.isInCache("firstFile", 1));
+        assertTrue("Entry of second process should be kept",
+                replacedCache.isInCache("secondFile", 2));
+    }
+
+    @Test
+    public void testPruneRemovesDeletedFiles() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final PropertyCacheFile cache = new PropertyCacheFile(config,
+                temporaryFolder.newFile().getPath());
+        cache.load();
+        final File directory = temporaryFolder.newFolder();
+        final File existingFile = new File(directory, "Existing.java");
+        Files7.write(new Path(existingFile), new byte[0]);
+        final File deletedFile = new File(directory, "Deleted.java");
+        final File outsideFile = new File(temporaryFolder.getRoot(), "Outside.java");
+        cache.put(existingFile.getPath(), 1);
+        cache.put(deletedFile.getPath(), 1);
+        cache.put(outsideFile.getPath(), 1);
+
+        assertEquals("Invalid number of removed files",
+                1, cache.prune(Collections.singletonList(existingFile)));
+        assertTrue("Existing file should stay in cache",
+                cache.isInCache(existingFile.getPath(), 1));
+        assertFalse("Deleted file should be removed from cache",
+                cache.isInCache(deletedFile.getPath(), 1));
+        assertTrue("File outside of audited directory should stay in cache",
+                cache.isInCache(outsideFile.getPath(), 1));
+        assertNotNull("Configuration hash should stay in cache",
+                cache.get(PropertyCacheFile.CONFIG_HASH_KEY));
+    }
+
+    @Test
+    public void testPruneRemovesLeastRecentlyAuditedFiles() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final PropertyCacheFile cache = new PropertyCacheFile(config, filePath);
+        cache.setMaxFiles(2);
+        cache.load();
+        cache.put("oldFile", 1);
+        cache.recordAudit("oldFile", false);
+        cache.put("newFile", 1);
+        cache.recordAudit("newFile", false);
+        assertEquals("Files should not be removed below limit",
+                0, cache.prune(Collections.<File>emptyList()));
+        cache.persist();
+
+        final PropertyCacheFile cacheAfterRun = new PropertyCacheFile(config, filePath);
+        cacheAfterRun.setMaxFiles(2);
+        cacheAfterRun.load();
+        assertTrue("File should be found", cacheAfterRun.isInCache("newFile", 1));
+        cacheAfterRun.recordAudit("newFile", true);
+        cacheAfterRun.put("addedFile", 1);
+        cacheAfterRun.recordAudit("addedFile", false);
+
+        assertEquals("Invalid number of removed files",
+                1, cacheAfterRun.prune(Collections.<File>emptyList()));
+        assertNull("Least recently audited file should be removed",
+                cacheAfterRun.get("oldFile"));
+        assertNull("Audited run of removed file should be removed",
+                cacheAfterRun.get(PropertyCacheFile.AUDITED_KEY_PREFIX + "oldFile"));
+        assertTrue("Recently audited file should stay in cache",
+                cacheAfterRun.isInCache("newFile", 1));
+        assertTrue("Added file should stay in cache",
+                cacheAfterRun.isInCache("addedFile", 1));
+        assertEquals("Invalid number of hits", 1, cacheAfterRun.getHits());
+        assertEquals("Invalid number of misses", 1, cacheAfterRun.getMisses());
+    }
+
+    @Test
+    public void testCorruptRunClearsCache() throws IOException {
+        final Configuration config = new DefaultConfiguration("myName");
+        final String filePath = temporaryFolder.newFile().getPath();
+        final PropertyCacheFile cache = new PropertyCacheFile(config, filePath);
+        cache.setMaxFiles(2);
+        cache.load();
+        cache.put("myFile", 1);
+        cache.recordAudit("myFile", false);
+        cache.prune(Collections.<File>emptyList());
+        cache.persist();
+        final Properties properties = new Properties();
+        properties.load(Files7.newBufferedReader(Paths.get(filePath)));
+        assertEquals("Run should be stored",
+                "1", properties.getProperty(PropertyCacheFile.RUN_KEY));
+        properties.setProperty(PropertyCacheFile.RUN_KEY, "corrupt");
+        final OutputStream out = Files7.newOutputStream(Paths.get(filePath));
+        try {
+            properties.store(out, null);
+        }
+        finally {
+            out.close();
+        }
+
+        final PropertyCacheFile cacheAfterRun = new PropertyCacheFile(config, filePath);
+        cacheAfterRun.setMaxFiles(2);
+        cacheAfterRun.load();
+        assertFalse("Cache should be cleared", cacheAfterRun.isInCache("myFile", 1));
+        assertNotNull("Configuration hash should stay in cache",
+                cacheAfterRun.get(PropertyCacheFile.CONFIG_HASH_KEY));
+        cacheAfterRun.put("myFile", 1);
+        cacheAfterRun.recordAudit("myFile", false);
+        cacheAfterRun.prune(Collections.<File>emptyList());
+        assertEquals("Run should start from one again",
+                "1", cacheAfterRun.get(PropertyCacheFile.RUN_KEY));
+    }
+
     @Test
     public void testFlushAndCloseCacheFileOutputStream() throws IOException {
         mockStatic(Closeables.class);
@@ -329,20 +711,15 @@ public class PropertyCacheFileTest extends AbstractPathTestSupport {
         when(MessageDigest.getInstance("SHA-1"))
                 .thenThrow(NoSuchAlgorithmException.class);
 
-        final Class<?>[] param = new Class<?>[1];
-        param[0] = Serializable.class;
-        final Method method =
-            PropertyCacheFile.class.getDeclaredMethod("getHashCodeBasedOnObjectContent", param);
-        method.setAccessible(true);
         try {
-            method.invoke(cache, config);
-            fail("InvocationTargetException is expected");
+            cache.load();
+            fail("IllegalStateException is expected");
         }
-        catch (InvocationTargetException ex) {
+        catch (IllegalStateException ex) {
             assertTrue("Invalid exception cause",
-                    ex.getCause().getCause() instanceof NoSuchAlgorithmException);
+                    ex.getCause() instanceof NoSuchAlgorithmException);
             assertEquals("Invalid exception message",
-                    "Unable to calculate hashcode.", ex.getCause().getMessage());
+                    "Unable to calculate hashcode.", ex.getMessage());
         }
     }
 
@@ -459,7 +836,7 @@ public class PropertyCacheFileTest extends AbstractPathTestSupport {
         final PropertyCacheFile cache = new PropertyCacheFile(config, cacheFile.getPath());
         cache.load();
 
-        final String expectedInitialConfigHash = "91753B970AFDF9F5F3DFA0D258064841949D3C6B";
+        final String expectedInitialConfigHash = "02DE12A274818CC7ABC2D417FAF66471CFE2F82C";
         final String actualInitialConfigHash = cache.get(PropertyCacheFile.CONFIG_HASH_KEY);
         assertEquals("Invalid config hash", expectedInitialConfigHash, actualInitialConfigHash);
 
@@ -476,7 +853,7 @@ public class PropertyCacheFileTest extends AbstractPathTestSupport {
             new PropertyCacheFile(config, cacheFile.getPath());
         cacheAfterChangeInConfig.load();
 
-        final String expectedConfigHashAfterChange = "4CF5EC78955B81D76153ACC2CA6D60CB77FDCB2A";
+        final String expectedConfigHashAfterChange = "3704EFF9E92DED02DE4F04B0D4535F7DD1544F6D";
         final String actualConfigHashAfterChange =
             cacheAfterChangeInConfig.get(PropertyCacheFile.CONFIG_HASH_KEY);
         assertEquals("Invalid config hash",
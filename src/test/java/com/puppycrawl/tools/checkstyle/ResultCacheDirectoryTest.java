@@ -0,0 +1,136 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+
+package com.puppycrawl.tools.checkstyle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
+
+public class ResultCacheDirectoryTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testViolationsAreStoredAndLoaded() throws IOException {
+        final File directory = temporaryFolder.newFolder();
+        final ResultCacheDirectory cache = new ResultCacheDirectory(directory.getPath());
+        final SortedSet<LocalizedMessage> violations = createViolations("key");
+
+        assertNull("Violations should not be found", cache.get("abcdef"));
+        cache.put("abcdef", violations);
+
+        final File file = new File(new File(directory, "ab"), "cdef.res");
+        assertTrue("Violations should be stored", file.isFile());
+        assertEquals("Violations should be loaded", toText(violations),
+                toText(cache.get("abcdef")));
+        assertEquals("Violations should be loaded by another instance", toText(violations),
+                toText(new ResultCacheDirectory(directory.getPath()).get("abcdef")));
+    }
+
+    @Test
+    public void testBrokenFileIsIgnored() throws IOException {
+        final File directory = temporaryFolder.newFolder();
+        final ResultCacheDirectory cache = new ResultCacheDirectory(directory.getPath());
+        cache.put("abcdef", createViolations("key"));
+        final File file = new File(new File(directory, "ab"), "cdef.res");
+        Files7.write(new Path(file), new byte[] {1, 2, 3});
+
+        assertNull("Broken violations should not be loaded", cache.get("abcdef"));
+    }
+
+    @Test
+    public void testViolationsWhichCannotBeStored() throws IOException {
+        final File directory = temporaryFolder.newFolder();
+        final ResultCacheDirectory cache = new ResultCacheDirectory(directory.getPath());
+        final SortedSet<LocalizedMessage> violations = new TreeSet<LocalizedMessage>();
+        final char[] message = new char[70000];
+        Arrays.fill(message, 'x');
+        violations.add(new LocalizedMessage(1, "bundle", "key", null,
+                null, ResultCacheDirectoryTest.class, new String(message)));
+        cache.put("abcdef", violations);
+
+        assertNull("Violations should not be stored", cache.get("abcdef"));
+        assertEquals("Temporary file should be removed",
+                0, new File(directory, "ab").list().length);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFilesAreRemoved() throws IOException {
+        final File directory = temporaryFolder.newFolder();
+        final ResultCacheDirectory cache = new ResultCacheDirectory(directory.getPath());
+        cache.put("aa0001", createViolations("first"));
+        cache.put("bb0002", createViolations("second"));
+        final File firstFile = new File(new File(directory, "aa"), "0001.res");
+        final File secondFile = new File(new File(directory, "bb"), "0002.res");
+        assertTrue("Modification time should be set", firstFile.setLastModified(1000000));
+        assertTrue("Modification time should be set", secondFile.setLastModified(2000000));
+
+        cache.finishAudit();
+        assertTrue("Files should not be removed without limit",
+                firstFile.isFile() && secondFile.isFile());
+
+        cache.setMaxSize(secondFile.length());
+        assertNotNull("Violations should be loaded", cache.get("aa0001"));
+        cache.finishAudit();
+        assertTrue("Recently used file should be kept", firstFile.isFile());
+        assertTrue("Least recently used file should be removed", !secondFile.exists());
+    }
+
+    private static List<String> toText(Collection<LocalizedMessage> violations) {
+        final List<String> result = new ArrayList<String>();
+        for (LocalizedMessage violation : violations) {
+            result.add(violation.getLineNo() + ":" + violation.getColumnNo() + ":"
+                    + violation.getSeverityLevel() + ":" + violation.getModuleId() + ":"
+                    + violation.getKey() + ":" + violation.getSourceName() + ":"
+                    + violation.getMessage());
+        }
+        return result;
+    }
+
+    private static SortedSet<LocalizedMessage> createViolations(String key) {
+        final SortedSet<LocalizedMessage> violations = new TreeSet<LocalizedMessage>();
+        violations.add(new LocalizedMessage(2, 3, "bundle", key,
+                new Object[] {"argument", 1}, SeverityLevel.WARNING, "id",
+                ResultCacheDirectoryTest.class, null));
+        return violations;
+    }
+
+}
@@ -22,7 +22,6 @@ package com.puppycrawl.tools.checkstyle;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
-import static org.junit.Assert.fail;
 
 import java.util.Set;
 
@@ -43,15 +42,20 @@ public class ThreadModeSettingsTest {
     public void testResolveCheckerInMultiThreadMode() {
         final ThreadModeSettings configuration = new ThreadModeSettings(2, 2);
 
-        try {
-            configuration.resolveName(ThreadModeSettings.CHECKER_MODULE_NAME);
-            fail("An exception is expected");
-        }
-        catch (IllegalArgumentException ex) {
-            assertEquals("Invalid exception message",
-                    "Multi thread mode for Checker module is not implemented",
-                    ex.getMessage());
-        }
+        assertEquals("Invalid name resolved", ThreadModeSettings.CHECKER_MODULE_NAME,
+                configuration.resolveName(ThreadModeSettings.CHECKER_MODULE_NAME));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedMultiThreadModuleNames() {
+        final ThreadModeSettings configuration = new ThreadModeSettings(2, 2);
+
+        assertEquals("Invalid name resolved", ThreadModeSettings.MULTI_THREAD_CHECKER_MODULE_NAME,
+                configuration.resolveName(ThreadModeSettings.CHECKER_MODULE_NAME));
+        assertEquals("Invalid name resolved",
+                ThreadModeSettings.MULTI_THREAD_TREE_WALKER_MODULE_NAME,
+                configuration.resolveName(ThreadModeSettings.TREE_WALKER_MODULE_NAME));
     }
 
     @Test
@@ -65,16 +69,10 @@ public class ThreadModeSettingsTest {
     @Test
     public void testResolveTreeWalker() {
         final ThreadModeSettings configuration = new ThreadModeSettings(2, 2);
-
-        try {
-            configuration.resolveName(ThreadModeSettings.TREE_WALKER_MODULE_NAME);
-            fail("Exception is expected");
-        }
-        catch (IllegalArgumentException ex) {
-            assertEquals("Invalid exception message",
-                    "Multi thread mode for TreeWalker module is not implemented",
-                    ex.getMessage());
-        }
+        final String actual =
+                configuration.resolveName(ThreadModeSettings.TREE_WALKER_MODULE_NAME);
+        assertThat("Invalid name resolved: " + actual,
+                actual, is(ThreadModeSettings.TREE_WALKER_MODULE_NAME));
     }
 
     @Test
@@ -21,6 +21,7 @@ package com.puppycrawl.tools.checkstyle;
 
 import static com.puppycrawl.tools.checkstyle.checks.naming.AbstractNameCheck.MSG_INVALID_PATTERN;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -29,6 +30,7 @@ import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -44,8 +46,10 @@ import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
 import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
 import com.puppycrawl.tools.checkstyle.api.Context;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
 import com.puppycrawl.tools.checkstyle.api.FileText;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
+import com.puppycrawl.tools.checkstyle.checks.SuppressWarningsHolder;
 import com.puppycrawl.tools.checkstyle.checks.coding.HiddenFieldCheck;
 import com.puppycrawl.tools.checkstyle.checks.indentation.CommentsIndentationCheck;
 import com.puppycrawl.tools.checkstyle.checks.javadoc.JavadocPackageCheck;
@@ -54,11 +58,13 @@ import com.puppycrawl.tools.checkstyle.checks.naming.ConstantNameCheck;
 import com.puppycrawl.tools.checkstyle.checks.naming.MemberNameCheck;
 import com.puppycrawl.tools.checkstyle.checks.naming.TypeNameCheck;
 import com.puppycrawl.tools.checkstyle.filters.SuppressionCommentFilter;
+import com.puppycrawl.tools.checkstyle.filters.SuppressWarningsFilter;
 import com.puppycrawl.tools.checkstyle.filters.SuppressionXpathFilter;
 import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
 import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
 import com.puppycrawl.tools.checkstyle.jre6.file.Path;
 import com.puppycrawl.tools.checkstyle.utils.CommonUtil;
+import com.puppycrawl.tools.checkstyle.utils.TokenUtil;
 
 public class TreeWalkerTest extends AbstractModuleTestSupport {
 
@@ -451,6 +457,167 @@ public class TreeWalkerTest extends AbstractModuleTestSupport {
                 expected);
     }
 
+    @Test
+    public void testOrdinaryChecksDoNotSeeCommentNodes() throws Exception {
+        final DefaultConfiguration treeWalkerConfig = createModuleConfig(TreeWalker.class);
+        treeWalkerConfig.addChild(createModuleConfig(CommentNodesObserverCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(CommentCounterCheck.class));
+        final File file = new File(getPath("InputTreeWalkerSuppressionCommentFilter.java"));
+
+        CommentNodesObserverCheck.reset();
+        CommentCounterCheck.reset();
+        verify(createRootConfig(treeWalkerConfig), file.getPath(),
+                CommonUtil.EMPTY_STRING_ARRAY);
+
+        assertTrue("Ordinary check should visit the tree",
+                CommentNodesObserverCheck.getVisitedNodes() > 0);
+        assertFalse("Ordinary check should not see comment nodes",
+                CommentNodesObserverCheck.isCommentNodeSeen());
+        assertEquals("Comment check should see all comment nodes",
+                4, CommentCounterCheck.getComments());
+    }
+
+    @Test
+    public void testTreeWalkersShareParsedTrees() throws Exception {
+        final DefaultConfiguration firstTreeWalkerConfig = createModuleConfig(TreeWalker.class);
+        firstTreeWalkerConfig.addChild(createModuleConfig(CommentNodesObserverCheck.class));
+        firstTreeWalkerConfig.addChild(createModuleConfig(CommentCounterCheck.class));
+        final DefaultConfiguration secondTreeWalkerConfig = createModuleConfig(TreeWalker.class);
+        secondTreeWalkerConfig.addChild(createModuleConfig(CommentNodesObserverCheck.class));
+        secondTreeWalkerConfig.addChild(createModuleConfig(CommentCounterCheck.class));
+        final DefaultConfiguration checkerConfig = createRootConfig(firstTreeWalkerConfig);
+        checkerConfig.addChild(secondTreeWalkerConfig);
+        final File file = new File(getPath("InputTreeWalkerSuppressionCommentFilter.java"));
+
+        CommentNodesObserverCheck.reset();
+        CommentCounterCheck.reset();
+        verify(checkerConfig, file.getPath(), CommonUtil.EMPTY_STRING_ARRAY);
+
+        assertFalse("Ordinary checks should not see comment nodes",
+                CommentNodesObserverCheck.isCommentNodeSeen());
+        assertEquals("Comment checks should see all comment nodes once per tree walker",
+                8, CommentCounterCheck.getComments());
+    }
+
+    @Test
+    public void testSkippedBranchesDoNotChangeNotifications() throws Exception {
+        final File file = new File(getPath("InputTreeWalkerPruning.java"));
+        final List<String> expected = new ArrayList<String>();
+        collectNotifications(JavaParser.parseFile(file, JavaParser.Options.WITHOUT_COMMENTS),
+                expected);
+
+        NotificationRecorderCheck.NOTIFICATIONS.clear();
+        verify(createModuleConfig(NotificationRecorderCheck.class), file.getPath(),
+                CommonUtil.EMPTY_STRING_ARRAY);
+
+        assertEquals("Invalid notifications", expected,
+                NotificationRecorderCheck.NOTIFICATIONS);
+    }
+
+    private static void collectNotifications(DetailAST ast, List<String> notifications) {
+        for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+            final boolean recorded = NotificationRecorderCheck.isRecorded(node);
+            if (recorded) {
+                notifications.add(NotificationRecorderCheck.toString("visit", node));
+            }
+            collectNotifications(node.getFirstChild(), notifications);
+            if (recorded) {
+                notifications.add(NotificationRecorderCheck.toString("leave", node));
+            }
+        }
+    }
+
+    @Test
+    public void testMultiThreadModeProducesSameOutputAsSingleThreadMode() throws Exception {
+        final File file = new File(getPath("InputTreeWalkerSuppressionCommentFilter.java"));
+
+        final Checker singleThreadChecker = createChecker(
+                createThreadModeConfig(ThreadModeSettings.SINGLE_THREAD_MODE_INSTANCE));
+        final int singleThreadErrors =
+                singleThreadChecker.process(Collections.singletonList(file));
+        singleThreadChecker.destroy();
+        final String singleThreadOutput = getStream().toString(StandardCharsets.UTF_8.name());
+        getStream().reset();
+
+        final Checker multiThreadChecker = createChecker(
+                createThreadModeConfig(new ThreadModeSettings(1, 3)));
+        final int multiThreadErrors =
+                multiThreadChecker.process(Collections.singletonList(file));
+        multiThreadChecker.destroy();
+        final String multiThreadOutput = getStream().toString(StandardCharsets.UTF_8.name());
+
+        assertTrue("Violations are expected", singleThreadErrors > 0);
+        assertEquals("Invalid number of errors", singleThreadErrors, multiThreadErrors);
+        assertEquals("Output of multi thread mode differs from single thread mode",
+                singleThreadOutput, multiThreadOutput);
+    }
+
+    @Test
+    public void testMultiThreadModeWithException() throws Exception {
+        final DefaultConfiguration treeWalkerConfig = new DefaultConfiguration(
+                TreeWalker.class.getName(), new ThreadModeSettings(1, 2));
+        treeWalkerConfig.addChild(createModuleConfig(MemberNameCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(ExceptionCheck.class));
+        final File file = new File(getPath("InputTreeWalkerSuppressionCommentFilter.java"));
+
+        try {
+            verify(createChecker(createRootConfig(treeWalkerConfig)), file.getPath());
+            fail("Exception is expected");
+        }
+        catch (CheckstyleException ex) {
+            assertEquals("Invalid exception cause message",
+                    "test", ex.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testSuppressWarningsHolderInMultiThreadMode() throws Exception {
+        final DefaultConfiguration treeWalkerConfig = new DefaultConfiguration(
+                TreeWalker.class.getName(), new ThreadModeSettings(1, 3));
+        treeWalkerConfig.addChild(createModuleConfig(SuppressWarningsHolder.class));
+        treeWalkerConfig.addChild(createModuleConfig(MemberNameCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(TypeNameCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(ConstantNameCheck.class));
+        final DefaultConfiguration checkerConfig = createRootConfig(treeWalkerConfig);
+        checkerConfig.addChild(createModuleConfig(SuppressWarningsFilter.class));
+        final File file = temporaryFolder.newFile("file.java");
+        final Writer writer = Files7.newBufferedWriter(new Path(file), StandardCharsets.UTF_8);
+        try {
+            writer.write("public class Main {\n"
+                    + "    @SuppressWarnings(\"membername\")\n"
+                    + "    private int A_B;\n"
+                    + "    private int C_D;\n"
+                    + "}\n");
+        }
+        finally {
+            writer.close();
+        }
+        // the holder is executed by the thread which filters the violations
+        final String[] expected = {
+            "4:17: " + getCheckMessage(MemberNameCheck.class,
+                    MSG_INVALID_PATTERN, "C_D", "^[a-z][a-zA-Z0-9]*$"),
+        };
+        verify(createChecker(checkerConfig), file.getPath(), expected);
+    }
+
+    private static DefaultConfiguration createThreadModeConfig(
+            ThreadModeSettings threadModeSettings) {
+        final DefaultConfiguration filterConfig =
+                createModuleConfig(SuppressionCommentFilter.class);
+        filterConfig.addAttribute("checkCPP", "false");
+
+        final DefaultConfiguration treeWalkerConfig =
+                new DefaultConfiguration(TreeWalker.class.getName(), threadModeSettings);
+        treeWalkerConfig.addChild(createModuleConfig(MemberNameCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(TypeNameCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(ConstantNameCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(HiddenFieldCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(CommentsIndentationCheck.class));
+        treeWalkerConfig.addChild(createModuleConfig(JavadocParagraphCheck.class));
+        treeWalkerConfig.addChild(filterConfig);
+        return createRootConfig(treeWalkerConfig);
+    }
+
     @Test
     public void testFinishLocalSetupFullyInitialized() {
         final TreeWalker treeWalker = new TreeWalker();
@@ -525,6 +692,30 @@ public class TreeWalkerTest extends AbstractModuleTestSupport {
                                 "InputTreeWalkerSuppressionXpathFilter.xml"));
     }
 
+    private static class ExceptionCheck extends AbstractCheck {
+
+        @Override
+        public int[] getDefaultTokens() {
+            return new int[] {TokenTypes.CLASS_DEF};
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public void visitToken(DetailAST ast) {
+            throw new IllegalStateException("test");
+        }
+
+    }
+
     private static class BadJavaDocCheck extends AbstractCheck {
 
         @Override
@@ -619,6 +810,143 @@ public class TreeWalkerTest extends AbstractModuleTestSupport {
 
     }
 
+    private static class CommentNodesObserverCheck extends AbstractCheck {
+
+        private static int visitedNodes;
+
+        private static boolean commentNodeSeen;
+
+        @Override
+        public int[] getDefaultTokens() {
+            return new int[] {TokenTypes.CLASS_DEF, TokenTypes.OBJBLOCK,
+                TokenTypes.VARIABLE_DEF, TokenTypes.MODIFIERS, };
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public void visitToken(DetailAST ast) {
+            visitedNodes++;
+            observeChildren(ast);
+        }
+
+        @Override
+        public void leaveToken(DetailAST ast) {
+            observeChildren(ast);
+        }
+
+        private static void observeChildren(DetailAST ast) {
+            for (DetailAST child = ast.getFirstChild(); child != null;
+                    child = child.getNextSibling()) {
+                if (TokenUtil.isCommentType(child.getType())) {
+                    commentNodeSeen = true;
+                }
+            }
+        }
+
+        public static void reset() {
+            visitedNodes = 0;
+            commentNodeSeen = false;
+        }
+
+        public static int getVisitedNodes() {
+            return visitedNodes;
+        }
+
+        public static boolean isCommentNodeSeen() {
+            return commentNodeSeen;
+        }
+
+    }
+
+    private static class NotificationRecorderCheck extends AbstractCheck {
+
+        private static final List<String> NOTIFICATIONS = new ArrayList<String>();
+
+        @Override
+        public int[] getDefaultTokens() {
+            return new int[] {TokenTypes.LITERAL_RETURN, TokenTypes.VARIABLE_DEF, };
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public void visitToken(DetailAST ast) {
+            NOTIFICATIONS.add(toString("visit", ast));
+        }
+
+        @Override
+        public void leaveToken(DetailAST ast) {
+            NOTIFICATIONS.add(toString("leave", ast));
+        }
+
+        public static boolean isRecorded(DetailAST ast) {
+            return ast.getType() == TokenTypes.LITERAL_RETURN
+                    || ast.getType() == TokenTypes.VARIABLE_DEF;
+        }
+
+        public static String toString(String notification, DetailAST ast) {
+            return notification + " " + TokenUtil.getTokenName(ast.getType())
+                    + " " + ast.getLineNo() + ":" + ast.getColumnNo();
+        }
+
+    }
+
+    private static class CommentCounterCheck extends AbstractCheck {
+
+        private static int comments;
+
+        @Override
+        public int[] getDefaultTokens() {
+            return new int[] {TokenTypes.SINGLE_LINE_COMMENT, TokenTypes.BLOCK_COMMENT_BEGIN, };
+        }
+
+        @Override
+        public int[] getAcceptableTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public int[] getRequiredTokens() {
+            return getDefaultTokens();
+        }
+
+        @Override
+        public boolean isCommentNodesRequired() {
+            return true;
+        }
+
+        @Override
+        public void visitToken(DetailAST ast) {
+            comments++;
+        }
+
+        public static void reset() {
+            comments = 0;
+        }
+
+        public static int getComments() {
+            return comments;
+        }
+
+    }
+
     private static class RequiredTokenIsNotInDefaultsCheck extends AbstractCheck {
 
         @Override
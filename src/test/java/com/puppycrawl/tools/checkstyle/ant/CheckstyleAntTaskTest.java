@@ -829,9 +829,9 @@ public class CheckstyleAntTaskTest extends AbstractPathTestSupport {
         @Override
         protected List<File> scanFileSets() {
             final File mock = PowerMockito.mock(File.class);
-            // Assume that I/O error is happened when we try to invoke 'lastModified()' method.
+            // Assume that I/O error is happened when we try to invoke 'getAbsolutePath()' method.
             final Exception expectedError = new RuntimeException("");
-            when(mock.lastModified()).thenThrow(expectedError);
+            when(mock.getAbsolutePath()).thenThrow(expectedError);
             final List<File> list = new ArrayList<File>();
             list.add(mock);
             return list;
@@ -153,6 +153,20 @@ public class DetailASTTest extends AbstractModuleTestSupport {
         assertFalse("invalid result", root.branchContains(TokenTypes.OBJBLOCK));
     }
 
+    @Test
+    public void testBranchContainsAny() {
+        final DetailAST root = createToken(null, TokenTypes.CLASS_DEF);
+        final DetailAST modifiers = createToken(root, TokenTypes.MODIFIERS);
+        createToken(modifiers, TokenTypes.LITERAL_PUBLIC);
+
+        final BitSet types = new BitSet();
+        types.set(TokenTypes.OBJBLOCK);
+        assertFalse("invalid result", root.branchContainsAny(types));
+        types.set(TokenTypes.LITERAL_PUBLIC);
+        assertTrue("invalid result", root.branchContainsAny(types));
+        assertFalse("invalid result", new DetailAST().branchContainsAny(new BitSet()));
+    }
+
     private static DetailAST createToken(DetailAST root, int type) {
         final DetailAST result = new DetailAST();
         result.setType(type);
@@ -19,20 +19,35 @@
 
 package com.puppycrawl.tools.checkstyle.api;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Locale;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.puppycrawl.tools.checkstyle.AbstractPathTestSupport;
 import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Path;
 
 public class FileTextTest extends AbstractPathTestSupport {
 
+    /** Replacement of malformed input. */
+    private static final char REPLACEMENT = 0xFFFD;
+
+    /** Line with characters of two and three bytes in UTF-8. */
+    private static final String LINE = "caf" + (char) 0xE9 + ' ' + (char) 0x20AC;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Override
     protected String getPackageLocation() {
         return "com/puppycrawl/tools/checkstyle/api/filetext";
@@ -97,4 +112,70 @@ public class FileTextTest extends AbstractPathTestSupport {
         assertEquals("Invalid column", 0, lineColumn.getColumn());
     }
 
+    @Test
+    public void testLineTerminators() throws IOException {
+        final FileText fileText = createFileText("a\r\nb\rc\n\r\n\rd");
+
+        assertArrayEquals("Invalid lines", new String[] {"a", "b", "c", "", "", "d"},
+                fileText.toLinesArray());
+        assertEquals("Invalid line", "c", fileText.get(2));
+        assertEquals("Invalid line column", new LineColumn(6, 0), fileText.lineColumn(10));
+        assertEquals("Invalid line column", new LineColumn(2, 1), fileText.lineColumn(4));
+    }
+
+    @Test
+    public void testTerminatorAtEndOfFile() throws IOException {
+        assertEquals("Invalid number of lines", 1, createFileText("a\r\n").size());
+        assertEquals("Invalid number of lines", 2, createFileText("a\n\n").size());
+        assertEquals("Invalid number of lines", 0, createFileText("").size());
+        assertEquals("Invalid line", "a", createFileText("a\r").get(0));
+    }
+
+    @Test
+    public void testCopyConstructorSharesLines() throws IOException {
+        final FileText fileText = createFileText("a\nb\n");
+        final FileText copy = new FileText(fileText);
+
+        assertSame("Line should be shared", fileText.get(1), copy.get(1));
+        assertSame("Full text should be shared", fileText.getFullText(), copy.getFullText());
+    }
+
+    @Test
+    public void testMalformedInputIsReplaced() throws IOException {
+        final File file = temporaryFolder.newFile();
+        Files7.write(new Path(file), new byte[] {'a', (byte) 0xC3, 'b', (byte) 0xC3, (byte) 0xA9});
+
+        final FileText fileText = new FileText(file, StandardCharsets.UTF_8.name());
+
+        assertEquals("Invalid text", "a" + REPLACEMENT + "b" + (char) 0xE9,
+                fileText.getFullText().toString());
+    }
+
+    @Test
+    public void testLargeFile() throws IOException {
+        final StringBuilder content = new StringBuilder(2 * 1024 * 1024);
+        while (content.length() < 2 * 1024 * 1024) {
+            content.append(LINE).append('\n');
+        }
+        content.append((char) 0xC3);
+        final String text = content.toString();
+        final File file = temporaryFolder.newFile();
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8.name());
+        bytes[bytes.length - 2] = (byte) 0xFF;
+        Files7.write(new Path(file), bytes);
+
+        final FileText fileText = new FileText(file, StandardCharsets.UTF_8.name());
+
+        assertEquals("Invalid text",
+                text.substring(0, text.length() - 1) + REPLACEMENT + REPLACEMENT,
+                fileText.getFullText().toString());
+        assertEquals("Invalid line", LINE, fileText.get(1000));
+    }
+
+    private FileText createFileText(String content) throws IOException {
+        final File file = temporaryFolder.newFile();
+        Files7.write(new Path(file), content.getBytes(StandardCharsets.UTF_8.name()));
+        return new FileText(file, StandardCharsets.UTF_8.name());
+    }
+
 }
@@ -0,0 +1,177 @@
+////////////////////////////////////////////////////////////////////////////////
+// checkstyle: Checks Java source code for adherence to a set of rules.
+// Copyright (C) 2001-2018 the original author or authors.
+//
+// This library is free software; you can redistribute it and/or
+// modify it under the terms of the GNU Lesser General Public
+// License as published by the Free Software Foundation; either
+// version 2.1 of the License, or (at your option) any later version.
+//
+// This library is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+// Lesser General Public License for more details.
+//
+// You should have received a copy of the GNU Lesser General Public
+// License along with this library; if not, write to the Free Software
+// Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+////////////////////////////////////////////////////////////////////////////////
+
+package com.puppycrawl.tools.checkstyle.filters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.AbstractModuleTestSupport;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+import com.puppycrawl.tools.checkstyle.jre6.charset.StandardCharsets;
+import com.puppycrawl.tools.checkstyle.jre6.file.Files7;
+import com.puppycrawl.tools.checkstyle.jre6.file.Paths;
+
+public class SuppressOutsideDiffFilterTest extends AbstractModuleTestSupport {
+
+    private static final String CHANGED_FILE = "/home/user/project/src/main/java/Changed.java";
+
+    @Override
+    protected String getPackageLocation() {
+        return "com/puppycrawl/tools/checkstyle/filters/suppressoutsidedifffilter";
+    }
+
+    @Test
+    public void testAcceptChangedLines() throws Exception {
+        final SuppressOutsideDiffFilter filter =
+                createFilter(getPath("InputSuppressOutsideDiffFilter.diff"), false);
+
+        final int[] changedLines = {2, 3, 12, 13, 22};
+        for (int line : changedLines) {
+            assertTrue("Error on changed line " + line + " should be accepted",
+                    filter.accept(createEvent(CHANGED_FILE, line)));
+        }
+        final int[] unchangedLines = {1, 4, 5, 11, 14, 21, 23};
+        for (int line : unchangedLines) {
+            assertFalse("Error on unchanged line " + line + " should be rejected",
+                    filter.accept(createEvent(CHANGED_FILE, line)));
+        }
+        assertTrue("Error without line in changed file should be accepted",
+                filter.accept(createEvent(CHANGED_FILE, 0)));
+        assertTrue("Error in file with Windows separators should be accepted",
+                filter.accept(createEvent("C:\\project\\src\\main\\java\\Changed.java", 2)));
+    }
+
+    @Test
+    public void testDiffContent() throws Exception {
+        final String diff = new String(Files7.readAllBytes(
+                Paths.get(getPath("InputSuppressOutsideDiffFilter.diff"))),
+                StandardCharsets.UTF_8);
+        final SuppressOutsideDiffFilter filter = new SuppressOutsideDiffFilter();
+        filter.setFile(getPath("InputSuppressOutsideDiffFilterMissing.diff"));
+        filter.setDiff(diff);
+        filter.finishLocalSetup();
+
+        assertTrue("Error on changed line should be accepted",
+                filter.accept(createEvent(CHANGED_FILE, 2)));
+        assertFalse("Error on unchanged line should be rejected",
+                filter.accept(createEvent(CHANGED_FILE, 1)));
+        assertEquals("Diff content should not be an external resource",
+                Collections.emptySet(), filter.getExternalResourceLocations());
+    }
+
+    @Test
+    public void testRejectUnchangedFiles() throws Exception {
+        final SuppressOutsideDiffFilter filter =
+                createFilter(getPath("InputSuppressOutsideDiffFilter.diff"), false);
+
+        assertFalse("Error in unchanged file should be rejected",
+                filter.accept(createEvent("/home/user/project/Other.java", 2)));
+        assertFalse("Error in file with the same name in another directory should be rejected",
+                filter.accept(createEvent("/home/user/project/src/test/java/Changed.java", 2)));
+        assertFalse("Error in deleted file should be rejected",
+                filter.accept(createEvent("/home/user/project/Deleted.java", 1)));
+        assertTrue("Event without error should be accepted",
+                filter.accept(new AuditEvent(this, "/home/user/project/Other.java", null)));
+    }
+
+    @Test
+    public void testAcceptWithoutFile() throws Exception {
+        final SuppressOutsideDiffFilter filter = createFilter(null, false);
+
+        assertTrue("Error should be accepted without diff file",
+                filter.accept(createEvent(CHANGED_FILE, 1)));
+    }
+
+    @Test
+    public void testAcceptWithMissingOptionalFile() throws Exception {
+        final SuppressOutsideDiffFilter filter =
+                createFilter(getPath("InputSuppressOutsideDiffFilterMissing.diff"), true);
+
+        assertTrue("Error should be accepted if optional diff file is missing",
+                filter.accept(createEvent(CHANGED_FILE, 1)));
+    }
+
+    @Test
+    public void testMissingFile() throws Exception {
+        final String fileName = getPath("InputSuppressOutsideDiffFilterMissing.diff");
+        try {
+            createFilter(fileName, false);
+            fail("Exception is expected");
+        }
+        catch (CheckstyleException ex) {
+            assertEquals("Invalid error message",
+                    "Unable to read diff file " + fileName, ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidHunkHeader() throws Exception {
+        try {
+            createFilter(getPath("InputSuppressOutsideDiffFilterInvalid.diff"), false);
+            fail("Exception is expected");
+        }
+        catch (CheckstyleException ex) {
+            assertEquals("Invalid error message",
+                    "Invalid hunk header: @@ invalid @@", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testExternalResourceLocations() throws Exception {
+        final String fileName = getPath("InputSuppressOutsideDiffFilter.diff");
+        final SuppressOutsideDiffFilter filter = createFilter(fileName, false);
+
+        assertEquals("Invalid external resource locations",
+                Collections.singleton(fileName), filter.getExternalResourceLocations());
+    }
+
+    @Test
+    public void testExternalResourceLocationsWithoutFile() throws Exception {
+        final SuppressOutsideDiffFilter filter = createFilter(null, false);
+
+        assertEquals("Invalid external resource locations",
+                Collections.emptySet(), filter.getExternalResourceLocations());
+    }
+
+    private AuditEvent createEvent(String fileName, int line) {
+        final LocalizedMessage message = new LocalizedMessage(line, 1, "bundle", "key", null,
+                SeverityLevel.ERROR, "moduleId", getClass(), "customMessage");
+        return new AuditEvent(this, fileName, message);
+    }
+
+    private static SuppressOutsideDiffFilter createFilter(String fileName, boolean optional)
+            throws CheckstyleException {
+        final SuppressOutsideDiffFilter filter = new SuppressOutsideDiffFilter();
+        filter.setFile(fileName);
+        filter.setOptional(optional);
+        filter.finishLocalSetup();
+        return filter;
+    }
+
+}
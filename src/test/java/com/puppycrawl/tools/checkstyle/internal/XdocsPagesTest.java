@@ -102,6 +102,7 @@ public class XdocsPagesTest {
             "name=\"SeverityMatchFilter\"",
             "name=\"SuppressWithPlainTextCommentFilter\"",
             "name=\"SuppressionFilter\"",
+            "name=\"SuppressOutsideDiffFilter\"",
             "name=\"SuppressWarningsFilter\"",
             "name=\"BeforeExecutionExclusionFileFilter\"",
             "name=\"RegexpHeader\"",
@@ -803,7 +804,8 @@ public class XdocsPagesTest {
         else if (fieldClass == AccessModifier[].class) {
             result = "Access Modifier Set";
         }
-        else if ("PropertyCacheFile".equals(fieldClass.getSimpleName())) {
+        else if ("PropertyCacheFile".equals(fieldClass.getSimpleName())
+                || "AstCacheDirectory".equals(fieldClass.getSimpleName())) {
             result = "File";
         }
         else {
@@ -851,6 +853,9 @@ public class XdocsPagesTest {
             else if ("PropertyCacheFile".equals(fieldClass.getSimpleName())) {
                 result = "null (no cache file)";
             }
+            else if ("AstCacheDirectory".equals(fieldClass.getSimpleName())) {
+                result = "null (no directory)";
+            }
             else if (fieldClass == boolean.class) {
                 result = value.toString();
             }
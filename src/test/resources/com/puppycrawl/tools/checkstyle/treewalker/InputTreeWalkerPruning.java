@@ -0,0 +1,24 @@
+package com.puppycrawl.tools.checkstyle.treewalker;
+
+import java.util.List;
+
+public class InputTreeWalkerPruning {
+    private int field = 1;
+
+    public int method(List<String> list) {
+        int sum = 0;
+        for (String item : list) {
+            if (item.isEmpty()) {
+                return -1;
+            }
+            sum += item.length();
+        }
+        return sum;
+    }
+
+    class Inner {
+        void inner() {
+            return;
+        }
+    }
+}